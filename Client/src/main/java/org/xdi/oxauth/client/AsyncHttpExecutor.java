@@ -0,0 +1,293 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.client;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Non-blocking HTTP executor of asynchronous oxAuth clients. Requests are sent by few I/O threads, number
+ * of requests in progress is limited, requests above limit wait in queue. If queue is full request fails
+ * with {@link RejectedExecutionException}. Default executor settings can be changed with system properties
+ * "oxauth.client.async.*" or replaced by {@link #setDefault(AsyncHttpExecutor)}
+ */
+public class AsyncHttpExecutor {
+
+    private static final Logger LOG = Logger.getLogger(AsyncHttpExecutor.class);
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+    public static final int DEFAULT_MAX_QUEUED = 10000;
+    public static final int DEFAULT_MAX_TOTAL = 200;
+    public static final int DEFAULT_MAX_PER_ROUTE = 100;
+    public static final int DEFAULT_IO_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static volatile AsyncHttpExecutor defaultExecutor;
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long idleTimeout;
+
+    private final PoolingNHttpClientConnectionManager connectionManager;
+    private final CloseableHttpAsyncClient httpClient;
+
+    private final Semaphore inFlight;
+    private final Queue<PendingRequest<?>> queue = new ConcurrentLinkedQueue<PendingRequest<?>>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong lastEviction = new AtomicLong(System.currentTimeMillis());
+
+    public AsyncHttpExecutor() {
+        this(DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_QUEUED, DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE, DEFAULT_IO_THREADS,
+                ClientHttpPool.DEFAULT_CONNECT_TIMEOUT, ClientHttpPool.DEFAULT_SOCKET_TIMEOUT,
+                ClientHttpPool.DEFAULT_CONNECTION_REQUEST_TIMEOUT, ClientHttpPool.DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param maxInFlight maximum number of requests in progress
+     * @param maxQueued maximum number of requests waiting for free slot
+     * @param maxTotal maximum number of connections in pool
+     * @param maxPerRoute maximum number of connections to one server
+     * @param ioThreads number of I/O threads
+     * @param connectTimeout connect timeout in milliseconds
+     * @param socketTimeout read timeout in milliseconds
+     * @param connectionRequestTimeout timeout of waiting for free connection in pool in milliseconds
+     * @param idleTimeout idle connections are closed after this number of seconds
+     */
+    public AsyncHttpExecutor(int maxInFlight, int maxQueued, int maxTotal, int maxPerRoute, int ioThreads,
+            int connectTimeout, int socketTimeout, int connectionRequestTimeout, int idleTimeout) {
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.idleTimeout = idleTimeout * 1000L;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads)
+                .setConnectTimeout(connectTimeout)
+                .setSoTimeout(socketTimeout)
+                .build();
+        try {
+            this.connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+        } catch (IOReactorException ex) {
+            throw new IllegalStateException("Failed to create I/O reactor", ex);
+        }
+        this.connectionManager.setMaxTotal(maxTotal);
+        this.connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(socketTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+
+        // Cookies are set explicitly per request, they should not be shared between requests
+        this.httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .disableCookieManagement()
+                .build();
+        this.httpClient.start();
+    }
+
+    /**
+     * @return executor used by asynchronous clients without executor, it's created on first call
+     */
+    public static AsyncHttpExecutor getDefault() {
+        AsyncHttpExecutor executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (AsyncHttpExecutor.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    executor = createFromSystemProperties();
+                    defaultExecutor = executor;
+                }
+            }
+        }
+
+        return executor;
+    }
+
+    /**
+     * Replaces default executor. Previous executor is not closed, requests in progress still use it
+     */
+    public static void setDefault(AsyncHttpExecutor executor) {
+        synchronized (AsyncHttpExecutor.class) {
+            defaultExecutor = executor;
+        }
+    }
+
+    /**
+     * Sends request and parses response by handler. Handler is called by I/O thread, so it should not
+     * block. Listeners of returned future are called by I/O thread too if they use direct executor
+     *
+     * @return future of parsed response, it fails if request or handler fails
+     */
+    public <T> ListenableFuture<T> execute(HttpUriRequest request, ResponseHandler<T> responseHandler) {
+        evictConnections();
+
+        PendingRequest<T> pendingRequest = new PendingRequest<T>(request, responseHandler);
+        if (inFlight.tryAcquire()) {
+            send(pendingRequest);
+        } else if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            pendingRequest.result.setException(new RejectedExecutionException(
+                    "Too many requests in progress, queue size is " + maxQueued));
+        } else {
+            queue.add(pendingRequest);
+            // Request in progress might finish before request was added to queue
+            sendQueued();
+        }
+
+        return pendingRequest.result;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public PoolStats getStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException ex) {
+            LOG.error("Failed to close HTTP client", ex);
+        }
+    }
+
+    private <T> void send(final PendingRequest<T> pendingRequest) {
+        if (pendingRequest.result.isDone()) {
+            // Cancelled while waiting in queue
+            release();
+            return;
+        }
+
+        final Future<HttpResponse> httpFuture;
+        try {
+            httpFuture = httpClient.execute(pendingRequest.request, new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse response) {
+                    try {
+                        pendingRequest.result.set(pendingRequest.responseHandler.handleResponse(response));
+                    } catch (Throwable ex) {
+                        pendingRequest.result.setException(ex);
+                    } finally {
+                        release();
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    pendingRequest.result.setException(ex);
+                    release();
+                }
+
+                @Override
+                public void cancelled() {
+                    pendingRequest.result.cancel(false);
+                    release();
+                }
+            });
+        } catch (RuntimeException ex) {
+            pendingRequest.result.setException(ex);
+            release();
+            return;
+        }
+
+        pendingRequest.result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (pendingRequest.result.isCancelled()) {
+                    httpFuture.cancel(true);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void release() {
+        inFlight.release();
+        sendQueued();
+    }
+
+    private void sendQueued() {
+        while (!queue.isEmpty() && inFlight.tryAcquire()) {
+            PendingRequest<?> pendingRequest = queue.poll();
+            if (pendingRequest == null) {
+                inFlight.release();
+                continue;
+            }
+
+            queued.decrementAndGet();
+            send(pendingRequest);
+        }
+    }
+
+    private void evictConnections() {
+        long now = System.currentTimeMillis();
+        long last = lastEviction.get();
+        if ((now - last >= idleTimeout) && lastEviction.compareAndSet(last, now)) {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static AsyncHttpExecutor createFromSystemProperties() {
+        return new AsyncHttpExecutor(
+                Integer.getInteger("oxauth.client.async.maxInFlight", DEFAULT_MAX_IN_FLIGHT),
+                Integer.getInteger("oxauth.client.async.maxQueued", DEFAULT_MAX_QUEUED),
+                Integer.getInteger("oxauth.client.async.maxTotal", DEFAULT_MAX_TOTAL),
+                Integer.getInteger("oxauth.client.async.maxPerRoute", DEFAULT_MAX_PER_ROUTE),
+                Integer.getInteger("oxauth.client.async.ioThreads", DEFAULT_IO_THREADS),
+                Integer.getInteger("oxauth.client.http.connectTimeout", ClientHttpPool.DEFAULT_CONNECT_TIMEOUT),
+                Integer.getInteger("oxauth.client.http.socketTimeout", ClientHttpPool.DEFAULT_SOCKET_TIMEOUT),
+                Integer.getInteger("oxauth.client.http.connectionRequestTimeout", ClientHttpPool.DEFAULT_CONNECTION_REQUEST_TIMEOUT),
+                Integer.getInteger("oxauth.client.http.idleTimeout", ClientHttpPool.DEFAULT_IDLE_TIMEOUT));
+    }
+
+    private static class PendingRequest<T> {
+
+        private final HttpUriRequest request;
+        private final ResponseHandler<T> responseHandler;
+        private final SettableFuture<T> result = SettableFuture.create();
+
+        public PendingRequest(HttpUriRequest request, ResponseHandler<T> responseHandler) {
+            this.request = request;
+            this.responseHandler = responseHandler;
+        }
+
+    }
+
+}
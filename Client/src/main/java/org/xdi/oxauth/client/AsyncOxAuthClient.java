@@ -0,0 +1,258 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.Consts;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.xdi.oxauth.model.common.AuthenticationMethod;
+import org.xdi.oxauth.model.common.GrantType;
+import org.xdi.oxauth.model.common.IntrospectionResponse;
+import org.xdi.oxauth.model.uma.UmaTokenResponse;
+import org.xdi.oxauth.model.util.Util;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Asynchronous token, user info, introspection and UMA token client. Client has no per request state, so one
+ * instance can be shared by all threads. Requests are sent by {@link AsyncHttpExecutor} without blocking
+ * caller thread, returned futures are completed by I/O threads.
+ * <p>
+ * Token and user info futures are completed with response for any HTTP status, like synchronous clients do.
+ * Introspection and UMA token futures fail with {@link HttpResponseException} if status is not successful.
+ * Signed or encrypted user info responses are not supported, {@link UserInfoClient} should be used for them
+ */
+public class AsyncOxAuthClient {
+
+    private static final ObjectMapper JSON_MAPPER = Util.createJsonMapper()
+            .configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final AsyncHttpExecutor executor;
+
+    /**
+     * Constructs client which uses default executor
+     */
+    public AsyncOxAuthClient() {
+        this(AsyncHttpExecutor.getDefault());
+    }
+
+    public AsyncOxAuthClient(AsyncHttpExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sends token request.
+     *
+     * @param url The token endpoint.
+     * @param request The token request, it should not be changed until future is done.
+     * @return The future of token response.
+     */
+    public ListenableFuture<TokenResponse> execToken(String url, TokenRequest request) {
+        HttpPost httpPost = new HttpPost(url);
+        if (request.getAuthenticationMethod() == AuthenticationMethod.CLIENT_SECRET_BASIC
+                && request.hasCredentials()) {
+            httpPost.setHeader(HttpHeaders.AUTHORIZATION, "Basic " + request.getEncodedCredentials());
+        }
+        httpPost.setEntity(formEntity(TokenClient.getFormParameters(request)));
+
+        return executor.execute(httpPost, new ResponseHandler<TokenResponse>() {
+            @Override
+            public TokenResponse handleResponse(HttpResponse httpResponse) throws IOException {
+                TokenResponse response = new TokenResponse();
+                fillResponse(response, httpResponse);
+                if (StringUtils.isNotBlank(response.getEntity())) {
+                    response.injectErrorIfExistSilently(response.getEntity());
+                    response.injectDataFromJson();
+                }
+
+                return response;
+            }
+        });
+    }
+
+    /**
+     * Requests new access token by refresh token.
+     *
+     * @param url The token endpoint.
+     * @param scope The scope of the access request.
+     * @param refreshToken The refresh token.
+     * @param clientId The client identifier.
+     * @param clientSecret The client secret.
+     * @return The future of token response.
+     */
+    public ListenableFuture<TokenResponse> execRefreshToken(String url, String scope, String refreshToken,
+                                                            String clientId, String clientSecret) {
+        TokenRequest request = new TokenRequest(GrantType.REFRESH_TOKEN);
+        request.setScope(scope);
+        request.setRefreshToken(refreshToken);
+        request.setAuthUsername(clientId);
+        request.setAuthPassword(clientSecret);
+
+        return execToken(url, request);
+    }
+
+    /**
+     * Requests user claims, access token is sent in authorization header.
+     *
+     * @param url The user info endpoint.
+     * @param accessToken The access token.
+     * @return The future of user info response.
+     */
+    public ListenableFuture<UserInfoResponse> execUserInfo(String url, String accessToken) {
+        HttpGet httpGet = new HttpGet(url);
+        httpGet.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken);
+
+        return executor.execute(httpGet, new ResponseHandler<UserInfoResponse>() {
+            @Override
+            public UserInfoResponse handleResponse(HttpResponse httpResponse) throws IOException {
+                Header contentType = httpResponse.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+                if ((contentType != null) && contentType.getValue().startsWith("application/jwt")) {
+                    EntityUtils.consume(httpResponse.getEntity());
+                    throw new ClientProtocolException("Signed or encrypted user info response is not supported");
+                }
+
+                UserInfoResponse response = new UserInfoResponse(httpResponse.getStatusLine().getStatusCode());
+                fillResponse(response, httpResponse);
+                if (StringUtils.isNotBlank(response.getEntity())) {
+                    response.injectDataFromJson(response.getEntity());
+                }
+
+                return response;
+            }
+        });
+    }
+
+    /**
+     * Returns introspection response for specified token.
+     *
+     * @param url The introspection endpoint.
+     * @param authorization The authorization header value.
+     * @param token The token to introspect.
+     * @return The future of introspection response.
+     */
+    public ListenableFuture<IntrospectionResponse> introspectToken(String url, String authorization, String token) {
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        httpPost.setHeader(HttpHeaders.ACCEPT, "application/json");
+
+        List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+        parameters.add(new BasicNameValuePair("token", token));
+        httpPost.setEntity(new UrlEncodedFormEntity(parameters, Consts.UTF_8));
+
+        return executor.execute(httpPost, new JsonResponseHandler<IntrospectionResponse>(IntrospectionResponse.class));
+    }
+
+    /**
+     * Requests RPT from UMA token endpoint. Empty parameters are not sent.
+     *
+     * @param url The UMA token endpoint.
+     * @param authorization The authorization header value.
+     * @return The future of UMA token response.
+     */
+    public ListenableFuture<UmaTokenResponse> requestRpt(String url, String authorization, String grantType,
+                                                         String ticket, String claimToken, String claimTokenFormat,
+                                                         String pctCode, String rptCode, String scope) {
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        httpPost.setHeader(HttpHeaders.ACCEPT, "application/json");
+
+        List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+        addParameter(parameters, "grant_type", grantType);
+        addParameter(parameters, "ticket", ticket);
+        addParameter(parameters, "claim_token", claimToken);
+        addParameter(parameters, "claim_token_format", claimTokenFormat);
+        addParameter(parameters, "pct", pctCode);
+        addParameter(parameters, "rpt", rptCode);
+        addParameter(parameters, "scope", scope);
+        httpPost.setEntity(new UrlEncodedFormEntity(parameters, Consts.UTF_8));
+
+        return executor.execute(httpPost, new JsonResponseHandler<UmaTokenResponse>(UmaTokenResponse.class));
+    }
+
+    private static UrlEncodedFormEntity formEntity(Map<String, String> formParameters) {
+        List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+        for (Map.Entry<String, String> formParameter : formParameters.entrySet()) {
+            addParameter(parameters, formParameter.getKey(), formParameter.getValue());
+        }
+
+        return new UrlEncodedFormEntity(parameters, Consts.UTF_8);
+    }
+
+    private static void addParameter(List<NameValuePair> parameters, String name, String value) {
+        if (StringUtils.isNotBlank(value)) {
+            parameters.add(new BasicNameValuePair(name, value));
+        }
+    }
+
+    private static void fillResponse(BaseResponse response, HttpResponse httpResponse) throws IOException {
+        response.setStatus(httpResponse.getStatusLine().getStatusCode());
+
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<String, Object>();
+        for (Header header : httpResponse.getAllHeaders()) {
+            headers.add(header.getName(), header.getValue());
+        }
+        response.setHeaders(headers);
+
+        Header location = httpResponse.getFirstHeader(HttpHeaders.LOCATION);
+        if (location != null) {
+            response.setLocation(location.getValue());
+        }
+
+        HttpEntity entity = httpResponse.getEntity();
+        if (entity != null) {
+            response.setEntity(EntityUtils.toString(entity, Consts.UTF_8));
+        }
+    }
+
+    private static class JsonResponseHandler<T> implements ResponseHandler<T> {
+
+        private final Class<T> type;
+
+        public JsonResponseHandler(Class<T> type) {
+            this.type = type;
+        }
+
+        @Override
+        public T handleResponse(HttpResponse httpResponse) throws IOException {
+            int status = httpResponse.getStatusLine().getStatusCode();
+            HttpEntity entity = httpResponse.getEntity();
+            if ((status < 200) || (status >= 300)) {
+                EntityUtils.consume(entity);
+                throw new HttpResponseException(status, httpResponse.getStatusLine().getReasonPhrase());
+            }
+            if (entity == null) {
+                throw new ClientProtocolException("Response has no content");
+            }
+
+            return JSON_MAPPER.readValue(EntityUtils.toString(entity, Consts.UTF_8), type);
+        }
+
+    }
+
+}
@@ -222,7 +222,8 @@ public abstract class BaseClient<T extends BaseRequest, V extends BaseResponse>
 
     protected void initClientRequest() {
         if (this.executor == null) {
-            this.clientRequest = new ClientRequest(getUrl());
+            // Reuse pooled connections if executor is not specified
+            this.clientRequest = new ClientRequest(getUrl(), ClientHttpPool.getDefaultExecutor());
         } else {
             this.clientRequest = new ClientRequest(getUrl(), this.executor);
         }
@@ -0,0 +1,187 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.log4j.Logger;
+import org.jboss.resteasy.client.ClientExecutor;
+import org.jboss.resteasy.client.core.executors.ApacheHttpClient4Executor;
+
+/**
+ * Pool of persistent HTTP connections shared by oxAuth clients. Clients created without executor use
+ * executor of default pool, so connections to the same server are reused between requests instead of
+ * opening new TCP/TLS connection per request. Default pool settings can be changed with system properties
+ * "oxauth.client.http.*" or replaced by {@link #setDefault(ClientHttpPool)}
+ */
+public class ClientHttpPool {
+
+    private static final Logger LOG = Logger.getLogger(ClientHttpPool.class);
+
+    public static final int DEFAULT_MAX_TOTAL = 200;
+    public static final int DEFAULT_MAX_PER_ROUTE = 20;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000; // milliseconds
+    public static final int DEFAULT_SOCKET_TIMEOUT = 60000; // milliseconds
+    public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 10000; // milliseconds
+    public static final int DEFAULT_IDLE_TIMEOUT = 30; // seconds
+    public static final int DEFAULT_KEEP_ALIVE = 30; // seconds
+
+    private static volatile ClientHttpPool defaultPool;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final ClientExecutor executor;
+
+    public ClientHttpPool() {
+        this(DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE, DEFAULT_CONNECT_TIMEOUT, DEFAULT_SOCKET_TIMEOUT,
+                DEFAULT_CONNECTION_REQUEST_TIMEOUT, DEFAULT_IDLE_TIMEOUT, DEFAULT_KEEP_ALIVE);
+    }
+
+    /**
+     * @param maxTotal maximum number of connections in pool
+     * @param maxPerRoute maximum number of connections to one server
+     * @param connectTimeout connect timeout in milliseconds
+     * @param socketTimeout read timeout in milliseconds
+     * @param connectionRequestTimeout timeout of waiting for free connection in pool in milliseconds
+     * @param idleTimeout idle connections are closed after this number of seconds
+     * @param keepAlive keep alive time in seconds if server doesn't specify it
+     */
+    public ClientHttpPool(int maxTotal, int maxPerRoute, int connectTimeout, int socketTimeout,
+            int connectionRequestTimeout, int idleTimeout, final int keepAlive) {
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(maxTotal);
+        this.connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        // Check connections which were idle for a while, server might close them
+        this.connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(socketTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+
+        ConnectionKeepAliveStrategy keepAliveStrategy = new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+                while (it.hasNext()) {
+                    HeaderElement element = it.nextElement();
+                    if ("timeout".equalsIgnoreCase(element.getName()) && (element.getValue() != null)) {
+                        try {
+                            return Long.parseLong(element.getValue()) * 1000;
+                        } catch (NumberFormatException ex) {
+                            // Use default keep alive
+                        }
+                    }
+                }
+
+                return keepAlive * 1000L;
+            }
+        };
+
+        // Cookies are set explicitly per request, they should not be shared between clients
+        this.httpClient = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .disableCookieManagement()
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout, TimeUnit.SECONDS)
+                .build();
+
+        this.executor = new SharedClientExecutor(httpClient);
+    }
+
+    /**
+     * @return pool used by clients without executor, it's created on first call
+     */
+    public static ClientHttpPool getDefault() {
+        ClientHttpPool pool = defaultPool;
+        if (pool == null) {
+            synchronized (ClientHttpPool.class) {
+                pool = defaultPool;
+                if (pool == null) {
+                    pool = createFromSystemProperties();
+                    defaultPool = pool;
+                }
+            }
+        }
+
+        return pool;
+    }
+
+    /**
+     * Replaces default pool. Previous pool is not closed, requests in progress still use it
+     */
+    public static void setDefault(ClientHttpPool pool) {
+        synchronized (ClientHttpPool.class) {
+            defaultPool = pool;
+        }
+    }
+
+    public static ClientExecutor getDefaultExecutor() {
+        return getDefault().getExecutor();
+    }
+
+    /**
+     * @return thread safe executor, it should not be closed by clients
+     */
+    public ClientExecutor getExecutor() {
+        return executor;
+    }
+
+    public PoolStats getStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (Exception ex) {
+            LOG.error("Failed to close HTTP client", ex);
+        }
+    }
+
+    private static ClientHttpPool createFromSystemProperties() {
+        return new ClientHttpPool(
+                Integer.getInteger("oxauth.client.http.maxTotal", DEFAULT_MAX_TOTAL),
+                Integer.getInteger("oxauth.client.http.maxPerRoute", DEFAULT_MAX_PER_ROUTE),
+                Integer.getInteger("oxauth.client.http.connectTimeout", DEFAULT_CONNECT_TIMEOUT),
+                Integer.getInteger("oxauth.client.http.socketTimeout", DEFAULT_SOCKET_TIMEOUT),
+                Integer.getInteger("oxauth.client.http.connectionRequestTimeout", DEFAULT_CONNECTION_REQUEST_TIMEOUT),
+                Integer.getInteger("oxauth.client.http.idleTimeout", DEFAULT_IDLE_TIMEOUT),
+                Integer.getInteger("oxauth.client.http.keepAlive", DEFAULT_KEEP_ALIVE));
+    }
+
+    /**
+     * Executor of pooled HTTP client. Clients close executor after each request, pool is closed by owner only
+     */
+    private static class SharedClientExecutor extends ApacheHttpClient4Executor {
+
+        public SharedClientExecutor(CloseableHttpClient httpClient) {
+            super(httpClient);
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
@@ -13,6 +13,8 @@ import org.xdi.oxauth.model.common.GrantType;
 import org.xdi.oxauth.model.token.ClientAssertionType;
 
 import javax.ws.rs.HttpMethod;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Encapsulates functionality to make token request calls to an authorization
@@ -225,50 +227,9 @@ public class TokenClient extends BaseClient<TokenRequest, TokenResponse> {
         clientRequest.header("Content-Type", request.getContentType());
         clientRequest.setHttpMethod(getHttpMethod());
 
-        if (getRequest().getGrantType() != null) {
-            clientRequest.formParameter("grant_type", getRequest().getGrantType());
-        }
-        if (StringUtils.isNotBlank(getRequest().getCode())) {
-            clientRequest.formParameter("code", getRequest().getCode());
-        }
-        if (StringUtils.isNotBlank(getRequest().getCodeVerifier())) {
-            clientRequest.formParameter("code_verifier", getRequest().getCodeVerifier());
-        }
-        if (StringUtils.isNotBlank(getRequest().getRedirectUri())) {
-            clientRequest.formParameter("redirect_uri", getRequest().getRedirectUri());
-        }
-        if (StringUtils.isNotBlank(getRequest().getUsername())) {
-            clientRequest.formParameter("username", getRequest().getUsername());
-        }
-        if (StringUtils.isNotBlank(getRequest().getPassword())) {
-            clientRequest.formParameter("password", getRequest().getPassword());
-        }
-        if (StringUtils.isNotBlank(getRequest().getScope())) {
-            clientRequest.formParameter("scope", getRequest().getScope());
-        }
-        if (StringUtils.isNotBlank(getRequest().getAssertion())) {
-            clientRequest.formParameter("assertion", getRequest().getAssertion());
-        }
-        if (StringUtils.isNotBlank(getRequest().getRefreshToken())) {
-            clientRequest.formParameter("refresh_token", getRequest().getRefreshToken());
-        }
-        if (getRequest().getAuthenticationMethod() == AuthenticationMethod.CLIENT_SECRET_POST) {
-            if (getRequest().getAuthUsername() != null && !getRequest().getAuthUsername().isEmpty()) {
-                clientRequest.formParameter("client_id", getRequest().getAuthUsername());
-            }
-            if (getRequest().getAuthPassword() != null && !getRequest().getAuthPassword().isEmpty()) {
-                clientRequest.formParameter("client_secret", getRequest().getAuthPassword());
-            }
-        } else if (getRequest().getAuthenticationMethod() == AuthenticationMethod.CLIENT_SECRET_JWT ||
-                getRequest().getAuthenticationMethod() == AuthenticationMethod.PRIVATE_KEY_JWT) {
-            clientRequest.formParameter("client_assertion_type", ClientAssertionType.JWT_BEARER);
-            clientRequest.formParameter("client_assertion", getRequest().getClientAssertion());
-            if (getRequest().getAuthUsername() != null && !getRequest().getAuthUsername().isEmpty()) {
-                clientRequest.formParameter("client_id", getRequest().getAuthUsername());
-            }
-        }
-        for (String key : getRequest().getCustomParameters().keySet()) {
-            clientRequest.formParameter(key, getRequest().getCustomParameters().get(key));
+        Map<String, String> formParameters = getFormParameters(getRequest());
+        for (Map.Entry<String, String> formParameter : formParameters.entrySet()) {
+            clientRequest.formParameter(formParameter.getKey(), formParameter.getValue());
         }
 
         // Call REST Service and handle response
@@ -286,4 +247,62 @@ public class TokenClient extends BaseClient<TokenRequest, TokenResponse> {
 
         return getResponse();
     }
+
+    /**
+     * Returns form parameters of token request in the order they are sent.
+     *
+     * @param request The token request.
+     * @return The form parameters.
+     */
+    static Map<String, String> getFormParameters(TokenRequest request) {
+        Map<String, String> parameters = new LinkedHashMap<String, String>();
+
+        if (request.getGrantType() != null) {
+            parameters.put("grant_type", request.getGrantType().toString());
+        }
+        if (StringUtils.isNotBlank(request.getCode())) {
+            parameters.put("code", request.getCode());
+        }
+        if (StringUtils.isNotBlank(request.getCodeVerifier())) {
+            parameters.put("code_verifier", request.getCodeVerifier());
+        }
+        if (StringUtils.isNotBlank(request.getRedirectUri())) {
+            parameters.put("redirect_uri", request.getRedirectUri());
+        }
+        if (StringUtils.isNotBlank(request.getUsername())) {
+            parameters.put("username", request.getUsername());
+        }
+        if (StringUtils.isNotBlank(request.getPassword())) {
+            parameters.put("password", request.getPassword());
+        }
+        if (StringUtils.isNotBlank(request.getScope())) {
+            parameters.put("scope", request.getScope());
+        }
+        if (StringUtils.isNotBlank(request.getAssertion())) {
+            parameters.put("assertion", request.getAssertion());
+        }
+        if (StringUtils.isNotBlank(request.getRefreshToken())) {
+            parameters.put("refresh_token", request.getRefreshToken());
+        }
+        if (request.getAuthenticationMethod() == AuthenticationMethod.CLIENT_SECRET_POST) {
+            if (request.getAuthUsername() != null && !request.getAuthUsername().isEmpty()) {
+                parameters.put("client_id", request.getAuthUsername());
+            }
+            if (request.getAuthPassword() != null && !request.getAuthPassword().isEmpty()) {
+                parameters.put("client_secret", request.getAuthPassword());
+            }
+        } else if (request.getAuthenticationMethod() == AuthenticationMethod.CLIENT_SECRET_JWT ||
+                request.getAuthenticationMethod() == AuthenticationMethod.PRIVATE_KEY_JWT) {
+            parameters.put("client_assertion_type", ClientAssertionType.JWT_BEARER.toString());
+            parameters.put("client_assertion", request.getClientAssertion());
+            if (request.getAuthUsername() != null && !request.getAuthUsername().isEmpty()) {
+                parameters.put("client_id", request.getAuthUsername());
+            }
+        }
+        for (String key : request.getCustomParameters().keySet()) {
+            parameters.put(key, request.getCustomParameters().get(key));
+        }
+
+        return parameters;
+    }
 }
\ No newline at end of file
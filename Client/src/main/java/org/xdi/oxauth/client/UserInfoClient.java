@@ -7,22 +7,16 @@
 package org.xdi.oxauth.client;
 
 import org.apache.commons.lang.StringUtils;
-import org.codehaus.jettison.json.JSONArray;
-import org.codehaus.jettison.json.JSONException;
-import org.codehaus.jettison.json.JSONObject;
 import org.xdi.oxauth.model.common.AuthorizationMethod;
 import org.xdi.oxauth.model.crypto.OxAuthCryptoProvider;
 import org.xdi.oxauth.model.jwe.Jwe;
 import org.xdi.oxauth.model.jwt.Jwt;
-import org.xdi.oxauth.model.userinfo.UserInfoErrorResponseType;
 import org.xdi.oxauth.model.util.JwtUtil;
 import org.xdi.oxauth.model.util.Util;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.MediaType;
 import java.security.PrivateKey;
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -137,46 +131,7 @@ public class UserInfoClient extends BaseClient<UserInfoRequest, UserInfoResponse
                         }
                     }
                 } else {
-                    try {
-                        JSONObject jsonObj = new JSONObject(entity);
-
-                        if (jsonObj.has("error")) {
-                            getResponse().setErrorType(UserInfoErrorResponseType.fromString(jsonObj.getString("error")));
-                            jsonObj.remove("error");
-                        }
-                        if (jsonObj.has("error_description")) {
-                            getResponse().setErrorDescription(jsonObj.getString("error_description"));
-                            jsonObj.remove("error_description");
-                        }
-                        if (jsonObj.has("error_uri")) {
-                            getResponse().setErrorUri(jsonObj.getString("error_uri"));
-                            jsonObj.remove("error_uri");
-                        }
-
-                        for (Iterator<String> iterator = jsonObj.keys(); iterator.hasNext(); ) {
-                            String key = iterator.next();
-                            List<String> values = new ArrayList<String>();
-
-                            JSONArray jsonArray = jsonObj.optJSONArray(key);
-                            if (jsonArray != null) {
-                                for (int i = 0; i < jsonArray.length(); i++) {
-                                    String value = jsonArray.optString(i);
-                                    if (value != null) {
-                                        values.add(value);
-                                    }
-                                }
-                            } else {
-                                String value = jsonObj.optString(key);
-                                if (value != null) {
-                                    values.add(value);
-                                }
-                            }
-
-                            getResponse().getClaims().put(key, values);
-                        }
-                    } catch (JSONException e) {
-                        e.printStackTrace();
-                    }
+                    getResponse().injectDataFromJson(entity);
                 }
             }
         } catch (Exception e) {
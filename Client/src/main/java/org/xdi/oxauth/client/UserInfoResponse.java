@@ -6,9 +6,14 @@
 
 package org.xdi.oxauth.client;
 
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
 import org.xdi.oxauth.model.userinfo.UserInfoErrorResponseType;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -43,6 +48,54 @@ public class UserInfoResponse extends BaseResponse {
         this.claims = claims;
     }
 
+    /**
+     * Sets claims and error fields from JSON entity of the response.
+     *
+     * @param entity The JSON entity.
+     */
+    public void injectDataFromJson(String entity) {
+        try {
+            JSONObject jsonObj = new JSONObject(entity);
+
+            if (jsonObj.has("error")) {
+                setErrorType(UserInfoErrorResponseType.fromString(jsonObj.getString("error")));
+                jsonObj.remove("error");
+            }
+            if (jsonObj.has("error_description")) {
+                setErrorDescription(jsonObj.getString("error_description"));
+                jsonObj.remove("error_description");
+            }
+            if (jsonObj.has("error_uri")) {
+                setErrorUri(jsonObj.getString("error_uri"));
+                jsonObj.remove("error_uri");
+            }
+
+            for (Iterator<String> iterator = jsonObj.keys(); iterator.hasNext(); ) {
+                String key = iterator.next();
+                List<String> values = new ArrayList<String>();
+
+                JSONArray jsonArray = jsonObj.optJSONArray(key);
+                if (jsonArray != null) {
+                    for (int i = 0; i < jsonArray.length(); i++) {
+                        String value = jsonArray.optString(i);
+                        if (value != null) {
+                            values.add(value);
+                        }
+                    }
+                } else {
+                    String value = jsonObj.optString(key);
+                    if (value != null) {
+                        values.add(value);
+                    }
+                }
+
+                getClaims().put(key, values);
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Returns the error code when the request fails, otherwise will return <code>null</code>.
      *
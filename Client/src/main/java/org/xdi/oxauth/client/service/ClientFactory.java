@@ -8,6 +8,7 @@ package org.xdi.oxauth.client.service;
 
 import org.jboss.resteasy.client.ClientExecutor;
 import org.jboss.resteasy.client.ProxyFactory;
+import org.xdi.oxauth.client.ClientHttpPool;
 
 /**
  * @author Yuriy Zabrovarnyy
@@ -26,7 +27,7 @@ public class ClientFactory {
     }
 
     public IntrospectionService createIntrospectionService(String p_url) {
-        return ProxyFactory.create(IntrospectionService.class, p_url);
+        return ProxyFactory.create(IntrospectionService.class, p_url, ClientHttpPool.getDefaultExecutor());
     }
 
     public IntrospectionService createIntrospectionService(String p_url, ClientExecutor clientExecutor) {
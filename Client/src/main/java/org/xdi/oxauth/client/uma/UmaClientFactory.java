@@ -8,6 +8,7 @@ package org.xdi.oxauth.client.uma;
 
 import org.jboss.resteasy.client.ClientExecutor;
 import org.jboss.resteasy.client.ProxyFactory;
+import org.xdi.oxauth.client.ClientHttpPool;
 import org.xdi.oxauth.model.uma.UmaMetadata;
 
 /**
@@ -28,7 +29,7 @@ public class UmaClientFactory {
     }
 
     public UmaResourceService createResourceService(UmaMetadata metadata) {
-        return ProxyFactory.create(UmaResourceService.class, metadata.getResourceRegistrationEndpoint());
+        return ProxyFactory.create(UmaResourceService.class, metadata.getResourceRegistrationEndpoint(), ClientHttpPool.getDefaultExecutor());
     }
 
     public UmaResourceService createResourceService(UmaMetadata metadata, ClientExecutor clientExecutor) {
@@ -36,7 +37,7 @@ public class UmaClientFactory {
     }
 
     public UmaPermissionService createPermissionService(UmaMetadata metadata) {
-        return ProxyFactory.create(UmaPermissionService.class, metadata.getPermissionEndpoint());
+        return ProxyFactory.create(UmaPermissionService.class, metadata.getPermissionEndpoint(), ClientHttpPool.getDefaultExecutor());
     }
 
     public UmaPermissionService createPermissionService(UmaMetadata metadata, ClientExecutor clientExecutor) {
@@ -44,7 +45,7 @@ public class UmaClientFactory {
     }
 
     public UmaRptIntrospectionService createRptStatusService(UmaMetadata metadata) {
-        return ProxyFactory.create(UmaRptIntrospectionService.class, metadata.getIntrospectionEndpoint());
+        return ProxyFactory.create(UmaRptIntrospectionService.class, metadata.getIntrospectionEndpoint(), ClientHttpPool.getDefaultExecutor());
     }
 
     public UmaRptIntrospectionService createRptStatusService(UmaMetadata metadata, ClientExecutor clientExecutor) {
@@ -52,7 +53,7 @@ public class UmaClientFactory {
     }
 
     public UmaMetadataService createMetadataService(String umaMetadataUri) {
-        return ProxyFactory.create(UmaMetadataService.class, umaMetadataUri);
+        return ProxyFactory.create(UmaMetadataService.class, umaMetadataUri, ClientHttpPool.getDefaultExecutor());
     }
 
     public UmaMetadataService createMetadataService(String umaMetadataUri, ClientExecutor clientExecutor) {
@@ -60,11 +61,11 @@ public class UmaClientFactory {
     }
 
     public UmaScopeService createScopeService(String scopeEndpointUri) {
-        return ProxyFactory.create(UmaScopeService.class, scopeEndpointUri);
+        return ProxyFactory.create(UmaScopeService.class, scopeEndpointUri, ClientHttpPool.getDefaultExecutor());
     }
 
     public UmaTokenService createTokenService(UmaMetadata metadata) {
-        return ProxyFactory.create(UmaTokenService.class, metadata.getTokenEndpoint());
+        return ProxyFactory.create(UmaTokenService.class, metadata.getTokenEndpoint(), ClientHttpPool.getDefaultExecutor());
     }
 
     public UmaTokenService createTokenService(UmaMetadata metadata, ClientExecutor clientExecutor) {
@@ -0,0 +1,248 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.client.validation;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.util.Date;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.lang.StringUtils;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithm;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithmFamily;
+import org.xdi.oxauth.model.exception.InvalidJwtException;
+import org.xdi.oxauth.model.jwt.Jwt;
+import org.xdi.oxauth.model.jwt.JwtClaimName;
+import org.xdi.oxauth.model.util.Base64Util;
+import org.xdi.oxauth.model.util.Util;
+
+/**
+ * Validates id_token of one issuer and client locally: signature, iss, aud, azp, exp and nonce. Keys are
+ * taken from {@link ProviderMetadataCache}, so network is used only to load or refresh issuer metadata.
+ * Validator is thread safe
+ */
+public class IdTokenValidator {
+
+    public static final int DEFAULT_CLOCK_SKEW = 60; // seconds
+
+    private final ProviderMetadataCache metadataCache;
+    private final String issuer;
+    private final String clientId;
+    private final String clientSecret;
+
+    private int clockSkew = DEFAULT_CLOCK_SKEW;
+
+    public IdTokenValidator(ProviderMetadataCache metadataCache, String issuer, String clientId) {
+        this(metadataCache, issuer, clientId, null);
+    }
+
+    /**
+     * @param clientSecret client secret to validate tokens signed by HMAC algorithms, can be null
+     */
+    public IdTokenValidator(ProviderMetadataCache metadataCache, String issuer, String clientId, String clientSecret) {
+        this.metadataCache = metadataCache;
+        this.issuer = issuer;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+    }
+
+    public int getClockSkew() {
+        return clockSkew;
+    }
+
+    public void setClockSkew(int clockSkew) {
+        this.clockSkew = clockSkew;
+    }
+
+    /**
+     * Validates id_token
+     *
+     * @param idToken encoded id_token
+     * @param nonce nonce sent in authorization request, it's not checked if null
+     * @return parsed id_token
+     * @throws InvalidJwtException if id_token is not valid
+     */
+    public Jwt validate(String idToken, String nonce) throws InvalidJwtException {
+        Jwt jwt = Jwt.parse(idToken);
+        if (jwt == null) {
+            throw new InvalidJwtException("The id_token is empty");
+        }
+
+        validateClaims(jwt, nonce);
+        validateSignature(jwt);
+
+        return jwt;
+    }
+
+    private void validateClaims(Jwt jwt, String nonce) throws InvalidJwtException {
+        if (!issuer.equals(jwt.getClaims().getClaimAsString(JwtClaimName.ISSUER))) {
+            throw new InvalidJwtException("Invalid issuer: " + jwt.getClaims().getClaimAsString(JwtClaimName.ISSUER));
+        }
+
+        List<String> audience = jwt.getClaims().getClaimAsStringList(JwtClaimName.AUDIENCE);
+        if (!audience.contains(clientId)) {
+            throw new InvalidJwtException("Invalid audience: " + audience);
+        }
+
+        String authorizedParty = jwt.getClaims().getClaimAsString(JwtClaimName.AUTHORIZED_PARTY);
+        if ((audience.size() > 1) || (authorizedParty != null)) {
+            if (!clientId.equals(authorizedParty)) {
+                throw new InvalidJwtException("Invalid authorized party: " + authorizedParty);
+            }
+        }
+
+        Date expirationTime = jwt.getClaims().getClaimAsDate(JwtClaimName.EXPIRATION_TIME);
+        if (expirationTime == null) {
+            throw new InvalidJwtException("The expiration time is missing");
+        }
+        if (expirationTime.getTime() + clockSkew * 1000L < System.currentTimeMillis()) {
+            throw new InvalidJwtException("The id_token is expired");
+        }
+
+        if ((nonce != null) && !nonce.equals(jwt.getClaims().getClaimAsString(JwtClaimName.NONCE))) {
+            throw new InvalidJwtException("Invalid nonce");
+        }
+    }
+
+    private void validateSignature(Jwt jwt) throws InvalidJwtException {
+        SignatureAlgorithm algorithm = jwt.getHeader().getAlgorithm();
+        if ((algorithm == null) || (algorithm == SignatureAlgorithm.NONE)) {
+            throw new InvalidJwtException("The id_token is not signed");
+        }
+
+        boolean valid;
+        try {
+            byte[] signingInput = jwt.getSigningInput().getBytes(Util.UTF8_STRING_ENCODING);
+            byte[] signature = Base64Util.base64urldecode(jwt.getEncodedSignature());
+
+            if (SignatureAlgorithmFamily.HMAC.equals(algorithm.getFamily())) {
+                valid = validateHmac(algorithm, signingInput, signature);
+            } else {
+                valid = validateAsymmetric(jwt, algorithm, signingInput, signature);
+            }
+        } catch (InvalidJwtException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new InvalidJwtException("Failed to validate signature", ex);
+        }
+
+        if (!valid) {
+            throw new InvalidJwtException("Invalid signature");
+        }
+    }
+
+    private boolean validateHmac(SignatureAlgorithm algorithm, byte[] signingInput, byte[] signature) throws Exception {
+        if (clientSecret == null) {
+            throw new InvalidJwtException("Client secret is required to validate " + algorithm + " signature");
+        }
+
+        Mac mac = Mac.getInstance(algorithm.getAlgorithm());
+        mac.init(new SecretKeySpec(clientSecret.getBytes(Util.UTF8_STRING_ENCODING), algorithm.getAlgorithm()));
+
+        return MessageDigest.isEqual(mac.doFinal(signingInput), signature);
+    }
+
+    private boolean validateAsymmetric(Jwt jwt, SignatureAlgorithm algorithm, byte[] signingInput, byte[] signature) throws Exception {
+        String keyId = jwt.getHeader().getKeyId();
+        PublicKey publicKey = getKey(keyId);
+        if (publicKey == null) {
+            throw new InvalidJwtException("Unknown key id: " + keyId);
+        }
+
+        boolean ec = SignatureAlgorithmFamily.EC.equals(algorithm.getFamily());
+        if (ec != (publicKey instanceof ECPublicKey)) {
+            throw new InvalidJwtException("Key " + keyId + " doesn't match algorithm " + algorithm);
+        }
+
+        Signature verifier = Signature.getInstance(algorithm.getAlgorithm());
+        verifier.initVerify(publicKey);
+        verifier.update(signingInput);
+
+        return verifier.verify(ec ? toDerSignature(algorithm, signature) : signature);
+    }
+
+    private PublicKey getKey(String keyId) throws InvalidJwtException {
+        if (StringUtils.isNotBlank(keyId)) {
+            return metadataCache.getKey(issuer, keyId);
+        }
+
+        // Key id is optional if issuer has only one key
+        ProviderMetadata metadata = metadataCache.get(issuer);
+        if (metadata == null) {
+            throw new InvalidJwtException("Failed to load metadata of issuer " + issuer);
+        }
+        if (metadata.getKeys().size() == 1) {
+            return metadata.getKeys().values().iterator().next();
+        }
+
+        return null;
+    }
+
+    /**
+     * ECDSA signature of JWS is concatenation of R and S of fixed length, JCA expects DER sequence.
+     * Signatures of other length are returned as is, they are expected to be DER encoded already
+     */
+    private static byte[] toDerSignature(SignatureAlgorithm algorithm, byte[] signature) {
+        if (signature.length != getRawSignatureLength(algorithm)) {
+            return signature;
+        }
+
+        int length = signature.length / 2;
+        byte[] r = toDerInteger(signature, 0, length);
+        byte[] s = toDerInteger(signature, length, length);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(r.length + s.length + 3);
+        out.write(0x30);
+        int sequenceLength = r.length + s.length;
+        if (sequenceLength > 127) {
+            out.write(0x81);
+        }
+        out.write(sequenceLength);
+        out.write(r, 0, r.length);
+        out.write(s, 0, s.length);
+
+        return out.toByteArray();
+    }
+
+    private static int getRawSignatureLength(SignatureAlgorithm algorithm) {
+        switch (algorithm) {
+            case ES256:
+                return 64;
+            case ES384:
+                return 96;
+            case ES512:
+                return 132;
+            default:
+                return -1;
+        }
+    }
+
+    private static byte[] toDerInteger(byte[] value, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while ((start < end - 1) && (value[start] == 0)) {
+            start++;
+        }
+
+        boolean padding = (value[start] & 0x80) != 0;
+        int integerLength = end - start + (padding ? 1 : 0);
+
+        byte[] result = new byte[integerLength + 2];
+        result[0] = 0x02;
+        result[1] = (byte) integerLength;
+        System.arraycopy(value, start, result, 2 + (padding ? 1 : 0), end - start);
+
+        return result;
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.client.validation;
+
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.Map;
+
+import org.xdi.oxauth.client.OpenIdConfigurationResponse;
+
+/**
+ * Discovery document and parsed signature verification keys of one issuer. Instance is immutable, new
+ * instance is created after refresh
+ */
+public class ProviderMetadata {
+
+    private final String issuer;
+    private final OpenIdConfigurationResponse configuration;
+    private final Map<String, PublicKey> keys;
+    private final long configurationLoadedAt;
+    private final long keysLoadedAt;
+
+    public ProviderMetadata(String issuer, OpenIdConfigurationResponse configuration, Map<String, PublicKey> keys,
+            long configurationLoadedAt, long keysLoadedAt) {
+        this.issuer = issuer;
+        this.configuration = configuration;
+        this.keys = Collections.unmodifiableMap(keys);
+        this.configurationLoadedAt = configurationLoadedAt;
+        this.keysLoadedAt = keysLoadedAt;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public OpenIdConfigurationResponse getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * @return verification keys by key id
+     */
+    public Map<String, PublicKey> getKeys() {
+        return keys;
+    }
+
+    public PublicKey getKey(String keyId) {
+        return keys.get(keyId);
+    }
+
+    public long getConfigurationLoadedAt() {
+        return configurationLoadedAt;
+    }
+
+    public long getKeysLoadedAt() {
+        return keysLoadedAt;
+    }
+
+}
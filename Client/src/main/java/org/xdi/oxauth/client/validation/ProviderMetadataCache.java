@@ -0,0 +1,250 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.client.validation;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.xdi.oxauth.client.JwkClient;
+import org.xdi.oxauth.client.JwkResponse;
+import org.xdi.oxauth.client.OpenIdConfigurationClient;
+import org.xdi.oxauth.client.OpenIdConfigurationResponse;
+import org.xdi.oxauth.model.crypto.signature.ECEllipticCurve;
+import org.xdi.oxauth.model.jwk.JSONWebKey;
+import org.xdi.oxauth.model.util.Base64Util;
+
+/**
+ * Relying party side cache of issuer discovery documents and JWKS. Keys are parsed into {@link PublicKey}
+ * once per download. Metadata is reloaded after lifetime expires, JWKS is reloaded earlier if token is
+ * signed by unknown key, but not more often than minimal refresh interval. If reload fails previous
+ * metadata is used and reload isn't retried until minimal refresh interval passes. Cache is thread safe,
+ * one issuer is loaded by one thread at a time
+ */
+public class ProviderMetadataCache {
+
+    private static final Logger LOG = Logger.getLogger(ProviderMetadataCache.class);
+
+    public static final int DEFAULT_LIFETIME = 3600; // seconds
+    public static final int DEFAULT_MIN_REFRESH_INTERVAL = 60; // seconds
+
+    private static final String WELL_KNOWN_CONFIGURATION = "/.well-known/openid-configuration";
+
+    private final long lifetime;
+    private final long minRefreshInterval;
+
+    private final ConcurrentMap<String, ProviderMetadata> metadata = new ConcurrentHashMap<String, ProviderMetadata>();
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+    // Time of last failed metadata and JWKS reloads of issuer
+    private final ConcurrentMap<String, Long> loadFailures = new ConcurrentHashMap<String, Long>();
+    private final ConcurrentMap<String, Long> keysLoadFailures = new ConcurrentHashMap<String, Long>();
+
+    public ProviderMetadataCache() {
+        this(DEFAULT_LIFETIME, DEFAULT_MIN_REFRESH_INTERVAL);
+    }
+
+    /**
+     * @param lifetime metadata lifetime in seconds
+     * @param minRefreshInterval minimal interval between JWKS reloads and between failed reloads in seconds
+     */
+    public ProviderMetadataCache(int lifetime, int minRefreshInterval) {
+        this.lifetime = lifetime * 1000L;
+        this.minRefreshInterval = minRefreshInterval * 1000L;
+    }
+
+    /**
+     * @return metadata of issuer or null if it was never loaded successfully
+     */
+    public ProviderMetadata get(String issuer) {
+        ProviderMetadata entry = metadata.get(issuer);
+        if ((entry != null) && (!isExpired(entry) || isFailedRecently(loadFailures, issuer))) {
+            return entry;
+        }
+
+        synchronized (getLock(issuer)) {
+            entry = metadata.get(issuer);
+            if (((entry == null) || isExpired(entry)) && !isFailedRecently(loadFailures, issuer)) {
+                ProviderMetadata loaded = load(issuer);
+                if (loaded != null) {
+                    metadata.put(issuer, loaded);
+                    loadFailures.remove(issuer);
+                    keysLoadFailures.remove(issuer);
+                    entry = loaded;
+                } else {
+                    loadFailures.put(issuer, System.currentTimeMillis());
+                }
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Returns key of issuer. If key is unknown JWKS is reloaded
+     *
+     * @return key or null if issuer has no such key
+     */
+    public PublicKey getKey(String issuer, String keyId) {
+        ProviderMetadata entry = get(issuer);
+        if (entry == null) {
+            return null;
+        }
+
+        PublicKey key = entry.getKey(keyId);
+        if (key != null) {
+            return key;
+        }
+
+        synchronized (getLock(issuer)) {
+            entry = metadata.get(issuer);
+            if (entry == null) {
+                // Metadata was invalidated by another thread
+                entry = get(issuer);
+                return (entry != null) ? entry.getKey(keyId) : null;
+            }
+
+            key = entry.getKey(keyId);
+            if ((key == null) && (System.currentTimeMillis() - entry.getKeysLoadedAt() >= minRefreshInterval)
+                    && !isFailedRecently(keysLoadFailures, issuer)) {
+                LOG.debug("Reloading JWKS of issuer " + issuer + ", unknown key id: " + keyId);
+                Map<String, PublicKey> keys = loadKeys(entry.getConfiguration().getJwksUri());
+                if (keys != null) {
+                    entry = new ProviderMetadata(issuer, entry.getConfiguration(), keys,
+                            entry.getConfigurationLoadedAt(), System.currentTimeMillis());
+                    metadata.put(issuer, entry);
+                    keysLoadFailures.remove(issuer);
+                    key = entry.getKey(keyId);
+                } else {
+                    keysLoadFailures.put(issuer, System.currentTimeMillis());
+                }
+            }
+        }
+
+        return key;
+    }
+
+    public void invalidate(String issuer) {
+        metadata.remove(issuer);
+        loadFailures.remove(issuer);
+        keysLoadFailures.remove(issuer);
+    }
+
+    public void clear() {
+        metadata.clear();
+        loadFailures.clear();
+        keysLoadFailures.clear();
+    }
+
+    private boolean isExpired(ProviderMetadata entry) {
+        return System.currentTimeMillis() - entry.getConfigurationLoadedAt() >= lifetime;
+    }
+
+    private boolean isFailedRecently(ConcurrentMap<String, Long> failures, String issuer) {
+        Long failedAt = failures.get(issuer);
+        return (failedAt != null) && (System.currentTimeMillis() - failedAt < minRefreshInterval);
+    }
+
+    private Object getLock(String issuer) {
+        Object lock = locks.get(issuer);
+        if (lock == null) {
+            lock = new Object();
+            Object existing = locks.putIfAbsent(issuer, lock);
+            if (existing != null) {
+                lock = existing;
+            }
+        }
+
+        return lock;
+    }
+
+    private ProviderMetadata load(String issuer) {
+        long now = System.currentTimeMillis();
+
+        OpenIdConfigurationClient configurationClient = new OpenIdConfigurationClient(
+                StringUtils.removeEnd(issuer, "/") + WELL_KNOWN_CONFIGURATION);
+        OpenIdConfigurationResponse configuration = configurationClient.execOpenIdConfiguration();
+        if ((configuration == null) || (configuration.getStatus() != 200) || StringUtils.isBlank(configuration.getJwksUri())) {
+            LOG.error("Failed to load OpenID configuration of issuer " + issuer);
+            return null;
+        }
+
+        Map<String, PublicKey> keys = loadKeys(configuration.getJwksUri());
+        if (keys == null) {
+            return null;
+        }
+
+        return new ProviderMetadata(issuer, configuration, keys, now, now);
+    }
+
+    private Map<String, PublicKey> loadKeys(String jwksUri) {
+        JwkResponse jwkResponse = new JwkClient(jwksUri).exec();
+        if ((jwkResponse == null) || (jwkResponse.getStatus() != 200) || (jwkResponse.getJwks() == null)) {
+            LOG.error("Failed to load JWKS from " + jwksUri);
+            return null;
+        }
+
+        Map<String, PublicKey> keys = new HashMap<String, PublicKey>();
+        for (JSONWebKey jsonWebKey : jwkResponse.getJwks().getKeys()) {
+            if ((jsonWebKey.getKid() == null) || (jsonWebKey.getKty() == null)) {
+                continue;
+            }
+
+            try {
+                PublicKey publicKey = toPublicKey(jsonWebKey);
+                if (publicKey != null) {
+                    keys.put(jsonWebKey.getKid(), publicKey);
+                }
+            } catch (Exception ex) {
+                LOG.warn("Failed to parse key " + jsonWebKey.getKid() + " from " + jwksUri, ex);
+            }
+        }
+
+        return keys;
+    }
+
+    private static PublicKey toPublicKey(JSONWebKey jsonWebKey) throws Exception {
+        switch (jsonWebKey.getKty()) {
+            case RSA:
+                RSAPublicKeySpec rsaPublicKeySpec = new RSAPublicKeySpec(
+                        new BigInteger(1, Base64Util.base64urldecode(jsonWebKey.getN())),
+                        new BigInteger(1, Base64Util.base64urldecode(jsonWebKey.getE())));
+                return KeyFactory.getInstance("RSA").generatePublic(rsaPublicKeySpec);
+            case EC:
+                ECEllipticCurve curve = jsonWebKey.getCrv();
+                if ((curve == null) && (jsonWebKey.getAlg() != null)) {
+                    curve = jsonWebKey.getAlg().getCurve();
+                }
+                if (curve == null) {
+                    return null;
+                }
+
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec(curve.getAlias()));
+                ECParameterSpec ecParameterSpec = parameters.getParameterSpec(ECParameterSpec.class);
+
+                ECPoint point = new ECPoint(new BigInteger(1, Base64Util.base64urldecode(jsonWebKey.getX())),
+                        new BigInteger(1, Base64Util.base64urldecode(jsonWebKey.getY())));
+                return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, ecParameterSpec));
+            default:
+                return null;
+        }
+    }
+
+}
@@ -0,0 +1,292 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.client.validation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.exception.InvalidJwtException;
+import org.xdi.oxauth.model.util.Base64Util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Validates id_tokens against discovery document and JWKS served by embedded HTTP server. Metadata is
+ * loaded by real {@link org.xdi.oxauth.client.OpenIdConfigurationClient} and {@link org.xdi.oxauth.client.JwkClient}.
+ * Checks that metadata is loaded once, JWKS is reloaded only for unknown key id, failed reloads are
+ * rate limited, tokens are rejected if JWKS can't be loaded and ECDSA signatures are accepted in JWS and DER forms
+ */
+public class IdTokenValidatorTest {
+
+    private static final String CLIENT_ID = "@!1111!0008!0001";
+
+    private HttpServer server;
+    private String issuer;
+
+    private final AtomicInteger configurationRequests = new AtomicInteger();
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+
+    private KeyPair key1;
+    private KeyPair key2;
+    private volatile String jwks;
+    private volatile int jwksStatus;
+
+    private ProviderMetadataCache metadataCache;
+    private IdTokenValidator validator;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        key1 = keyPairGenerator.generateKeyPair();
+        key2 = keyPairGenerator.generateKeyPair();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 10);
+        issuer = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        server.createContext("/.well-known/openid-configuration", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                configurationRequests.incrementAndGet();
+                send(exchange, 200, "{\"issuer\":\"" + issuer + "\",\"jwks_uri\":\"" + issuer + "/jwks\"}");
+            }
+        });
+        server.createContext("/jwks", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                jwksRequests.incrementAndGet();
+                send(exchange, jwksStatus, jwks);
+            }
+        });
+        server.start();
+    }
+
+    @AfterClass
+    public void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @BeforeMethod
+    public void resetMetadata() throws Exception {
+        jwks = jwks(new String[] { "key1" }, new KeyPair[] { key1 });
+        jwksStatus = 200;
+        configurationRequests.set(0);
+        jwksRequests.set(0);
+
+        metadataCache = new ProviderMetadataCache(3600, 0);
+        validator = new IdTokenValidator(metadataCache, issuer, CLIENT_ID);
+    }
+
+    @Test
+    public void validTokensDontUseNetwork() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            String nonce = "nonce" + i;
+            assertNotNull(validator.validate(idToken("key1", key1, CLIENT_ID, nonce, 300), nonce));
+        }
+
+        assertEquals(configurationRequests.get(), 1);
+        assertEquals(jwksRequests.get(), 1);
+    }
+
+    @Test
+    public void unknownKeyIdReloadsJwks() throws Exception {
+        validator.validate(idToken("key1", key1, CLIENT_ID, "n", 300), "n");
+
+        // Rotate keys
+        jwks = jwks(new String[] { "key1", "key2" }, new KeyPair[] { key1, key2 });
+        validator.validate(idToken("key2", key2, CLIENT_ID, "n", 300), "n");
+        validator.validate(idToken("key2", key2, CLIENT_ID, "n", 300), "n");
+
+        assertEquals(configurationRequests.get(), 1);
+        assertEquals(jwksRequests.get(), 2);
+    }
+
+    @Test
+    public void invalidTokensAreRejected() throws Exception {
+        assertInvalid(idToken("key1", key1, CLIENT_ID, "n", 300), "other");
+        assertInvalid(idToken("key1", key1, "other_client", "n", 300), "n");
+        assertInvalid(idToken("key1", key1, CLIENT_ID, "n", -300), "n");
+        assertInvalid(idToken("key1", key2, CLIENT_ID, "n", 300), "n");
+        assertInvalid(idToken("unknown", key1, CLIENT_ID, "n", 300), "n");
+
+        String idToken = idToken("key1", key1, CLIENT_ID, "n", 300);
+        assertInvalid(idToken.substring(0, idToken.lastIndexOf('.')) + ".", "n");
+    }
+
+    @Test
+    public void unavailableJwksRejectsTokens() throws Exception {
+        jwksStatus = 500;
+        jwks = "{\"error\":\"server_error\"}";
+        assertInvalid(idToken("key1", key1, CLIENT_ID, "n", 300), "n");
+
+        // Metadata wasn't cached, it's loaded on next validation
+        jwksStatus = 200;
+        jwks = jwks(new String[] { "key1" }, new KeyPair[] { key1 });
+        assertNotNull(validator.validate(idToken("key1", key1, CLIENT_ID, "n", 300), "n"));
+
+        assertEquals(configurationRequests.get(), 2);
+        assertEquals(jwksRequests.get(), 2);
+    }
+
+    @Test
+    public void failedReloadIsNotRetriedUntilMinRefreshInterval() throws Exception {
+        metadataCache = new ProviderMetadataCache(0, 3600);
+        validator = new IdTokenValidator(metadataCache, issuer, CLIENT_ID);
+        validator.validate(idToken("key1", key1, CLIENT_ID, "n", 300), "n");
+
+        // Expired metadata is served while reload fails
+        jwksStatus = 500;
+        jwks = "{\"error\":\"server_error\"}";
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(validator.validate(idToken("key1", key1, CLIENT_ID, "n", 300), "n"));
+        }
+
+        assertEquals(configurationRequests.get(), 2);
+        assertEquals(jwksRequests.get(), 2);
+    }
+
+    @Test
+    public void rawAndDerEcSignaturesAreAccepted() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair ecKey = keyPairGenerator.generateKeyPair();
+        ECPublicKey publicKey = (ECPublicKey) ecKey.getPublic();
+
+        JSONObject key = new JSONObject();
+        key.put("kid", "ec1");
+        key.put("kty", "EC");
+        key.put("use", "sig");
+        key.put("alg", "ES256");
+        key.put("crv", "P-256");
+        key.put("x", unsigned(publicKey.getW().getAffineX()));
+        key.put("y", unsigned(publicKey.getW().getAffineY()));
+        jwks = new JSONObject().put("keys", new JSONArray().put(key)).toString();
+
+        for (int i = 0; i < 20; i++) {
+            String signingInput = signingInput("ES256", "ec1", CLIENT_ID, "n", 300);
+            Signature signature = Signature.getInstance("SHA256withECDSA");
+            signature.initSign(ecKey.getPrivate());
+            signature.update(signingInput.getBytes("UTF-8"));
+            byte[] derSignature = signature.sign();
+
+            assertNotNull(validator.validate(signingInput + "." + Base64Util.base64urlencode(toRawSignature(derSignature, 32)), "n"));
+            assertNotNull(validator.validate(signingInput + "." + Base64Util.base64urlencode(derSignature), "n"));
+        }
+    }
+
+    private void assertInvalid(String idToken, String nonce) {
+        try {
+            validator.validate(idToken, nonce);
+            fail("Invalid id_token was accepted");
+        } catch (InvalidJwtException ex) {
+            // Expected
+        }
+    }
+
+    private String idToken(String keyId, KeyPair keyPair, String audience, String nonce, int expiresIn) throws Exception {
+        String signingInput = signingInput("RS256", keyId, audience, nonce, expiresIn);
+
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(keyPair.getPrivate());
+        signature.update(signingInput.getBytes("UTF-8"));
+
+        return signingInput + "." + Base64Util.base64urlencode(signature.sign());
+    }
+
+    private String signingInput(String algorithm, String keyId, String audience, String nonce, int expiresIn) throws Exception {
+        JSONObject header = new JSONObject();
+        header.put("alg", algorithm);
+        header.put("kid", keyId);
+
+        long now = System.currentTimeMillis() / 1000;
+        JSONObject claims = new JSONObject();
+        claims.put("iss", issuer);
+        claims.put("aud", audience);
+        claims.put("sub", "user");
+        claims.put("nonce", nonce);
+        claims.put("iat", now);
+        claims.put("exp", now + expiresIn);
+
+        return Base64Util.base64urlencode(header.toString().getBytes("UTF-8")) + "."
+                + Base64Util.base64urlencode(claims.toString().getBytes("UTF-8"));
+    }
+
+    /**
+     * Converts DER sequence of R and S to their concatenation used by JWS
+     */
+    private static byte[] toRawSignature(byte[] derSignature, int length) {
+        int offset = ((derSignature[1] & 0xff) == 0x81) ? 3 : 2;
+        byte[] result = new byte[length * 2];
+        for (int i = 0; i < 2; i++) {
+            int integerLength = derSignature[offset + 1];
+            int start = offset + 2;
+            int copyLength = Math.min(integerLength, length);
+            System.arraycopy(derSignature, start + integerLength - copyLength, result, (i + 1) * length - copyLength, copyLength);
+            offset = start + integerLength;
+        }
+
+        return result;
+    }
+
+    private static String jwks(String[] keyIds, KeyPair[] keyPairs) throws Exception {
+        JSONArray keys = new JSONArray();
+        for (int i = 0; i < keyIds.length; i++) {
+            RSAPublicKey publicKey = (RSAPublicKey) keyPairs[i].getPublic();
+
+            JSONObject key = new JSONObject();
+            key.put("kid", keyIds[i]);
+            key.put("kty", "RSA");
+            key.put("use", "sig");
+            key.put("alg", "RS256");
+            key.put("n", unsigned(publicKey.getModulus()));
+            key.put("e", unsigned(publicKey.getPublicExponent()));
+            keys.put(key);
+        }
+
+        return new JSONObject().put("keys", keys).toString();
+    }
+
+    private static String unsigned(BigInteger value) {
+        return Base64Util.base64urlencodeUnsignedBigInt(value);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.load;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.client.AsyncHttpExecutor;
+import org.xdi.oxauth.client.AsyncOxAuthClient;
+import org.xdi.oxauth.client.ClientHttpPool;
+import org.xdi.oxauth.client.TokenResponse;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Refreshes many tokens concurrently by asynchronous client against embedded HTTP server and checks that
+ * number of requests in progress doesn't exceed limit. Doesn't need running oxAuth server
+ */
+public class AsyncOxAuthClientLoadTest {
+
+    private static final String TOKEN = "{\"access_token\":\"access_token\",\"token_type\":\"bearer\",\"expires_in\":300}";
+
+    private static final int REQUESTS = 2000;
+    private static final int MAX_IN_FLIGHT = 50;
+
+    private HttpServer server;
+    private AsyncHttpExecutor executor;
+
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private final AtomicInteger maxInProgress = new AtomicInteger();
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1000);
+        server.createContext("/token", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int current = inProgress.incrementAndGet();
+                while (true) {
+                    int max = maxInProgress.get();
+                    if ((current <= max) || maxInProgress.compareAndSet(max, current)) {
+                        break;
+                    }
+                }
+
+                try {
+                    Thread.sleep(5);
+
+                    byte[] body = TOKEN.getBytes("UTF-8");
+                    exchange.getResponseHeaders().add("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    try {
+                        out.write(body);
+                    } finally {
+                        out.close();
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inProgress.decrementAndGet();
+                }
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(MAX_IN_FLIGHT * 2));
+        server.start();
+
+        executor = new AsyncHttpExecutor(MAX_IN_FLIGHT, REQUESTS, MAX_IN_FLIGHT, MAX_IN_FLIGHT, 2,
+                ClientHttpPool.DEFAULT_CONNECT_TIMEOUT, ClientHttpPool.DEFAULT_SOCKET_TIMEOUT,
+                ClientHttpPool.DEFAULT_CONNECTION_REQUEST_TIMEOUT, ClientHttpPool.DEFAULT_IDLE_TIMEOUT);
+    }
+
+    @AfterClass
+    public void stopServer() {
+        if (executor != null) {
+            executor.close();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void concurrentRefreshesAreLimited() throws Exception {
+        String tokenUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/token";
+        AsyncOxAuthClient client = new AsyncOxAuthClient(executor);
+
+        long start = System.currentTimeMillis();
+        List<ListenableFuture<TokenResponse>> futures = new ArrayList<ListenableFuture<TokenResponse>>();
+        for (int i = 0; i < REQUESTS; i++) {
+            futures.add(client.execRefreshToken(tokenUrl, "openid", "refresh_token_" + i, "client_id", "client_secret"));
+        }
+
+        List<TokenResponse> responses = Futures.allAsList(futures).get();
+        Reporter.log("Requests: " + REQUESTS + ", time: " + (System.currentTimeMillis() - start)
+                + " ms, max in progress: " + maxInProgress.get(), true);
+
+        for (TokenResponse response : responses) {
+            assertEquals(response.getStatus(), 200);
+            assertEquals(response.getAccessToken(), "access_token");
+        }
+        assertTrue(maxInProgress.get() <= MAX_IN_FLIGHT, "Too many requests in progress: " + maxInProgress.get());
+    }
+
+}
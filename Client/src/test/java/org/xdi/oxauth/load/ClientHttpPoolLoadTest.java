@@ -0,0 +1,226 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.load;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.resteasy.client.ClientResponseFailure;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.client.ClientHttpPool;
+import org.xdi.oxauth.client.JwkClient;
+import org.xdi.oxauth.client.JwkResponse;
+import org.xdi.oxauth.client.fido.u2f.FidoU2fClientFactory;
+import org.xdi.oxauth.client.uma.UmaClientFactory;
+import org.xdi.oxauth.model.fido.u2f.U2fConfiguration;
+import org.xdi.oxauth.model.uma.UmaMetadata;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Sends concurrent requests by clients without executor to embedded HTTP server and checks that they
+ * reuse pooled connections. UMA and U2F proxies are checked for success and error responses, leaked
+ * connection would exhaust small pool. Doesn't need running oxAuth server
+ */
+public class ClientHttpPoolLoadTest {
+
+    private static final String JWKS = "{\"keys\":[]}";
+    private static final String UMA_METADATA = "{\"permission_endpoint\":\"https://example.com/permission\"}";
+    private static final String U2F_METADATA = "{\"issuer\":\"https://example.com\"}";
+    private static final String ERROR = "{\"error\":\"server_error\"}";
+
+    private static final int THREADS = 10;
+    private static final int REQUESTS_PER_THREAD = 200;
+    private static final int MAX_PER_ROUTE = 5;
+    private static final int PROXY_REQUESTS = 100;
+    private static final int CONNECTION_REQUEST_TIMEOUT = 2000; // milliseconds
+
+    private HttpServer server;
+    private ClientHttpPool previousPool;
+    private ClientHttpPool pool;
+
+    private final Set<String> connections = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 100);
+        server.createContext("/jwks", new JsonHandler(200, JWKS) {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // Remote address identifies client connection
+                connections.add(exchange.getRemoteAddress().toString());
+                requests.incrementAndGet();
+
+                super.handle(exchange);
+            }
+        });
+        server.createContext("/uma-configuration", new JsonHandler(200, UMA_METADATA));
+        server.createContext("/fido-u2f-configuration", new JsonHandler(200, U2F_METADATA));
+        server.createContext("/error", new JsonHandler(500, ERROR));
+        server.createContext("/unauthorized", new JsonHandler(401, ERROR));
+        server.setExecutor(Executors.newFixedThreadPool(THREADS));
+        server.start();
+
+        pool = new ClientHttpPool(MAX_PER_ROUTE * 2, MAX_PER_ROUTE, ClientHttpPool.DEFAULT_CONNECT_TIMEOUT,
+                ClientHttpPool.DEFAULT_SOCKET_TIMEOUT, CONNECTION_REQUEST_TIMEOUT,
+                ClientHttpPool.DEFAULT_IDLE_TIMEOUT, ClientHttpPool.DEFAULT_KEEP_ALIVE);
+        previousPool = ClientHttpPool.getDefault();
+        ClientHttpPool.setDefault(pool);
+    }
+
+    @AfterClass
+    public void stopServer() {
+        ClientHttpPool.setDefault(previousPool);
+        if (pool != null) {
+            pool.close();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void concurrentRequestsReuseConnections() throws Exception {
+        final String jwksUri = "http://127.0.0.1:" + server.getAddress().getPort() + "/jwks";
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int failed = 0;
+                        for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+                            JwkResponse response = new JwkClient(jwksUri).exec();
+                            if ((response == null) || (response.getStatus() != 200)) {
+                                failed++;
+                            }
+                        }
+
+                        return failed;
+                    }
+                }));
+            }
+
+            for (Future<Integer> result : results) {
+                assertEquals(result.get().intValue(), 0, "Failed requests");
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Reporter.log("Requests: " + requests.get() + ", connections: " + connections.size() + ", pool: " + pool.getStats(), true);
+
+        assertEquals(requests.get(), THREADS * REQUESTS_PER_THREAD);
+        assertTrue(connections.size() <= MAX_PER_ROUTE, "Connections are not reused, opened: " + connections.size());
+        assertEquals(pool.getStats().getLeased(), 0, "Connections are not returned to pool");
+    }
+
+    @Test
+    public void umaProxiesReleaseConnections() throws Exception {
+        for (int i = 0; i < PROXY_REQUESTS; i++) {
+            UmaMetadata metadata = UmaClientFactory.instance().createMetadataService(url("/uma-configuration")).getMetadata();
+            assertEquals(metadata.getPermissionEndpoint(), "https://example.com/permission");
+
+            assertFails(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return UmaClientFactory.instance().createMetadataService(url("/error")).getMetadata();
+                }
+            });
+            assertFails(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return UmaClientFactory.instance().createMetadataService(url("/unauthorized")).getMetadata();
+                }
+            });
+        }
+
+        assertEquals(pool.getStats().getLeased(), 0, "Connections are not returned to pool");
+    }
+
+    @Test
+    public void fidoU2fProxiesReleaseConnections() throws Exception {
+        for (int i = 0; i < PROXY_REQUESTS; i++) {
+            U2fConfiguration configuration = FidoU2fClientFactory.instance().createMetaDataConfigurationService(url("/fido-u2f-configuration")).getMetadataConfiguration();
+            assertEquals(configuration.getIssuer(), "https://example.com");
+
+            assertFails(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return FidoU2fClientFactory.instance().createMetaDataConfigurationService(url("/error")).getMetadataConfiguration();
+                }
+            });
+        }
+
+        assertEquals(pool.getStats().getLeased(), 0, "Connections are not returned to pool");
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static void assertFails(Callable<Object> call) {
+        try {
+            call.call();
+        } catch (ClientResponseFailure ex) {
+            assertTrue(ex.getResponse().getStatus() >= 400);
+            return;
+        } catch (Exception ex) {
+            fail("Unexpected failure", ex);
+        }
+        fail("Error response was not reported");
+    }
+
+    private static class JsonHandler implements HttpHandler {
+
+        private final int status;
+        private final String json;
+
+        public JsonHandler(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            byte[] body = json.getBytes("UTF-8");
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            OutputStream out = exchange.getResponseBody();
+            try {
+                out.write(body);
+            } finally {
+                out.close();
+            }
+        }
+
+    }
+
+}
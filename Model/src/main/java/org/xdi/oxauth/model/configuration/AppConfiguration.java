@@ -43,6 +43,11 @@ public class AppConfiguration implements Configuration {
     private String idGenerationEndpoint;
     private String introspectionEndpoint;
 
+    /**
+     * Maximum number of tokens in one request to batch introspection endpoint
+     */
+    private Integer introspectionBatchMaxTokens = 100;
+
     private Boolean sessionAsJwt = false;
 
     private String umaConfigurationEndpoint;
@@ -100,6 +105,7 @@ public class AppConfiguration implements Configuration {
 
     private Boolean authenticationFiltersEnabled;
     private Boolean clientAuthenticationFiltersEnabled;
+    private Integer authenticationFiltersCacheLifetime = 30; // seconds, 0 disables cache of found entry DNs
     private List<AuthenticationFilter> authenticationFilters;
     private List<ClientAuthenticationFilter> clientAuthenticationFilters;
     private List<CorsConfigurationFilter> corsConfigurationFilters;
@@ -120,6 +126,14 @@ public class AppConfiguration implements Configuration {
     private String pairwiseIdType; // persistent, algorithmic
     private String pairwiseCalculationKey;
     private String pairwiseCalculationSalt;
+    private Integer pairwiseIdentifierCacheSize = 10000;
+    private Integer pairwiseIdentifierCacheLifetime = 3600; // seconds
+
+    /**
+     * User consents (client authorizations) are cached per user and client for clientAuthorizationsCacheLifetime seconds
+     */
+    private Integer clientAuthorizationsCacheSize = 10000;
+    private Integer clientAuthorizationsCacheLifetime = 300; // seconds
 
     private WebKeyStorage webKeysStorage;
     private String dnName;
@@ -164,6 +178,58 @@ public class AppConfiguration implements Configuration {
      */
     private Integer sessionStateLifetime = 86400;
 
+    /**
+     * Outbound HTTP client settings. Used for sector identifier, request_uri, jwks_uri, OCSP and CRL requests.
+     * Per host metrics are kept for first httpClientMetricsMaxHosts hosts, other hosts are counted together
+     */
+    private Integer httpClientMaxConnections = 200;
+    private Integer httpClientMaxConnectionsPerRoute = 20;
+    private Integer httpClientConnectTimeout = 5000; // milliseconds
+    private Integer httpClientReadTimeout = 10000; // milliseconds
+    private Integer httpClientConnectionRequestTimeout = 2000; // milliseconds
+    private Integer httpClientMaxResponseSize = 1048576; // bytes
+    private Integer httpClientMetricsMaxHosts = 100;
+
+    /**
+     * U2F registration and authentication requests are kept in cache for u2fRequestLifetime seconds.
+     * If u2fRequestsInLdap is true or cache is shared between nodes (memcached, redis) requests are
+     * persisted in LDAP and removed by cleaner timer
+     */
+    private Integer u2fRequestLifetime = 90; // seconds
+    private Boolean u2fRequestsInLdap = false;
+
+    /**
+     * Custom script calls which don't depend on request thread (id generation, dynamic scope and dynamic client
+     * registration) are executed in customScriptExecutorThreads threads and fail after customScriptTimeout
+     * milliseconds, 0 disables timeout. Any script call which takes more than customScriptSlowCallThreshold
+     * milliseconds is counted and logged into slow call log
+     */
+    private Integer customScriptTimeout = 10000; // milliseconds
+    private Integer customScriptSlowCallThreshold = 1000; // milliseconds
+    private Integer customScriptExecutorThreads = 20;
+
+    /**
+     * Endpoint latency, status and in-flight metrics. Per client metrics are kept for first
+     * endpointMetricsMaxClients authenticated clients. Metrics are exported on /metrics if metricsEndpointEnabled is true
+     */
+    private Boolean endpointMetricsEnabled = true;
+    private Integer endpointMetricsMaxClients = 1000;
+    private Boolean metricsEndpointEnabled = false;
+
+    /**
+     * LDAP operation metrics per operation, entry class and base DN branch. Operations which take more
+     * than ldapSlowOperationThreshold milliseconds are logged into slow operation log
+     */
+    private Boolean ldapMetricsEnabled = true;
+    private Integer ldapSlowOperationThreshold = 500; // milliseconds
+
+    /**
+     * Client and people inums are built from inumNodeId and monotonic counter. Every server in cluster
+     * should have own value in range 0-65535. If it's not set random node id is used and inums of different
+     * servers can collide, in this case add is retried with new inum
+     */
+    private Integer inumNodeId;
+
     public Boolean getFrontChannelLogoutSessionSupported() {
         return frontChannelLogoutSessionSupported;
     }
@@ -461,6 +527,14 @@ public class AppConfiguration implements Configuration {
         introspectionEndpoint = p_introspectionEndpoint;
     }
 
+    public Integer getIntrospectionBatchMaxTokens() {
+        return introspectionBatchMaxTokens;
+    }
+
+    public void setIntrospectionBatchMaxTokens(Integer introspectionBatchMaxTokens) {
+        this.introspectionBatchMaxTokens = introspectionBatchMaxTokens;
+    }
+
     public String getOpenIdConfigurationEndpoint() {
         return openIdConfigurationEndpoint;
     }
@@ -1213,4 +1287,188 @@ public class AppConfiguration implements Configuration {
     public void setLogClientNameOnClientAuthentication(Boolean logClientNameOnClientAuthentication) {
         this.logClientNameOnClientAuthentication = logClientNameOnClientAuthentication;
     }
-}
\ No newline at end of file
+
+    public Integer getHttpClientMaxConnections() {
+        return httpClientMaxConnections;
+    }
+
+    public void setHttpClientMaxConnections(Integer httpClientMaxConnections) {
+        this.httpClientMaxConnections = httpClientMaxConnections;
+    }
+
+    public Integer getHttpClientMaxConnectionsPerRoute() {
+        return httpClientMaxConnectionsPerRoute;
+    }
+
+    public void setHttpClientMaxConnectionsPerRoute(Integer httpClientMaxConnectionsPerRoute) {
+        this.httpClientMaxConnectionsPerRoute = httpClientMaxConnectionsPerRoute;
+    }
+
+    public Integer getHttpClientConnectTimeout() {
+        return httpClientConnectTimeout;
+    }
+
+    public void setHttpClientConnectTimeout(Integer httpClientConnectTimeout) {
+        this.httpClientConnectTimeout = httpClientConnectTimeout;
+    }
+
+    public Integer getHttpClientReadTimeout() {
+        return httpClientReadTimeout;
+    }
+
+    public void setHttpClientReadTimeout(Integer httpClientReadTimeout) {
+        this.httpClientReadTimeout = httpClientReadTimeout;
+    }
+
+    public Integer getHttpClientConnectionRequestTimeout() {
+        return httpClientConnectionRequestTimeout;
+    }
+
+    public void setHttpClientConnectionRequestTimeout(Integer httpClientConnectionRequestTimeout) {
+        this.httpClientConnectionRequestTimeout = httpClientConnectionRequestTimeout;
+    }
+
+    public Integer getHttpClientMaxResponseSize() {
+        return httpClientMaxResponseSize;
+    }
+
+    public void setHttpClientMaxResponseSize(Integer httpClientMaxResponseSize) {
+        this.httpClientMaxResponseSize = httpClientMaxResponseSize;
+    }
+
+    public Integer getHttpClientMetricsMaxHosts() {
+        return httpClientMetricsMaxHosts;
+    }
+
+    public void setHttpClientMetricsMaxHosts(Integer httpClientMetricsMaxHosts) {
+        this.httpClientMetricsMaxHosts = httpClientMetricsMaxHosts;
+    }
+
+    public Integer getPairwiseIdentifierCacheSize() {
+        return pairwiseIdentifierCacheSize;
+    }
+
+    public void setPairwiseIdentifierCacheSize(Integer pairwiseIdentifierCacheSize) {
+        this.pairwiseIdentifierCacheSize = pairwiseIdentifierCacheSize;
+    }
+
+    public Integer getPairwiseIdentifierCacheLifetime() {
+        return pairwiseIdentifierCacheLifetime;
+    }
+
+    public void setPairwiseIdentifierCacheLifetime(Integer pairwiseIdentifierCacheLifetime) {
+        this.pairwiseIdentifierCacheLifetime = pairwiseIdentifierCacheLifetime;
+    }
+
+    public Integer getClientAuthorizationsCacheSize() {
+        return clientAuthorizationsCacheSize;
+    }
+
+    public void setClientAuthorizationsCacheSize(Integer clientAuthorizationsCacheSize) {
+        this.clientAuthorizationsCacheSize = clientAuthorizationsCacheSize;
+    }
+
+    public Integer getClientAuthorizationsCacheLifetime() {
+        return clientAuthorizationsCacheLifetime;
+    }
+
+    public void setClientAuthorizationsCacheLifetime(Integer clientAuthorizationsCacheLifetime) {
+        this.clientAuthorizationsCacheLifetime = clientAuthorizationsCacheLifetime;
+    }
+
+    public Integer getU2fRequestLifetime() {
+        return u2fRequestLifetime;
+    }
+
+    public void setU2fRequestLifetime(Integer u2fRequestLifetime) {
+        this.u2fRequestLifetime = u2fRequestLifetime;
+    }
+
+    public Boolean getU2fRequestsInLdap() {
+        return u2fRequestsInLdap;
+    }
+
+    public void setU2fRequestsInLdap(Boolean u2fRequestsInLdap) {
+        this.u2fRequestsInLdap = u2fRequestsInLdap;
+    }
+
+    public Integer getAuthenticationFiltersCacheLifetime() {
+        return authenticationFiltersCacheLifetime;
+    }
+
+    public void setAuthenticationFiltersCacheLifetime(Integer authenticationFiltersCacheLifetime) {
+        this.authenticationFiltersCacheLifetime = authenticationFiltersCacheLifetime;
+    }
+
+    public Integer getCustomScriptTimeout() {
+        return customScriptTimeout;
+    }
+
+    public void setCustomScriptTimeout(Integer customScriptTimeout) {
+        this.customScriptTimeout = customScriptTimeout;
+    }
+
+    public Integer getCustomScriptSlowCallThreshold() {
+        return customScriptSlowCallThreshold;
+    }
+
+    public void setCustomScriptSlowCallThreshold(Integer customScriptSlowCallThreshold) {
+        this.customScriptSlowCallThreshold = customScriptSlowCallThreshold;
+    }
+
+    public Integer getCustomScriptExecutorThreads() {
+        return customScriptExecutorThreads;
+    }
+
+    public void setCustomScriptExecutorThreads(Integer customScriptExecutorThreads) {
+        this.customScriptExecutorThreads = customScriptExecutorThreads;
+    }
+
+    public Boolean getEndpointMetricsEnabled() {
+        return endpointMetricsEnabled;
+    }
+
+    public void setEndpointMetricsEnabled(Boolean endpointMetricsEnabled) {
+        this.endpointMetricsEnabled = endpointMetricsEnabled;
+    }
+
+    public Integer getEndpointMetricsMaxClients() {
+        return endpointMetricsMaxClients;
+    }
+
+    public void setEndpointMetricsMaxClients(Integer endpointMetricsMaxClients) {
+        this.endpointMetricsMaxClients = endpointMetricsMaxClients;
+    }
+
+    public Boolean getMetricsEndpointEnabled() {
+        return metricsEndpointEnabled;
+    }
+
+    public void setMetricsEndpointEnabled(Boolean metricsEndpointEnabled) {
+        this.metricsEndpointEnabled = metricsEndpointEnabled;
+    }
+
+    public Boolean getLdapMetricsEnabled() {
+        return ldapMetricsEnabled;
+    }
+
+    public void setLdapMetricsEnabled(Boolean ldapMetricsEnabled) {
+        this.ldapMetricsEnabled = ldapMetricsEnabled;
+    }
+
+    public Integer getLdapSlowOperationThreshold() {
+        return ldapSlowOperationThreshold;
+    }
+
+    public void setLdapSlowOperationThreshold(Integer ldapSlowOperationThreshold) {
+        this.ldapSlowOperationThreshold = ldapSlowOperationThreshold;
+    }
+
+    public Integer getInumNodeId() {
+        return inumNodeId;
+    }
+
+    public void setInumNodeId(Integer inumNodeId) {
+        this.inumNodeId = inumNodeId;
+    }
+}
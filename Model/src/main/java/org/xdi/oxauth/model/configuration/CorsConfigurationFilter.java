@@ -23,6 +23,7 @@ public class CorsConfigurationFilter {
     private Boolean corsLoggingEnabled;
     private Integer corsPreflightMaxAge;
     private Boolean corsRequestDecorate;
+    private Boolean corsAllowClientOrigins;
 
     public static final String DEFAULT_CORS_ALLOWED_ORIGINS = "*";
     public static final String DEFAULT_CORS_ALLOWED_METHODS = "GET,POST,HEAD,OPTIONS";
@@ -32,6 +33,7 @@ public class CorsConfigurationFilter {
     public static final Boolean DEFAULT_CORS_LOGGING_ENABLED = false;
     public static final Integer DEFAULT_CORS_PREFLIGHT_MAX_AGE = 1800;
     public static final Boolean DEFAULT_CORS_REQUEST_DECORATE = true;
+    public static final Boolean DEFAULT_CORS_ALLOW_CLIENT_ORIGINS = false;
 
     public String getFilterName() {
         return filterName;
@@ -129,4 +131,18 @@ public class CorsConfigurationFilter {
     public void setCorsRequestDecorate(Boolean corsRequestDecorate) {
         this.corsRequestDecorate = corsRequestDecorate;
     }
+
+    /**
+     * Allow origins of redirect URIs of registered clients in addition to configured origins
+     */
+    public Boolean getCorsAllowClientOrigins() {
+        if (corsAllowClientOrigins == null) {
+            corsAllowClientOrigins = DEFAULT_CORS_ALLOW_CLIENT_ORIGINS;
+        }
+        return corsAllowClientOrigins;
+    }
+
+    public void setCorsAllowClientOrigins(Boolean corsAllowClientOrigins) {
+        this.corsAllowClientOrigins = corsAllowClientOrigins;
+    }
 }
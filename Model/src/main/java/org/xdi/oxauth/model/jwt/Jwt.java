@@ -23,15 +23,13 @@ import org.xdi.oxauth.model.token.JsonWebResponse;
  */
 public class Jwt extends JsonWebResponse {
 
-    private String encodedHeader;
-    private String encodedClaims;
+    private String signingInput;
     private String encodedSignature;
 
     private boolean loaded = false;
 
     public Jwt() {
-        encodedHeader = null;
-        encodedClaims = null;
+        signingInput = null;
         encodedSignature = null;
     }
 
@@ -43,12 +41,16 @@ public class Jwt extends JsonWebResponse {
         this.encodedSignature = encodedSignature;
     }
 
+    /**
+     * Signing input of parsed JWT is taken from the original string. For new JWT it's serialized
+     * on each call and kept to build the serialized form after signing without encoding it again.
+     */
     public String getSigningInput() throws InvalidJwtException {
-        if (loaded) {
-            return encodedHeader + "." + encodedClaims;
-        } else {
-            return header.toBase64JsonObject() + "." + claims.toBase64JsonObject();
+        if (!loaded) {
+            signingInput = header.toBase64JsonObject() + "." + claims.toBase64JsonObject();
         }
+
+        return signingInput;
     }
 
     public static Jwt parse(String encodedJwt) throws InvalidJwtException {
@@ -56,29 +58,34 @@ public class Jwt extends JsonWebResponse {
             return null;
         }
 
-        String encodedHeader = null;
-        String encodedClaims = null;
-        String encodedSignature = null;
+        int length = encodedJwt.length();
+        int headerEnd = encodedJwt.indexOf('.');
+        if (headerEnd == -1) {
+            throw new InvalidJwtException("Invalid JWT format.");
+        }
 
-        String[] jwtParts = encodedJwt.split("\\.");
-        if (jwtParts.length == 2) { // Signature Algorithm NONE
-            encodedHeader = jwtParts[0];
-            encodedClaims = jwtParts[1];
+        int claimsEnd = encodedJwt.indexOf('.', headerEnd + 1);
+        String encodedSignature;
+        if (claimsEnd == -1) { // Signature Algorithm NONE
+            claimsEnd = length;
             encodedSignature = "";
-        } else if (jwtParts.length == 3) {
-            encodedHeader = jwtParts[0];
-            encodedClaims = jwtParts[1];
-            encodedSignature = jwtParts[2];
+        } else if (encodedJwt.indexOf('.', claimsEnd + 1) == -1) {
+            encodedSignature = encodedJwt.substring(claimsEnd + 1);
         } else {
             throw new InvalidJwtException("Invalid JWT format.");
         }
 
+        JwtHeader header = new JwtHeader();
+        header.load(encodedJwt, 0, headerEnd);
+
+        JwtClaims claims = new JwtClaims();
+        claims.load(encodedJwt, headerEnd + 1, claimsEnd);
+
         Jwt jwt = new Jwt();
-        jwt.setHeader(new JwtHeader(encodedHeader));
-        jwt.setClaims(new JwtClaims(encodedClaims));
+        jwt.setHeader(header);
+        jwt.setClaims(claims);
         jwt.setEncodedSignature(encodedSignature);
-        jwt.encodedHeader = encodedHeader;
-        jwt.encodedClaims = encodedClaims;
+        jwt.signingInput = encodedJwt.substring(0, claimsEnd);
         jwt.loaded = true;
 
         return jwt;
@@ -87,10 +94,11 @@ public class Jwt extends JsonWebResponse {
     @Override
     public String toString() {
         try {
+            String signingInput = ((encodedSignature != null) && (this.signingInput != null)) ? this.signingInput : getSigningInput();
             if (encodedSignature == null) {
-                return getSigningInput() + ".";
+                return signingInput + ".";
             } else {
-                return getSigningInput() + "." + encodedSignature;
+                return signingInput + "." + encodedSignature;
             }
         } catch (InvalidJwtException e) {
             e.printStackTrace();
@@ -14,8 +14,6 @@ import org.xdi.oxauth.model.exception.InvalidJwtException;
 import org.xdi.oxauth.model.util.Base64Util;
 import org.xdi.oxauth.model.util.Util;
 
-import java.io.UnsupportedEncodingException;
-import java.math.BigDecimal;
 import java.util.*;
 
 /**
@@ -113,13 +111,7 @@ public abstract class JwtClaimSet {
             } else if (claim instanceof Long) {
                 return new Date((Long) claim * 1000);
             } else if (claim instanceof Double) {
-                final double c = (Double) claim;
-                final BigDecimal bigDecimal = new BigDecimal(c);
-
-                long claimLong = bigDecimal.longValue();
-                claimLong = claimLong * 1000;
-
-                return new Date(claimLong);
+                return new Date(((Double) claim).longValue() * 1000);
             } else {
                 return null;
             }
@@ -268,13 +260,9 @@ public abstract class JwtClaimSet {
     }
 
     public String toBase64JsonObject() throws InvalidJwtException {
-        try {
-            String jsonObjectString = toJsonString();
-            byte[] jsonObjectBytes = jsonObjectString.getBytes(Util.UTF8_STRING_ENCODING);
-            return Base64Util.base64urlencode(jsonObjectBytes);
-        } catch (UnsupportedEncodingException e) {
-            return null;
-        }
+        String jsonObjectString = toJsonString();
+        byte[] jsonObjectBytes = jsonObjectString.getBytes(Util.UTF8_CHARSET);
+        return Base64Util.base64urlencode(jsonObjectBytes);
     }
 
     public String toJsonString() throws InvalidJwtException {
@@ -324,11 +312,17 @@ public abstract class JwtClaimSet {
     }
 
     public void load(String base64JsonObject) throws InvalidJwtException {
+        load(base64JsonObject, 0, base64JsonObject.length());
+    }
+
+    /**
+     * Loads claims from base64url encoded JSON object stored in the given range of the string.
+     * It allows to decode JWT parts without extracting them into separate strings
+     */
+    public void load(String encodedValue, int beginIndex, int endIndex) throws InvalidJwtException {
         try {
-            String jsonObjectString = new String(Base64Util.base64urldecode(base64JsonObject), Util.UTF8_STRING_ENCODING);
+            String jsonObjectString = new String(Base64Util.base64urldecode(encodedValue, beginIndex, endIndex), Util.UTF8_CHARSET);
             load(new JSONObject(jsonObjectString));
-        } catch (UnsupportedEncodingException e) {
-            throw new InvalidJwtException(e);
         } catch (JSONException e) {
             throw new InvalidJwtException(e);
         } catch (Exception e) {
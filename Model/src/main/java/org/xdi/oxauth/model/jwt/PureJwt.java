@@ -49,11 +49,17 @@ public class PureJwt {
 
     public static PureJwt parse(String p_encodedString) {
         if (StringUtils.isNotBlank(p_encodedString)) {
-            String[] jwtParts = p_encodedString.split("\\.");
-            if (jwtParts.length == 3) {
-                return new PureJwt(jwtParts[0], jwtParts[1], jwtParts[2]);
-            } else if (jwtParts.length == 2) {
-                return new PureJwt(jwtParts[0], jwtParts[1], "");
+            int headerEnd = p_encodedString.indexOf('.');
+            if (headerEnd == -1) {
+                return null;
+            }
+
+            int payloadEnd = p_encodedString.indexOf('.', headerEnd + 1);
+            if (payloadEnd == -1) {
+                return new PureJwt(p_encodedString.substring(0, headerEnd), p_encodedString.substring(headerEnd + 1), "");
+            } else if (p_encodedString.indexOf('.', payloadEnd + 1) == -1) {
+                return new PureJwt(p_encodedString.substring(0, headerEnd), p_encodedString.substring(headerEnd + 1, payloadEnd),
+                        p_encodedString.substring(payloadEnd + 1));
             }
         }
         return null;
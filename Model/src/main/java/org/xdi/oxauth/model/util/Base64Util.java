@@ -6,10 +6,10 @@
 
 package org.xdi.oxauth.model.util;
 
-import org.apache.commons.codec.binary.Base64;
 import org.apache.log4j.Logger;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 
 /**
  * @author Javier Rojas Blum
@@ -19,17 +19,112 @@ public class Base64Util {
 
     private static final Logger log = Logger.getLogger(Base64Util.class);
 
+    private static final char[] BASE64URL_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private static final int[] BASE64URL_DECODE_TABLE = new int[128];
+
+    static {
+        Arrays.fill(BASE64URL_DECODE_TABLE, -1);
+        for (int i = 0; i < BASE64URL_ALPHABET.length; i++) {
+            BASE64URL_DECODE_TABLE[BASE64URL_ALPHABET[i]] = i;
+        }
+
+        // Accept standard base64 alphabet too
+        BASE64URL_DECODE_TABLE['+'] = 62;
+        BASE64URL_DECODE_TABLE['/'] = 63;
+    }
+
+    /**
+     * Encodes bytes directly into base64url alphabet without padding
+     */
     public static String base64urlencode(byte[] arg) {
-        String s = Base64.encodeBase64String(arg); // Standard base64 encoder
-        s = s.split("=")[0]; // Remove any trailing '='s
-        s = s.replace('+', '-'); // 62nd char of encoding
-        s = s.replace('/', '_'); // 63rd char of encoding
-        return s;
+        return base64urlencode(arg, 0, arg.length);
+    }
+
+    public static String base64urlencode(byte[] arg, int offset, int length) {
+        char[] result = new char[(length * 4 + 2) / 3];
+
+        int end = offset + length;
+        int i = offset;
+        int pos = 0;
+        for (; i + 2 < end; i += 3) {
+            int bits = (arg[i] & 0xff) << 16 | (arg[i + 1] & 0xff) << 8 | (arg[i + 2] & 0xff);
+            result[pos++] = BASE64URL_ALPHABET[(bits >>> 18) & 0x3f];
+            result[pos++] = BASE64URL_ALPHABET[(bits >>> 12) & 0x3f];
+            result[pos++] = BASE64URL_ALPHABET[(bits >>> 6) & 0x3f];
+            result[pos++] = BASE64URL_ALPHABET[bits & 0x3f];
+        }
+
+        int remaining = end - i;
+        if (remaining == 1) {
+            int bits = (arg[i] & 0xff) << 16;
+            result[pos++] = BASE64URL_ALPHABET[(bits >>> 18) & 0x3f];
+            result[pos++] = BASE64URL_ALPHABET[(bits >>> 12) & 0x3f];
+        } else if (remaining == 2) {
+            int bits = (arg[i] & 0xff) << 16 | (arg[i + 1] & 0xff) << 8;
+            result[pos++] = BASE64URL_ALPHABET[(bits >>> 18) & 0x3f];
+            result[pos++] = BASE64URL_ALPHABET[(bits >>> 12) & 0x3f];
+            result[pos++] = BASE64URL_ALPHABET[(bits >>> 6) & 0x3f];
+        }
+
+        return new String(result);
     }
 
+    /**
+     * Decodes base64url (or standard base64) string with or without padding
+     */
     public static byte[] base64urldecode(String arg) throws IllegalArgumentException {
-        String s = removePadding(arg);
-        return Base64.decodeBase64(s); // Standard base64 decoder
+        return base64urldecode(arg, 0, arg.length());
+    }
+
+    public static byte[] base64urldecode(String arg, int beginIndex, int endIndex) throws IllegalArgumentException {
+        // Skip trailing padding and white spaces
+        int end = endIndex;
+        while ((end > beginIndex) && ((arg.charAt(end - 1) == '=') || Character.isWhitespace(arg.charAt(end - 1)))) {
+            end--;
+        }
+
+        byte[] result = new byte[(end - beginIndex) * 3 / 4];
+
+        int pos = 0;
+        int bits = 0;
+        int count = 0;
+        for (int i = beginIndex; i < end; i++) {
+            char c = arg.charAt(i);
+            int value = (c < 128) ? BASE64URL_DECODE_TABLE[c] : -1;
+            if (value < 0) {
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+
+                throw new IllegalArgumentException("Illegal base64url character: '" + c + "'");
+            }
+
+            bits = (bits << 6) | value;
+            count++;
+            if (count == 4) {
+                result[pos++] = (byte) (bits >> 16);
+                result[pos++] = (byte) (bits >> 8);
+                result[pos++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+
+        if (count == 1) {
+            throw new IllegalArgumentException("Illegal base64url string.");
+        } else if (count == 2) {
+            result[pos++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            result[pos++] = (byte) (bits >> 10);
+            result[pos++] = (byte) (bits >> 2);
+        }
+
+        if (pos == result.length) {
+            return result;
+        }
+
+        return Arrays.copyOf(result, pos);
     }
 
     public static String removePadding(String base64UrlEncoded) {
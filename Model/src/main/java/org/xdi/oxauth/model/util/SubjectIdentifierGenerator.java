@@ -1,8 +1,12 @@
 package org.xdi.oxauth.model.util;
 
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
 import org.xdi.oxauth.model.configuration.AppConfiguration;
-import org.xdi.oxauth.model.crypto.AbstractCryptoProvider;
-import org.xdi.oxauth.model.crypto.CryptoProviderFactory;
 import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithm;
 
 /**
@@ -11,11 +15,54 @@ import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithm;
  */
 public class SubjectIdentifierGenerator {
 
+    private static final String HMAC_ALGORITHM = SignatureAlgorithm.HS256.getAlgorithm();
+
+    /**
+     * Per thread HMAC engine, it's initialized again only when pairwise calculation key changes
+     */
+    private static final ThreadLocal<KeyedMac> MAC_POOL = new ThreadLocal<KeyedMac>();
+
+    /**
+     * @deprecated Configuration is not used any more, use {@link #generatePairwiseSubjectIdentifier(String, String, String, String)}
+     */
+    @Deprecated
     public static String generatePairwiseSubjectIdentifier(String sectorIdentifier, String localAccountId, String key,
                                                            String salt, AppConfiguration configuration) throws Exception {
-        AbstractCryptoProvider cryptoProvider = CryptoProviderFactory.getCryptoProvider(configuration);
+        return generatePairwiseSubjectIdentifier(sectorIdentifier, localAccountId, key, salt);
+    }
 
+    public static String generatePairwiseSubjectIdentifier(String sectorIdentifier, String localAccountId, String key,
+                                                           String salt) throws NoSuchAlgorithmException, InvalidKeyException {
         String signingInput = sectorIdentifier + localAccountId + salt;
-        return cryptoProvider.sign(signingInput, null, key, SignatureAlgorithm.HS256);
+
+        Mac mac = getMac(key);
+        byte[] sig = mac.doFinal(signingInput.getBytes(Util.UTF8_CHARSET));
+
+        return Base64Util.base64urlencode(sig);
+    }
+
+    private static Mac getMac(String key) throws NoSuchAlgorithmException, InvalidKeyException {
+        KeyedMac keyedMac = MAC_POOL.get();
+        if ((keyedMac == null) || !keyedMac.key.equals(key)) {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key.getBytes(Util.UTF8_CHARSET), HMAC_ALGORITHM));
+
+            keyedMac = new KeyedMac(key, mac);
+            MAC_POOL.set(keyedMac);
+        }
+
+        return keyedMac.mac;
+    }
+
+    private static class KeyedMac {
+
+        private final String key;
+        private final Mac mac;
+
+        public KeyedMac(String key, Mac mac) {
+            this.key = key;
+            this.mac = mac;
+        }
+
     }
 }
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.Charset;
 import java.util.*;
 
 /**
@@ -36,6 +37,7 @@ public class Util {
     private static final Logger LOG = Logger.getLogger(Util.class);
 
     public static final String UTF8_STRING_ENCODING = "UTF-8";
+    public static final Charset UTF8_CHARSET = Charset.forName(UTF8_STRING_ENCODING);
 
     public static ObjectMapper createJsonMapper() {
         final AnnotationIntrospector jaxb = new JaxbAnnotationIntrospector();
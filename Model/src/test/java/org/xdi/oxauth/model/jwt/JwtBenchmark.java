@@ -0,0 +1,158 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.jwt;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.crypto.signature.RSAPrivateKey;
+import org.xdi.oxauth.model.crypto.signature.RSAPublicKey;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithm;
+import org.xdi.oxauth.model.jws.HMACSigner;
+import org.xdi.oxauth.model.jws.JwsSigner;
+import org.xdi.oxauth.model.jws.RSASigner;
+
+/**
+ * Measures parse, signature verification and serialization of typical id_token, request object
+ * and client assertion. Run with -Dbenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SHARED_SECRET = "b0d0c3c8-4d5f-4a9c-8f2e-7a51c3a0c9d2";
+
+    @Param({"ID_TOKEN", "REQUEST_OBJECT", "CLIENT_ASSERTION"})
+    public String tokenType;
+
+    private JwsSigner signer;
+    private JwsSigner verifier;
+
+    private Jwt jwt;
+    private String encodedJwt;
+
+    @Setup
+    public void setup() throws Exception {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+
+        if ("CLIENT_ASSERTION".equals(tokenType)) {
+            signer = new HMACSigner(SignatureAlgorithm.HS256, SHARED_SECRET);
+            verifier = signer;
+        } else {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+            keyPairGenerator.initialize(2048);
+            KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+            java.security.interfaces.RSAPrivateKey privateKey = (java.security.interfaces.RSAPrivateKey) keyPair.getPrivate();
+            java.security.interfaces.RSAPublicKey publicKey = (java.security.interfaces.RSAPublicKey) keyPair.getPublic();
+            signer = new RSASigner(SignatureAlgorithm.RS256, new RSAPrivateKey(privateKey.getModulus(), privateKey.getPrivateExponent()));
+            verifier = new RSASigner(SignatureAlgorithm.RS256, new RSAPublicKey(publicKey.getModulus(), publicKey.getPublicExponent()));
+        }
+
+        jwt = createJwt();
+        encodedJwt = signer.sign(createJwt()).toString();
+    }
+
+    @Benchmark
+    public Jwt parse() throws Exception {
+        return Jwt.parse(encodedJwt);
+    }
+
+    @Benchmark
+    public boolean parseAndVerify() throws Exception {
+        return verifier.validate(Jwt.parse(encodedJwt));
+    }
+
+    @Benchmark
+    public String serialize() throws Exception {
+        return jwt.toString();
+    }
+
+    @Benchmark
+    public String signAndSerialize() throws Exception {
+        return signer.sign(createJwt()).toString();
+    }
+
+    private Jwt createJwt() {
+        Date now = new Date();
+        Date expiration = new Date(now.getTime() + 3600 * 1000L);
+
+        Jwt jwt = new Jwt();
+        jwt.getHeader().setType(JwtType.JWT);
+        jwt.getHeader().setAlgorithm(signer.getSignatureAlgorithm());
+        jwt.getHeader().setKeyId("a8b8ab7d-6d51-4d56-8d2b-5b3d8b3f0e61");
+
+        JwtClaims claims = jwt.getClaims();
+        if ("ID_TOKEN".equals(tokenType)) {
+            claims.setIssuer("https://idp.example.com");
+            claims.setAudience("@!1111!0008!FD4A.5B6C");
+            claims.setSubjectIdentifier("6b6d7c5e-8f1a-4e2b-9c3d-0a1b2c3d4e5f");
+            claims.setExpirationTime(expiration);
+            claims.setIssuedAt(now);
+            claims.setClaim("auth_time", now);
+            claims.setClaim("nonce", UUID.randomUUID().toString());
+            claims.setClaim("at_hash", "77QmUPtjPfzWtF2AnpK9RQ");
+            claims.setClaim("oxValidationURI", "https://idp.example.com/oxauth/opiframe");
+            claims.setClaim("oxOpenIDConnectVersion", "openidconnect-1.0");
+        } else if ("REQUEST_OBJECT".equals(tokenType)) {
+            claims.setIssuer("@!1111!0008!FD4A.5B6C");
+            claims.setAudience("https://idp.example.com");
+            claims.setClaim("response_type", "code id_token");
+            claims.setClaim("client_id", "@!1111!0008!FD4A.5B6C");
+            claims.setClaim("redirect_uri", "https://rp.example.com/callback");
+            claims.setClaim("scope", "openid profile email address phone");
+            claims.setClaim("state", UUID.randomUUID().toString());
+            claims.setClaim("nonce", UUID.randomUUID().toString());
+            claims.setClaim("max_age", 86400);
+            claims.setClaim("ui_locales", Arrays.asList("en-GB", "en-US"));
+            claims.setClaim("acr_values", Arrays.asList("basic", "u2f"));
+        } else {
+            claims.setIssuer("@!1111!0008!FD4A.5B6C");
+            claims.setSubjectIdentifier("@!1111!0008!FD4A.5B6C");
+            claims.setAudience("https://idp.example.com/oxauth/restv1/token");
+            claims.setJwtId(UUID.randomUUID());
+            claims.setExpirationTime(expiration);
+            claims.setIssuedAt(now);
+        }
+
+        return jwt;
+    }
+
+    @Test
+    public void runBenchmark() throws Exception {
+        Options options = new OptionsBuilder().include(JwtBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.jwt;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Date;
+
+import org.apache.commons.codec.binary.Base64;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithm;
+import org.xdi.oxauth.model.exception.InvalidJwtException;
+import org.xdi.oxauth.model.util.Base64Util;
+
+public class JwtTest {
+
+    @Test
+    public void base64urlRoundTrip() {
+        for (int length = 0; length < 64; length++) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (i * 37 + length);
+            }
+
+            String encoded = Base64Util.base64urlencode(bytes);
+            assertEquals(encoded, Base64.encodeBase64URLSafeString(bytes));
+            assertEquals(Base64Util.base64urldecode(encoded), bytes);
+            assertEquals(Base64Util.base64urldecode(Base64.encodeBase64String(bytes)), bytes);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectInvalidBase64url() {
+        Base64Util.base64urldecode("ab$d");
+    }
+
+    @Test
+    public void parseAndSerialize() throws Exception {
+        Jwt jwt = new Jwt();
+        jwt.getHeader().setType(JwtType.JWT);
+        jwt.getHeader().setAlgorithm(SignatureAlgorithm.HS256);
+        jwt.getClaims().setIssuer("https://idp.example.com");
+        jwt.getClaims().setExpirationTime(new Date(1500000000000L));
+        jwt.setEncodedSignature("c2lnbmF0dXJl");
+
+        String encodedJwt = jwt.toString();
+        Jwt parsedJwt = Jwt.parse(encodedJwt);
+
+        assertEquals(parsedJwt.toString(), encodedJwt);
+        assertEquals(parsedJwt.getSigningInput(), encodedJwt.substring(0, encodedJwt.lastIndexOf('.')));
+        assertEquals(parsedJwt.getHeader().getAlgorithm(), SignatureAlgorithm.HS256);
+        assertEquals(parsedJwt.getClaims().getClaimAsString(JwtClaimName.ISSUER), "https://idp.example.com");
+        assertEquals(parsedJwt.getClaims().getClaimAsDate(JwtClaimName.EXPIRATION_TIME), new Date(1500000000000L));
+        assertEquals(parsedJwt.getEncodedSignature(), "c2lnbmF0dXJl");
+    }
+
+    @Test
+    public void parseUnsignedJwt() throws Exception {
+        Jwt jwt = new Jwt();
+        jwt.getHeader().setAlgorithm(SignatureAlgorithm.NONE);
+        jwt.getClaims().setSubjectIdentifier("subject");
+
+        String signingInput = jwt.getSigningInput();
+
+        assertEquals(Jwt.parse(signingInput).getEncodedSignature(), "");
+        assertEquals(Jwt.parse(signingInput + ".").getSigningInput(), signingInput);
+        assertNull(Jwt.parse(""));
+    }
+
+    @Test(expectedExceptions = InvalidJwtException.class)
+    public void rejectTooManyParts() throws Exception {
+        Jwt.parse("eyJhbGciOiJub25lIn0.e30.c2ln.ZXh0cmE");
+    }
+
+}
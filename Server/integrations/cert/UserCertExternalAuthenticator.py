@@ -15,7 +15,7 @@ from org.xdi.oxauth.util import ServerUtil
 from org.xdi.oxauth.service import EncryptionService
 from java.util import Arrays
 from org.xdi.oxauth.cert.fingerprint import FingerprintHelper
-from org.xdi.oxauth.cert.validation import GenericCertificateVerifier, PathCertificateVerifier, OCSPCertificateVerifier, CRLCertificateVerifier
+from org.xdi.oxauth.cert.validation import GenericCertificateVerifier, PathCertificateVerifier, OCSPCertificateVerifier, CRLCertificateVerifier, RevocationDataService
 from org.xdi.oxauth.cert.validation.model import ValidationStatus
 from org.xdi.oxauth.util import CertUtil
 from org.xdi.oxauth.service.net import HttpService
@@ -53,12 +53,29 @@ class PersonAuthentication(PersonAuthenticationType):
             crl_max_response_size = StringHelper.toInteger(configurationAttributes.get("crl_max_response_size").getValue2(), crl_max_response_size)
             print "Cert. Initialization. CRL max response size is '%d'" % crl_max_response_size
 
+        crl_spool_dir = None
+        if configurationAttributes.containsKey("crl_spool_dir"):
+            crl_spool_dir = configurationAttributes.get("crl_spool_dir").getValue2()
+            print "Cert. Initialization. CRL indexes will be memory mapped from '%s'" % crl_spool_dir
+
+        ocsp_cache_size = RevocationDataService.DEFAULT_MAX_CACHE_SIZE
+        if configurationAttributes.containsKey("ocsp_cache_size"):
+            ocsp_cache_size = StringHelper.toInteger(configurationAttributes.get("ocsp_cache_size").getValue2(), ocsp_cache_size)
+            print "Cert. Initialization. OCSP cache size is '%d'" % ocsp_cache_size
+
+        crl_cache_size = RevocationDataService.DEFAULT_MAX_CRL_CACHE_SIZE
+        if configurationAttributes.containsKey("crl_cache_size"):
+            crl_cache_size = StringHelper.toInteger(configurationAttributes.get("crl_cache_size").getValue2(), crl_cache_size)
+            print "Cert. Initialization. CRL cache size is '%d'" % crl_cache_size
+
+        RevocationDataService.configure(ocsp_cache_size, crl_cache_size, RevocationDataService.DEFAULT_TTL_SECONDS, RevocationDataService.DEFAULT_REFRESH_AHEAD_SECONDS)
+
         # Define array to order methods correctly
         self.validator_types = [ 'generic', 'path', 'ocsp', 'crl']
         self.validators = { 'generic' : [GenericCertificateVerifier(), False],
                             'path' : [PathCertificateVerifier(False), False],
                             'ocsp' : [OCSPCertificateVerifier(), False],
-                            'crl' : [CRLCertificateVerifier(crl_max_response_size), False] }
+                            'crl' : [CRLCertificateVerifier(crl_max_response_size, crl_spool_dir), False] }
 
         for type in self.validator_types:
             validator_param_name = "use_%s_validator" % type
@@ -27,9 +27,9 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.BooleanUtils;
 import org.slf4j.Logger;
 import org.xdi.oxauth.model.audit.OAuth2AuditLog;
+import org.xdi.oxauth.model.config.ConfigurationChanges;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.util.ServerUtil;
-import org.xdi.service.cdi.event.ConfigurationUpdate;
 
 import com.google.common.base.Objects;
 
@@ -61,8 +61,10 @@ public class ApplicationAuditLogger {
 	private boolean updateState;
 	private Boolean enabledOAuthAuditnLogging;
 
-	public void updateConfiguration(@Observes @ConfigurationUpdate AppConfiguration appConfiguration) {
-		this.updateState = true;
+	public void updateConfiguration(@Observes ConfigurationChanges changes) {
+		if (changes.isAppConfigurationChanged("enabledOAuthAuditLogging", "jmsBrokerURISet", "jmsUserName", "jmsPassword")) {
+			this.updateState = true;
+		}
 	}
 
     @PostConstruct
@@ -12,8 +12,6 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
-import org.jboss.resteasy.client.ClientRequest;
-import org.jboss.resteasy.client.ClientResponse;
 import org.slf4j.Logger;
 import org.xdi.oxauth.audit.ApplicationAuditLogger;
 import org.xdi.oxauth.auth.Authenticator;
@@ -33,6 +31,8 @@ import org.xdi.oxauth.model.util.JwtUtil;
 import org.xdi.oxauth.model.util.Util;
 import org.xdi.oxauth.security.Identity;
 import org.xdi.oxauth.service.*;
+import org.xdi.oxauth.service.net.OutboundHttpResponse;
+import org.xdi.oxauth.service.net.OutboundHttpService;
 import org.xdi.oxauth.util.QueryStringDecoder;
 import org.xdi.oxauth.util.RedirectUri;
 import org.xdi.oxauth.util.RedirectUtil;
@@ -113,6 +113,9 @@ public class AuthorizeRestWebServiceImpl implements AuthorizeRestWebService {
     @Inject
     private AppConfiguration appConfiguration;
 
+    @Inject
+    private OutboundHttpService outboundHttpService;
+
     @Override
     public Response requestAuthorizationGet(
             String scope, String responseType, String clientId, String redirectUri, String state, String responseMode,
@@ -251,14 +254,10 @@ public class AuthorizeRestWebServiceImpl implements AuthorizeRestWebService {
                                     String reqUriHash = reqUri.getFragment();
                                     String reqUriWithoutFragment = reqUri.getScheme() + ":" + reqUri.getSchemeSpecificPart();
 
-                                    ClientRequest clientRequest = new ClientRequest(reqUriWithoutFragment);
-                                    clientRequest.setHttpMethod(HttpMethod.GET);
-
-                                    ClientResponse<String> clientResponse = clientRequest.get(String.class);
-                                    int status = clientResponse.getStatus();
+                                    OutboundHttpResponse requestUriResponse = outboundHttpService.executeGet(reqUriWithoutFragment);
 
-                                    if (status == 200) {
-                                        request = clientResponse.getEntity(String.class);
+                                    if (requestUriResponse.isOk()) {
+                                        request = requestUriResponse.getContentAsString();
 
                                         if (StringUtils.isBlank(reqUriHash)) {
                                             validRequestUri = true;
@@ -7,54 +7,45 @@
 package org.xdi.oxauth.cert.validation;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigInteger;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
-import java.net.URL;
-import java.security.NoSuchProviderException;
+import java.security.GeneralSecurityException;
 import java.security.Principal;
-import java.security.cert.CRLException;
-import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509CRL;
-import java.security.cert.X509CRLEntry;
+import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
 import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.ASN1OctetString;
 import org.bouncycastle.asn1.ASN1Primitive;
 import org.bouncycastle.asn1.ASN1TaggedObject;
 import org.bouncycastle.asn1.DERIA5String;
-import org.bouncycastle.asn1.DERInteger;
-import org.bouncycastle.asn1.DEROctetString;
 import org.bouncycastle.asn1.x509.CRLDistPoint;
 import org.bouncycastle.asn1.x509.DistributionPoint;
 import org.bouncycastle.asn1.x509.DistributionPointName;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.GeneralName;
 import org.bouncycastle.asn1.x509.GeneralNames;
-import org.bouncycastle.asn1.x509.X509Extensions;
-import org.bouncycastle.x509.NoSuchParserException;
-import org.bouncycastle.x509.util.StreamParsingException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xdi.oxauth.cert.validation.model.CRLIndex;
+import org.xdi.oxauth.cert.validation.model.CRLIndex.RevokedCertificate;
+import org.xdi.oxauth.cert.validation.model.CRLRequestKey;
 import org.xdi.oxauth.cert.validation.model.ValidationStatus;
 import org.xdi.oxauth.cert.validation.model.ValidationStatus.CertificateValidity;
 import org.xdi.oxauth.cert.validation.model.ValidationStatus.ValidatorSourceType;
 import org.xdi.oxauth.model.util.SecurityProviderUtility;
-
-import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import org.xdi.oxauth.service.net.OutboundHttpService;
+import org.xdi.oxauth.service.net.OutboundResponseReader;
+import org.xdi.service.cdi.util.CdiUtil;
 
 /**
  * Certificate verifier based on CRL
@@ -68,23 +59,32 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 	private int maxCrlSize;
 
-	private LoadingCache<String, X509CRL> crlCache;
+	private RevocationDataService revocationDataService;
+
+	private OutboundHttpService outboundHttpService;
+
+	private StreamingCRLParser crlParser;
 
 	public CRLCertificateVerifier(final int maxCrlSize) {
-		SecurityProviderUtility.installBCProvider(true);
+		this(maxCrlSize, null);
+	}
 
-		this.maxCrlSize = maxCrlSize;
-		
-		CacheLoader<String, X509CRL> checkedLoader = new CacheLoader<String, X509CRL>() {
-			public X509CRL load(String crlURL) throws CertificateException, CRLException, NoSuchProviderException, NoSuchParserException, StreamParsingException, MalformedURLException, IOException, ExecutionException {
-				X509CRL result = requestCRL(crlURL);
-				Preconditions.checkNotNull(result);
+	/**
+	 * @param crlSpoolDir
+	 *            folder for memory mapped CRL indexes, indexes are kept on heap if it's null
+	 */
+	public CRLCertificateVerifier(final int maxCrlSize, String crlSpoolDir) {
+		this(maxCrlSize, crlSpoolDir, RevocationDataService.instance(), CdiUtil.bean(OutboundHttpService.class));
+	}
 
-				return result;
-			}
-		};
+	public CRLCertificateVerifier(final int maxCrlSize, String crlSpoolDir, RevocationDataService revocationDataService,
+			OutboundHttpService outboundHttpService) {
+		SecurityProviderUtility.installBCProvider(true);
 
-		this.crlCache = CacheBuilder.newBuilder().maximumSize(10).expireAfterWrite(60, TimeUnit.MINUTES).build(checkedLoader);
+		this.maxCrlSize = maxCrlSize;
+		this.revocationDataService = revocationDataService;
+		this.outboundHttpService = outboundHttpService;
+		this.crlParser = new StreamingCRLParser(crlSpoolDir == null ? null : new File(crlSpoolDir));
 	}
 
 	@Override
@@ -103,24 +103,45 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 			log.debug("CRL's URL for '" + subjectX500Principal + "' is '" + crlURL + "'");
 
-			X509CRL x509crl = getCrl(crlURL);
-			if (!validateCRL(x509crl, certificate, issuer, validationDate)) {
+			CRLIndex crlIndex = getCrl(crlURL, issuer);
+			if (!validateCRL(crlIndex, certificate, issuer, validationDate)) {
 				log.error("The CRL is not valid!");
 				status.setValidity(CertificateValidity.INVALID);
 				return status;
 			}
 
-			X509CRLEntry crlEntry = x509crl.getRevokedCertificate(certificate.getSerialNumber());
-			if (crlEntry == null) {
+			CRLIndex revocationIndex = crlIndex;
+			RevokedCertificate crlEntry = crlIndex.getRevokedCertificate(certificate.getSerialNumber());
+
+			// Delta CRL has more recent status than base CRL. Base CRL alone can't be trusted if delta CRL is invalid
+			String deltaCrlURL = getCrlUri(certificate, Extension.freshestCRL);
+			if (deltaCrlURL != null) {
+				log.debug("Delta CRL's URL for '" + subjectX500Principal + "' is '" + deltaCrlURL + "'");
+
+				CRLIndex deltaCrlIndex = getCrl(deltaCrlURL, issuer);
+				if (!validateDeltaCRL(deltaCrlIndex, crlIndex, certificate, issuer, validationDate)) {
+					log.error("The delta CRL is not valid!");
+					status.setValidity(CertificateValidity.INVALID);
+					return status;
+				}
+
+				RevokedCertificate deltaCrlEntry = deltaCrlIndex.getRevokedCertificate(certificate.getSerialNumber());
+				if (deltaCrlEntry != null) {
+					revocationIndex = deltaCrlIndex;
+					crlEntry = deltaCrlEntry.isRemoveFromCrl() ? null : deltaCrlEntry;
+				}
+			}
+
+			if ((crlEntry == null) || crlEntry.isRemoveFromCrl()) {
 				log.debug("CRL status is valid for '" + subjectX500Principal + "'");
 				status.setValidity(CertificateValidity.VALID);
 			} else if (crlEntry.getRevocationDate().after(validationDate)) {
 				log.warn("CRL revocation time after the validation date, the certificate '" + subjectX500Principal + "' was valid at " + validationDate);
-				status.setRevocationObjectIssuingTime(x509crl.getThisUpdate());
+				status.setRevocationObjectIssuingTime(revocationIndex.getThisUpdate());
 				status.setValidity(CertificateValidity.VALID);
 			} else {
 				log.info("CRL for certificate '" + subjectX500Principal + "' is revoked since " + crlEntry.getRevocationDate());
-				status.setRevocationObjectIssuingTime(x509crl.getThisUpdate());
+				status.setRevocationObjectIssuingTime(revocationIndex.getThisUpdate());
 				status.setRevocationDate(crlEntry.getRevocationDate());
 				status.setValidity(CertificateValidity.REVOKED);
 			}
@@ -131,40 +152,54 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 		return status;
 	}
 
-	private boolean validateCRL(X509CRL x509crl, X509Certificate certificate, X509Certificate issuerCertificate, Date validationDate) {
+	private boolean validateDeltaCRL(CRLIndex deltaCrlIndex, CRLIndex crlIndex, X509Certificate certificate, X509Certificate issuerCertificate,
+			Date validationDate) {
+		if (!validateCRL(deltaCrlIndex, certificate, issuerCertificate, validationDate)) {
+			return false;
+		}
+
+		if (!deltaCrlIndex.isDelta()) {
+			log.error("The delta CRL doesn't contain delta CRL indicator");
+			return false;
+		}
+
+		if ((crlIndex.getCrlNumber() == null) || (deltaCrlIndex.getBaseCrlNumber().compareTo(crlIndex.getCrlNumber()) > 0)) {
+			log.error("The delta CRL base number '" + deltaCrlIndex.getBaseCrlNumber() + "' doesn't match CRL number '" + crlIndex.getCrlNumber() + "'");
+			return false;
+		}
+
+		return true;
+	}
+
+	private boolean validateCRL(CRLIndex crlIndex, X509Certificate certificate, X509Certificate issuerCertificate, Date validationDate) {
 		Principal subjectX500Principal = certificate.getSubjectX500Principal();
 
-		if (x509crl == null) {
+		if (crlIndex == null) {
 			log.error("No CRL found for certificate '" + subjectX500Principal + "'");
 			return false;
 		}
 
 		if (log.isTraceEnabled()) {
-			try {
-				log.trace("CRL number: " + getCrlNumber(x509crl));
-			} catch (IOException ex) {
-				log.error("Failed to get CRL number", ex);
-			}
+			log.trace("CRL number: " + crlIndex.getCrlNumber());
 		}
 
-		if (!x509crl.getIssuerX500Principal().equals(issuerCertificate.getSubjectX500Principal())) {
+		if (!crlIndex.getIssuer().equals(issuerCertificate.getSubjectX500Principal())) {
 			log.error("The CRL must be signed by the issuer '" + subjectX500Principal + "' but instead is signed by '"
-					+ x509crl.getIssuerX500Principal() + "'");
+					+ crlIndex.getIssuer() + "'");
 			return false;
 		}
 
-		try {
-			x509crl.verify(issuerCertificate.getPublicKey());
-		} catch (Exception ex) {
-			log.error("The signature verification for CRL cannot be performed", ex);
+		// Signature is verified by parser with issuer key which was used to load CRL
+		if (!crlIndex.getSignatureKey().equals(issuerCertificate.getPublicKey())) {
+			log.error("The signature verification for CRL cannot be performed, CRL was verified with another key");
 			return false;
 		}
 
 		log.debug("CRL validationDate: " + validationDate);
-		log.debug("CRL nextUpdate: " + x509crl.getThisUpdate());
-		log.debug("CRL thisUpdate: " + x509crl.getNextUpdate());
+		log.debug("CRL nextUpdate: " + crlIndex.getThisUpdate());
+		log.debug("CRL thisUpdate: " + crlIndex.getNextUpdate());
 
-		if (x509crl.getNextUpdate() != null && validationDate.after(x509crl.getNextUpdate())) {
+		if (crlIndex.getNextUpdate() != null && validationDate.after(crlIndex.getNextUpdate())) {
 			log.error("CRL is too old");
 			return false;
 		}
@@ -183,64 +218,66 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 	}
 
-	private X509CRL getCrl(String url) throws CertificateException, CRLException, NoSuchProviderException, NoSuchParserException, StreamParsingException,
-			MalformedURLException, IOException, ExecutionException {
+	private CRLIndex getCrl(String url, final X509Certificate issuer) throws ExecutionException {
 		if (!(url.startsWith("http://") || url.startsWith("https://"))) {
 			log.error("It's possbiel to downloid CRL via HTTP and HTTPS only");
 			return null;
 		}
 		
-		String cacheKey = url.toLowerCase();
-		X509CRL crl = crlCache.get(cacheKey);
+		CRLRequestKey cacheKey = new CRLRequestKey(url, issuer.getSubjectX500Principal(), issuer.getPublicKey());
+		CRLIndex crl = revocationDataService.getCrlCache().get(cacheKey, new RevocationDataLoader<CRLRequestKey, CRLIndex>() {
+			@Override
+			public CRLIndex load(CRLRequestKey key) throws IOException, GeneralSecurityException {
+				return requestCRL(key.getCrlUrl(), key.getIssuerPublicKey());
+			}
+
+			@Override
+			public Date getNextUpdate(CRLRequestKey key, CRLIndex crlIndex) {
+				return crlIndex.getNextUpdate();
+			}
+		});
 
 		return crl;
 	}
 
-	public X509CRL requestCRL(String url) throws IOException, MalformedURLException, CertificateException, CRLException {
-		HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
+	public CRLIndex requestCRL(final String url, final PublicKey issuerPublicKey) throws IOException, MalformedURLException, GeneralSecurityException {
 		try {
-			con.setUseCaches(false);
-
-			InputStream in = new BoundedInputStream(con.getInputStream(), maxCrlSize);
-			try {
-				CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
-				X509CRL crl = (X509CRL) certificateFactory.generateCRL(in);
-				log.debug("CRL size: " + crl.getEncoded().length + " bytes");
-
-				return crl;
-			} finally {
-				IOUtils.closeQuietly(in);
-			}
+			return outboundHttpService.execute(new HttpGet(url), maxCrlSize, new OutboundResponseReader<CRLIndex>() {
+				@Override
+				public CRLIndex read(HttpResponse response, InputStream content) throws IOException {
+					int status = response.getStatusLine().getStatusCode();
+					if ((status != HttpStatus.SC_OK) || (content == null)) {
+						log.error("Failed to download CRL from '" + url + "', status: " + status);
+						return null;
+					}
+
+					try {
+						CRLIndex crl = crlParser.parse(content, issuerPublicKey);
+						log.debug("CRL entries: " + crl.getSize() + ", index size: " + crl.getIndexSize() + " bytes");
+
+						return crl;
+					} catch (GeneralSecurityException ex) {
+						throw new CRLSecurityException(ex);
+					}
+				}
+			});
+		} catch (CRLSecurityException ex) {
+			throw (GeneralSecurityException) ex.getCause();
 		} catch (IOException ex) {
 			log.error("Failed to download CRL from '" + url + "'", ex);
-		} finally {
-			if (con != null) {
-				con.disconnect();
-			}
 		}
-		
+
 		return null;
 	}
 
-	@SuppressWarnings({ "deprecation", "resource" })
-	private BigInteger getCrlNumber(X509CRL crl) throws IOException {
-		byte[] crlNumberExtensionValue = crl.getExtensionValue(X509Extensions.CRLNumber.getId());
-		if (crlNumberExtensionValue == null) {
-			return null;
-		}
-
-		DEROctetString octetString = (DEROctetString) (new ASN1InputStream(new ByteArrayInputStream(crlNumberExtensionValue)).readObject());
-		byte[] octets = octetString.getOctets();
-		DERInteger integer = (DERInteger) new ASN1InputStream(octets).readObject();
-		BigInteger crlNumber = integer.getPositiveValue();
-
-		return crlNumber;
+	public String getCrlUri(X509Certificate certificate) throws IOException {
+		return getCrlUri(certificate, Extension.cRLDistributionPoints);
 	}
 
-	public String getCrlUri(X509Certificate certificate) throws IOException {
+	private String getCrlUri(X509Certificate certificate, ASN1ObjectIdentifier extension) throws IOException {
 		ASN1Primitive obj;
 		try {
-			obj = getExtensionValue(certificate, Extension.cRLDistributionPoints.getId());
+			obj = getExtensionValue(certificate, extension.getId());
 		} catch (IOException ex) {
 			log.error("Failed to get CRL URL", ex);
 			return null;
@@ -295,7 +332,19 @@ public class CRLCertificateVerifier implements CertificateVerifier {
 
 	@Override
 	public void destroy() {
-		crlCache.cleanUp();
+	}
+
+	/**
+	 * Carries CRL signature verification failure through response reader
+	 */
+	private static class CRLSecurityException extends IOException {
+
+		private static final long serialVersionUID = 3146178223874912034L;
+
+		public CRLSecurityException(GeneralSecurityException cause) {
+			super(cause);
+		}
+
 	}
 
 }
@@ -8,27 +8,31 @@ package org.xdi.oxauth.cert.validation;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
-import java.net.URL;
 import java.security.Principal;
 import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.ContentType;
 import org.bouncycastle.asn1.ASN1InputStream;
 import org.bouncycastle.asn1.ASN1OctetString;
 import org.bouncycastle.asn1.ASN1Primitive;
 import org.bouncycastle.asn1.ASN1TaggedObject;
 import org.bouncycastle.asn1.DERIA5String;
+import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.AccessDescription;
 import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
 import org.bouncycastle.asn1.x509.X509ObjectIdentifiers;
+import org.bouncycastle.cert.CertException;
+import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
 import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.bouncycastle.cert.ocsp.CertificateID;
@@ -40,15 +44,22 @@ import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
 import org.bouncycastle.cert.ocsp.RevokedStatus;
 import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentVerifierProvider;
 import org.bouncycastle.operator.DigestCalculator;
 import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
 import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xdi.oxauth.cert.validation.model.OCSPRequestKey;
 import org.xdi.oxauth.cert.validation.model.ValidationStatus;
 import org.xdi.oxauth.cert.validation.model.ValidationStatus.CertificateValidity;
 import org.xdi.oxauth.cert.validation.model.ValidationStatus.ValidatorSourceType;
 import org.xdi.oxauth.model.util.SecurityProviderUtility;
+import org.xdi.oxauth.service.net.OutboundHttpResponse;
+import org.xdi.oxauth.service.net.OutboundHttpService;
+import org.xdi.service.cdi.util.CdiUtil;
 
 /**
  * Certificate verifier based on OCSP
@@ -60,8 +71,43 @@ public class OCSPCertificateVerifier implements CertificateVerifier {
 
 	private static final Logger log = LoggerFactory.getLogger(OCSPCertificateVerifier.class);
 
+	private static final ContentType OCSP_REQUEST_CONTENT_TYPE = ContentType.create("application/ocsp-request");
+
+	private RevocationDataService revocationDataService;
+
+	private OutboundHttpService outboundHttpService;
+
+	private RevocationDataLoader<OCSPRequestKey, OCSPResp> ocspResponseLoader;
+
 	public OCSPCertificateVerifier() {
+		this(RevocationDataService.instance(), CdiUtil.bean(OutboundHttpService.class));
+	}
+
+	public OCSPCertificateVerifier(RevocationDataService revocationDataService, OutboundHttpService outboundHttpService) {
 		SecurityProviderUtility.installBCProvider(true);
+
+		this.revocationDataService = revocationDataService;
+		this.outboundHttpService = outboundHttpService;
+		this.ocspResponseLoader = new RevocationDataLoader<OCSPRequestKey, OCSPResp>() {
+			@Override
+			public OCSPResp load(OCSPRequestKey key) throws Exception {
+				// Generate OCSP request
+				OCSPReq ocspReq = generateOCSPRequest(key.getCertificateId());
+
+				// Get OCSP response from server
+				OCSPResp ocspResp = requestOCSPResponse(key.getOcspUrl(), ocspReq);
+
+				// Don't cache responses which are not signed by issuer or by its delegated responder
+				verifyOCSPResponseSignature(ocspResp, key.getIssuer());
+
+				return ocspResp;
+			}
+
+			@Override
+			public Date getNextUpdate(OCSPRequestKey key, OCSPResp ocspResp) {
+				return getOCSPResponseNextUpdate(key.getCertificateId(), ocspResp);
+			}
+		};
 	}
 
 	@Override
@@ -83,12 +129,9 @@ public class OCSPCertificateVerifier implements CertificateVerifier {
 			DigestCalculator digestCalculator = new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1);
 			CertificateID certificateId = new CertificateID(digestCalculator, new JcaX509CertificateHolder(certificate), certificate.getSerialNumber());
 
-			// Generate OCSP request
-			OCSPReq ocspReq = generateOCSPRequest(certificateId);
-
-			// Get OCSP response from server
-			OCSPResp ocspResp = requestOCSPResponse(ocspUrl, ocspReq);
-			if (ocspResp.getStatus() != OCSPRespBuilder.SUCCESSFUL) {
+			// Get OCSP response from cache or from server
+			OCSPResp ocspResp = revocationDataService.getOcspCache().get(new OCSPRequestKey(ocspUrl, certificateId, issuer), ocspResponseLoader);
+			if ((ocspResp == null) || (ocspResp.getStatus() != OCSPRespBuilder.SUCCESSFUL)) {
 				log.error("OCSP response is invalid!");
 				status.setValidity(CertificateValidity.INVALID);
 				return status;
@@ -142,6 +185,85 @@ public class OCSPCertificateVerifier implements CertificateVerifier {
 		return status;
 	}
 
+	private Date getOCSPResponseNextUpdate(CertificateID certificateId, OCSPResp ocspResp) {
+		// Don't cache unsuccessful responses
+		if (ocspResp.getStatus() != OCSPRespBuilder.SUCCESSFUL) {
+			return new Date();
+		}
+
+		try {
+			BasicOCSPResp basicOCSPResp = (BasicOCSPResp) ocspResp.getResponseObject();
+
+			boolean foundResponse = false;
+			Date nextUpdate = null;
+			for (SingleResp singleResp : basicOCSPResp.getResponses()) {
+				if (!certificateId.equals(singleResp.getCertID())) {
+					continue;
+				}
+
+				foundResponse = true;
+
+				// Response without nextUpdate is cached for default time
+				if (singleResp.getNextUpdate() == null) {
+					return null;
+				}
+
+				if ((nextUpdate == null) || singleResp.getNextUpdate().before(nextUpdate)) {
+					nextUpdate = singleResp.getNextUpdate();
+				}
+			}
+
+			return foundResponse ? nextUpdate : new Date();
+		} catch (OCSPException ex) {
+			log.error("Failed to parse OCSP response", ex);
+			return new Date();
+		}
+	}
+
+	private void verifyOCSPResponseSignature(OCSPResp ocspResp, X509Certificate issuer) throws OCSPException, OperatorCreationException, CertificateException, CertException {
+		// Unsuccessful responses aren't signed
+		if (ocspResp.getStatus() != OCSPRespBuilder.SUCCESSFUL) {
+			return;
+		}
+
+		BasicOCSPResp basicOCSPResp = (BasicOCSPResp) ocspResp.getResponseObject();
+		JcaContentVerifierProviderBuilder verifierProviderBuilder = new JcaContentVerifierProviderBuilder().setProvider(BouncyCastleProvider.PROVIDER_NAME);
+		ContentVerifierProvider issuerVerifierProvider = verifierProviderBuilder.build(issuer.getPublicKey());
+
+		// Response is signed by issuer
+		if (basicOCSPResp.isSignatureValid(issuerVerifierProvider)) {
+			return;
+		}
+
+		// Response is signed by delegated responder. Its certificate should be issued by issuer
+		// and should have OCSP signing extended key usage (RFC 6960, section 4.2.2.2)
+		Date now = new Date();
+		X509CertificateHolder[] responderCertificates = basicOCSPResp.getCerts();
+		if (responderCertificates != null) {
+			X500Name issuerName = X500Name.getInstance(issuer.getSubjectX500Principal().getEncoded());
+			for (X509CertificateHolder responderCertificate : responderCertificates) {
+				if (!issuerName.equals(responderCertificate.getIssuer())) {
+					continue;
+				}
+
+				ExtendedKeyUsage extendedKeyUsage = ExtendedKeyUsage.fromExtensions(responderCertificate.getExtensions());
+				if ((extendedKeyUsage == null) || !extendedKeyUsage.hasKeyPurposeId(KeyPurposeId.id_kp_OCSPSigning)) {
+					continue;
+				}
+
+				if (!responderCertificate.isValidOn(now) || !responderCertificate.isSignatureValid(issuerVerifierProvider)) {
+					continue;
+				}
+
+				if (basicOCSPResp.isSignatureValid(verifierProviderBuilder.build(responderCertificate))) {
+					return;
+				}
+			}
+		}
+
+		throw new CertificateException("OCSP response signature is invalid");
+	}
+
 	private OCSPReq generateOCSPRequest(CertificateID certificateId) throws OCSPException, OperatorCreationException, CertificateEncodingException {
 		OCSPReqBuilder ocspReqGenerator = new OCSPReqBuilder();
 
@@ -190,32 +312,15 @@ public class OCSPCertificateVerifier implements CertificateVerifier {
 	public OCSPResp requestOCSPResponse(String url, OCSPReq ocspReq) throws IOException, MalformedURLException {
 		byte[] ocspReqData = ocspReq.getEncoded();
 
-		HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
-		try {
-			con.setRequestProperty("Content-Type", "application/ocsp-request");
-			con.setRequestProperty("Accept", "application/ocsp-response");
-
-			con.setDoInput(true);
-			con.setDoOutput(true);
-			con.setUseCaches(false);
-
-			OutputStream out = con.getOutputStream();
-			try {
-				IOUtils.write(ocspReqData, out);
-				out.flush();
-			} finally {
-				IOUtils.closeQuietly(out);
-			}
+		OutboundHttpResponse response = outboundHttpService.executePost(url, ocspReqData, OCSP_REQUEST_CONTENT_TYPE,
+				Collections.singletonMap("Accept", "application/ocsp-response"));
+		if (!response.isOk()) {
+			throw new IOException("OCSP responder '" + url + "' returned status " + response.getStatus());
+		}
 
-			byte[] responseBytes = IOUtils.toByteArray(con.getInputStream());
-			OCSPResp ocspResp = new OCSPResp(responseBytes);
+		OCSPResp ocspResp = new OCSPResp(response.getContent());
 
-			return ocspResp;
-		} finally {
-			if (con != null) {
-				con.disconnect();
-			}
-		}
+		return ocspResp;
 	}
 
 	/**
@@ -0,0 +1,276 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.cert.validation;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of revocation data. Entries live until their nextUpdate, are refreshed in
+ * background shortly before expiration and concurrent loads of same key are coalesced
+ */
+public class RevocationDataCache<K, V> {
+
+	private static final Logger log = LoggerFactory.getLogger(RevocationDataCache.class);
+
+	private final String name;
+	private final Executor refreshExecutor;
+
+	private final ConcurrentMap<K, CacheEntry<V>> entries;
+	private final ConcurrentMap<K, FutureTask<CacheEntry<V>>> loads;
+
+	private volatile int maxSize;
+	private volatile long defaultTtlMillis;
+	private volatile long refreshAheadMillis;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong refreshCount = new AtomicLong();
+	private final AtomicLong loadFailureCount = new AtomicLong();
+
+	public RevocationDataCache(String name, Executor refreshExecutor, int maxSize, long defaultTtlMillis, long refreshAheadMillis) {
+		this.name = name;
+		this.refreshExecutor = refreshExecutor;
+		this.maxSize = maxSize;
+		this.defaultTtlMillis = defaultTtlMillis;
+		this.refreshAheadMillis = refreshAheadMillis;
+
+		this.entries = new ConcurrentHashMap<K, CacheEntry<V>>();
+		this.loads = new ConcurrentHashMap<K, FutureTask<CacheEntry<V>>>();
+	}
+
+	public V get(K key, RevocationDataLoader<K, V> loader) throws ExecutionException {
+		long now = System.currentTimeMillis();
+
+		CacheEntry<V> entry = entries.get(key);
+		if ((entry != null) && !entry.isExpired(now)) {
+			hitCount.incrementAndGet();
+			if (entry.isRefreshRequired(now)) {
+				refresh(key, loader);
+			}
+
+			return entry.getValue();
+		}
+
+		missCount.incrementAndGet();
+		entry = load(key, loader);
+		if (entry == null) {
+			return null;
+		}
+
+		return entry.getValue();
+	}
+
+	private CacheEntry<V> load(K key, RevocationDataLoader<K, V> loader) throws ExecutionException {
+		FutureTask<CacheEntry<V>> task = createLoadTask(key, loader);
+		FutureTask<CacheEntry<V>> existingTask = loads.putIfAbsent(key, task);
+		if (existingTask == null) {
+			// This thread is responsible for loading data, other threads wait for result
+			try {
+				task.run();
+			} finally {
+				loads.remove(key, task);
+			}
+			existingTask = task;
+		}
+
+		try {
+			return existingTask.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ExecutionException(ex);
+		}
+	}
+
+	private void refresh(K key, RevocationDataLoader<K, V> loader) {
+		final K refreshKey = key;
+		final FutureTask<CacheEntry<V>> task = createLoadTask(key, loader);
+		if (loads.putIfAbsent(key, task) != null) {
+			// Data is loading already
+			return;
+		}
+
+		refreshCount.incrementAndGet();
+		try {
+			refreshExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} finally {
+						loads.remove(refreshKey, task);
+					}
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			loads.remove(key, task);
+			log.debug("Skipping background refresh of '{}' {} cache entry", key, name);
+		}
+	}
+
+	private FutureTask<CacheEntry<V>> createLoadTask(final K key, final RevocationDataLoader<K, V> loader) {
+		return new FutureTask<CacheEntry<V>>(new Callable<CacheEntry<V>>() {
+			@Override
+			public CacheEntry<V> call() throws Exception {
+				V value;
+				try {
+					value = loader.load(key);
+				} catch (Exception ex) {
+					loadFailureCount.incrementAndGet();
+					throw ex;
+				}
+
+				if (value == null) {
+					loadFailureCount.incrementAndGet();
+					return null;
+				}
+
+				long now = System.currentTimeMillis();
+				Date nextUpdate = loader.getNextUpdate(key, value);
+				long expiresAt = (nextUpdate == null) ? now + defaultTtlMillis : nextUpdate.getTime();
+
+				CacheEntry<V> entry = new CacheEntry<V>(value, now, expiresAt, refreshAheadMillis);
+				if (expiresAt > now) {
+					entries.put(key, entry);
+					evictIfNeeded(now);
+				} else {
+					entries.remove(key);
+				}
+
+				return entry;
+			}
+		});
+	}
+
+	private void evictIfNeeded(long now) {
+		if (entries.size() <= maxSize) {
+			return;
+		}
+
+		// Remove expired entries at first
+		for (Iterator<CacheEntry<V>> it = entries.values().iterator(); it.hasNext();) {
+			if (it.next().isExpired(now)) {
+				it.remove();
+			}
+		}
+
+		// Remove entries which expire first
+		while (entries.size() > maxSize) {
+			K evictKey = null;
+			long evictExpiresAt = Long.MAX_VALUE;
+			for (Map.Entry<K, CacheEntry<V>> mapEntry : entries.entrySet()) {
+				if (mapEntry.getValue().getExpiresAt() < evictExpiresAt) {
+					evictKey = mapEntry.getKey();
+					evictExpiresAt = mapEntry.getValue().getExpiresAt();
+				}
+			}
+
+			if (evictKey == null) {
+				break;
+			}
+			entries.remove(evictKey);
+		}
+	}
+
+	public void configure(int maxSize, long defaultTtlMillis, long refreshAheadMillis) {
+		this.maxSize = maxSize;
+		this.defaultTtlMillis = defaultTtlMillis;
+		this.refreshAheadMillis = refreshAheadMillis;
+
+		evictIfNeeded(System.currentTimeMillis());
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getSize() {
+		return entries.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getRefreshCount() {
+		return refreshCount.get();
+	}
+
+	public long getLoadFailureCount() {
+		return loadFailureCount.get();
+	}
+
+	public double getHitRatio() {
+		long hits = hitCount.get();
+		long requests = hits + missCount.get();
+
+		return (requests == 0) ? 1.0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "RevocationDataCache [name=" + name + ", size=" + entries.size() + ", maxSize=" + maxSize + ", hitCount=" + hitCount + ", missCount=" + missCount
+				+ ", refreshCount=" + refreshCount + ", loadFailureCount=" + loadFailureCount + "]";
+	}
+
+	private static class CacheEntry<V> {
+
+		private final V value;
+		private final long expiresAt;
+		private final long refreshAt;
+
+		public CacheEntry(V value, long loadedAt, long expiresAt, long refreshAheadMillis) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+
+			// Don't refresh more often than once per half of entry life time
+			this.refreshAt = Math.max(loadedAt + (expiresAt - loadedAt) / 2, expiresAt - refreshAheadMillis);
+		}
+
+		public V getValue() {
+			return value;
+		}
+
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+
+		public boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+
+		public boolean isRefreshRequired(long now) {
+			return now >= refreshAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,26 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.cert.validation;
+
+import java.util.Date;
+
+/**
+ * Loads revocation data (OCSP response, CRL) from the issuer's responder
+ */
+public interface RevocationDataLoader<K, V> {
+
+	/**
+	 * @return loaded revocation data or null if it's not available
+	 */
+	public abstract V load(K key) throws Exception;
+
+	/**
+	 * @return date after which value should not be used, null if value doesn't declare it
+	 */
+	public abstract Date getNextUpdate(K key, V value);
+
+}
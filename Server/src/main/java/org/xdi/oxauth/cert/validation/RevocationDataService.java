@@ -0,0 +1,109 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.cert.validation;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xdi.oxauth.cert.validation.model.CRLIndex;
+import org.xdi.oxauth.cert.validation.model.CRLRequestKey;
+import org.xdi.oxauth.cert.validation.model.OCSPRequestKey;
+
+/**
+ * Revocation data service shared between certificate verifiers. It caches OCSP responses
+ * and CRLs until their nextUpdate and refreshes them in background before expiration
+ */
+public class RevocationDataService {
+
+	private static final Logger log = LoggerFactory.getLogger(RevocationDataService.class);
+
+	public static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+	public static final int DEFAULT_MAX_CRL_CACHE_SIZE = 10;
+	public static final int DEFAULT_TTL_SECONDS = 60 * 60;
+	public static final int DEFAULT_REFRESH_AHEAD_SECONDS = 5 * 60;
+
+	private static final int REFRESH_THREADS = 2;
+	private static final int REFRESH_QUEUE_SIZE = 100;
+
+	private static RevocationDataService instance;
+
+	private final ThreadPoolExecutor refreshExecutor;
+
+	private final RevocationDataCache<OCSPRequestKey, OCSPResp> ocspCache;
+	private final RevocationDataCache<CRLRequestKey, CRLIndex> crlCache;
+
+	public RevocationDataService(int maxOcspCacheSize, int maxCrlCacheSize, int defaultTtlSeconds, int refreshAheadSeconds) {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		this.refreshExecutor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(REFRESH_QUEUE_SIZE), new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "revocation-data-refresh-" + threadNumber.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.AbortPolicy());
+		this.refreshExecutor.allowCoreThreadTimeOut(true);
+
+		long defaultTtlMillis = TimeUnit.SECONDS.toMillis(defaultTtlSeconds);
+		long refreshAheadMillis = TimeUnit.SECONDS.toMillis(refreshAheadSeconds);
+
+		this.ocspCache = new RevocationDataCache<OCSPRequestKey, OCSPResp>("OCSP", refreshExecutor, maxOcspCacheSize, defaultTtlMillis, refreshAheadMillis);
+		this.crlCache = new RevocationDataCache<CRLRequestKey, CRLIndex>("CRL", refreshExecutor, maxCrlCacheSize, defaultTtlMillis, refreshAheadMillis);
+	}
+
+	public static synchronized RevocationDataService instance() {
+		if (instance == null) {
+			instance = new RevocationDataService(DEFAULT_MAX_CACHE_SIZE, DEFAULT_MAX_CRL_CACHE_SIZE, DEFAULT_TTL_SECONDS, DEFAULT_REFRESH_AHEAD_SECONDS);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Applies new cache settings to shared instance. Entries are kept, caches are shrunk if needed
+	 */
+	public static void configure(int maxOcspCacheSize, int maxCrlCacheSize, int defaultTtlSeconds, int refreshAheadSeconds) {
+		RevocationDataService service = instance();
+
+		long defaultTtlMillis = TimeUnit.SECONDS.toMillis(defaultTtlSeconds);
+		long refreshAheadMillis = TimeUnit.SECONDS.toMillis(refreshAheadSeconds);
+
+		service.ocspCache.configure(maxOcspCacheSize, defaultTtlMillis, refreshAheadMillis);
+		service.crlCache.configure(maxCrlCacheSize, defaultTtlMillis, refreshAheadMillis);
+
+		log.debug("Revocation data service configured: {}, {}", service.ocspCache, service.crlCache);
+	}
+
+	public RevocationDataCache<OCSPRequestKey, OCSPResp> getOcspCache() {
+		return ocspCache;
+	}
+
+	public RevocationDataCache<CRLRequestKey, CRLIndex> getCrlCache() {
+		return crlCache;
+	}
+
+	public double getOcspHitRatio() {
+		return ocspCache.getHitRatio();
+	}
+
+	public double getCrlHitRatio() {
+		return crlCache.getHitRatio();
+	}
+
+	public void destroy() {
+		refreshExecutor.shutdownNow();
+		ocspCache.clear();
+		crlCache.clear();
+	}
+
+}
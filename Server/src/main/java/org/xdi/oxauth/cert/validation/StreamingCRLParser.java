@@ -0,0 +1,640 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.cert.validation;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.Date;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Enumerated;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentVerifier;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xdi.oxauth.cert.validation.model.CRLIndex;
+
+/**
+ * Streaming CRL parser. It verifies CRL signature while reading data and builds compact
+ * index of revoked certificates without materializing X509CRL and its entries
+ */
+public class StreamingCRLParser {
+
+	private static final Logger log = LoggerFactory.getLogger(StreamingCRLParser.class);
+
+	private static final int TAG_INTEGER = 0x02;
+	private static final int TAG_BIT_STRING = 0x03;
+	private static final int TAG_UTC_TIME = 0x17;
+	private static final int TAG_GENERALIZED_TIME = 0x18;
+	private static final int TAG_SEQUENCE = 0x30;
+	private static final int TAG_CRL_EXTENSIONS = 0xA0;
+
+	private static final int MAX_SERIAL_LENGTH = 64;
+
+	private File spoolDir;
+
+	public StreamingCRLParser() {
+		this(null);
+	}
+
+	/**
+	 * @param spoolDir
+	 *            folder for memory mapped index files, index is kept on heap if it's null
+	 */
+	public StreamingCRLParser(File spoolDir) {
+		this.spoolDir = spoolDir;
+	}
+
+	public CRLIndex parse(InputStream input, PublicKey issuerPublicKey) throws IOException, GeneralSecurityException {
+		SignatureInputStream in = new SignatureInputStream(new BufferedInputStream(input));
+
+		// CertificateList
+		checkTag(readTag(in), TAG_SEQUENCE);
+		readLength(in);
+
+		// TBSCertList. Bytes are captured until signature algorithm is known
+		in.startCapture();
+		checkTag(readTag(in), TAG_SEQUENCE);
+		long tbsEnd = readLength(in) + in.getPosition();
+
+		int tag = readTag(in);
+		if (tag == TAG_INTEGER) {
+			// Version
+			readBytes(in, readLength(in));
+			tag = readTag(in);
+		}
+
+		checkTag(tag, TAG_SEQUENCE);
+		AlgorithmIdentifier signatureAlgorithm = AlgorithmIdentifier.getInstance(ASN1Primitive.fromByteArray(readElement(in, tag)));
+
+		// Verifier is created from full algorithm identifier, algorithm parameters (RSASSA-PSS) are required for some algorithms
+		ContentVerifier signatureVerifier;
+		try {
+			signatureVerifier = new JcaContentVerifierProviderBuilder().setProvider(BouncyCastleProvider.PROVIDER_NAME).build(issuerPublicKey)
+					.get(signatureAlgorithm);
+		} catch (OperatorCreationException ex) {
+			throw new SignatureException("Unsupported CRL signature algorithm: " + signatureAlgorithm.getAlgorithm(), ex);
+		}
+		in.startSignature(signatureVerifier.getOutputStream());
+
+		X500Principal issuer = new X500Principal(readElement(in, readTag(in)));
+
+		Date thisUpdate = readTime(in, readTag(in));
+
+		Date nextUpdate = null;
+		Extensions extensions = null;
+		CRLIndexBuilder indexBuilder = new CRLIndexBuilder();
+
+		tag = (in.getPosition() < tbsEnd) ? readTag(in) : -1;
+		if ((tag == TAG_UTC_TIME) || (tag == TAG_GENERALIZED_TIME)) {
+			nextUpdate = readTime(in, tag);
+			tag = (in.getPosition() < tbsEnd) ? readTag(in) : -1;
+		}
+
+		if (tag == TAG_SEQUENCE) {
+			readRevokedCertificates(in, readLength(in), indexBuilder);
+			tag = (in.getPosition() < tbsEnd) ? readTag(in) : -1;
+		}
+
+		if (tag == TAG_CRL_EXTENSIONS) {
+			extensions = Extensions.getInstance(ASN1Primitive.fromByteArray(readBytes(in, readLength(in))));
+			tag = -1;
+		}
+
+		if ((tag != -1) || (in.getPosition() != tbsEnd)) {
+			throw new IOException("CRL has unexpected TBSCertList structure");
+		}
+
+		in.stopSignature();
+
+		// Signature algorithm should be the same as in TBSCertList (RFC 5280, section 5.1.1.2)
+		tag = readTag(in);
+		checkTag(tag, TAG_SEQUENCE);
+		AlgorithmIdentifier outerSignatureAlgorithm = AlgorithmIdentifier.getInstance(ASN1Primitive.fromByteArray(readElement(in, tag)));
+		if (!signatureAlgorithm.equals(outerSignatureAlgorithm)) {
+			throw new SignatureException("CRL signature algorithm '" + outerSignatureAlgorithm.getAlgorithm()
+					+ "' doesn't match TBSCertList signature algorithm '" + signatureAlgorithm.getAlgorithm() + "'");
+		}
+
+		checkTag(readTag(in), TAG_BIT_STRING);
+		byte[] signatureValue = readBytes(in, readLength(in));
+		if ((signatureValue.length < 1) || !signatureVerifier.verify(Arrays.copyOfRange(signatureValue, 1, signatureValue.length))) {
+			throw new SignatureException("CRL signature is invalid");
+		}
+
+		BigInteger crlNumber = null;
+		BigInteger baseCrlNumber = null;
+		if (extensions != null) {
+			crlNumber = getIntegerExtension(extensions, Extension.cRLNumber);
+			baseCrlNumber = getIntegerExtension(extensions, Extension.deltaCRLIndicator);
+		}
+
+		CRLIndex crlIndex = indexBuilder.build(issuer, issuerPublicKey, thisUpdate, nextUpdate, crlNumber, baseCrlNumber, spoolDir);
+		log.debug("Loaded CRL index: {}", crlIndex);
+
+		return crlIndex;
+	}
+
+	private void readRevokedCertificates(SignatureInputStream in, long length, CRLIndexBuilder indexBuilder) throws IOException {
+		long end = in.getPosition() + length;
+
+		byte[] buffer = new byte[256];
+		int[] position = new int[1];
+		while (in.getPosition() < end) {
+			checkTag(readTag(in), TAG_SEQUENCE);
+			int entryLength = toInt(readLength(in));
+			if (buffer.length < entryLength) {
+				buffer = new byte[entryLength];
+			}
+			readFully(in, buffer, 0, entryLength);
+
+			// userCertificate
+			position[0] = 0;
+			checkTag(buffer[position[0]++] & 0xFF, TAG_INTEGER);
+			int serialLength = readLength(buffer, position);
+			int serialOffset = position[0];
+			position[0] += serialLength;
+
+			// revocationDate
+			int timeTag = buffer[position[0]++] & 0xFF;
+			int timeLength = readLength(buffer, position);
+			Date revocationDate = parseTime(buffer, position[0], timeLength, timeTag);
+			position[0] += timeLength;
+
+			// crlEntryExtensions
+			int reason = CRLIndex.REASON_UNSPECIFIED;
+			if (position[0] < entryLength) {
+				Extensions entryExtensions = Extensions.getInstance(ASN1Primitive.fromByteArray(Arrays.copyOfRange(buffer, position[0], entryLength)));
+				ASN1Encodable reasonCode = entryExtensions.getExtensionParsedValue(Extension.reasonCode);
+				if (reasonCode != null) {
+					reason = ASN1Enumerated.getInstance(reasonCode).getValue().intValue();
+				}
+			}
+
+			indexBuilder.add(buffer, serialOffset, serialLength, revocationDate.getTime(), reason);
+		}
+	}
+
+	private BigInteger getIntegerExtension(Extensions extensions, ASN1ObjectIdentifier oid) {
+		ASN1Encodable value = extensions.getExtensionParsedValue(oid);
+		if (value == null) {
+			return null;
+		}
+
+		return ASN1Integer.getInstance(value).getPositiveValue();
+	}
+
+	private Date readTime(SignatureInputStream in, int tag) throws IOException {
+		byte[] value = readBytes(in, readLength(in));
+
+		return parseTime(value, 0, value.length, tag);
+	}
+
+	/**
+	 * Parses common DER time formats without intermediate objects. Uncommon ones are delegated to Bouncy Castle
+	 */
+	private Date parseTime(byte[] data, int offset, int length, int tag) throws IOException {
+		if ((tag == TAG_UTC_TIME) && (length == 13) && (data[offset + 12] == 'Z')) {
+			int year = readDigits(data, offset, 2);
+			year += (year < 50) ? 2000 : 1900;
+
+			return new Date(toEpochMillis(year, data, offset + 2));
+		}
+
+		if ((tag == TAG_GENERALIZED_TIME) && (length == 15) && (data[offset + 14] == 'Z')) {
+			int year = readDigits(data, offset, 4);
+
+			return new Date(toEpochMillis(year, data, offset + 4));
+		}
+
+		if ((tag != TAG_UTC_TIME) && (tag != TAG_GENERALIZED_TIME)) {
+			throw new IOException("CRL contains unexpected time tag: " + tag);
+		}
+
+		byte[] element = new byte[length + 2];
+		element[0] = (byte) tag;
+		element[1] = (byte) length;
+		System.arraycopy(data, offset, element, 2, length);
+		try {
+			return Time.getInstance(ASN1Primitive.fromByteArray(element)).getDate();
+		} catch (RuntimeException ex) {
+			throw new IOException("Failed to parse CRL time", ex);
+		}
+	}
+
+	private long toEpochMillis(int year, byte[] data, int offset) throws IOException {
+		int month = readDigits(data, offset, 2);
+		int day = readDigits(data, offset + 2, 2);
+		int hour = readDigits(data, offset + 4, 2);
+		int minute = readDigits(data, offset + 6, 2);
+		int second = readDigits(data, offset + 8, 2);
+
+		// Days from civil algorithm
+		int y = (month <= 2) ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		long days = era * 146097L + dayOfEra - 719468L;
+
+		return (((days * 24 + hour) * 60 + minute) * 60 + second) * 1000L;
+	}
+
+	private int readDigits(byte[] data, int offset, int count) throws IOException {
+		int result = 0;
+		for (int i = 0; i < count; i++) {
+			int digit = data[offset + i] - '0';
+			if ((digit < 0) || (digit > 9)) {
+				throw new IOException("CRL contains invalid time value");
+			}
+			result = result * 10 + digit;
+		}
+
+		return result;
+	}
+
+	private byte[] readElement(SignatureInputStream in, int tag) throws IOException {
+		long length = readLength(in);
+		byte[] header = encodeHeader(tag, toInt(length));
+
+		byte[] element = new byte[header.length + toInt(length)];
+		System.arraycopy(header, 0, element, 0, header.length);
+		readFully(in, element, header.length, toInt(length));
+
+		return element;
+	}
+
+	private byte[] encodeHeader(int tag, int length) {
+		if (length < 0x80) {
+			return new byte[] { (byte) tag, (byte) length };
+		}
+
+		int count = 0;
+		for (int value = length; value != 0; value >>>= 8) {
+			count++;
+		}
+
+		byte[] header = new byte[2 + count];
+		header[0] = (byte) tag;
+		header[1] = (byte) (0x80 | count);
+		for (int i = 0; i < count; i++) {
+			header[2 + i] = (byte) (length >>> (8 * (count - 1 - i)));
+		}
+
+		return header;
+	}
+
+	private int readTag(InputStream in) throws IOException {
+		int tag = in.read();
+		if (tag < 0) {
+			throw new EOFException("Unexpected end of CRL");
+		}
+
+		if ((tag & 0x1F) == 0x1F) {
+			throw new IOException("CRL contains unsupported high tag number");
+		}
+
+		return tag;
+	}
+
+	private void checkTag(int tag, int expectedTag) throws IOException {
+		if (tag != expectedTag) {
+			throw new IOException("CRL has unexpected tag: " + tag + ", expected: " + expectedTag);
+		}
+	}
+
+	private long readLength(SignatureInputStream in) throws IOException {
+		int first = in.read();
+		if (first < 0) {
+			throw new EOFException("Unexpected end of CRL");
+		}
+
+		long length;
+		if (first < 0x80) {
+			length = first;
+		} else {
+			int count = first & 0x7F;
+			if ((count == 0) || (count > 4)) {
+				throw new IOException("CRL has unsupported length encoding");
+			}
+
+			length = 0;
+			for (int i = 0; i < count; i++) {
+				int next = in.read();
+				if (next < 0) {
+					throw new EOFException("Unexpected end of CRL");
+				}
+				length = (length << 8) | next;
+			}
+		}
+
+		return length;
+	}
+
+	private int readLength(byte[] data, int[] position) throws IOException {
+		int first = data[position[0]++] & 0xFF;
+		if (first < 0x80) {
+			return first;
+		}
+
+		int count = first & 0x7F;
+		if ((count == 0) || (count > 3)) {
+			throw new IOException("CRL entry has unsupported length encoding");
+		}
+
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			length = (length << 8) | (data[position[0]++] & 0xFF);
+		}
+
+		return length;
+	}
+
+	private byte[] readBytes(InputStream in, long length) throws IOException {
+		byte[] result = new byte[toInt(length)];
+		readFully(in, result, 0, result.length);
+
+		return result;
+	}
+
+	private void readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+		while (length > 0) {
+			int count = in.read(buffer, offset, length);
+			if (count < 0) {
+				throw new EOFException("Unexpected end of CRL");
+			}
+			offset += count;
+			length -= count;
+		}
+	}
+
+	private int toInt(long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("CRL element is too big");
+		}
+
+		return (int) length;
+	}
+
+	/**
+	 * Input stream which passes data to signature verifier
+	 */
+	private static class SignatureInputStream extends FilterInputStream {
+
+		private long position;
+
+		private ByteArrayOutputStream capture;
+		private OutputStream signature;
+
+		public SignatureInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if (result >= 0) {
+				position++;
+				if (signature != null) {
+					update(new byte[] { (byte) result }, 0, 1);
+				} else if (capture != null) {
+					capture.write(result);
+				}
+			}
+
+			return result;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int result = super.read(buffer, offset, length);
+			if (result > 0) {
+				position += result;
+				if (signature != null) {
+					update(buffer, offset, result);
+				} else if (capture != null) {
+					capture.write(buffer, offset, result);
+				}
+			}
+
+			return result;
+		}
+
+		@Override
+		public long skip(long count) throws IOException {
+			throw new IOException("Skip isn't supported");
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void update(byte[] buffer, int offset, int length) throws IOException {
+			signature.write(buffer, offset, length);
+		}
+
+		public void startCapture() {
+			this.capture = new ByteArrayOutputStream();
+		}
+
+		public void startSignature(OutputStream signature) throws IOException {
+			capture.writeTo(signature);
+			this.capture = null;
+			this.signature = signature;
+		}
+
+		public void stopSignature() {
+			this.capture = null;
+			this.signature = null;
+		}
+
+		public long getPosition() {
+			return position;
+		}
+
+	}
+
+	/**
+	 * Collects revoked serial numbers into temporary buffer and builds sorted fixed width index
+	 */
+	private static class CRLIndexBuilder {
+
+		private byte[] buffer = new byte[64 * 1024];
+		private int bufferLength;
+
+		private int count;
+		private int maxSerialLength = 1;
+
+		public void add(byte[] data, int serialOffset, int serialLength, long revocationDate, int reason) throws IOException {
+			while ((serialLength > 1) && (data[serialOffset] == 0)) {
+				serialOffset++;
+				serialLength--;
+			}
+
+			if (serialLength > MAX_SERIAL_LENGTH) {
+				throw new IOException("CRL contains too long serial number");
+			}
+
+			ensureCapacity(1 + serialLength + CRLIndex.DATE_LENGTH + CRLIndex.REASON_LENGTH);
+
+			buffer[bufferLength++] = (byte) serialLength;
+			System.arraycopy(data, serialOffset, buffer, bufferLength, serialLength);
+			bufferLength += serialLength;
+			for (int i = CRLIndex.DATE_LENGTH - 1; i >= 0; i--) {
+				buffer[bufferLength++] = (byte) (revocationDate >>> (8 * i));
+			}
+			buffer[bufferLength++] = (byte) reason;
+
+			count++;
+			maxSerialLength = Math.max(maxSerialLength, serialLength);
+		}
+
+		private void ensureCapacity(int length) throws IOException {
+			if (bufferLength + length <= buffer.length) {
+				return;
+			}
+
+			long newLength = Math.max((long) buffer.length * 2, (long) bufferLength + length);
+			if (newLength > Integer.MAX_VALUE) {
+				throw new IOException("CRL is too big");
+			}
+
+			buffer = Arrays.copyOf(buffer, (int) newLength);
+		}
+
+		public CRLIndex build(X500Principal issuer, PublicKey signatureKey, Date thisUpdate, Date nextUpdate, BigInteger crlNumber,
+				BigInteger baseCrlNumber, File spoolDir) throws IOException {
+			int recordLength = maxSerialLength + CRLIndex.DATE_LENGTH + CRLIndex.REASON_LENGTH;
+			if ((long) count * recordLength > Integer.MAX_VALUE) {
+				throw new IOException("CRL is too big");
+			}
+
+			byte[] records = new byte[count * recordLength];
+			for (int position = 0, record = 0; position < bufferLength; record++) {
+				int serialLength = buffer[position++];
+				int recordOffset = record * recordLength;
+
+				System.arraycopy(buffer, position, records, recordOffset + maxSerialLength - serialLength, serialLength);
+				position += serialLength;
+
+				System.arraycopy(buffer, position, records, recordOffset + maxSerialLength, CRLIndex.DATE_LENGTH + CRLIndex.REASON_LENGTH);
+				position += CRLIndex.DATE_LENGTH + CRLIndex.REASON_LENGTH;
+			}
+			buffer = null;
+
+			sort(records, count, recordLength, maxSerialLength);
+
+			ByteBuffer indexBuffer;
+			if (spoolDir == null) {
+				indexBuffer = ByteBuffer.wrap(records);
+			} else {
+				indexBuffer = mapToFile(records, spoolDir);
+			}
+
+			return new CRLIndex(issuer, signatureKey, thisUpdate, nextUpdate, crlNumber, baseCrlNumber, indexBuffer, maxSerialLength, count);
+		}
+
+		private ByteBuffer mapToFile(byte[] records, File spoolDir) throws IOException {
+			File file = File.createTempFile("crl-", ".idx", spoolDir);
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try {
+				randomAccessFile.write(records);
+
+				// Mapping stays valid after file close and delete
+				return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, records.length);
+			} finally {
+				randomAccessFile.close();
+				if (!file.delete()) {
+					file.deleteOnExit();
+				}
+			}
+		}
+
+		/**
+		 * In place heap sort of fixed width records by serial number
+		 */
+		private void sort(byte[] records, int count, int recordLength, int keyLength) {
+			byte[] tmp = new byte[recordLength];
+			for (int i = count / 2 - 1; i >= 0; i--) {
+				siftDown(records, i, count, recordLength, keyLength, tmp);
+			}
+
+			for (int end = count - 1; end > 0; end--) {
+				swap(records, 0, end, recordLength, tmp);
+				siftDown(records, 0, end, recordLength, keyLength, tmp);
+			}
+		}
+
+		private void siftDown(byte[] records, int root, int count, int recordLength, int keyLength, byte[] tmp) {
+			while (true) {
+				int child = 2 * root + 1;
+				if (child >= count) {
+					return;
+				}
+
+				if ((child + 1 < count) && (compare(records, child, child + 1, recordLength, keyLength) < 0)) {
+					child++;
+				}
+
+				if (compare(records, root, child, recordLength, keyLength) >= 0) {
+					return;
+				}
+
+				swap(records, root, child, recordLength, tmp);
+				root = child;
+			}
+		}
+
+		private int compare(byte[] records, int first, int second, int recordLength, int keyLength) {
+			int firstOffset = first * recordLength;
+			int secondOffset = second * recordLength;
+			for (int i = 0; i < keyLength; i++) {
+				int a = records[firstOffset + i] & 0xFF;
+				int b = records[secondOffset + i] & 0xFF;
+				if (a != b) {
+					return a - b;
+				}
+			}
+
+			return 0;
+		}
+
+		private void swap(byte[] records, int first, int second, int recordLength, byte[] tmp) {
+			System.arraycopy(records, first * recordLength, tmp, 0, recordLength);
+			System.arraycopy(records, second * recordLength, records, first * recordLength, recordLength);
+			System.arraycopy(tmp, 0, records, second * recordLength, recordLength);
+		}
+
+	}
+
+}
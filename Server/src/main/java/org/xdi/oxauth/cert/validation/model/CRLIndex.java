@@ -0,0 +1,194 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.cert.validation.model;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.PublicKey;
+import java.util.Date;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Compact index of revoked certificates. Serial numbers are stored as sorted fixed width
+ * records in heap or memory mapped buffer: [serial][revocation date][reason]
+ */
+public class CRLIndex {
+
+	public static final int DATE_LENGTH = 8;
+	public static final int REASON_LENGTH = 1;
+
+	public static final int REASON_UNSPECIFIED = -1;
+	public static final int REASON_REMOVE_FROM_CRL = 8;
+
+	private final X500Principal issuer;
+	private final PublicKey signatureKey;
+
+	private final Date thisUpdate;
+	private final Date nextUpdate;
+
+	private final BigInteger crlNumber;
+	private final BigInteger baseCrlNumber;
+
+	private final ByteBuffer records;
+	private final int serialLength;
+	private final int recordLength;
+	private final int size;
+
+	public CRLIndex(X500Principal issuer, PublicKey signatureKey, Date thisUpdate, Date nextUpdate, BigInteger crlNumber, BigInteger baseCrlNumber,
+			ByteBuffer records, int serialLength, int size) {
+		this.issuer = issuer;
+		this.signatureKey = signatureKey;
+		this.thisUpdate = thisUpdate;
+		this.nextUpdate = nextUpdate;
+		this.crlNumber = crlNumber;
+		this.baseCrlNumber = baseCrlNumber;
+		this.records = records;
+		this.serialLength = serialLength;
+		this.recordLength = serialLength + DATE_LENGTH + REASON_LENGTH;
+		this.size = size;
+	}
+
+	/**
+	 * Finds revoked certificate entry using binary search
+	 *
+	 * @return revoked certificate entry or null if certificate isn't in the list
+	 */
+	public RevokedCertificate getRevokedCertificate(BigInteger serialNumber) {
+		byte[] serial = serialNumber.toByteArray();
+		byte[] key = toIndexKey(serial, 0, serial.length, serialLength);
+		if (key == null) {
+			return null;
+		}
+
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareSerial(mid * recordLength, key);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				int offset = mid * recordLength + serialLength;
+				long revocationDate = records.getLong(offset);
+				int reason = records.get(offset + DATE_LENGTH);
+
+				return new RevokedCertificate(serialNumber, new Date(revocationDate), reason);
+			}
+		}
+
+		return null;
+	}
+
+	private int compareSerial(int offset, byte[] key) {
+		for (int i = 0; i < serialLength; i++) {
+			int a = records.get(offset + i) & 0xFF;
+			int b = key[i] & 0xFF;
+			if (a != b) {
+				return a - b;
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Converts serial number bytes to fixed width index key. Leading zero bytes are ignored
+	 *
+	 * @return key or null if serial number is longer than width
+	 */
+	public static byte[] toIndexKey(byte[] serial, int offset, int length, int width) {
+		while ((length > 1) && (serial[offset] == 0)) {
+			offset++;
+			length--;
+		}
+
+		if (length > width) {
+			return null;
+		}
+
+		byte[] key = new byte[width];
+		System.arraycopy(serial, offset, key, width - length, length);
+
+		return key;
+	}
+
+	public X500Principal getIssuer() {
+		return issuer;
+	}
+
+	public PublicKey getSignatureKey() {
+		return signatureKey;
+	}
+
+	public Date getThisUpdate() {
+		return thisUpdate;
+	}
+
+	public Date getNextUpdate() {
+		return nextUpdate;
+	}
+
+	public BigInteger getCrlNumber() {
+		return crlNumber;
+	}
+
+	public BigInteger getBaseCrlNumber() {
+		return baseCrlNumber;
+	}
+
+	public boolean isDelta() {
+		return baseCrlNumber != null;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public long getIndexSize() {
+		return (long) size * recordLength;
+	}
+
+	@Override
+	public String toString() {
+		return "CRLIndex [issuer=" + issuer + ", thisUpdate=" + thisUpdate + ", nextUpdate=" + nextUpdate + ", crlNumber=" + crlNumber + ", baseCrlNumber="
+				+ baseCrlNumber + ", size=" + size + ", indexSize=" + getIndexSize() + "]";
+	}
+
+	public static class RevokedCertificate {
+
+		private final BigInteger serialNumber;
+		private final Date revocationDate;
+		private final int reason;
+
+		public RevokedCertificate(BigInteger serialNumber, Date revocationDate, int reason) {
+			this.serialNumber = serialNumber;
+			this.revocationDate = revocationDate;
+			this.reason = reason;
+		}
+
+		public BigInteger getSerialNumber() {
+			return serialNumber;
+		}
+
+		public Date getRevocationDate() {
+			return revocationDate;
+		}
+
+		public int getReason() {
+			return reason;
+		}
+
+		public boolean isRemoveFromCrl() {
+			return reason == REASON_REMOVE_FROM_CRL;
+		}
+
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.cert.validation.model;
+
+import java.security.PublicKey;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * CRL cache key. CRL is verified with issuer key while loading, so same URL
+ * used by different issuers is cached separately
+ */
+public class CRLRequestKey {
+
+	private final String crlUrl;
+	private final X500Principal issuer;
+	private final PublicKey issuerPublicKey;
+
+	public CRLRequestKey(String crlUrl, X500Principal issuer, PublicKey issuerPublicKey) {
+		this.crlUrl = crlUrl;
+		this.issuer = issuer;
+		this.issuerPublicKey = issuerPublicKey;
+	}
+
+	public String getCrlUrl() {
+		return crlUrl;
+	}
+
+	public X500Principal getIssuer() {
+		return issuer;
+	}
+
+	public PublicKey getIssuerPublicKey() {
+		return issuerPublicKey;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((crlUrl == null) ? 0 : crlUrl.hashCode());
+		result = prime * result + ((issuer == null) ? 0 : issuer.hashCode());
+		result = prime * result + ((issuerPublicKey == null) ? 0 : issuerPublicKey.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+
+		CRLRequestKey other = (CRLRequestKey) obj;
+		if (crlUrl == null) {
+			if (other.crlUrl != null) {
+				return false;
+			}
+		} else if (!crlUrl.equals(other.crlUrl)) {
+			return false;
+		}
+		if (issuer == null) {
+			if (other.issuer != null) {
+				return false;
+			}
+		} else if (!issuer.equals(other.issuer)) {
+			return false;
+		}
+		if (issuerPublicKey == null) {
+			if (other.issuerPublicKey != null) {
+				return false;
+			}
+		} else if (!issuerPublicKey.equals(other.issuerPublicKey)) {
+			return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "CRLRequestKey [crlUrl=" + crlUrl + ", issuer=" + issuer + "]";
+	}
+
+}
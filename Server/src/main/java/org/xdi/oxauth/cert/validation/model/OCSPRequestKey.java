@@ -0,0 +1,83 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.cert.validation.model;
+
+import java.security.cert.X509Certificate;
+
+import org.bouncycastle.cert.ocsp.CertificateID;
+
+/**
+ * OCSP response cache key. Issuer is used to verify response signature, it isn't part
+ * of key identity because certificate id contains issuer name and key hashes already
+ */
+public class OCSPRequestKey {
+
+	private final String ocspUrl;
+	private final CertificateID certificateId;
+	private final X509Certificate issuer;
+
+	public OCSPRequestKey(String ocspUrl, CertificateID certificateId, X509Certificate issuer) {
+		this.ocspUrl = ocspUrl;
+		this.certificateId = certificateId;
+		this.issuer = issuer;
+	}
+
+	public String getOcspUrl() {
+		return ocspUrl;
+	}
+
+	public CertificateID getCertificateId() {
+		return certificateId;
+	}
+
+	public X509Certificate getIssuer() {
+		return issuer;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((certificateId == null) ? 0 : certificateId.hashCode());
+		result = prime * result + ((ocspUrl == null) ? 0 : ocspUrl.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+
+		OCSPRequestKey other = (OCSPRequestKey) obj;
+		if (certificateId == null) {
+			if (other.certificateId != null) {
+				return false;
+			}
+		} else if (!certificateId.equals(other.certificateId)) {
+			return false;
+		}
+		if (ocspUrl == null) {
+			if (other.ocspUrl != null) {
+				return false;
+			}
+		} else if (!ocspUrl.equals(other.ocspUrl)) {
+			return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "OCSPRequestKey [ocspUrl=" + ocspUrl + ", serialNumber=" + ((certificateId == null) ? null : certificateId.getSerialNumber()) + "]";
+	}
+
+}
@@ -6,17 +6,34 @@
 
 package org.xdi.oxauth.filter;
 
-import org.gluu.oxserver.filters.AbstractCorsFilter;
-import org.xdi.oxauth.model.config.ConfigurationFactory;
-import org.xdi.oxauth.model.configuration.AppConfiguration;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
 
 import javax.inject.Inject;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.codec.binary.Base64;
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.util.Util;
+import org.xdi.oxauth.service.CorsPolicyService;
 
 /**
- * CORS Filter to support both Tomcat and Jetty
+ * CORS Filter to support both Tomcat and Jetty. Requests are checked against policy compiled from
+ * configuration by {@link CorsPolicyService}, policy is replaced after configuration reload. Origins of
+ * client redirect URIs are limited to client identified by client_id parameter or basic authentication,
+ * credentials are allowed only for configured origins
  *
  * @author Yuriy Movchan
  * @author Javier Rojas Blum
@@ -26,51 +43,259 @@ import javax.servlet.annotation.WebFilter;
         filterName = "CorsFilter",
         asyncSupported = true,
         urlPatterns = {"/.well-known/*", "/restv1/*", "/opiframe"})
-public class CorsFilter extends AbstractCorsFilter {
+public class CorsFilter implements Filter {
+
+    public static final String REQUEST_HEADER_ORIGIN = "Origin";
+    public static final String REQUEST_HEADER_ACCESS_CONTROL_REQUEST_METHOD = "Access-Control-Request-Method";
+    public static final String REQUEST_HEADER_ACCESS_CONTROL_REQUEST_HEADERS = "Access-Control-Request-Headers";
+    public static final String REQUEST_HEADER_AUTHORIZATION = "Authorization";
+    public static final String REQUEST_PARAMETER_CLIENT_ID = "client_id";
+
+    public static final String RESPONSE_HEADER_ACCESS_CONTROL_ALLOW_ORIGIN = "Access-Control-Allow-Origin";
+    public static final String RESPONSE_HEADER_ACCESS_CONTROL_ALLOW_CREDENTIALS = "Access-Control-Allow-Credentials";
+    public static final String RESPONSE_HEADER_ACCESS_CONTROL_EXPOSE_HEADERS = "Access-Control-Expose-Headers";
+    public static final String RESPONSE_HEADER_ACCESS_CONTROL_MAX_AGE = "Access-Control-Max-Age";
+    public static final String RESPONSE_HEADER_ACCESS_CONTROL_ALLOW_METHODS = "Access-Control-Allow-Methods";
+    public static final String RESPONSE_HEADER_ACCESS_CONTROL_ALLOW_HEADERS = "Access-Control-Allow-Headers";
+    public static final String RESPONSE_HEADER_VARY = "Vary";
+
+    public static final String HTTP_REQUEST_ATTRIBUTE_IS_CORS_REQUEST = "cors.isCorsRequest";
+    public static final String HTTP_REQUEST_ATTRIBUTE_ORIGIN = "cors.request.origin";
+    public static final String HTTP_REQUEST_ATTRIBUTE_REQUEST_TYPE = "cors.request.type";
+    public static final String HTTP_REQUEST_ATTRIBUTE_REQUEST_HEADERS = "cors.request.headers";
+
+    private static final Set<String> SIMPLE_HTTP_REQUEST_CONTENT_TYPE_VALUES = new HashSet<String>(Arrays.asList(
+            "application/x-www-form-urlencoded", "multipart/form-data", "text/plain"));
+
+    public enum CorsRequestType {
+        SIMPLE, ACTUAL, PRE_FLIGHT, NOT_CORS, INVALID_CORS
+    }
 
     @Inject
-    private ConfigurationFactory configurationFactory;
+    private Logger log;
 
     @Inject
-    private AppConfiguration appConfiguration;
+    private CorsPolicyService corsPolicyService;
 
-    public CorsFilter() {
-        super();
-    }
+    private String filterName;
 
     @Override
     public void init(final FilterConfig filterConfig) throws ServletException {
-        // Initialize defaults
-        parseAndStore(DEFAULT_ALLOWED_ORIGINS, DEFAULT_ALLOWED_HTTP_METHODS,
-                DEFAULT_ALLOWED_HTTP_HEADERS, DEFAULT_EXPOSED_HEADERS,
-                DEFAULT_SUPPORTS_CREDENTIALS, DEFAULT_PREFLIGHT_MAXAGE,
-                DEFAULT_DECORATE_REQUEST);
-
-        AppConfiguration appConfiguration = configurationFactory.getAppConfiguration();
-
-        if (filterConfig != null) {
-            String filterName = filterConfig.getFilterName();
-            CorsFilterConfig corsFilterConfig = new CorsFilterConfig(filterName, appConfiguration);
-
-            String configAllowedOrigins = corsFilterConfig
-                    .getInitParameter(PARAM_CORS_ALLOWED_ORIGINS);
-            String configAllowedHttpMethods = corsFilterConfig
-                    .getInitParameter(PARAM_CORS_ALLOWED_METHODS);
-            String configAllowedHttpHeaders = corsFilterConfig
-                    .getInitParameter(PARAM_CORS_ALLOWED_HEADERS);
-            String configExposedHeaders = corsFilterConfig
-                    .getInitParameter(PARAM_CORS_EXPOSED_HEADERS);
-            String configSupportsCredentials = corsFilterConfig
-                    .getInitParameter(PARAM_CORS_SUPPORT_CREDENTIALS);
-            String configPreflightMaxAge = corsFilterConfig
-                    .getInitParameter(PARAM_CORS_PREFLIGHT_MAXAGE);
-            String configDecorateRequest = corsFilterConfig
-                    .getInitParameter(PARAM_CORS_REQUEST_DECORATE);
-
-            parseAndStore(configAllowedOrigins, configAllowedHttpMethods,
-                    configAllowedHttpHeaders, configExposedHeaders,
-                    configSupportsCredentials, configPreflightMaxAge,
-                    configDecorateRequest);
+        this.filterName = (filterConfig == null) ? "CorsFilter" : filterConfig.getFilterName();
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException {
+        if (!(servletRequest instanceof HttpServletRequest) || !(servletResponse instanceof HttpServletResponse)) {
+            throw new ServletException("CORS filter supports only HTTP requests");
+        }
+
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+        CorsPolicy policy = corsPolicyService.getPolicy(filterName);
+        CorsRequestType requestType = checkRequestType(request);
+        if (policy.isDecorateRequest()) {
+            decorateRequest(request, requestType);
+        }
+
+        switch (requestType) {
+            case SIMPLE:
+            case ACTUAL:
+                handleSimpleCors(policy, request, response, filterChain);
+                break;
+            case PRE_FLIGHT:
+                handlePreflightCors(policy, request, response);
+                break;
+            case NOT_CORS:
+                filterChain.doFilter(request, response);
+                break;
+            default:
+                handleInvalidCors(policy, request, response);
+                break;
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private void handleSimpleCors(CorsPolicy policy, HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws IOException, ServletException {
+        String origin = request.getHeader(REQUEST_HEADER_ORIGIN);
+        boolean originAllowed = policy.isOriginAllowed(origin);
+        if (!policy.isMethodAllowed(request.getMethod())
+                || !(originAllowed || corsPolicyService.isClientOriginAllowed(policy, origin, getClientId(request, true)))) {
+            handleInvalidCors(policy, request, response);
+            return;
+        }
+
+        addAllowOriginHeaders(policy, origin, originAllowed, response);
+
+        String exposedHeaders = policy.getExposedHeadersValue();
+        if (exposedHeaders.length() > 0) {
+            response.addHeader(RESPONSE_HEADER_ACCESS_CONTROL_EXPOSE_HEADERS, exposedHeaders);
         }
+
+        filterChain.doFilter(request, response);
     }
+
+    private void handlePreflightCors(CorsPolicy policy, HttpServletRequest request, HttpServletResponse response) {
+        String origin = request.getHeader(REQUEST_HEADER_ORIGIN);
+        String requestMethod = request.getHeader(REQUEST_HEADER_ACCESS_CONTROL_REQUEST_METHOD).trim();
+        String requestHeaders = request.getHeader(REQUEST_HEADER_ACCESS_CONTROL_REQUEST_HEADERS);
+
+        // Preflight request doesn't carry authorization, client can be identified only by query parameter
+        CorsPolicy.PreflightCheck check = policy.checkPreflight(origin, requestMethod, requestHeaders);
+        if (!check.isRequestAllowed()
+                || !(check.isOriginAllowed() || corsPolicyService.isClientOriginAllowed(policy, origin, getClientId(request, false)))) {
+            handleInvalidCors(policy, request, response);
+            return;
+        }
+
+        addAllowOriginHeaders(policy, origin, check.isOriginAllowed(), response);
+
+        if (policy.getPreflightMaxAge() > 0) {
+            response.addHeader(RESPONSE_HEADER_ACCESS_CONTROL_MAX_AGE, String.valueOf(policy.getPreflightMaxAge()));
+        }
+
+        response.addHeader(RESPONSE_HEADER_ACCESS_CONTROL_ALLOW_METHODS, policy.getAllowedHttpMethodsValue());
+
+        String allowedHeaders = policy.getAllowedHttpHeadersValue();
+        if (allowedHeaders.length() > 0) {
+            response.addHeader(RESPONSE_HEADER_ACCESS_CONTROL_ALLOW_HEADERS, allowedHeaders);
+        }
+    }
+
+    private void handleInvalidCors(CorsPolicy policy, HttpServletRequest request, HttpServletResponse response) {
+        response.setContentType("text/plain");
+        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+        response.resetBuffer();
+
+        if (policy.isLoggingEnabled()) {
+            log.debug("Invalid CORS request, method: '{}', URI: '{}', origin: '{}', request method: '{}', request headers: '{}'",
+                    request.getMethod(), request.getRequestURI(), request.getHeader(REQUEST_HEADER_ORIGIN),
+                    request.getHeader(REQUEST_HEADER_ACCESS_CONTROL_REQUEST_METHOD),
+                    request.getHeader(REQUEST_HEADER_ACCESS_CONTROL_REQUEST_HEADERS));
+        }
+    }
+
+    /**
+     * @param originAllowed true if origin is allowed by policy, false if it's allowed as client origin
+     */
+    private void addAllowOriginHeaders(CorsPolicy policy, String origin, boolean originAllowed, HttpServletResponse response) {
+        if (policy.isSupportsCredentials() && originAllowed) {
+            response.addHeader(RESPONSE_HEADER_ACCESS_CONTROL_ALLOW_ORIGIN, origin);
+            response.addHeader(RESPONSE_HEADER_ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+        } else if (policy.isAnyOriginAllowed()) {
+            response.addHeader(RESPONSE_HEADER_ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+            return;
+        } else {
+            response.addHeader(RESPONSE_HEADER_ACCESS_CONTROL_ALLOW_ORIGIN, origin);
+        }
+
+        // Response depends on origin, caches should not share it between origins
+        response.addHeader(RESPONSE_HEADER_VARY, REQUEST_HEADER_ORIGIN);
+    }
+
+    private void decorateRequest(HttpServletRequest request, CorsRequestType requestType) {
+        if ((requestType == CorsRequestType.NOT_CORS) || (requestType == CorsRequestType.INVALID_CORS)) {
+            request.setAttribute(HTTP_REQUEST_ATTRIBUTE_IS_CORS_REQUEST, Boolean.FALSE);
+            return;
+        }
+
+        request.setAttribute(HTTP_REQUEST_ATTRIBUTE_IS_CORS_REQUEST, Boolean.TRUE);
+        request.setAttribute(HTTP_REQUEST_ATTRIBUTE_ORIGIN, request.getHeader(REQUEST_HEADER_ORIGIN));
+        request.setAttribute(HTTP_REQUEST_ATTRIBUTE_REQUEST_TYPE, requestType.name().toLowerCase(Locale.ENGLISH));
+
+        String requestHeaders = request.getHeader(REQUEST_HEADER_ACCESS_CONTROL_REQUEST_HEADERS);
+        request.setAttribute(HTTP_REQUEST_ATTRIBUTE_REQUEST_HEADERS, (requestHeaders == null) ? "" : requestHeaders);
+    }
+
+    protected CorsRequestType checkRequestType(HttpServletRequest request) {
+        String origin = request.getHeader(REQUEST_HEADER_ORIGIN);
+        if (origin == null) {
+            return CorsRequestType.NOT_CORS;
+        }
+
+        if ((origin.trim().length() == 0) || (origin.indexOf('\r') != -1) || (origin.indexOf('\n') != -1)) {
+            return CorsRequestType.INVALID_CORS;
+        }
+
+        if (isLocalOrigin(request, origin)) {
+            return CorsRequestType.NOT_CORS;
+        }
+
+        String method = request.getMethod();
+        if ("OPTIONS".equals(method)) {
+            String requestMethod = request.getHeader(REQUEST_HEADER_ACCESS_CONTROL_REQUEST_METHOD);
+            if (requestMethod == null) {
+                return CorsRequestType.ACTUAL;
+            }
+
+            return (requestMethod.trim().length() == 0) ? CorsRequestType.INVALID_CORS : CorsRequestType.PRE_FLIGHT;
+        }
+
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return CorsRequestType.SIMPLE;
+        }
+
+        if ("POST".equals(method)) {
+            String mediaType = getMediaType(request.getContentType());
+            if ((mediaType == null) || SIMPLE_HTTP_REQUEST_CONTENT_TYPE_VALUES.contains(mediaType)) {
+                return CorsRequestType.SIMPLE;
+            }
+        }
+
+        return CorsRequestType.ACTUAL;
+    }
+
+    private boolean isLocalOrigin(HttpServletRequest request, String origin) {
+        String scheme = request.getScheme().toLowerCase(Locale.ENGLISH);
+        int port = request.getServerPort();
+
+        StringBuilder localOrigin = new StringBuilder(scheme).append("://").append(request.getServerName());
+        if (!("http".equals(scheme) && (port == 80)) && !("https".equals(scheme) && (port == 443))) {
+            localOrigin.append(':').append(port);
+        }
+
+        return CorsOriginMatcher.normalize(origin).equals(CorsOriginMatcher.normalize(localOrigin.toString()));
+    }
+
+    /**
+     * @return client id from client_id parameter or basic authentication header, null if request doesn't identify client
+     */
+    private static String getClientId(HttpServletRequest request, boolean checkAuthorization) {
+        String clientId = request.getParameter(REQUEST_PARAMETER_CLIENT_ID);
+        if ((clientId != null) && (clientId.trim().length() > 0)) {
+            return clientId;
+        }
+
+        String header = checkAuthorization ? request.getHeader(REQUEST_HEADER_AUTHORIZATION) : null;
+        if ((header == null) || !header.startsWith("Basic ")) {
+            return null;
+        }
+
+        try {
+            String token = new String(Base64.decodeBase64(header.substring(6)), Util.UTF8_STRING_ENCODING);
+            int delim = token.indexOf(':');
+
+            return (delim > 0) ? token.substring(0, delim) : null;
+        } catch (UnsupportedEncodingException ex) {
+            return null;
+        }
+    }
+
+    private static String getMediaType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        int paramsStart = contentType.indexOf(';');
+        String mediaType = (paramsStart == -1) ? contentType : contentType.substring(0, paramsStart);
+
+        return mediaType.trim().toLowerCase(Locale.ENGLISH);
+    }
+
 }
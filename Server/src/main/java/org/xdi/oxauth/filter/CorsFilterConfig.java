@@ -62,6 +62,11 @@ public class CorsFilterConfig implements FilterConfig {
      */
     public static final String PARAM_CORS_REQUEST_DECORATE = "cors.request.decorate";
 
+    /**
+     * Key to determine if origins of client redirect URIs are allowed {@link CorsConfigurationFilter}.
+     */
+    public static final String PARAM_CORS_ALLOW_CLIENT_ORIGINS = "cors.allow.client.origins";
+
     public CorsFilterConfig(String filterName, AppConfiguration appConfiguration) {
         this.filterName = filterName;
         initParameters = new HashMap<String, String>();
@@ -77,6 +82,7 @@ public class CorsFilterConfig implements FilterConfig {
                 initParameters.put(PARAM_CORS_LOGGING_ENABLED, corsConfigurationFilter.getCorsLoggingEnabled().toString());
                 initParameters.put(PARAM_CORS_PREFLIGHT_MAXAGE, corsConfigurationFilter.getCorsPreflightMaxAge().toString());
                 initParameters.put(PARAM_CORS_REQUEST_DECORATE, corsConfigurationFilter.getCorsRequestDecorate().toString());
+                initParameters.put(PARAM_CORS_ALLOW_CLIENT_ORIGINS, corsConfigurationFilter.getCorsAllowClientOrigins().toString());
             }
         }
 
@@ -0,0 +1,202 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.filter;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Allowed origins compiled once from comma separated list. Exact origins are kept in hash set, origins
+ * with wildcard host like "https://*.example.com" are kept in trie of reversed host labels per scheme
+ * and port. "*" allows any origin
+ */
+public class CorsOriginMatcher {
+
+    private static final String ANY_ORIGIN = "*";
+    private static final String WILDCARD_LABEL = "*";
+
+    private final boolean anyOriginAllowed;
+    private final Set<String> origins;
+    private final Map<String, HostNode> wildcardOrigins;
+
+    public CorsOriginMatcher(String allowedOrigins) {
+        boolean anyOriginAllowed = false;
+        Set<String> origins = new HashSet<String>();
+        Map<String, HostNode> wildcardOrigins = new HashMap<String, HostNode>();
+
+        if (allowedOrigins != null) {
+            for (String allowedOrigin : allowedOrigins.split(",")) {
+                String origin = allowedOrigin.trim();
+                if (origin.length() == 0) {
+                    continue;
+                }
+
+                if (ANY_ORIGIN.equals(origin)) {
+                    anyOriginAllowed = true;
+                    continue;
+                }
+
+                Origin parsed = Origin.parse(origin);
+                if ((parsed != null) && parsed.host.startsWith(WILDCARD_LABEL + ".")) {
+                    String key = parsed.getSchemeAndPort();
+                    HostNode root = wildcardOrigins.get(key);
+                    if (root == null) {
+                        root = new HostNode();
+                        wildcardOrigins.put(key, root);
+                    }
+                    root.add(StringUtils.split(parsed.host.substring(2), '.'));
+                } else {
+                    origins.add(normalize(origin));
+                }
+            }
+        }
+
+        this.anyOriginAllowed = anyOriginAllowed;
+        this.origins = origins;
+        this.wildcardOrigins = wildcardOrigins;
+    }
+
+    public boolean isAnyOriginAllowed() {
+        return anyOriginAllowed;
+    }
+
+    public boolean isAllowed(String origin) {
+        if (anyOriginAllowed) {
+            return true;
+        }
+
+        String normalized = normalize(origin);
+        if (origins.contains(normalized)) {
+            return true;
+        }
+
+        if (wildcardOrigins.isEmpty()) {
+            return false;
+        }
+
+        Origin parsed = Origin.parse(normalized);
+        if (parsed == null) {
+            return false;
+        }
+
+        HostNode root = wildcardOrigins.get(parsed.getSchemeAndPort());
+
+        return (root != null) && root.matches(StringUtils.split(parsed.host, '.'));
+    }
+
+    /**
+     * Converts origin to form used in comparisons: lower case without default port
+     */
+    public static String normalize(String origin) {
+        if (origin == null) {
+            return null;
+        }
+
+        String normalized = origin.trim().toLowerCase(Locale.ROOT);
+        if (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+
+        if (normalized.startsWith("https://") && normalized.endsWith(":443")) {
+            return normalized.substring(0, normalized.length() - 4);
+        }
+        if (normalized.startsWith("http://") && normalized.endsWith(":80")) {
+            return normalized.substring(0, normalized.length() - 3);
+        }
+
+        return normalized;
+    }
+
+    private static class Origin {
+
+        private final String scheme;
+        private final String host;
+        private final String port;
+
+        private Origin(String scheme, String host, String port) {
+            this.scheme = scheme;
+            this.host = host;
+            this.port = port;
+        }
+
+        public static Origin parse(String origin) {
+            String normalized = normalize(origin);
+
+            int schemeEnd = normalized.indexOf("://");
+            if (schemeEnd <= 0) {
+                return null;
+            }
+
+            String scheme = normalized.substring(0, schemeEnd);
+            String hostAndPort = normalized.substring(schemeEnd + 3);
+            if ((hostAndPort.length() == 0) || (hostAndPort.indexOf('/') != -1)) {
+                return null;
+            }
+
+            String host = hostAndPort;
+            String port = "";
+            int portStart = hostAndPort.lastIndexOf(':');
+            if ((portStart != -1) && (hostAndPort.indexOf(']') < portStart)) {
+                host = hostAndPort.substring(0, portStart);
+                port = hostAndPort.substring(portStart + 1);
+            }
+
+            return new Origin(scheme, host, port);
+        }
+
+        public String getSchemeAndPort() {
+            return scheme + "|" + port;
+        }
+
+    }
+
+    /**
+     * Node of trie of reversed host labels, "com" -> "example" for "*.example.com"
+     */
+    private static class HostNode {
+
+        private final Map<String, HostNode> children = new HashMap<String, HostNode>();
+        private boolean wildcard;
+
+        public void add(String[] labels) {
+            HostNode node = this;
+            for (int i = labels.length - 1; i >= 0; i--) {
+                HostNode child = node.children.get(labels[i]);
+                if (child == null) {
+                    child = new HostNode();
+                    node.children.put(labels[i], child);
+                }
+                node = child;
+            }
+            node.wildcard = true;
+        }
+
+        public boolean matches(String[] labels) {
+            HostNode node = this;
+            for (int i = labels.length - 1; i > 0; i--) {
+                node = node.children.get(labels[i]);
+                if (node == null) {
+                    return false;
+                }
+
+                // Wildcard matches one or more remaining subdomain labels
+                if (node.wildcard) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+    }
+
+}
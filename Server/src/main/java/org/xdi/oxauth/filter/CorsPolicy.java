@@ -0,0 +1,213 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.filter;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.servlet.FilterConfig;
+
+import org.apache.commons.lang.StringUtils;
+import org.xdi.oxauth.model.configuration.CorsConfigurationFilter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * CORS configuration of one filter compiled once: origin matcher, sets of allowed methods and headers
+ * and precomputed response header values. Preflight checks are cached by origin, requested method and
+ * requested headers. Policy is immutable, new policy is built after configuration change
+ */
+public class CorsPolicy {
+
+    private static final int MAX_PREFLIGHT_CACHE_SIZE = 1000;
+
+    private final CorsOriginMatcher originMatcher;
+    private final Set<String> allowedHttpMethods;
+    private final String allowedHttpMethodsValue;
+    private final Set<String> allowedHttpHeaders;
+    private final String allowedHttpHeadersValue;
+    private final String exposedHeadersValue;
+    private final boolean supportsCredentials;
+    private final long preflightMaxAge;
+    private final boolean decorateRequest;
+    private final boolean loggingEnabled;
+    private final boolean allowClientOrigins;
+
+    private final Cache<String, PreflightCheck> preflightChecks = CacheBuilder.newBuilder()
+            .maximumSize(MAX_PREFLIGHT_CACHE_SIZE).build();
+
+    public CorsPolicy(FilterConfig filterConfig) {
+        this.originMatcher = new CorsOriginMatcher(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_ALLOWED_ORIGINS,
+                CorsConfigurationFilter.DEFAULT_CORS_ALLOWED_ORIGINS));
+        this.allowedHttpMethods = parseList(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_ALLOWED_METHODS,
+                CorsConfigurationFilter.DEFAULT_CORS_ALLOWED_METHODS), false);
+        this.allowedHttpMethodsValue = join(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_ALLOWED_METHODS,
+                CorsConfigurationFilter.DEFAULT_CORS_ALLOWED_METHODS));
+        this.allowedHttpHeaders = parseList(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_ALLOWED_HEADERS,
+                CorsConfigurationFilter.DEFAULT_CORS_ALLOWED_HEADERS), true);
+        this.allowedHttpHeadersValue = join(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_ALLOWED_HEADERS,
+                CorsConfigurationFilter.DEFAULT_CORS_ALLOWED_HEADERS));
+        this.exposedHeadersValue = join(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_EXPOSED_HEADERS,
+                CorsConfigurationFilter.DEFAULT_CORS_EXPOSED_HEADERS));
+        this.supportsCredentials = Boolean.parseBoolean(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_SUPPORT_CREDENTIALS,
+                CorsConfigurationFilter.DEFAULT_CORS_SUPPORT_CREDENTIALS.toString()));
+        this.preflightMaxAge = parseMaxAge(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_PREFLIGHT_MAXAGE,
+                CorsConfigurationFilter.DEFAULT_CORS_PREFLIGHT_MAX_AGE.toString()));
+        this.decorateRequest = Boolean.parseBoolean(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_REQUEST_DECORATE,
+                CorsConfigurationFilter.DEFAULT_CORS_REQUEST_DECORATE.toString()));
+        this.loggingEnabled = Boolean.parseBoolean(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_LOGGING_ENABLED,
+                CorsConfigurationFilter.DEFAULT_CORS_LOGGING_ENABLED.toString()));
+        this.allowClientOrigins = Boolean.parseBoolean(getParameter(filterConfig, CorsFilterConfig.PARAM_CORS_ALLOW_CLIENT_ORIGINS,
+                CorsConfigurationFilter.DEFAULT_CORS_ALLOW_CLIENT_ORIGINS.toString()));
+    }
+
+    /**
+     * @return true if origin is allowed by configured origins, origins of clients are checked separately
+     */
+    public boolean isOriginAllowed(String origin) {
+        return originMatcher.isAllowed(origin);
+    }
+
+    public boolean isAnyOriginAllowed() {
+        return originMatcher.isAnyOriginAllowed();
+    }
+
+    public boolean isMethodAllowed(String method) {
+        return allowedHttpMethods.contains(method);
+    }
+
+    public PreflightCheck checkPreflight(String origin, String requestMethod, String requestHeaders) {
+        String key = origin + '\n' + requestMethod + '\n' + StringUtils.defaultString(requestHeaders);
+
+        PreflightCheck check = preflightChecks.getIfPresent(key);
+        if (check == null) {
+            check = new PreflightCheck(originMatcher.isAllowed(origin),
+                    isMethodAllowed(requestMethod) && areHeadersAllowed(requestHeaders));
+            preflightChecks.put(key, check);
+        }
+
+        return check;
+    }
+
+    private boolean areHeadersAllowed(String requestHeaders) {
+        if (StringUtils.isBlank(requestHeaders)) {
+            return true;
+        }
+
+        for (String header : requestHeaders.split(",")) {
+            String name = header.trim().toLowerCase(Locale.ROOT);
+            if ((name.length() > 0) && !allowedHttpHeaders.contains(name)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public String getAllowedHttpMethodsValue() {
+        return allowedHttpMethodsValue;
+    }
+
+    public String getAllowedHttpHeadersValue() {
+        return allowedHttpHeadersValue;
+    }
+
+    public String getExposedHeadersValue() {
+        return exposedHeadersValue;
+    }
+
+    public boolean isSupportsCredentials() {
+        return supportsCredentials;
+    }
+
+    public long getPreflightMaxAge() {
+        return preflightMaxAge;
+    }
+
+    public boolean isDecorateRequest() {
+        return decorateRequest;
+    }
+
+    public boolean isLoggingEnabled() {
+        return loggingEnabled;
+    }
+
+    public boolean isAllowClientOrigins() {
+        return allowClientOrigins;
+    }
+
+    private static String getParameter(FilterConfig filterConfig, String name, String defaultValue) {
+        String value = (filterConfig == null) ? null : filterConfig.getInitParameter(name);
+
+        return (value == null) ? defaultValue : value;
+    }
+
+    private static Set<String> parseList(String value, boolean lowerCase) {
+        Set<String> result = new HashSet<String>();
+        for (String item : value.split(",")) {
+            String trimmed = item.trim();
+            if (trimmed.length() > 0) {
+                result.add(lowerCase ? trimmed.toLowerCase(Locale.ROOT) : trimmed);
+            }
+        }
+
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static String join(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        for (String item : value.split(",")) {
+            String trimmed = item.trim();
+            if (trimmed.length() > 0) {
+                if (result.length() > 0) {
+                    result.append(',');
+                }
+                result.append(trimmed);
+            }
+        }
+
+        return result.toString();
+    }
+
+    private static long parseMaxAge(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Result of preflight check which doesn't depend on registered clients
+     */
+    public static class PreflightCheck {
+
+        private final boolean originAllowed;
+        private final boolean requestAllowed;
+
+        public PreflightCheck(boolean originAllowed, boolean requestAllowed) {
+            this.originAllowed = originAllowed;
+            this.requestAllowed = requestAllowed;
+        }
+
+        public boolean isOriginAllowed() {
+            return originAllowed;
+        }
+
+        /**
+         * @return true if requested method and headers are allowed
+         */
+        public boolean isRequestAllowed() {
+            return requestAllowed;
+        }
+
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.filter;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+
+import javax.inject.Inject;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.session.SessionClient;
+import org.xdi.oxauth.security.Identity;
+import org.xdi.oxauth.service.EndpointMetricService;
+import org.xdi.oxauth.util.ServerUtil;
+
+/**
+ * Records latency, response status and in-flight requests of REST endpoints. Endpoint name is set by
+ * {@link EndpointMetricRequestFilter} after JAX-RS resource method is matched
+ */
+@WebFilter(
+        filterName = "EndpointMetricFilter",
+        asyncSupported = true,
+        urlPatterns = {"/.well-known/*", "/restv1/*"})
+public class EndpointMetricFilter implements Filter {
+
+    public static final String ENDPOINT_ATTRIBUTE = EndpointMetricFilter.class.getName() + ".endpoint";
+
+    private static final String GRANT_TYPE_PARAMETER = "grant_type";
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private EndpointMetricService endpointMetricService;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private Identity identity;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain) throws IOException, ServletException {
+        if (!endpointMetricService.isEnabled() || !(servletRequest instanceof HttpServletRequest)) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+
+        final HttpServletRequest httpRequest = (HttpServletRequest) servletRequest;
+        final HttpServletResponse httpResponse = (HttpServletResponse) servletResponse;
+
+        final long startTime = endpointMetricService.requestStarted();
+        boolean async = false;
+        try {
+            chain.doFilter(httpRequest, httpResponse);
+
+            if (httpRequest.isAsyncStarted()) {
+                // Client id is resolved in request thread, request scope is not available in async listener
+                final String clientId = getClientId();
+                httpRequest.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) throws IOException {
+                        requestFinished(httpRequest, httpResponse, clientId, startTime);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) throws IOException {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) throws IOException {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) throws IOException {
+                    }
+                });
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                requestFinished(httpRequest, httpResponse, getClientId(), startTime);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private void requestFinished(HttpServletRequest httpRequest, HttpServletResponse httpResponse, String clientId, long startTime) {
+        String endpoint = (String) httpRequest.getAttribute(ENDPOINT_ATTRIBUTE);
+        if ((endpoint == null) && httpRequest.getRequestURI().contains("/.well-known/")) {
+            endpoint = httpRequest.getServletPath();
+        }
+
+        String grantType = null;
+        if (isTokenRequest(httpRequest)) {
+            grantType = httpRequest.getParameter(GRANT_TYPE_PARAMETER);
+        }
+
+        endpointMetricService.requestFinished(endpoint, httpResponse.getStatus(), grantType, clientId, startTime);
+    }
+
+    private boolean isTokenRequest(HttpServletRequest httpRequest) {
+        if (!"POST".equals(httpRequest.getMethod())) {
+            return false;
+        }
+
+        try {
+            return ServerUtil.isSameRequestPath(httpRequest.getRequestURL().toString(), appConfiguration.getTokenEndpoint());
+        } catch (MalformedURLException ex) {
+            log.trace("Failed to compare request URL with token endpoint", ex);
+            return false;
+        }
+    }
+
+    private String getClientId() {
+        try {
+            SessionClient sessionClient = identity.getSetSessionClient();
+            if ((sessionClient != null) && (sessionClient.getClient() != null)) {
+                return sessionClient.getClient().getClientId();
+            }
+        } catch (RuntimeException ex) {
+            log.trace("Failed to get authenticated client", ex);
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.filter;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Names matched JAX-RS resource method for {@link EndpointMetricFilter}
+ */
+@Provider
+public class EndpointMetricRequestFilter implements ContainerRequestFilter {
+
+    private static final String IMPL_SUFFIX = "Impl";
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Context
+    private HttpServletRequest httpRequest;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        Class<?> resourceClass = resourceInfo.getResourceClass();
+        Method resourceMethod = resourceInfo.getResourceMethod();
+        if ((resourceClass == null) || (resourceMethod == null)) {
+            return;
+        }
+
+        httpRequest.setAttribute(EndpointMetricFilter.ENDPOINT_ATTRIBUTE, getEndpointName(resourceClass, resourceMethod));
+    }
+
+    private String getEndpointName(Class<?> resourceClass, Method resourceMethod) {
+        String className = resourceClass.getSimpleName();
+
+        // Skip CDI proxy suffix
+        int proxyIndex = className.indexOf('$');
+        if (proxyIndex > 0) {
+            className = className.substring(0, proxyIndex);
+        }
+
+        if (className.endsWith(IMPL_SUFFIX)) {
+            className = className.substring(0, className.length() - IMPL_SUFFIX.length());
+        }
+
+        return className + "." + resourceMethod.getName();
+    }
+
+}
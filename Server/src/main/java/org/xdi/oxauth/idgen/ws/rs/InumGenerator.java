@@ -48,6 +48,9 @@ public class InumGenerator implements IdGenerator {
     @Inject
     private StaticConfiguration staticConfiguration;
 
+    @Inject
+    private InumSequence inumSequence;
+
     @Override
     public String generateId(String p_idType, String p_idPrefix) {
         final IdType idType = IdType.fromString(p_idType);
@@ -60,24 +63,21 @@ public class InumGenerator implements IdGenerator {
     }
 
     public String generateId(IdType p_idType, String p_idPrefix) {
+        final String prefix = p_idPrefix + InumGenerator.SEPARATOR + p_idType.getInum() + InumGenerator.SEPARATOR;
+
+        // Client and people inums are unique by construction, duplicate will be rejected by LDAP on add
+        if ((IdType.CLIENTS == p_idType) || (IdType.PEOPLE == p_idType)) {
+            final String inum = prefix + inumSequence.next();
+            log.trace("Generated inum: {}", inum);
+            return inum;
+        }
+
         String inum;
         int counter = 0;
 
         try {
             while (true) {
-                final StringBuilder sb = new StringBuilder();
-                sb.append(p_idPrefix).
-                        append(InumGenerator.SEPARATOR).
-                        append(p_idType.getInum()).
-                        append(InumGenerator.SEPARATOR);
-
-                if ((IdType.CLIENTS == p_idType) || (IdType.PEOPLE == p_idType)) { 
-                	sb.append(INumGenerator.generate(4));
-                } else {
-                	sb.append(INumGenerator.generate(2));
-                }
-
-                inum = sb.toString();
+                inum = prefix + INumGenerator.generate(2);
                 if (StringUtils.isBlank(inum)) {
                     log.error("Unable to generate inum: {}", inum);
                     break;
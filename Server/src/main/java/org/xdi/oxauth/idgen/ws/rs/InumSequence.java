@@ -0,0 +1,132 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.idgen.ws.rs;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+
+/**
+ * Generates inum suffix in format NNNN.XXXX.XXXX.XXXX.RRRR.RRRR without LDAP lookups. First group is
+ * node id, next three groups are 48 bit counter: milliseconds since 2017-01-01 shifted by 7 bits plus
+ * sequence in millisecond. Counter is monotonic, if more than 128 values are requested in one
+ * millisecond it moves ahead of clock. Values of one node don't repeat after restart while clock is
+ * not moved back.
+ * <p>
+ * Last two groups are 32 random bits from {@link SecureRandom}. They don't take part in uniqueness,
+ * but inums (and client ids which are built from them) can't be enumerated from known inum and
+ * approximate creation time.
+ * <p>
+ * Values of different nodes don't collide only if every node has own inumNodeId. If it's not set
+ * random node id is used and two nodes can get the same id, so generated inums are not guaranteed
+ * to be unique and callers should retry add with new inum if entry already exists
+ * (see {@link org.xdi.oxauth.service.InumService#isEntryAlreadyExists(Throwable)}).
+ */
+@ApplicationScoped
+@Named
+public class InumSequence {
+
+    public static final int MAX_NODE_ID = 0xFFFF;
+
+    private static final long EPOCH = 1483228800000L; // 2017-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 7;
+    private static final long MAX_COUNTER = (1L << 48) - 1;
+    private static final int LENGTH = 29;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    private final AtomicLong counter = new AtomicLong();
+    private final SecureRandom random = new SecureRandom();
+    private int nodeId;
+
+    public InumSequence() {
+    }
+
+    public InumSequence(int nodeId) {
+        setNodeId(nodeId);
+    }
+
+    @PostConstruct
+    public void init() {
+        Integer configuredNodeId = appConfiguration.getInumNodeId();
+        if (configuredNodeId == null) {
+            setNodeId(random.nextInt(MAX_NODE_ID + 1));
+            log.warn("inumNodeId is not set, using random node id: {}", nodeId);
+        } else {
+            setNodeId(configuredNodeId);
+            log.debug("Using inum node id: {}", nodeId);
+        }
+    }
+
+    private void setNodeId(int nodeId) {
+        if ((nodeId < 0) || (nodeId > MAX_NODE_ID)) {
+            throw new IllegalArgumentException("Inum node id should be in range 0-" + MAX_NODE_ID + ", but was: " + nodeId);
+        }
+
+        this.nodeId = nodeId;
+    }
+
+    public String next() {
+        final long value = nextCounter();
+        final int randomBits = random.nextInt();
+
+        final char[] result = new char[LENGTH];
+        appendGroup(result, 0, nodeId);
+        result[4] = '.';
+        appendGroup(result, 5, (int) (value >>> 32));
+        result[9] = '.';
+        appendGroup(result, 10, (int) (value >>> 16));
+        result[14] = '.';
+        appendGroup(result, 15, (int) value);
+        result[19] = '.';
+        appendGroup(result, 20, randomBits >>> 16);
+        result[24] = '.';
+        appendGroup(result, 25, randomBits);
+
+        return new String(result);
+    }
+
+    private long nextCounter() {
+        final long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        while (true) {
+            final long last = counter.get();
+            final long next = Math.max(last + 1, now);
+            if (next > MAX_COUNTER) {
+                throw new IllegalStateException("Inum counter is exhausted");
+            }
+
+            if (counter.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static void appendGroup(char[] result, int offset, int value) {
+        result[offset] = HEX_DIGITS[(value >>> 12) & 0xF];
+        result[offset + 1] = HEX_DIGITS[(value >>> 8) & 0xF];
+        result[offset + 2] = HEX_DIGITS[(value >>> 4) & 0xF];
+        result[offset + 3] = HEX_DIGITS[value & 0xF];
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+}
@@ -8,6 +8,10 @@ package org.xdi.oxauth.introspection.ws.rs;
 
 import com.wordnik.swagger.annotations.Api;
 import org.apache.commons.lang.StringUtils;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
 import org.slf4j.Logger;
 import org.xdi.oxauth.model.authorize.AuthorizeErrorResponseType;
 import org.xdi.oxauth.model.common.*;
@@ -21,7 +25,14 @@ import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Yuriy Zabrovarnyy
@@ -63,44 +74,67 @@ public class IntrospectionWebService {
         return introspect(p_authorization, p_token, tokenTypeHint);
     }
 
+    /**
+     * Introspects several tokens with one request. Caller is authorized once and grants of all tokens are
+     * loaded with one search. Response is JSON array of introspection responses in order of tokens in request.
+     */
+    @POST
+    @Path("/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response introspectBatchPost(@HeaderParam("Authorization") String p_authorization,
+                                        @FormParam("token") List<String> p_tokens
+    ) {
+        return introspectBatch(p_authorization, p_tokens);
+    }
+
     private Response introspect(String p_authorization, String p_token, String tokenTypeHint) {
         try {
             log.trace("Introspect token, authorization: {}, token to introsppect: {}, tokenTypeHint:", p_authorization, p_token, tokenTypeHint);
             if (StringUtils.isNotBlank(p_authorization) && StringUtils.isNotBlank(p_token)) {
-                final AuthorizationGrant authorizationGrant = tokenService.getAuthorizationGrant(p_authorization);
-                if (authorizationGrant != null) {
-                    final AbstractToken authorizationAccessToken = authorizationGrant.getAccessToken(tokenService.getTokenFromAuthorizationParameter(p_authorization));
-                    boolean isPat = authorizationGrant.getScopesAsString().contains(UmaScopeType.PROTECTION.getValue()); // #432
-                    if (authorizationAccessToken != null && authorizationAccessToken.isValid() && isPat) {
-                        final IntrospectionResponse response = new IntrospectionResponse(false);
-
-                        final AuthorizationGrant grantOfIntrospectionToken = authorizationGrantList.getAuthorizationGrantByAccessToken(p_token);
-                        if (grantOfIntrospectionToken != null) {
-                            final AbstractToken tokenToIntrospect = grantOfIntrospectionToken.getAccessToken(p_token);
-
-                            response.setActive(tokenToIntrospect.isValid());
-                            response.setExpiresAt(tokenToIntrospect.getExpirationDate());
-                            response.setIssuedAt(tokenToIntrospect.getCreationDate());
-                            response.setAcrValues(tokenToIntrospect.getAuthMode());
-                            response.setScopes(grantOfIntrospectionToken.getScopes() != null ? grantOfIntrospectionToken.getScopes() : new ArrayList<String>()); // #433
-                            response.setClientId(grantOfIntrospectionToken.getClientId());
-                            response.setUsername(grantOfIntrospectionToken.getUserId());
-                            response.setIssuer(appConfiguration.getIssuer());
-                            response.setAudience(grantOfIntrospectionToken.getClientId());
-
-                            if (tokenToIntrospect instanceof AccessToken) {
-                                AccessToken accessToken = (AccessToken) tokenToIntrospect;
-                                response.setTokenType(accessToken.getTokenType() != null ? accessToken.getTokenType().getName() : TokenType.BEARER.getName());
-                            }
-                        } else {
-                            log.error("Failed to find grant for access_token: " + p_token);
+                if (isAuthorized(p_authorization)) {
+                    final AuthorizationGrant grantOfIntrospectionToken = authorizationGrantList.getAuthorizationGrantByAccessToken(p_token);
+                    if (grantOfIntrospectionToken == null) {
+                        log.error("Failed to find grant for access_token: " + p_token);
+                    }
+                    final IntrospectionResponse response = createResponse(p_token, grantOfIntrospectionToken);
+                    return Response.status(Response.Status.OK).entity(ServerUtil.asJson(response)).build();
+                }
+
+                return Response.status(Response.Status.BAD_REQUEST).entity(errorResponseFactory.getErrorAsJson(AuthorizeErrorResponseType.ACCESS_DENIED)).build();
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+
+        return Response.status(Response.Status.BAD_REQUEST).entity(errorResponseFactory.getErrorAsJson(AuthorizeErrorResponseType.INVALID_REQUEST)).build();
+    }
+
+    private Response introspectBatch(String p_authorization, List<String> p_tokens) {
+        try {
+            log.trace("Introspect tokens, authorization: {}, tokens to introspect: {}", p_authorization, p_tokens);
+            final int maxTokens = appConfiguration.getIntrospectionBatchMaxTokens() != null ? appConfiguration.getIntrospectionBatchMaxTokens() : 0;
+            if (StringUtils.isNotBlank(p_authorization) && p_tokens != null && !p_tokens.isEmpty()) {
+                if (p_tokens.size() > maxTokens) {
+                    log.error("Too many tokens in batch introspection request: " + p_tokens.size() + ", max: " + maxTokens);
+                    return Response.status(Response.Status.BAD_REQUEST).entity(errorResponseFactory.getErrorAsJson(AuthorizeErrorResponseType.INVALID_REQUEST)).build();
+                }
+
+                if (isAuthorized(p_authorization)) {
+                    final Set<String> tokens = new HashSet<String>();
+                    for (String token : p_tokens) {
+                        if (StringUtils.isNotBlank(token)) {
+                            tokens.add(token);
                         }
-                        return Response.status(Response.Status.OK).entity(ServerUtil.asJson(response)).build();
-                    } else {
-                        log.error("Access token is not valid. Valid: " + (authorizationAccessToken != null && authorizationAccessToken.isValid()) + ", isPat:" + isPat);
                     }
-                } else {
-                    log.error("Authorization grant is null.");
+
+                    final Map<String, AuthorizationGrant> grants = authorizationGrantList.getAuthorizationGrantsByAccessTokens(tokens);
+                    final List<IntrospectionResponse> responses = new ArrayList<IntrospectionResponse>(p_tokens.size());
+                    for (String token : p_tokens) {
+                        responses.add(createResponse(token, grants.get(token)));
+                    }
+
+                    return Response.status(Response.Status.OK).entity(asJsonArray(responses)).build();
                 }
 
                 return Response.status(Response.Status.BAD_REQUEST).entity(errorResponseFactory.getErrorAsJson(AuthorizeErrorResponseType.ACCESS_DENIED)).build();
@@ -112,4 +146,66 @@ public class IntrospectionWebService {
 
         return Response.status(Response.Status.BAD_REQUEST).entity(errorResponseFactory.getErrorAsJson(AuthorizeErrorResponseType.INVALID_REQUEST)).build();
     }
-}
+
+    /**
+     * Checks that authorization header contains valid PAT
+     */
+    private boolean isAuthorized(String p_authorization) {
+        final AuthorizationGrant authorizationGrant = tokenService.getAuthorizationGrant(p_authorization);
+        if (authorizationGrant != null) {
+            final AbstractToken authorizationAccessToken = authorizationGrant.getAccessToken(tokenService.getTokenFromAuthorizationParameter(p_authorization));
+            boolean isPat = authorizationGrant.getScopesAsString().contains(UmaScopeType.PROTECTION.getValue()); // #432
+            if (authorizationAccessToken != null && authorizationAccessToken.isValid() && isPat) {
+                return true;
+            } else {
+                log.error("Access token is not valid. Valid: " + (authorizationAccessToken != null && authorizationAccessToken.isValid()) + ", isPat:" + isPat);
+            }
+        } else {
+            log.error("Authorization grant is null.");
+        }
+
+        return false;
+    }
+
+    private IntrospectionResponse createResponse(String p_token, AuthorizationGrant grantOfIntrospectionToken) {
+        final IntrospectionResponse response = new IntrospectionResponse(false);
+        if (grantOfIntrospectionToken != null) {
+            final AbstractToken tokenToIntrospect = grantOfIntrospectionToken.getAccessToken(p_token);
+
+            response.setActive(tokenToIntrospect.isValid());
+            response.setExpiresAt(tokenToIntrospect.getExpirationDate());
+            response.setIssuedAt(tokenToIntrospect.getCreationDate());
+            response.setAcrValues(tokenToIntrospect.getAuthMode());
+            response.setScopes(grantOfIntrospectionToken.getScopes() != null ? grantOfIntrospectionToken.getScopes() : new ArrayList<String>()); // #433
+            response.setClientId(grantOfIntrospectionToken.getClientId());
+            response.setUsername(grantOfIntrospectionToken.getUserId());
+            response.setIssuer(appConfiguration.getIssuer());
+            response.setAudience(grantOfIntrospectionToken.getClientId());
+
+            if (tokenToIntrospect instanceof AccessToken) {
+                AccessToken accessToken = (AccessToken) tokenToIntrospect;
+                response.setTokenType(accessToken.getTokenType() != null ? accessToken.getTokenType().getName() : TokenType.BEARER.getName());
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Writes responses to output stream one by one instead of building whole JSON document in memory
+     */
+    private StreamingOutput asJsonArray(final List<IntrospectionResponse> responses) {
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                final ObjectMapper mapper = ServerUtil.createJsonMapper().configure(SerializationConfig.Feature.WRAP_ROOT_VALUE, false);
+                final JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(output, JsonEncoding.UTF8);
+                generator.writeStartArray();
+                for (IntrospectionResponse response : responses) {
+                    mapper.writeValue(generator, response);
+                }
+                generator.writeEndArray();
+                generator.flush();
+            }
+        };
+    }
+}
\ No newline at end of file
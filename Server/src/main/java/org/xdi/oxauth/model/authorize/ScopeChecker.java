@@ -16,7 +16,7 @@ import javax.inject.Named;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.xdi.oxauth.model.registration.Client;
-import org.xdi.oxauth.service.ScopeService;
+import org.xdi.oxauth.service.ClientScopeIndexService;
 
 /**
  * Validates the scopes received for the authorize web service.
@@ -33,26 +33,18 @@ public class ScopeChecker {
     private Logger log;
 
     @Inject
-    private ScopeService scopeService;
+    private ClientScopeIndexService clientScopeIndexService;
 
     public Set<String> checkScopesPolicy(Client client, String scope) {
         log.debug("Checking scopes policy for: " + scope);
         Set<String> grantedScopes = new HashSet<String>();
 
         final String[] scopesRequested = scope.split(" ");
-        final String[] scopesAllowed = client.getScopes();
+        final Set<String> scopesAllowed = clientScopeIndexService.getAllowedScopeNames(client);
 
         for (String scopeRequested : scopesRequested) {
-            if (StringUtils.isNotBlank(scopeRequested)) {
-                for (String scopeAllowedDn : scopesAllowed) {
-                    org.xdi.oxauth.model.common.Scope scopeAllowed = scopeService.getScopeByDnSilently(scopeAllowedDn);
-                    if (scopeAllowed != null) {
-                        String scopeAllowedName = scopeAllowed.getDisplayName();
-                        if (scopeRequested.equals(scopeAllowedName)) {
-                            grantedScopes.add(scopeRequested);
-                        }
-                    }
-                }
+            if (StringUtils.isNotBlank(scopeRequested) && scopesAllowed.contains(scopeRequested)) {
+                grantedScopes.add(scopeRequested);
             }
         }
 
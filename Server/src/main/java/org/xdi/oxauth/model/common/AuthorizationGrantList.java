@@ -20,15 +20,22 @@ import org.xdi.oxauth.model.util.Util;
 import org.xdi.oxauth.service.ClientService;
 import org.xdi.oxauth.service.GrantService;
 import org.xdi.oxauth.service.UserService;
+import org.xdi.oxauth.util.TokenHashUtil;
 import org.xdi.service.CacheService;
+import org.xdi.util.StringHelper;
 
 import javax.enterprise.context.RequestScoped;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Component to hold in memory authorization grant objects.
@@ -155,6 +162,57 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
         return null;
     }
 
+    /**
+     * Loads grants of several access tokens with one search. Users and clients of grants are loaded with
+     * one search each, clients are taken from cache if possible
+     *
+     * @return grants by access token, tokens without grant are not in map
+     */
+    @Override
+    public Map<String, AuthorizationGrant> getAuthorizationGrantsByAccessTokens(Collection<String> accessTokens) {
+        final Map<String, String> accessTokensByHash = new HashMap<String, String>();
+        for (String accessToken : accessTokens) {
+            accessTokensByHash.put(TokenHashUtil.getHashedToken(accessToken), accessToken);
+        }
+
+        final List<TokenLdap> tokens = new ArrayList<TokenLdap>();
+        final Set<String> userIds = new HashSet<String>();
+        final Set<String> clientDns = new HashSet<String>();
+        for (TokenLdap tokenLdap : grantService.getGrantsByCodes(accessTokensByHash.values())) {
+            if (tokenLdap.getTokenTypeEnum() == org.xdi.oxauth.model.ldap.TokenType.ACCESS_TOKEN || tokenLdap.getTokenTypeEnum() == org.xdi.oxauth.model.ldap.TokenType.LONG_LIVED_ACCESS_TOKEN) {
+                tokens.add(tokenLdap);
+                if (StringUtils.isNotBlank(tokenLdap.getUserId())) {
+                    userIds.add(tokenLdap.getUserId());
+                }
+                final String clientId = extractClientIdFromTokenDn(tokenLdap.getDn());
+                if (StringUtils.isNotBlank(clientId)) {
+                    clientDns.add(clientService.buildClientDn(clientId));
+                }
+            }
+        }
+
+        final Map<String, User> users = new HashMap<String, User>();
+        for (User user : userService.getUsers(userIds)) {
+            users.put(StringHelper.toLowerCase(user.getUserId()), user);
+        }
+        final Map<String, Client> clients = new HashMap<String, Client>();
+        for (Client client : clientService.getClientsByDnList(clientDns, false)) {
+            clients.put(StringHelper.toLowerCase(client.getClientId()), client);
+        }
+
+        final Map<String, AuthorizationGrant> result = new HashMap<String, AuthorizationGrant>();
+        for (TokenLdap tokenLdap : tokens) {
+            final String accessToken = accessTokensByHash.get(tokenLdap.getTokenCode());
+            final User user = users.get(StringHelper.toLowerCase(tokenLdap.getUserId()));
+            final Client client = clients.get(StringHelper.toLowerCase(extractClientIdFromTokenDn(tokenLdap.getDn())));
+            final AuthorizationGrant grant = asGrant(tokenLdap, user, client);
+            if (accessToken != null && grant != null) {
+                result.put(accessToken, grant);
+            }
+        }
+        return result;
+    }
+
     @Override
     public AuthorizationGrant getAuthorizationGrantByIdToken(String idToken) {
         TokenLdap tokenLdap = grantService.getGrantsByCode(idToken);
@@ -192,11 +250,18 @@ public class AuthorizationGrantList implements IAuthorizationGrantList {
     }
 
     public AuthorizationGrant asGrant(TokenLdap tokenLdap) {
+        if (tokenLdap != null) {
+            final User user = userService.getUser(tokenLdap.getUserId());
+            final Client client = clientService.getClient(extractClientIdFromTokenDn(tokenLdap.getDn()));
+            return asGrant(tokenLdap, user, client);
+        }
+        return null;
+    }
+
+    private AuthorizationGrant asGrant(TokenLdap tokenLdap, User user, Client client) {
         if (tokenLdap != null) {
             final AuthorizationGrantType grantType = AuthorizationGrantType.fromString(tokenLdap.getGrantType());
             if (grantType != null) {
-                final User user = userService.getUser(tokenLdap.getUserId());
-                final Client client = clientService.getClient(extractClientIdFromTokenDn(tokenLdap.getDn()));
                 final Date authenticationTime = tokenLdap.getAuthenticationTime();
                 final String nonce = tokenLdap.getNonce();
 
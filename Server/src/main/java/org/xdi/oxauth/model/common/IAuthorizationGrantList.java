@@ -6,8 +6,10 @@
 
 package org.xdi.oxauth.model.common;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.xdi.oxauth.model.registration.Client;
 
@@ -38,5 +40,7 @@ public interface IAuthorizationGrantList {
 
     public AuthorizationGrant getAuthorizationGrantByAccessToken(String tokenCode);
 
+    public Map<String, AuthorizationGrant> getAuthorizationGrantsByAccessTokens(Collection<String> tokenCodes);
+
     public AuthorizationGrant getAuthorizationGrantByIdToken(String idToken);
 }
\ No newline at end of file
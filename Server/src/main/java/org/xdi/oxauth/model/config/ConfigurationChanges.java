@@ -0,0 +1,126 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.model.config;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.codehaus.jackson.JsonNode;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+
+/**
+ * Event fired after configuration is loaded or reloaded. Contains names of changed dynamic configuration
+ * properties and which other configuration parts were changed. After first load everything is reported
+ * as changed
+ */
+public class ConfigurationChanges {
+
+	private final boolean initial;
+	private final AppConfiguration appConfiguration;
+	private final Set<String> appConfigurationKeys;
+	private final boolean staticConfigurationChanged;
+	private final boolean webKeysChanged;
+	private final boolean errorsChanged;
+
+	public ConfigurationChanges(boolean initial, AppConfiguration appConfiguration, Set<String> appConfigurationKeys,
+			boolean staticConfigurationChanged, boolean webKeysChanged, boolean errorsChanged) {
+		this.initial = initial;
+		this.appConfiguration = appConfiguration;
+		this.appConfigurationKeys = Collections.unmodifiableSet(appConfigurationKeys);
+		this.staticConfigurationChanged = staticConfigurationChanged;
+		this.webKeysChanged = webKeysChanged;
+		this.errorsChanged = errorsChanged;
+	}
+
+	public boolean isInitial() {
+		return initial;
+	}
+
+	public AppConfiguration getAppConfiguration() {
+		return appConfiguration;
+	}
+
+	/**
+	 * @return names of changed dynamic configuration properties, it's empty after first load
+	 */
+	public Set<String> getAppConfigurationKeys() {
+		return appConfigurationKeys;
+	}
+
+	public boolean isAppConfigurationChanged() {
+		return initial || !appConfigurationKeys.isEmpty();
+	}
+
+	/**
+	 * @return true if any of specified dynamic configuration properties was changed
+	 */
+	public boolean isAppConfigurationChanged(String... keys) {
+		if (initial) {
+			return true;
+		}
+
+		for (String key : keys) {
+			if (appConfigurationKeys.contains(key)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public boolean isStaticConfigurationChanged() {
+		return initial || staticConfigurationChanged;
+	}
+
+	public boolean isWebKeysChanged() {
+		return initial || webKeysChanged;
+	}
+
+	public boolean isErrorsChanged() {
+		return initial || errorsChanged;
+	}
+
+	public boolean isChanged() {
+		return isAppConfigurationChanged() || staticConfigurationChanged || webKeysChanged || errorsChanged;
+	}
+
+	/**
+	 * Returns names of top level properties which were added, removed or have different values. Property
+	 * is reported by top level name if any of its nested values is changed
+	 */
+	public static Set<String> getChangedKeys(JsonNode oldTree, JsonNode newTree) {
+		final Set<String> keys = new HashSet<String>();
+		if ((oldTree == null) || (newTree == null)) {
+			return keys;
+		}
+
+		for (Iterator<String> it = newTree.getFieldNames(); it.hasNext();) {
+			final String key = it.next();
+			if (!newTree.get(key).equals(oldTree.get(key))) {
+				keys.add(key);
+			}
+		}
+		for (Iterator<String> it = oldTree.getFieldNames(); it.hasNext();) {
+			final String key = it.next();
+			if (!newTree.has(key)) {
+				keys.add(key);
+			}
+		}
+
+		return keys;
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigurationChanges [initial=" + initial + ", appConfigurationKeys=" + appConfigurationKeys
+				+ ", staticConfigurationChanged=" + staticConfigurationChanged + ", webKeysChanged=" + webKeysChanged
+				+ ", errorsChanged=" + errorsChanged + "]";
+	}
+
+}
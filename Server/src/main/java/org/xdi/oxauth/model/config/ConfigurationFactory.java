@@ -6,7 +6,9 @@
 
 package org.xdi.oxauth.model.config;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
+import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
 import org.codehaus.jettison.json.JSONObject;
@@ -41,6 +43,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -64,6 +67,9 @@ public class ConfigurationFactory {
 	@Inject
 	private Event<AppConfiguration> configurationUpdateEvent;
 
+	@Inject
+	private Event<ConfigurationChanges> configurationChangesEvent;
+
 	@Inject
 	private Event<String> event;
 
@@ -107,10 +113,7 @@ public class ConfigurationFactory {
 
 	private boolean loaded = false;
 	private FileConfiguration ldapConfiguration;
-	private AppConfiguration conf;
-	private StaticConfiguration staticConf;
-	private WebKeysConfiguration jwks;
-	private ErrorResponseFactory errorResponseFactory;
+	private volatile Snapshot snapshot = new Snapshot(null, null, null, null, -1);
 	private String cryptoConfigurationSalt;
 
 	private AtomicBoolean isActive;
@@ -118,9 +121,12 @@ public class ConfigurationFactory {
 	private String prevLdapFileName;
 	private long ldapFileLastModifiedTime = -1;
 
-	private long loadedRevision = -1;
 	private boolean loadedFromLdap = true;
 
+	// Hashes of loaded JSON configurations, configuration is parsed again only if hash is changed
+	private String dynamicHash, staticHash, webKeysHash, errorsHash;
+	private JsonNode dynamicTree;
+
 	@PostConstruct
 	public void init() {
 		this.isActive = new AtomicBoolean(true);
@@ -206,7 +212,7 @@ public class ConfigurationFactory {
 			return;
 		}
 
-		if (conf.getRevision() <= this.loadedRevision) {
+		if (conf.getRevision() <= this.snapshot.revision) {
 			return;
 		}
 
@@ -229,25 +235,25 @@ public class ConfigurationFactory {
 	@Produces
 	@ApplicationScoped
 	public AppConfiguration getAppConfiguration() {
-		return conf;
+		return snapshot.conf;
 	}
 
 	@Produces
 	@ApplicationScoped
 	public StaticConfiguration getStaticConfiguration() {
-		return staticConf;
+		return snapshot.staticConf;
 	}
 
 	@Produces
 	@ApplicationScoped
 	public WebKeysConfiguration getWebKeysConfiguration() {
-		return jwks;
+		return snapshot.jwks;
 	}
 
 	@Produces
 	@ApplicationScoped
 	public ErrorResponseFactory getErrorResponseFactory() {
-		return errorResponseFactory;
+		return snapshot.errorResponseFactory;
 	}
 
 	public BaseDnConfiguration getBaseDn() {
@@ -259,62 +265,71 @@ public class ConfigurationFactory {
 	}
 
 	private boolean createFromFile() {
-		boolean result = reloadConfFromFile() && reloadErrorsFromFile() && reloadStaticConfFromFile()
-				&& reloadWebkeyFromFile();
+		final AppConfiguration newConf = reloadConfFromFile();
+		if (newConf == null) {
+			return false;
+		}
+		final ErrorResponseFactory newErrorResponseFactory = reloadErrorsFromFile();
+		if (newErrorResponseFactory == null) {
+			return false;
+		}
+		final StaticConfiguration newStaticConf = reloadStaticConfFromFile();
+		if (newStaticConf == null) {
+			return false;
+		}
+		final WebKeysConfiguration newJwks = reloadWebkeyFromFile();
+		if (newJwks == null) {
+			return false;
+		}
 
-		return result;
+		this.snapshot = new Snapshot(newConf, newStaticConf, newJwks, newErrorResponseFactory, -1);
+
+		return true;
 	}
 
-	private boolean reloadWebkeyFromFile() {
+	private WebKeysConfiguration reloadWebkeyFromFile() {
 		final WebKeysConfiguration webKeysFromFile = loadWebKeysFromFile();
 		if (webKeysFromFile != null) {
 			log.info("Reloaded web keys from file: " + webKeysFilePath);
-			jwks = webKeysFromFile;
-			return true;
 		} else {
 			log.error("Failed to load web keys configuration from file: " + webKeysFilePath);
 		}
 
-		return false;
+		return webKeysFromFile;
 	}
 
-	private boolean reloadStaticConfFromFile() {
+	private StaticConfiguration reloadStaticConfFromFile() {
 		final StaticConfiguration staticConfFromFile = loadStaticConfFromFile();
 		if (staticConfFromFile != null) {
 			log.info("Reloaded static conf from file: " + staticConfFilePath);
-			staticConf = staticConfFromFile;
-			return true;
 		} else {
 			log.error("Failed to load static configuration from file: " + staticConfFilePath);
 		}
 
-		return false;
+		return staticConfFromFile;
 	}
 
-	private boolean reloadErrorsFromFile() {
+	private ErrorResponseFactory reloadErrorsFromFile() {
 		final ErrorMessages errorsFromFile = loadErrorsFromFile();
 		if (errorsFromFile != null) {
 			log.info("Reloaded errors from file: " + errorsFilePath);
-			errorResponseFactory = new ErrorResponseFactory(errorsFromFile);
-			return true;
+			return new ErrorResponseFactory(errorsFromFile);
 		} else {
 			log.error("Failed to load errors from file: " + errorsFilePath);
 		}
 
-		return false;
+		return null;
 	}
 
-	private boolean reloadConfFromFile() {
+	private AppConfiguration reloadConfFromFile() {
 		final AppConfiguration configFromFile = loadConfFromFile();
 		if (configFromFile != null) {
 			log.info("Reloaded configuration from file: " + configFilePath);
-			conf = configFromFile;
-			return true;
 		} else {
 			log.error("Failed to load configuration from file: " + configFilePath);
 		}
 
-		return false;
+		return configFromFile;
 	}
 
 	private boolean createFromLdap(boolean recoverFromFiles) {
@@ -322,18 +337,30 @@ public class ConfigurationFactory {
 		try {
 			final Conf c = loadConfigurationFromLdap();
 			if (c != null) {
-				init(c);
+				final ConfigurationChanges changes = init(c, !this.loaded);
+				log.debug("Configuration changes: {}", changes);
 
-				// Destroy old configuration
+				// New snapshot is already published. Destroy only changed configurations, new beans will be produced from it
 				if (this.loaded) {
-					destroy(AppConfiguration.class);
-					destroy(StaticConfiguration.class);
-					destroy(WebKeysConfiguration.class);
-					destroy(ErrorResponseFactory.class);
+					if (changes.isAppConfigurationChanged()) {
+						destroy(AppConfiguration.class);
+					}
+					if (changes.isStaticConfigurationChanged()) {
+						destroy(StaticConfiguration.class);
+					}
+					if (changes.isWebKeysChanged()) {
+						destroy(WebKeysConfiguration.class);
+					}
+					if (changes.isErrorsChanged()) {
+						destroy(ErrorResponseFactory.class);
+					}
 				}
 
 				this.loaded = true;
-				configurationUpdateEvent.select(ConfigurationUpdate.Literal.INSTANCE).fire(conf);
+				if (changes.isAppConfigurationChanged()) {
+					configurationUpdateEvent.select(ConfigurationUpdate.Literal.INSTANCE).fire(changes.getAppConfiguration());
+				}
+				configurationChangesEvent.fire(changes);
 
 				return true;
 			}
@@ -371,17 +398,96 @@ public class ConfigurationFactory {
 		return null;
 	}
 
-	private void init(Conf p_conf) {
-		initConfigurationFromJson(p_conf.getDynamic());
-		initStaticConfigurationFromJson(p_conf.getStatics());
-		initWebKeysFromJson(p_conf.getWebKeys());
-		initErrorsFromJson(p_conf.getErrors());
-		this.loadedRevision = p_conf.getRevision();
+	/**
+	 * Parses only configurations which were changed since previous load. Changed and unchanged instances
+	 * are published together as one snapshot after all of them are parsed
+	 */
+	private ConfigurationChanges init(Conf p_conf, boolean initial) {
+		final Snapshot current = this.snapshot;
+		AppConfiguration newConf = current.conf;
+		StaticConfiguration newStaticConf = current.staticConf;
+		WebKeysConfiguration newJwks = current.jwks;
+		ErrorResponseFactory newErrorResponseFactory = current.errorResponseFactory;
+
+		Set<String> changedKeys = Collections.emptySet();
+		boolean staticChanged = false, webKeysChanged = false, errorsChanged = false;
+		JsonNode newDynamicTree = this.dynamicTree;
+
+		final String newDynamicHash = hash(p_conf.getDynamic());
+		if (initial || !StringUtils.equals(newDynamicHash, this.dynamicHash)) {
+			final AppConfiguration c = parseConfigurationFromJson(p_conf.getDynamic());
+			if (c != null) {
+				newDynamicTree = readTree(p_conf.getDynamic());
+				changedKeys = ConfigurationChanges.getChangedKeys(this.dynamicTree, newDynamicTree);
+
+				newConf = c;
+			}
+		}
+
+		final String newStaticHash = hash(p_conf.getStatics());
+		if (initial || !StringUtils.equals(newStaticHash, this.staticHash)) {
+			final StaticConfiguration c = parseStaticConfigurationFromJson(p_conf.getStatics());
+			if (c != null) {
+				newStaticConf = c;
+				staticChanged = true;
+			}
+		}
+
+		final String newWebKeysHash = hash(p_conf.getWebKeys());
+		if (initial || !StringUtils.equals(newWebKeysHash, this.webKeysHash)) {
+			final WebKeysConfiguration k = initWebKeysFromJson(p_conf.getWebKeys(), newConf);
+			if (k != null) {
+				newJwks = k;
+				webKeysChanged = true;
+			}
+		}
+
+		final String newErrorsHash = hash(p_conf.getErrors());
+		if (initial || !StringUtils.equals(newErrorsHash, this.errorsHash)) {
+			final ErrorResponseFactory f = parseErrorsFromJson(p_conf.getErrors());
+			if (f != null) {
+				newErrorResponseFactory = f;
+				errorsChanged = true;
+			}
+		}
+
+		this.snapshot = new Snapshot(newConf, newStaticConf, newJwks, newErrorResponseFactory, p_conf.getRevision());
+
+		// Failed parts are parsed again on next load
+		if (newConf != current.conf) {
+			this.dynamicTree = newDynamicTree;
+			this.dynamicHash = newDynamicHash;
+		}
+		if (staticChanged) {
+			this.staticHash = newStaticHash;
+		}
+		if (webKeysChanged) {
+			this.webKeysHash = newWebKeysHash;
+		}
+		if (errorsChanged) {
+			this.errorsHash = newErrorsHash;
+		}
+
+		return new ConfigurationChanges(initial, newConf, changedKeys, staticChanged, webKeysChanged, errorsChanged);
+	}
+
+	private String hash(String json) {
+		return json == null ? null : DigestUtils.sha256Hex(json);
 	}
 
-	private void initWebKeysFromJson(String p_webKeys) {
+	private JsonNode readTree(String json) {
 		try {
-			initJwksFromString(p_webKeys);
+			return ServerUtil.createJsonMapper().readTree(json);
+		} catch (Exception e) {
+			log.error(e.getMessage(), e);
+		}
+
+		return null;
+	}
+
+	private WebKeysConfiguration initWebKeysFromJson(String p_webKeys, AppConfiguration appConfiguration) {
+		try {
+			return parseJwksFromString(p_webKeys);
 		} catch (Exception ex) {
 			log.error("Failed to load JWKS. Attempting to generate new JWKS...", ex);
 
@@ -389,12 +495,12 @@ public class ConfigurationFactory {
 			try {
 				// Generate new JWKS
 				JSONObject jsonObject = AbstractCryptoProvider.generateJwks(
-						getAppConfiguration().getKeyRegenerationInterval(), getAppConfiguration().getIdTokenLifetime(),
-						getAppConfiguration());
+						appConfiguration.getKeyRegenerationInterval(), appConfiguration.getIdTokenLifetime(),
+						appConfiguration);
 				newWebKeys = jsonObject.toString();
 
 				// Attempt to load new JWKS
-				initJwksFromString(newWebKeys);
+				WebKeysConfiguration k = parseJwksFromString(newWebKeys);
 
 				// Store new JWKS in LDAP
 				Conf conf = loadConfigurationFromLdap();
@@ -407,52 +513,60 @@ public class ConfigurationFactory {
 				ldapManager.merge(conf);
 
 				log.info("New JWKS generated successfully");
+
+				return k;
 			} catch (Exception ex2) {
 				log.error("Failed to re-generate JWKS keys", ex2);
 			}
 		}
+
+		return null;
 	}
 
 	public void initJwksFromString(String p_webKeys) throws IOException, JsonParseException, JsonMappingException {
-		final WebKeysConfiguration k = ServerUtil.createJsonMapper().readValue(p_webKeys, WebKeysConfiguration.class);
+		final WebKeysConfiguration k = parseJwksFromString(p_webKeys);
 		if (k != null) {
-			jwks = k;
+			final Snapshot current = this.snapshot;
+			this.snapshot = new Snapshot(current.conf, current.staticConf, k, current.errorResponseFactory, current.revision);
 		}
 	}
 
-	private void initStaticConfigurationFromJson(String p_statics) {
+	private WebKeysConfiguration parseJwksFromString(String p_webKeys) throws IOException, JsonParseException, JsonMappingException {
+		return ServerUtil.createJsonMapper().readValue(p_webKeys, WebKeysConfiguration.class);
+	}
+
+	private StaticConfiguration parseStaticConfigurationFromJson(String p_statics) {
 		try {
-			final StaticConfiguration c = ServerUtil.createJsonMapper().readValue(p_statics, StaticConfiguration.class);
-			if (c != null) {
-				staticConf = c;
-			}
+			return ServerUtil.createJsonMapper().readValue(p_statics, StaticConfiguration.class);
 		} catch (Exception e) {
 			log.error(e.getMessage(), e);
 		}
+
+		return null;
 	}
 
-	private void initConfigurationFromJson(String p_configurationJson) {
+	private AppConfiguration parseConfigurationFromJson(String p_configurationJson) {
 		try {
-			final AppConfiguration c = ServerUtil.createJsonMapper().readValue(p_configurationJson,
-					AppConfiguration.class);
-			if (c != null) {
-				conf = c;
-			}
+			return ServerUtil.createJsonMapper().readValue(p_configurationJson, AppConfiguration.class);
 		} catch (Exception e) {
 			log.error(e.getMessage(), e);
 		}
+
+		return null;
 	}
 
-	private void initErrorsFromJson(String p_errosAsJson) {
+	private ErrorResponseFactory parseErrorsFromJson(String p_errosAsJson) {
 		try {
 			final ErrorMessages errorMessages = ServerUtil.createJsonMapper().readValue(p_errosAsJson,
 					ErrorMessages.class);
 			if (errorMessages != null) {
-				errorResponseFactory = new ErrorResponseFactory(errorMessages);
+				return new ErrorResponseFactory(errorMessages);
 			}
 		} catch (Exception e) {
 			log.error(e.getMessage(), e);
 		}
+
+		return null;
 	}
 
 	private String loadLdapConfiguration(String ldapFileName) {
@@ -555,4 +669,27 @@ public class ConfigurationFactory {
 		return null;
 	}
 
+	/**
+	 * Configurations of one revision. Producers read all of them from the same snapshot, so beans
+	 * produced after reload never mix old and new configuration parts
+	 */
+	private static final class Snapshot {
+
+		private final AppConfiguration conf;
+		private final StaticConfiguration staticConf;
+		private final WebKeysConfiguration jwks;
+		private final ErrorResponseFactory errorResponseFactory;
+		private final long revision;
+
+		public Snapshot(AppConfiguration conf, StaticConfiguration staticConf, WebKeysConfiguration jwks,
+				ErrorResponseFactory errorResponseFactory, long revision) {
+			this.conf = conf;
+			this.staticConf = staticConf;
+			this.jwks = jwks;
+			this.errorResponseFactory = errorResponseFactory;
+			this.revision = revision;
+		}
+
+	}
+
 }
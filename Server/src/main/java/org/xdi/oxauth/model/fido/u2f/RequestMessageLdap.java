@@ -1,5 +1,6 @@
 package org.xdi.oxauth.model.fido.u2f;
 
+import java.io.Serializable;
 import java.util.Date;
 
 import org.gluu.site.ldap.persistence.annotation.LdapAttribute;
@@ -14,7 +15,9 @@ import org.xdi.ldap.model.BaseEntry;
  */
 @LdapEntry(sortBy = "creationDate")
 @LdapObjectClass(values = {"top", "oxU2fRequest"})
-public class RequestMessageLdap extends BaseEntry {
+public class RequestMessageLdap extends BaseEntry implements Serializable {
+
+	private static final long serialVersionUID = -2087467215746154012L;
 
 	@LdapAttribute(ignoreDuringUpdate = true, name = "oxId")
 	protected String id;
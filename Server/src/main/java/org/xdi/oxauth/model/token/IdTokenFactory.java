@@ -34,7 +34,6 @@ import org.xdi.oxauth.model.jwt.JwtSubClaimObject;
 import org.xdi.oxauth.model.jwt.JwtType;
 import org.xdi.oxauth.model.ldap.PairwiseIdentifier;
 import org.xdi.oxauth.model.registration.Client;
-import org.xdi.oxauth.model.util.JwtUtil;
 import org.xdi.oxauth.model.util.Util;
 import org.xdi.oxauth.service.AttributeService;
 import org.xdi.oxauth.service.ClientService;
@@ -43,6 +42,7 @@ import org.xdi.oxauth.service.ScopeService;
 import org.xdi.oxauth.service.external.ExternalAuthenticationService;
 import org.xdi.oxauth.service.external.ExternalDynamicScopeService;
 import org.xdi.oxauth.service.external.context.DynamicScopeExternalContext;
+import org.xdi.oxauth.service.net.OutboundHttpService;
 import org.xdi.util.security.StringEncrypter;
 
 import javax.ejb.Stateless;
@@ -92,6 +92,9 @@ public class IdTokenFactory {
     @Inject
     private WebKeysConfiguration webKeysConfiguration;
 
+    @Inject
+    private OutboundHttpService outboundHttpService;
+
     public Jwt generateSignedIdToken(IAuthorizationGrant authorizationGrant, String nonce,
                                      AuthorizationCode authorizationCode, AccessToken accessToken,
                                      Set<String> scopes, boolean includeIdTokenClaims) throws Exception {
@@ -224,16 +227,8 @@ public class IdTokenFactory {
             }
 
             String userInum = authorizationGrant.getUser().getAttribute("inum");
-            PairwiseIdentifier pairwiseIdentifier = pairwiseIdentifierService.findPairWiseIdentifier(
+            PairwiseIdentifier pairwiseIdentifier = pairwiseIdentifierService.findOrCreatePairwiseIdentifier(
                     userInum, sectorIdentifierUri);
-            if (pairwiseIdentifier == null) {
-                pairwiseIdentifier = new PairwiseIdentifier(sectorIdentifierUri);
-                pairwiseIdentifier.setId(UUID.randomUUID().toString());
-                pairwiseIdentifier.setDn(pairwiseIdentifierService.getDnForPairwiseIdentifier(
-                        pairwiseIdentifier.getId(),
-                        userInum));
-                pairwiseIdentifierService.addPairwiseIdentifier(userInum, pairwiseIdentifier);
-            }
             jwt.getClaims().setSubjectIdentifier(pairwiseIdentifier.getId());
         } else {
             String openidSubAttribute = appConfiguration.getOpenidSubAttribute();
@@ -393,16 +388,8 @@ public class IdTokenFactory {
             }
 
             String userInum = authorizationGrant.getUser().getAttribute("inum");
-            PairwiseIdentifier pairwiseIdentifier = pairwiseIdentifierService.findPairWiseIdentifier(
+            PairwiseIdentifier pairwiseIdentifier = pairwiseIdentifierService.findOrCreatePairwiseIdentifier(
                     userInum, sectorIdentifierUri);
-            if (pairwiseIdentifier == null) {
-                pairwiseIdentifier = new PairwiseIdentifier(sectorIdentifierUri);
-                pairwiseIdentifier.setId(UUID.randomUUID().toString());
-                pairwiseIdentifier.setDn(pairwiseIdentifierService.getDnForPairwiseIdentifier(
-                        pairwiseIdentifier.getId(),
-                        userInum));
-                pairwiseIdentifierService.addPairwiseIdentifier(userInum, pairwiseIdentifier);
-            }
             jwe.getClaims().setSubjectIdentifier(pairwiseIdentifier.getId());
         } else {
             String openidSubAttribute = appConfiguration.getOpenidSubAttribute();
@@ -423,7 +410,7 @@ public class IdTokenFactory {
         // Encryption
         if (keyEncryptionAlgorithm == KeyEncryptionAlgorithm.RSA_OAEP
                 || keyEncryptionAlgorithm == KeyEncryptionAlgorithm.RSA1_5) {
-            JSONObject jsonWebKeys = JwtUtil.getJSONWebKeys(authorizationGrant.getClient().getJwksUri());
+            JSONObject jsonWebKeys = outboundHttpService.getJSONWebKeys(authorizationGrant.getClient().getJwksUri());
             AbstractCryptoProvider cryptoProvider = CryptoProviderFactory.getCryptoProvider(appConfiguration);
             String keyId = cryptoProvider.getKeyId(JSONWebKeySet.fromJSONObject(jsonWebKeys), SignatureAlgorithm.RS256);
             PublicKey publicKey = cryptoProvider.getPublicKey(keyId, jsonWebKeys);
@@ -10,6 +10,7 @@ import org.apache.commons.lang.StringUtils;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
+import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.slf4j.Logger;
 import org.xdi.ldap.model.CustomAttribute;
 import org.xdi.model.metric.MetricType;
@@ -194,7 +195,7 @@ public class RegisterRestWebServiceImpl implements RegisterRestWebService {
                                 Boolean persistClientAuthorizations = appConfiguration.getDynamicRegistrationPersistClientAuthorizations();
                                 client.setPersistClientAuthorizations(persistClientAuthorizations != null ? persistClientAuthorizations : false);
 
-                                clientService.persist(client);
+                                persistWithNewInumOnConflict(client, clientsBaseDN);
 
                                 JSONObject jsonObject = getJSONObject(client);
                                 builder.entity(jsonObject.toString(4).replace("\\/", "/"));
@@ -243,6 +244,25 @@ public class RegisterRestWebServiceImpl implements RegisterRestWebService {
         return builder.build();
     }
 
+    private void persistWithNewInumOnConflict(Client client, String clientsBaseDN) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                clientService.persist(client);
+                return;
+            } catch (EntryPersistenceException e) {
+                if ((attempt >= InumService.MAX_PERSIST_ATTEMPTS) || !InumService.isEntryAlreadyExists(e)) {
+                    throw e;
+                }
+
+                String inum = inumService.generateClientInum();
+                log.warn("Client with inum '{}' already exists, retry with inum '{}'", client.getClientId(), inum);
+
+                client.setDn("inum=" + inum + "," + clientsBaseDN);
+                client.setClientId(inum);
+            }
+        }
+    }
+
     public Response.ResponseBuilder internalErrorResponse() {
         return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(
                 errorResponseFactory.getErrorAsJson(RegisterErrorResponseType.INVALID_CLIENT_METADATA));
@@ -21,6 +21,7 @@ import org.xdi.model.custom.script.CustomScriptType;
 import org.xdi.model.ldap.GluuLdapConfiguration;
 import org.xdi.oxauth.model.appliance.GluuAppliance;
 import org.xdi.oxauth.model.auth.AuthenticationMode;
+import org.xdi.oxauth.model.config.ConfigurationChanges;
 import org.xdi.oxauth.model.config.ConfigurationFactory;
 import org.xdi.oxauth.model.config.oxIDPAuthConf;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
@@ -29,7 +30,6 @@ import org.xdi.oxauth.service.cdi.event.*;
 import org.xdi.oxauth.service.external.ExternalAuthenticationService;
 import org.xdi.oxauth.service.status.ldap.LdapStatusTimer;
 import org.xdi.service.PythonService;
-import org.xdi.service.cdi.event.ConfigurationUpdate;
 import org.xdi.service.cdi.event.LdapConfigurationReload;
 import org.xdi.service.cdi.event.Scheduled;
 import org.xdi.service.cdi.util.CdiUtil;
@@ -117,6 +117,9 @@ public class AppInitializer {
     @Inject
     private MetricService metricService;
 
+    @Inject
+    private LdapMetricService ldapMetricService;
+
     @Inject
     private CustomScriptManager customScriptManager;
 
@@ -134,6 +137,12 @@ public class AppInitializer {
 
 	@Inject
 	private LdapStatusTimer ldapStatusTimer;
+
+	@Inject
+	private ClientOriginIndexService clientOriginIndexService;
+
+	@Inject
+	private ClientScopeIndexService clientScopeIndexService;
 	
 	@Inject
 	private QuartzSchedulerManager quartzSchedulerManager;
@@ -186,6 +195,8 @@ public class AppInitializer {
         cleanerTimer.initTimer();
         customScriptManager.initTimer(supportedCustomScriptTypes);
         keyGeneratorTimer.initTimer();
+        clientOriginIndexService.initTimer();
+        clientScopeIndexService.initTimer();
         initTimer();
 	}
 
@@ -271,7 +282,7 @@ public class AppInitializer {
 
     @Produces @ApplicationScoped @Named(LDAP_ENTRY_MANAGER_NAME)
     public LdapEntryManager getLdapEntryManager() {
-        LdapEntryManager ldapEntryManager = new LdapEntryManager(new OperationsFacade(this.connectionProvider, this.bindConnectionProvider));
+        LdapEntryManager ldapEntryManager = new InstrumentedLdapEntryManager(new OperationsFacade(this.connectionProvider, this.bindConnectionProvider), ldapMetricService);
         log.info("Created {}: {}", new Object[] { LDAP_ENTRY_MANAGER_NAME, ldapEntryManager.getLdapOperationService() });
 
         return ldapEntryManager;
@@ -573,8 +584,12 @@ public class AppInitializer {
 		return clazzObject;
 	}
 	
-	public void updateLoggingSeverity(@Observes @ConfigurationUpdate AppConfiguration appConfiguration) {
-		String loggingLevel = appConfiguration.getLoggingLevel();
+	public void updateLoggingSeverity(@Observes ConfigurationChanges changes) {
+		if (!changes.isAppConfigurationChanged("loggingLevel")) {
+			return;
+		}
+
+		String loggingLevel = changes.getAppConfiguration().getLoggingLevel();
 		if (StringHelper.isEmpty(loggingLevel)) {
 			return;
 		}
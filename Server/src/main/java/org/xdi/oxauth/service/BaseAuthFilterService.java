@@ -13,6 +13,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,8 +26,13 @@ import org.xdi.oxauth.model.configuration.BaseFilter;
 import org.xdi.util.ArrayHelper;
 import org.xdi.util.StringHelper;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.unboundid.ldap.sdk.Filter;
 import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
 
 /**
  * @author Yuriy Movchan
@@ -41,17 +47,29 @@ public abstract class BaseAuthFilterService {
 	protected Logger log;
 
     public static final Pattern PARAM_VALUE_PATTERN = Pattern.compile("([\\w]+)[\\s]*\\=[\\*\\s]*(\\{[\\s]*[\\d]+[\\s]*\\})[\\*\\s]*");
+    public static final Pattern PARAM_INDEX_PATTERN = Pattern.compile("\\{[\\s]*[\\d]+[\\s]*\\}");
+
+    private static final int MAX_ENTRY_DN_CACHE_SIZE = 10000;
 
     private boolean enabled;
     private boolean filterAttributes = true;
 
     private List<AuthenticationFilterWithParameters> filterWithParameters;
 
+    /**
+     * Found entry DN by base DN and filter. Empty string means that there is no entry
+     */
+    private Cache<String, String> entryDnCache;
+
+    private final MetricRegistry metricRegistry = new LabeledMetricRegistry();
+
     public static class AuthenticationFilterWithParameters {
 
         private BaseFilter authenticationFilter;
         private List<String> variableNames;
         private List<AuthenticationFilterService.IndexedParameter> indexedVariables;
+        private Filter compiledFilter;
+        private String metricName;
 
         public AuthenticationFilterWithParameters(BaseFilter authenticationFilter, List<String> variableNames, List<AuthenticationFilterService.IndexedParameter> indexedVariables) {
             this.authenticationFilter = authenticationFilter;
@@ -83,6 +101,25 @@ public abstract class BaseAuthFilterService {
             this.indexedVariables = indexedVariables;
         }
 
+        /**
+         * @return filter template parsed once with parameter placeholders as assertion values
+         */
+        public Filter getCompiledFilter() {
+            return compiledFilter;
+        }
+
+        public void setCompiledFilter(Filter compiledFilter) {
+            this.compiledFilter = compiledFilter;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+
+        public void setMetricName(String metricName) {
+            this.metricName = metricName;
+        }
+
         public String toString() {
             return String.format("AutheticationFilterWithParameters [authenticationFilter=%s, variableNames=%s, indexedVariables=%s]",
                     authenticationFilter, variableNames, indexedVariables);
@@ -122,19 +159,34 @@ public abstract class BaseAuthFilterService {
     }
 
     public void init(List<? extends BaseFilter> p_filterList, boolean p_enabled, boolean p_filterAttributes) {
+        init(p_filterList, p_enabled, p_filterAttributes, 0);
+    }
+
+    /**
+     * @param p_cacheLifetime lifetime in seconds of found entry DNs and not found results, 0 disables cache
+     */
+    public void init(List<? extends BaseFilter> p_filterList, boolean p_enabled, boolean p_filterAttributes, int p_cacheLifetime) {
         this.enabled = p_enabled;
         this.filterWithParameters = prepareAuthenticationFilterWithParameters(p_filterList);
         this.filterAttributes = p_filterAttributes;
+
+        if (p_cacheLifetime > 0) {
+            this.entryDnCache = CacheBuilder.newBuilder().maximumSize(MAX_ENTRY_DN_CACHE_SIZE)
+                    .expireAfterWrite(p_cacheLifetime, TimeUnit.SECONDS).build();
+        } else {
+            this.entryDnCache = null;
+        }
     }
 
-    private List<AuthenticationFilterWithParameters> prepareAuthenticationFilterWithParameters(List<? extends BaseFilter> p_filterList) {
+    public List<AuthenticationFilterWithParameters> prepareAuthenticationFilterWithParameters(List<? extends BaseFilter> p_filterList) {
         final List<AuthenticationFilterWithParameters> tmpAuthenticationFilterWithParameters = new ArrayList<AuthenticationFilterWithParameters>();
 
         if (!this.enabled || p_filterList == null) {
             return tmpAuthenticationFilterWithParameters;
         }
 
-        for (BaseFilter authenticationFilter : p_filterList) {
+        for (int i = 0; i < p_filterList.size(); i++) {
+            BaseFilter authenticationFilter = p_filterList.get(i);
             if (Boolean.TRUE.equals(authenticationFilter.getBind()) && StringHelper.isEmpty(authenticationFilter.getBindPasswordAttribute())) {
                 log.error("Skipping authentication filter:\n '{}'\n. It should contains not empty bind-password-attribute attribute. ", authenticationFilter);
                 continue;
@@ -153,6 +205,12 @@ public abstract class BaseAuthFilterService {
             }
 
             AuthenticationFilterWithParameters tmpAutheticationFilterWithParameter = new AuthenticationFilterWithParameters(authenticationFilter, variableNames, indexedParameters);
+            tmpAutheticationFilterWithParameter.setMetricName(MetricRegistry.name("filter", String.valueOf(i)));
+            try {
+                tmpAutheticationFilterWithParameter.setCompiledFilter(Filter.create(authenticationFilter.getFilter()));
+            } catch (LDAPException ex) {
+                log.error("Failed to compile authentication filter: '{}'", authenticationFilter.getFilter(), ex);
+            }
             tmpAuthenticationFilterWithParameters.add(tmpAutheticationFilterWithParameter);
 
             log.debug("Authentication filter with parameters: '{}'. ", tmpAutheticationFilterWithParameter);
@@ -215,29 +273,135 @@ public abstract class BaseAuthFilterService {
         return filter;
     }
 
-    public String loadEntryDN(LdapEntryManager p_manager, AuthenticationFilterWithParameters authenticationFilterWithParameters, Map<String, String> normalizedAttributeValues) {
-        final String filter = buildFilter(authenticationFilterWithParameters, normalizedAttributeValues);
+    /**
+     * Builds LDAP filter from compiled filter template. Attribute values are set as assertion values,
+     * so special characters in them don't change filter structure
+     */
+    public static Filter buildLdapFilter(AuthenticationFilterWithParameters authenticationFilterWithParameters, Map<String, String> p_normalizedAttributeValues) throws LDAPException {
+        Filter compiledFilter = authenticationFilterWithParameters.getCompiledFilter();
+        if (compiledFilter == null) {
+            return Filter.create(buildFilter(authenticationFilterWithParameters, p_normalizedAttributeValues));
+        }
+
+        Map<String, String> paramValues = new HashMap<String, String>();
+        for (IndexedParameter indexedParameter : authenticationFilterWithParameters.getIndexedVariables()) {
+            String attributeValue = p_normalizedAttributeValues.get(indexedParameter.getParamName());
+            if (attributeValue != null) {
+                paramValues.put(indexedParameter.getParamIndex(), attributeValue);
+            }
+        }
+
+        return setParameters(compiledFilter, paramValues);
+    }
 
+    private static Filter setParameters(Filter filter, Map<String, String> paramValues) throws LDAPException {
+        switch (filter.getFilterType()) {
+            case Filter.FILTER_TYPE_AND:
+            case Filter.FILTER_TYPE_OR:
+                Filter[] components = filter.getComponents();
+                Filter[] resultComponents = new Filter[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    resultComponents[i] = setParameters(components[i], paramValues);
+                }
+
+                if (filter.getFilterType() == Filter.FILTER_TYPE_AND) {
+                    return Filter.createANDFilter(resultComponents);
+                }
+                return Filter.createORFilter(resultComponents);
+            case Filter.FILTER_TYPE_NOT:
+                return Filter.createNOTFilter(setParameters(filter.getNOTComponent(), paramValues));
+            case Filter.FILTER_TYPE_EQUALITY:
+                return Filter.createEqualityFilter(filter.getAttributeName(), setParameters(filter.getAssertionValue(), paramValues));
+            case Filter.FILTER_TYPE_GREATER_OR_EQUAL:
+                return Filter.createGreaterOrEqualFilter(filter.getAttributeName(), setParameters(filter.getAssertionValue(), paramValues));
+            case Filter.FILTER_TYPE_LESS_OR_EQUAL:
+                return Filter.createLessOrEqualFilter(filter.getAttributeName(), setParameters(filter.getAssertionValue(), paramValues));
+            case Filter.FILTER_TYPE_APPROXIMATE_MATCH:
+                return Filter.createApproximateMatchFilter(filter.getAttributeName(), setParameters(filter.getAssertionValue(), paramValues));
+            case Filter.FILTER_TYPE_SUBSTRING:
+                List<String> resultSubAny = new ArrayList<String>();
+                for (String subAny : filter.getSubAnyStrings()) {
+                    String resultSubAnyValue = setParameters(subAny, paramValues);
+                    if (StringHelper.isNotEmpty(resultSubAnyValue)) {
+                        resultSubAny.add(resultSubAnyValue);
+                    }
+                }
+                String subInitial = setParameters(filter.getSubInitialString(), paramValues);
+                String subFinal = setParameters(filter.getSubFinalString(), paramValues);
+                if (StringHelper.isEmpty(subInitial) && StringHelper.isEmpty(subFinal) && resultSubAny.isEmpty()) {
+                    // Empty value turns substring filter into presence filter
+                    throw new LDAPException(ResultCode.FILTER_ERROR, String.format("Empty substring filter for attribute '%s'", filter.getAttributeName()));
+                }
+
+                return Filter.createSubstringFilter(filter.getAttributeName(), StringHelper.isEmpty(subInitial) ? null : subInitial,
+                        resultSubAny.toArray(new String[resultSubAny.size()]), StringHelper.isEmpty(subFinal) ? null : subFinal);
+            case Filter.FILTER_TYPE_EXTENSIBLE_MATCH:
+                return Filter.createExtensibleMatchFilter(filter.getAttributeName(), filter.getMatchingRuleID(), filter.getDNAttributes(),
+                        setParameters(filter.getAssertionValue(), paramValues));
+            default:
+                return filter;
+        }
+    }
+
+    private static String setParameters(String value, Map<String, String> paramValues) {
+        if ((value == null) || (value.indexOf('{') == -1)) {
+            return value;
+        }
+
+        Matcher matcher = PARAM_INDEX_PATTERN.matcher(value);
+        StringBuffer result = new StringBuffer(value.length());
+        while (matcher.find()) {
+            String paramValue = paramValues.get(matcher.group());
+            matcher.appendReplacement(result, Matcher.quoteReplacement(paramValue == null ? matcher.group() : paramValue));
+        }
+        matcher.appendTail(result);
+
+        return result.toString();
+    }
+
+    public String loadEntryDN(LdapEntryManager p_manager, AuthenticationFilterWithParameters authenticationFilterWithParameters, Map<String, String> normalizedAttributeValues) {
         Filter ldapFilter;
         try {
-            ldapFilter = Filter.create(filter);
+            ldapFilter = buildLdapFilter(authenticationFilterWithParameters, normalizedAttributeValues);
         } catch (LDAPException ex) {
-            log.error("Failed to create Ldap filter: '{}'", filter, ex);
+            log.error("Failed to create Ldap filter: '{}'", authenticationFilterWithParameters.getAuthenticationFilter().getFilter(), ex);
             return null;
         }
 
-        List<LdapDummyEntry> foundEntries = p_manager.findEntries(authenticationFilterWithParameters.getAuthenticationFilter().getBaseDn(), LdapDummyEntry.class, new String[0], ldapFilter);
+        final String baseDn = authenticationFilterWithParameters.getAuthenticationFilter().getBaseDn();
+        final String metricName = authenticationFilterWithParameters.getMetricName();
 
+        String cacheKey = null;
+        if (entryDnCache != null) {
+            cacheKey = baseDn + "|" + ldapFilter.toString();
+            String cachedDn = entryDnCache.getIfPresent(cacheKey);
+            if (cachedDn != null) {
+                metricRegistry.meter(MetricRegistry.name(metricName, "cache-hits")).mark();
+                return StringHelper.isEmpty(cachedDn) ? null : cachedDn;
+            }
+        }
+
+        List<LdapDummyEntry> foundEntries;
+        Timer.Context timerContext = metricRegistry.timer(MetricRegistry.name(metricName, "searches")).time();
+        try {
+            foundEntries = p_manager.findEntries(baseDn, LdapDummyEntry.class, new String[0], ldapFilter);
+        } finally {
+            timerContext.stop();
+        }
+
+        String resultDn = null;
         if (foundEntries.size() > 1) {
             log.error("Found more than one entry by filter: '{}'. Entries:\n", ldapFilter, foundEntries);
-            return null;
+        } else if (foundEntries.size() == 1) {
+            resultDn = foundEntries.get(0).getDn();
+            metricRegistry.meter(MetricRegistry.name(metricName, "found")).mark();
         }
 
-        if (!(foundEntries.size() == 1)) {
-            return null;
+        if (cacheKey != null) {
+            entryDnCache.put(cacheKey, resultDn == null ? "" : resultDn);
         }
 
-        return foundEntries.get(0).getDn();
+        return resultDn;
     }
 
     public String processAuthenticationFilters(Map<?, ?> attributeValues) {
@@ -265,6 +429,13 @@ public abstract class BaseAuthFilterService {
         return filterWithParameters;
     }
 
+    /**
+     * @return per filter search timers and found/cache hit meters. Filters are named by position in configuration
+     */
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
     public boolean isEnabled() {
         return enabled;
     }
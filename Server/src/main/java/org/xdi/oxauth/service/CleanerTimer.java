@@ -124,7 +124,9 @@ public class CleanerTimer {
             this.umaPermissionService.cleanup(now);
             this.umaPctService.cleanup(now);
 
-            processU2fRequests();
+            if (u2fRequestService.isRequestsInLdap()) {
+                processU2fRequests();
+            }
             processU2fDeviceRegistrations();
 
             processMetricEntries();
@@ -179,7 +181,7 @@ public class CleanerTimer {
         log.debug("Start U2F request clean up");
 
         Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
-        calendar.add(Calendar.SECOND, -90);
+        calendar.add(Calendar.SECOND, -appConfiguration.getU2fRequestLifetime());
         final Date expirationDate = calendar.getTime();
 
         BatchOperation<RequestMessageLdap> requestMessageLdapBatchService = new BatchOperation<RequestMessageLdap>(ldapEntryManager) {
@@ -0,0 +1,170 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.config.ConfigurationChanges;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.ldap.ClientAuthorizations;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Bounded local cache of user consents keyed by user inum and client id. Absent consent is cached too,
+ * so repeated authorization of the same user doesn't search LDAP. Writes of one user and client are
+ * serialized by lock to merge concurrent consents into one LDAP update.
+ * <p>
+ * Consents and branches can be added or removed by other servers and by oxTrust, so absent consents
+ * and existing branches are kept at most {@link #SHORT_LIFETIME} seconds. Stored consents are kept for
+ * clientAuthorizationsCacheLifetime and are invalidated when this server writes them or removes client
+ */
+@ApplicationScoped
+@Named
+public class ClientAuthorizationsCache {
+
+    private static final int LOCK_STRIPES = 64;
+
+    public static final int SHORT_LIFETIME = 10;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    private volatile Cache<String, ClientAuthorizations> clientAuthorizations;
+
+    private volatile Cache<String, Boolean> absentClientAuthorizations;
+
+    private volatile Cache<String, Boolean> branches;
+
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+
+    private int cacheSize;
+
+    private int cacheLifetime;
+
+    @PostConstruct
+    public void init() {
+        createCaches(appConfiguration);
+    }
+
+    public void updateConfiguration(@Observes ConfigurationChanges changes) {
+        if (!changes.isAppConfigurationChanged("clientAuthorizationsCacheSize", "clientAuthorizationsCacheLifetime")) {
+            return;
+        }
+
+        AppConfiguration appConfiguration = changes.getAppConfiguration();
+        if ((cacheSize != appConfiguration.getClientAuthorizationsCacheSize())
+                || (cacheLifetime != appConfiguration.getClientAuthorizationsCacheLifetime())) {
+            createCaches(appConfiguration);
+        }
+    }
+
+    private synchronized void createCaches(AppConfiguration appConfiguration) {
+        this.cacheSize = appConfiguration.getClientAuthorizationsCacheSize();
+        this.cacheLifetime = appConfiguration.getClientAuthorizationsCacheLifetime();
+
+        final int shortLifetime = Math.min(cacheLifetime, SHORT_LIFETIME);
+
+        this.clientAuthorizations = CacheBuilder.newBuilder().maximumSize(cacheSize)
+                .expireAfterWrite(cacheLifetime, TimeUnit.SECONDS).build();
+        this.absentClientAuthorizations = CacheBuilder.newBuilder().maximumSize(cacheSize)
+                .expireAfterWrite(shortLifetime, TimeUnit.SECONDS).build();
+        this.branches = CacheBuilder.newBuilder().maximumSize(cacheSize)
+                .expireAfterWrite(shortLifetime, TimeUnit.SECONDS).build();
+
+        log.debug("Client authorizations cache size: '{}', lifetime: '{}'", cacheSize, cacheLifetime);
+    }
+
+    /**
+     * Returns null if there is no cached value, otherwise cached consent or absent value
+     */
+    public Optional<ClientAuthorizations> get(String userInum, String clientId) {
+        final String key = getKey(userInum, clientId);
+
+        ClientAuthorizations entry = clientAuthorizations.getIfPresent(key);
+        if (entry != null) {
+            return Optional.of(entry);
+        }
+        if (absentClientAuthorizations.getIfPresent(key) != null) {
+            return Optional.absent();
+        }
+
+        return null;
+    }
+
+    public void put(String userInum, String clientId, ClientAuthorizations entry) {
+        final String key = getKey(userInum, clientId);
+        if (entry == null) {
+            clientAuthorizations.invalidate(key);
+            absentClientAuthorizations.put(key, Boolean.TRUE);
+        } else {
+            absentClientAuthorizations.invalidate(key);
+            clientAuthorizations.put(key, entry);
+        }
+    }
+
+    public void remove(String userInum, String clientId) {
+        final String key = getKey(userInum, clientId);
+        clientAuthorizations.invalidate(key);
+        absentClientAuthorizations.invalidate(key);
+    }
+
+    /**
+     * Removes consents of all users for client
+     */
+    public void removeClient(String clientId) {
+        final String keySuffix = getKey("", clientId);
+        removeKeys(clientAuthorizations, keySuffix);
+        removeKeys(absentClientAuthorizations, keySuffix);
+    }
+
+    private void removeKeys(Cache<String, ?> cache, String keySuffix) {
+        for (Iterator<String> it = cache.asMap().keySet().iterator(); it.hasNext();) {
+            if (it.next().endsWith(keySuffix)) {
+                it.remove();
+            }
+        }
+    }
+
+    public Lock getLock(String userInum, String clientId) {
+        return locks.get(getKey(userInum, clientId));
+    }
+
+    public boolean containsBranch(String userInum) {
+        return branches.getIfPresent(userInum) != null;
+    }
+
+    public void putBranch(String userInum) {
+        branches.put(userInum, Boolean.TRUE);
+    }
+
+    public void clear() {
+        clientAuthorizations.invalidateAll();
+        absentClientAuthorizations.invalidateAll();
+        branches.invalidateAll();
+    }
+
+    private String getKey(String userInum, String clientId) {
+        return userInum + "|" + clientId;
+    }
+
+}
@@ -11,6 +11,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -22,6 +23,7 @@ import org.xdi.ldap.model.SimpleBranch;
 import org.xdi.oxauth.model.ldap.ClientAuthorizations;
 import org.xdi.util.StringHelper;
 
+import com.google.common.base.Optional;
 import com.unboundid.ldap.sdk.Filter;
 
 /**
@@ -41,6 +43,9 @@ public class ClientAuthorizationsService {
     @Inject
     private UserService userService;
 
+    @Inject
+    private ClientAuthorizationsCache clientAuthorizationsCache;
+
     public void addBranch(final String userInum) {
         SimpleBranch branch = new SimpleBranch();
         branch.setOrganizationalUnitName("clientAuthorizations");
@@ -54,13 +59,30 @@ public class ClientAuthorizationsService {
     }
 
     public void prepareBranch(final String userInum) {
+        if (clientAuthorizationsCache.containsBranch(userInum)) {
+            return;
+        }
+
         // Create client authorizations branch if needed
         if (!containsBranch(userInum)) {
             addBranch(userInum);
         }
+        clientAuthorizationsCache.putBranch(userInum);
     }
 
     public ClientAuthorizations findClientAuthorizations(String userInum, String clientId) {
+        Optional<ClientAuthorizations> cached = clientAuthorizationsCache.get(userInum, clientId);
+        if (cached != null) {
+            return cached.orNull();
+        }
+
+        ClientAuthorizations clientAuthorizations = loadClientAuthorizations(userInum, clientId);
+        clientAuthorizationsCache.put(userInum, clientId, clientAuthorizations);
+
+        return clientAuthorizations;
+    }
+
+    private ClientAuthorizations loadClientAuthorizations(String userInum, String clientId) {
         prepareBranch(userInum);
 
         String baseDn = getBaseDnForClientAuthorizations(userInum);
@@ -82,27 +104,49 @@ public class ClientAuthorizationsService {
     }
 
     public void add(String userInum, String clientId, Set<String> scopes) {
-        prepareBranch(userInum);
-
-        ClientAuthorizations clientAuthorizations = findClientAuthorizations(userInum, clientId);
+        // Repeated consent with the same or smaller scopes doesn't change entry
+        if (containsAll(findClientAuthorizations(userInum, clientId), scopes)) {
+            return;
+        }
 
-        if (clientAuthorizations == null) {
-            clientAuthorizations = new ClientAuthorizations();
-            clientAuthorizations.setId(UUID.randomUUID().toString());
-            clientAuthorizations.setClientId(clientId);
-            clientAuthorizations.setScopes(scopes.toArray(new String[scopes.size()]));
-            clientAuthorizations.setDn(getBaseDnForClientAuthorizations(clientAuthorizations.getId(), userInum));
+        Lock lock = clientAuthorizationsCache.getLock(userInum, clientId);
+        lock.lock();
+        try {
+            // Entry can be added by other server, reload it before write
+            ClientAuthorizations clientAuthorizations = loadClientAuthorizations(userInum, clientId);
+
+            if (clientAuthorizations == null) {
+                clientAuthorizations = new ClientAuthorizations();
+                clientAuthorizations.setId(UUID.randomUUID().toString());
+                clientAuthorizations.setClientId(clientId);
+                clientAuthorizations.setScopes(scopes.toArray(new String[scopes.size()]));
+                clientAuthorizations.setDn(getBaseDnForClientAuthorizations(clientAuthorizations.getId(), userInum));
+
+                ldapEntryManager.persist(clientAuthorizations);
+            } else if (!containsAll(clientAuthorizations, scopes)) {
+                Set<String> set = new HashSet<String>(scopes);
+                if (clientAuthorizations.getScopes() != null) {
+                    set.addAll(Arrays.asList(clientAuthorizations.getScopes()));
+                }
+                clientAuthorizations.setScopes(set.toArray(new String[set.size()]));
 
-            ldapEntryManager.persist(clientAuthorizations);
-        } else if (clientAuthorizations.getScopes() != null) {
-            Set<String> set = new HashSet<String>(scopes);
-            set.addAll(Arrays.asList(clientAuthorizations.getScopes()));
-            clientAuthorizations.setScopes(set.toArray(new String[set.size()]));
+                ldapEntryManager.merge(clientAuthorizations);
+            }
 
-            ldapEntryManager.merge(clientAuthorizations);
+            clientAuthorizationsCache.put(userInum, clientId, clientAuthorizations);
+        } catch (RuntimeException ex) {
+            clientAuthorizationsCache.remove(userInum, clientId);
+            throw ex;
+        } finally {
+            lock.unlock();
         }
     }
 
+    private boolean containsAll(ClientAuthorizations clientAuthorizations, Set<String> scopes) {
+        return (clientAuthorizations != null) && (clientAuthorizations.getScopes() != null)
+                && Arrays.asList(clientAuthorizations.getScopes()).containsAll(scopes);
+    }
+
     public String getBaseDnForClientAuthorizations(String oxId, String userInum) {
         String baseDn = getBaseDnForClientAuthorizations(userInum);
         if (StringHelper.isEmpty(oxId)) {
@@ -0,0 +1,259 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.ejb.DependsOn;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.xdi.oxauth.filter.CorsOriginMatcher;
+import org.xdi.oxauth.model.config.ConfigurationChanges;
+import org.xdi.oxauth.model.configuration.CorsConfigurationFilter;
+import org.xdi.oxauth.model.registration.Client;
+import org.xdi.oxauth.service.cdi.event.ClientOriginIndexEvent;
+import org.xdi.service.cdi.async.Asynchronous;
+import org.xdi.service.cdi.event.Scheduled;
+import org.xdi.service.timer.event.TimerEvent;
+import org.xdi.service.timer.schedule.TimerSchedule;
+
+/**
+ * Index of origins of registered client redirect URIs used by CORS filter. Index is maintained only if
+ * some CORS filter allows client origins. It's updated when client is added, updated or removed by oxAuth
+ * and rebuilt periodically to pick up changes made in LDAP directly
+ */
+@ApplicationScoped
+@DependsOn("appInitializer")
+@Named
+public class ClientOriginIndexService {
+
+    private final static int DEFAULT_INTERVAL = 60; // 1 minute
+    private final static long REBUILD_INTERVAL = 10 * 60 * 1000L; // 10 minutes
+
+    private static final String[] CLIENT_ATTRIBUTES = new String[] { "inum", "oxAuthRedirectURI" };
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private Event<TimerEvent> timerEvent;
+
+    @Inject
+    private ClientService clientService;
+
+    private volatile boolean enabled;
+
+    private volatile OriginIndex index;
+
+    private AtomicBoolean isActive;
+
+    public void initTimer() {
+        log.debug("Initializing Client Origin Index Timer");
+        this.isActive = new AtomicBoolean(false);
+
+        timerEvent.fire(new TimerEvent(new TimerSchedule(DEFAULT_INTERVAL, DEFAULT_INTERVAL), new ClientOriginIndexEvent(),
+                Scheduled.Literal.INSTANCE));
+    }
+
+    public void updateConfiguration(@Observes ConfigurationChanges changes) {
+        if (!changes.isAppConfigurationChanged("corsConfigurationFilters")) {
+            return;
+        }
+
+        boolean enabled = false;
+        List<CorsConfigurationFilter> corsConfigurationFilters = changes.getAppConfiguration().getCorsConfigurationFilters();
+        if (corsConfigurationFilters != null) {
+            for (CorsConfigurationFilter corsConfigurationFilter : corsConfigurationFilters) {
+                enabled |= corsConfigurationFilter.getCorsAllowClientOrigins();
+            }
+        }
+
+        if (this.enabled != enabled) {
+            log.info("Client origin index is {}", enabled ? "enabled" : "disabled");
+        }
+
+        this.enabled = enabled;
+        if (!enabled) {
+            this.index = null;
+        }
+    }
+
+    @Asynchronous
+    public void process(@Observes @Scheduled ClientOriginIndexEvent clientOriginIndexEvent) {
+        if (!enabled) {
+            return;
+        }
+
+        OriginIndex currentIndex = this.index;
+        if ((currentIndex != null) && (System.currentTimeMillis() - currentIndex.getCreated() < REBUILD_INTERVAL)) {
+            return;
+        }
+
+        if (!this.isActive.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            rebuild();
+        } catch (Exception ex) {
+            log.error("Failed to build client origin index", ex);
+        } finally {
+            this.isActive.set(false);
+        }
+    }
+
+    /**
+     * @return true if origin is origin of redirect URI of some registered client
+     */
+    public boolean isClientOrigin(String origin) {
+        OriginIndex currentIndex = this.index;
+        if ((currentIndex == null) || (origin == null)) {
+            return false;
+        }
+
+        return currentIndex.contains(CorsOriginMatcher.normalize(origin));
+    }
+
+    /**
+     * @return true if origin is origin of redirect URI of specified client
+     */
+    public boolean isClientOrigin(String origin, String clientId) {
+        OriginIndex currentIndex = this.index;
+        if ((currentIndex == null) || (origin == null) || (clientId == null)) {
+            return false;
+        }
+
+        return currentIndex.contains(clientId, CorsOriginMatcher.normalize(origin));
+    }
+
+    public void update(Client client) {
+        OriginIndex currentIndex = this.index;
+        if ((currentIndex != null) && (client.getClientId() != null)) {
+            currentIndex.put(client.getClientId(), getOrigins(client.getRedirectUris()));
+        }
+    }
+
+    public void remove(Client client) {
+        OriginIndex currentIndex = this.index;
+        if ((currentIndex != null) && (client.getClientId() != null)) {
+            currentIndex.remove(client.getClientId());
+        }
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+
+        OriginIndex newIndex = new OriginIndex();
+        List<Client> clients = clientService.getAllClients(CLIENT_ATTRIBUTES);
+        for (Client client : clients) {
+            newIndex.put(client.getClientId(), getOrigins(client.getRedirectUris()));
+        }
+
+        // Configuration might be changed during rebuild
+        if (enabled) {
+            this.index = newIndex;
+        }
+
+        log.debug("Client origin index built from {} clients in {} ms", clients.size(), System.currentTimeMillis() - start);
+    }
+
+    private static Set<String> getOrigins(String[] redirectUris) {
+        if (redirectUris == null) {
+            return Collections.emptySet();
+        }
+
+        Set<String> origins = new HashSet<String>();
+        for (String redirectUri : redirectUris) {
+            try {
+                URI uri = new URI(redirectUri);
+                if ((uri.getScheme() == null) || (uri.getHost() == null)) {
+                    continue;
+                }
+
+                String origin = uri.getScheme() + "://" + uri.getHost();
+                if (uri.getPort() != -1) {
+                    origin += ":" + uri.getPort();
+                }
+                origins.add(CorsOriginMatcher.normalize(origin));
+            } catch (Exception ex) {
+                // Invalid redirect URI can't be origin of CORS request
+            }
+        }
+
+        return origins;
+    }
+
+    private static class OriginIndex {
+
+        private final long created = System.currentTimeMillis();
+
+        private final ConcurrentMap<String, Set<String>> clientOrigins = new ConcurrentHashMap<String, Set<String>>();
+        private final ConcurrentMap<String, Set<String>> originClients = new ConcurrentHashMap<String, Set<String>>();
+
+        public long getCreated() {
+            return created;
+        }
+
+        public boolean contains(String origin) {
+            return originClients.containsKey(origin);
+        }
+
+        public boolean contains(String clientId, String origin) {
+            Set<String> origins = clientOrigins.get(clientId);
+
+            return (origins != null) && origins.contains(origin);
+        }
+
+        public synchronized void put(String clientId, Set<String> origins) {
+            remove(clientId);
+            if (origins.isEmpty()) {
+                return;
+            }
+
+            clientOrigins.put(clientId, origins);
+            for (String origin : origins) {
+                Set<String> clientIds = originClients.get(origin);
+                if (clientIds == null) {
+                    clientIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                    originClients.put(origin, clientIds);
+                }
+                clientIds.add(clientId);
+            }
+        }
+
+        public synchronized void remove(String clientId) {
+            Set<String> origins = clientOrigins.remove(clientId);
+            if (origins == null) {
+                return;
+            }
+
+            for (String origin : origins) {
+                Set<String> clientIds = originClients.get(origin);
+                if (clientIds != null) {
+                    clientIds.remove(clientId);
+                    if (clientIds.isEmpty()) {
+                        originClients.remove(origin);
+                    }
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.ejb.DependsOn;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.common.Scope;
+import org.xdi.oxauth.model.registration.Client;
+import org.xdi.oxauth.service.cdi.event.ClientScopeIndexEvent;
+import org.xdi.service.cdi.async.Asynchronous;
+import org.xdi.service.cdi.event.Scheduled;
+import org.xdi.service.timer.event.TimerEvent;
+import org.xdi.service.timer.schedule.TimerSchedule;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Keeps per client set of allowed scope names built from client scope DNs. Index is rebuilt when
+ * client scope DNs change, when client is updated or removed and after index lifetime expires.
+ * Scope names are checked periodically and all indexes are dropped if some scope was added, renamed
+ * or removed. Index isn't cached if some scope lookup failed
+ */
+@ApplicationScoped
+@DependsOn("appInitializer")
+@Named
+public class ClientScopeIndexService {
+
+    private final static int DEFAULT_INTERVAL = 60; // 1 minute
+
+    private static final int INDEX_LIFETIME = 5; // minutes
+    private static final int MAX_INDEX_SIZE = 10000;
+
+    private static final String[] SCOPE_ATTRIBUTES = new String[] { "inum", "displayName" };
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private Event<TimerEvent> timerEvent;
+
+    @Inject
+    private ScopeService scopeService;
+
+    private final Cache<String, ClientScopeIndex> indexes = CacheBuilder.newBuilder().maximumSize(MAX_INDEX_SIZE)
+            .expireAfterWrite(INDEX_LIFETIME, TimeUnit.MINUTES).build();
+
+    private volatile Map<String, String> scopeNames;
+
+    private AtomicBoolean isActive;
+
+    public void initTimer() {
+        log.debug("Initializing Client Scope Index Timer");
+        this.isActive = new AtomicBoolean(false);
+
+        timerEvent.fire(new TimerEvent(new TimerSchedule(DEFAULT_INTERVAL, DEFAULT_INTERVAL), new ClientScopeIndexEvent(),
+                Scheduled.Literal.INSTANCE));
+    }
+
+    @Asynchronous
+    public void process(@Observes @Scheduled ClientScopeIndexEvent clientScopeIndexEvent) {
+        if (!this.isActive.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            checkScopes();
+        } catch (Exception ex) {
+            log.error("Failed to check scopes for client scope index", ex);
+        } finally {
+            this.isActive.set(false);
+        }
+    }
+
+    /**
+     * @return allowed scope names of client, result should not be modified
+     */
+    public Set<String> getAllowedScopeNames(Client client) {
+        String[] scopeDns = client.getScopes();
+        if ((scopeDns == null) || (scopeDns.length == 0)) {
+            return Collections.emptySet();
+        }
+
+        String key = client.getDn();
+        if (key == null) {
+            key = client.getClientId();
+        }
+
+        ClientScopeIndex index = indexes.getIfPresent(key);
+        if ((index == null) || !index.isVersionOf(scopeDns)) {
+            index = buildIndex(scopeDns);
+            if (index.isComplete()) {
+                indexes.put(key, index);
+            } else {
+                indexes.invalidate(key);
+            }
+        }
+
+        return index.getScopeNames();
+    }
+
+    public void invalidate(Client client) {
+        if (client.getDn() != null) {
+            indexes.invalidate(client.getDn());
+        }
+        if (client.getClientId() != null) {
+            indexes.invalidate(client.getClientId());
+        }
+    }
+
+    public void invalidateAll() {
+        indexes.invalidateAll();
+    }
+
+    private void checkScopes() {
+        List<Scope> scopes = scopeService.getAllScopesList(SCOPE_ATTRIBUTES);
+
+        Map<String, String> newScopeNames = new HashMap<String, String>(scopes.size() * 2);
+        for (Scope scope : scopes) {
+            newScopeNames.put(scope.getDn(), scope.getDisplayName());
+        }
+
+        Map<String, String> currentScopeNames = this.scopeNames;
+        if ((currentScopeNames != null) && !currentScopeNames.equals(newScopeNames)) {
+            log.debug("Scopes were changed, invalidating client scope indexes");
+            invalidateAll();
+        }
+
+        this.scopeNames = newScopeNames;
+    }
+
+    private ClientScopeIndex buildIndex(String[] scopeDns) {
+        boolean complete = true;
+        Set<String> scopeNames = new HashSet<String>(scopeDns.length * 2);
+        for (String scopeDn : scopeDns) {
+            Scope scope = scopeService.getScopeByDnSilently(scopeDn);
+            if (scope == null) {
+                log.debug("Failed to find scope by DN: '{}'", scopeDn);
+                complete = false;
+                continue;
+            }
+
+            if (scope.getDisplayName() != null) {
+                scopeNames.add(scope.getDisplayName());
+            }
+        }
+
+        return new ClientScopeIndex(scopeDns.clone(), Collections.unmodifiableSet(scopeNames), complete);
+    }
+
+    private static class ClientScopeIndex {
+
+        private final String[] scopeDns;
+        private final int version;
+        private final Set<String> scopeNames;
+        private final boolean complete;
+
+        public ClientScopeIndex(String[] scopeDns, Set<String> scopeNames, boolean complete) {
+            this.scopeDns = scopeDns;
+            this.version = Arrays.hashCode(scopeDns);
+            this.scopeNames = scopeNames;
+            this.complete = complete;
+        }
+
+        public boolean isVersionOf(String[] clientScopeDns) {
+            return (version == Arrays.hashCode(clientScopeDns)) && Arrays.equals(scopeDns, clientScopeDns);
+        }
+
+        public Set<String> getScopeNames() {
+            return scopeNames;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.xdi.oxauth.model.registration.Client;
+import org.xdi.oxauth.model.util.Util;
+import org.xdi.util.security.StringEncrypter.EncryptionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Keeps HMAC digests of decrypted client secrets. Digest key is random and lives only in memory of this
+ * instance. Entry is rebuilt when encrypted client secret changes
+ */
+@ApplicationScoped
+@Named
+public class ClientSecretDigestCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int DIGEST_LIFETIME = 60; // minutes
+    private static final int MAX_DIGEST_CACHE_SIZE = 10000;
+
+    @Inject
+    private EncryptionService encryptionService;
+
+    private final SecretKeySpec digestKey;
+
+    private final ThreadLocal<Mac> macPool = new ThreadLocal<Mac>();
+
+    private final Cache<String, SecretDigest> digests = CacheBuilder.newBuilder().maximumSize(MAX_DIGEST_CACHE_SIZE)
+            .expireAfterAccess(DIGEST_LIFETIME, TimeUnit.MINUTES).build();
+
+    public ClientSecretDigestCache() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+
+        this.digestKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    /**
+     * Compares password with client secret in constant time
+     */
+    public boolean verify(Client client, String password) throws EncryptionException {
+        String encryptedSecret = client.getClientSecret();
+        if ((client.getClientId() == null) || (encryptedSecret == null) || (password == null)) {
+            return false;
+        }
+
+        SecretDigest secretDigest = digests.getIfPresent(client.getClientId());
+        if ((secretDigest == null) || !secretDigest.isDigestOf(encryptedSecret)) {
+            String secret = encryptionService.decrypt(encryptedSecret);
+            if (secret == null) {
+                return false;
+            }
+
+            secretDigest = new SecretDigest(encryptedSecret, digest(secret));
+            digests.put(client.getClientId(), secretDigest);
+        }
+
+        return MessageDigest.isEqual(secretDigest.getDigest(), digest(password));
+    }
+
+    public void invalidate(String clientId) {
+        if (clientId != null) {
+            digests.invalidate(clientId);
+        }
+    }
+
+    private byte[] digest(String value) {
+        Mac mac = macPool.get();
+        if (mac == null) {
+            try {
+                mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(digestKey);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("Failed to initialize client secret digest", ex);
+            }
+            macPool.set(mac);
+        }
+
+        return mac.doFinal(value.getBytes(Util.UTF8_CHARSET));
+    }
+
+    private static class SecretDigest {
+
+        private final String encryptedSecret;
+        private final byte[] digest;
+
+        public SecretDigest(String encryptedSecret, byte[] digest) {
+            this.encryptedSecret = encryptedSecret;
+            this.digest = digest;
+        }
+
+        public boolean isDigestOf(String clientEncryptedSecret) {
+            return encryptedSecret.equals(clientEncryptedSecret);
+        }
+
+        public byte[] getDigest() {
+            return digest;
+        }
+
+    }
+
+}
@@ -7,7 +7,10 @@
 package org.xdi.oxauth.service;
 
 import com.google.common.collect.Sets;
+import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.RDN;
 import org.codehaus.jettison.json.JSONArray;
 import org.gluu.site.ldap.persistence.BatchOperation;
 import org.gluu.site.ldap.persistence.LdapEntryManager;
@@ -48,6 +51,8 @@ public class ClientService {
     private static final String CACHE_CLIENT_NAME = "ClientCache";
     private static final String CACHE_CLIENT_FILTER_NAME = "ClientFilterCache";
 
+    private static final int MAX_CLIENTS_IN_FILTER = 100;
+
     @Inject
     private Logger log;
 
@@ -60,8 +65,20 @@ public class ClientService {
     @Inject
     private ScopeService scopeService;
 
+    @Inject
+    private ClientScopeIndexService clientScopeIndexService;
+
     @Inject
     private ClientFilterService clientFilterService;
+
+    @Inject
+    private ClientSecretDigestCache clientSecretDigestCache;
+
+    @Inject
+    private ClientAuthorizationsCache clientAuthorizationsCache;
+
+    @Inject
+    private ClientOriginIndexService clientOriginIndexService;
     
     @Inject
     private EncryptionService encryptionService;
@@ -82,11 +99,13 @@ public class ClientService {
 
     public void persist(Client client) {
         ldapEntryManager.persist(client);
+        clientOriginIndexService.update(client);
     }
 
     public void merge(Client client) {
         ldapEntryManager.merge(client);
         removeFromCache(client);
+        clientOriginIndexService.update(client);
     }
 
     /**
@@ -102,9 +121,7 @@ public class ClientService {
 
         try {
             Client client = getClient(clientId);
-            String decryptedClientSecret = decryptSecret(client.getClientSecret());
-            authenticated = client != null && decryptedClientSecret != null
-                    && decryptedClientSecret.equals(password);
+            authenticated = client != null && clientSecretDigestCache.verify(client, password);
         } catch (StringEncrypter.EncryptionException e) {
             log.error(e.getMessage(), e);
         }
@@ -113,21 +130,20 @@ public class ClientService {
     }
 
     public Set<Client> getClient(Collection<String> clientIds, boolean silent) {
-        Set<Client> set = Sets.newHashSet();
+        Set<Client> set = Sets.newLinkedHashSet();
 
         if (clientIds == null) {
             return set;
         }
 
+        List<String> dns = new ArrayList<String>(clientIds.size());
         for (String clientId : clientIds) {
-            try {
-                set.add(getClient(clientId));
-            } catch (RuntimeException e) {
-                if (!silent) {
-                    throw e;
-                }
+            if (StringHelper.isNotEmpty(clientId)) {
+                dns.add(buildClientDn(clientId));
             }
         }
+
+        set.addAll(getClientsByDnList(dns, silent));
         return set;
     }
 
@@ -163,19 +179,109 @@ public class ClientService {
     public Set<Client> getClientsByDns(Collection<String> dnList, boolean silently) {
         Preconditions.checkNotNull(dnList);
 
-        final Set<Client> result = Sets.newHashSet();
-        for (String clientDn : dnList) {
+        return Sets.newLinkedHashSet(getClientsByDnList(dnList, silently));
+    }
+
+    /**
+     * Returns clients in order of DNs, clients which don't exist are skipped. Clients which are not in cache
+     * are loaded with one search per MAX_CLIENTS_IN_FILTER clients and put into cache.
+     *
+     * @param dnList dn list of clients
+     * @param silently if false search errors are rethrown
+     * @return found clients
+     */
+    public List<Client> getClientsByDnList(Collection<String> dnList, boolean silently) {
+        final Map<String, Client> clients = new HashMap<String, Client>();
+        final Map<String, String> missedInums = new LinkedHashMap<String, String>(); // inum -> dn key
+        final List<String> missedDns = new ArrayList<String>();
+
+        for (String dn : dnList) {
+            final String key = getClientDnCacheKey(dn);
+            if (clients.containsKey(key)) {
+                continue;
+            }
+
+            Client client = fromCache(dn);
+            if (client != null) {
+                clients.put(key, client);
+                continue;
+            }
+
+            final String inum = getClientInum(dn);
+            if (inum == null) {
+                missedDns.add(dn);
+            } else {
+                missedInums.put(StringHelper.toLowerCase(inum), key);
+            }
+        }
+
+        final List<String> inums = new ArrayList<String>(missedInums.keySet());
+        for (int i = 0; i < inums.size(); i += MAX_CLIENTS_IN_FILTER) {
+            final List<String> batch = inums.subList(i, Math.min(i + MAX_CLIENTS_IN_FILTER, inums.size()));
             try {
-                result.add(getClientByDn(clientDn));
+                for (Client client : findClientsByInums(batch)) {
+                    final String key = missedInums.get(StringHelper.toLowerCase(client.getClientId()));
+                    if (key != null) {
+                        clients.put(key, client);
+                        putInCache(client);
+                    }
+                }
             } catch (RuntimeException e) {
                 if (!silently) {
                     throw e;
                 }
+                log.debug(e.getMessage());
+            }
+        }
+
+        // Clients outside of clients branch
+        for (String dn : missedDns) {
+            Client client = getClientByDn(dn);
+            if (client != null) {
+                clients.put(getClientDnCacheKey(dn), client);
+            }
+        }
+
+        final List<Client> result = new ArrayList<Client>(clients.size());
+        for (String dn : dnList) {
+            Client client = clients.get(getClientDnCacheKey(dn));
+            if (client != null) {
+                result.add(client);
             }
         }
         return result;
     }
 
+    private List<Client> findClientsByInums(List<String> inums) {
+        final String baseDn = staticConfiguration.getBaseDn().getClients();
+
+        final List<Filter> filters = new ArrayList<Filter>(inums.size());
+        for (String inum : inums) {
+            filters.add(Filter.createEqualityFilter("inum", inum));
+        }
+        final Filter filter = filters.size() == 1 ? filters.get(0) : Filter.createORFilter(filters);
+
+        return ldapEntryManager.findEntries(baseDn, Client.class, filter);
+    }
+
+    /**
+     * Returns inum if client DN is in clients branch, e.g. inum=@!1111!0008!1234,ou=clients,o=@!1111,o=gluu
+     */
+    private String getClientInum(String dn) {
+        try {
+            final DN clientDn = new DN(dn);
+            final RDN rdn = clientDn.getRDN();
+            if ((rdn == null) || !rdn.hasAttribute("inum") || !new DN(staticConfiguration.getBaseDn().getClients()).equals(clientDn.getParent())) {
+                return null;
+            }
+
+            return rdn.getAttributeValues()[0];
+        } catch (LDAPException e) {
+            log.debug("Invalid client DN: {}", dn);
+            return null;
+        }
+    }
+
     /**
      * Returns client by DN.
      *
@@ -277,6 +383,7 @@ public class ClientService {
 
             String clientDn = client.getDn();
             ldapEntryManager.removeWithSubtree(clientDn);
+            clientOriginIndexService.remove(client);
         }
     }
 
@@ -287,6 +394,9 @@ public class ClientService {
 
             cacheService.remove(CACHE_CLIENT_FILTER_NAME, getClientIdCacheKey(clientId));
             cacheService.remove(CACHE_CLIENT_NAME, getClientDnCacheKey(clientDn));
+            clientScopeIndexService.invalidate(client);
+            clientSecretDigestCache.invalidate(clientId);
+            clientAuthorizationsCache.removeClient(clientId);
         } catch (Exception e) {
             log.error("Failed to remove client from cache.", e);
         }
@@ -0,0 +1,110 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.xdi.oxauth.filter.CorsFilterConfig;
+import org.xdi.oxauth.filter.CorsPolicy;
+import org.xdi.oxauth.model.config.ConfigurationChanges;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+
+/**
+ * Keeps compiled CORS policy of each filter. All policies are replaced at once after CORS configuration
+ * change, so filter sees either old or new policy and preflight checks cached by old policy are dropped
+ */
+@ApplicationScoped
+@Named
+public class CorsPolicyService {
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private ClientOriginIndexService clientOriginIndexService;
+
+    private volatile Policies policies;
+
+    public void updateConfiguration(@Observes ConfigurationChanges changes) {
+        if (changes.isAppConfigurationChanged("corsConfigurationFilters")) {
+            setPolicies(new Policies(changes.getAppConfiguration()));
+            log.debug("CORS policies will be rebuilt from new configuration");
+        }
+    }
+
+    private synchronized void setPolicies(Policies policies) {
+        this.policies = policies;
+    }
+
+    public CorsPolicy getPolicy(String filterName) {
+        Policies currentPolicies = this.policies;
+        if (currentPolicies == null) {
+            synchronized (this) {
+                if (this.policies == null) {
+                    this.policies = new Policies(appConfiguration);
+                }
+                currentPolicies = this.policies;
+            }
+        }
+
+        return currentPolicies.get(filterName);
+    }
+
+    /**
+     * Checks origin which is not allowed by policy itself against origins of client redirect URIs. If request
+     * identifies client only origins of this client are allowed, otherwise origin of any registered client.
+     * Clients can be registered dynamically, so credentials should not be allowed for these origins
+     *
+     * @param clientId client which sent request or null if it's not known
+     */
+    public boolean isClientOriginAllowed(CorsPolicy policy, String origin, String clientId) {
+        if (!policy.isAllowClientOrigins()) {
+            return false;
+        }
+
+        if (clientId != null) {
+            return clientOriginIndexService.isClientOrigin(origin, clientId);
+        }
+
+        return clientOriginIndexService.isClientOrigin(origin);
+    }
+
+    private static class Policies {
+
+        private final AppConfiguration appConfiguration;
+        private final ConcurrentMap<String, CorsPolicy> policies = new ConcurrentHashMap<String, CorsPolicy>();
+
+        public Policies(AppConfiguration appConfiguration) {
+            this.appConfiguration = appConfiguration;
+        }
+
+        public CorsPolicy get(String filterName) {
+            CorsPolicy policy = policies.get(filterName);
+            if (policy == null) {
+                policy = new CorsPolicy(new CorsFilterConfig(filterName, appConfiguration));
+                CorsPolicy existing = policies.putIfAbsent(filterName, policy);
+                if (existing != null) {
+                    policy = existing;
+                }
+            }
+
+            return policy;
+        }
+
+    }
+
+}
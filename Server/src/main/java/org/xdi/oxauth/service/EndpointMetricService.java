@@ -0,0 +1,118 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import static org.xdi.oxauth.service.LabeledMetricRegistry.labeled;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.xdi.oxauth.model.common.GrantType;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Collects per endpoint, grant type and client request latency, response status and in-flight metrics.
+ * Endpoint, status, grant type and client id are metric labels, e.g. endpoint.responses{endpoint="...",status="200"}.
+ * Counters and meters are backed by striped adders so recording doesn't block request threads
+ */
+@ApplicationScoped
+@Named
+public class EndpointMetricService {
+
+	public static final String UNMATCHED_ENDPOINT = "unmatched";
+
+	public static final String REQUESTS_METRIC = "endpoint.requests";
+	public static final String RESPONSES_METRIC = "endpoint.responses";
+	public static final String IN_FLIGHT_METRIC = "endpoint.in-flight";
+	public static final String GRANT_REQUESTS_METRIC = "grant.requests";
+	public static final String CLIENT_REQUESTS_METRIC = "client.requests";
+
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	private MetricRegistry metricRegistry;
+
+	private Counter inFlight;
+
+	private final ConcurrentMap<String, Timer> clientTimers = new ConcurrentHashMap<String, Timer>();
+
+	@PostConstruct
+	public void init() {
+		this.metricRegistry = new LabeledMetricRegistry();
+		this.inFlight = metricRegistry.counter(IN_FLIGHT_METRIC);
+	}
+
+	public MetricRegistry getMetricRegistry() {
+		return metricRegistry;
+	}
+
+	public boolean isEnabled() {
+		return !Boolean.FALSE.equals(appConfiguration.getEndpointMetricsEnabled());
+	}
+
+	/**
+	 * @return request start time which should be passed to {@link #requestFinished}
+	 */
+	public long requestStarted() {
+		inFlight.inc();
+
+		return System.nanoTime();
+	}
+
+	public void requestFinished(String endpoint, int status, String grantType, String clientId, long startTime) {
+		long duration = System.nanoTime() - startTime;
+		inFlight.dec();
+
+		if (endpoint == null) {
+			endpoint = UNMATCHED_ENDPOINT;
+		}
+
+		metricRegistry.timer(labeled(REQUESTS_METRIC, "endpoint", endpoint)).update(duration, TimeUnit.NANOSECONDS);
+		metricRegistry.meter(labeled(RESPONSES_METRIC, "endpoint", endpoint, "status", Integer.toString(status))).mark();
+
+		// Grant type is validated to keep number of metrics bounded
+		GrantType grant = GrantType.fromString(grantType);
+		if (grant != null) {
+			metricRegistry.timer(labeled(GRANT_REQUESTS_METRIC, "grant_type", grant.getValue())).update(duration, TimeUnit.NANOSECONDS);
+		}
+
+		if (clientId != null) {
+			Timer clientTimer = getClientTimer(clientId);
+			if (clientTimer != null) {
+				clientTimer.update(duration, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	private Timer getClientTimer(String clientId) {
+		Timer clientTimer = clientTimers.get(clientId);
+		if (clientTimer != null) {
+			return clientTimer;
+		}
+
+		Integer maxClients = appConfiguration.getEndpointMetricsMaxClients();
+		if ((maxClients == null) || (clientTimers.size() >= maxClients)) {
+			return null;
+		}
+
+		clientTimer = metricRegistry.timer(labeled(CLIENT_REQUESTS_METRIC, "client_id", clientId));
+		clientTimers.putIfAbsent(clientId, clientTimer);
+
+		return clientTimer;
+	}
+
+}
@@ -6,6 +6,7 @@
 
 package org.xdi.oxauth.service;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -109,16 +110,20 @@ public class GrantService {
 
     public void removeSilently(TokenLdap token) {
         try {
-            remove(token);
-
-            if (StringUtils.isNotBlank(token.getAuthorizationCode())) {
-                cacheService.remove(null, MemcachedGrant.cacheKey(token.getClientId(), token.getAuthorizationCode()));
-            }
+            removeWithCache(token);
         } catch (Exception e) {
             log.trace(e.getMessage(), e);
         }
     }
 
+    private void removeWithCache(TokenLdap token) {
+        remove(token);
+
+        if (StringUtils.isNotBlank(token.getAuthorizationCode())) {
+            cacheService.remove(null, MemcachedGrant.cacheKey(token.getClientId(), token.getAuthorizationCode()));
+        }
+    }
+
     public void removeGrants(List<Grant> entries) {
         if (entries != null && !entries.isEmpty()) {
             for (Grant g : entries) {
@@ -151,6 +156,27 @@ public class GrantService {
         }
     }
 
+    /**
+     * Removes tokens like {@link #removeSilently(List)}, but reports failures, so caller can retry removal
+     *
+     * @return number of tokens which were not removed
+     */
+    public int removeAndCountFailures(List<TokenLdap> p_entries) {
+        int failed = 0;
+        if (p_entries != null && !p_entries.isEmpty()) {
+            for (TokenLdap t : p_entries) {
+                try {
+                    removeWithCache(t);
+                } catch (Exception e) {
+                    log.debug("Failed to remove token: " + t.getDn(), e);
+                    failed++;
+                }
+            }
+        }
+
+        return failed;
+    }
+
     public void remove(AuthorizationGrant p_grant) {
         if (p_grant != null && p_grant.getTokenLdap() != null) {
             try {
@@ -193,6 +219,23 @@ public class GrantService {
         return null;
     }
 
+    /**
+     * Finds tokens with several codes with one search. Search errors are rethrown, so callers don't
+     * report tokens as missing when LDAP is unavailable
+     */
+    public List<TokenLdap> getGrantsByCodes(Collection<String> codes) {
+        if (codes == null || codes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<Filter> filters = new ArrayList<Filter>(codes.size());
+        for (String code : codes) {
+            filters.add(Filter.createEqualityFilter("oxAuthTokenCode", TokenHashUtil.getHashedToken(code)));
+        }
+
+        return ldapEntryManager.findEntries(baseDn(), TokenLdap.class, Filter.createORFilter(filters));
+    }
+
     public List<TokenLdap> getGrantsByGrantId(String p_grantId) {
         try {
             return ldapEntryManager.findEntries(baseDn(), TokenLdap.class, Filter.create(String.format("oxAuthGrantId=%s", p_grantId)));
@@ -228,6 +271,23 @@ public class GrantService {
         removeSilently(getGrantsBySessionDn(sessionDn));
     }
 
+    /**
+     * Finds tokens of several sessions with one search. Unlike other lookups search error is not
+     * swallowed, so caller can retry
+     */
+    public List<TokenLdap> getGrantsBySessionDns(Collection<String> sessionDns) {
+        if (sessionDns == null || sessionDns.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<Filter> filters = new ArrayList<Filter>(sessionDns.size());
+        for (String sessionDn : sessionDns) {
+            filters.add(Filter.createEqualityFilter("oxAuthSessionDn", sessionDn));
+        }
+
+        return ldapEntryManager.findEntries(baseDn(), TokenLdap.class, Filter.createORFilter(filters));
+    }
+
     /**
      * Removes grant with particular code.
      *
@@ -0,0 +1,228 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.gluu.site.ldap.OperationsFacade;
+import org.gluu.site.ldap.persistence.BatchOperation;
+import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.gluu.site.ldap.persistence.annotation.LdapDN;
+import org.xdi.ldap.model.SearchScope;
+
+import com.unboundid.ldap.sdk.Filter;
+
+/**
+ * Entry manager which reports latency of every operation to {@link LdapMetricService}
+ */
+public class InstrumentedLdapEntryManager extends LdapEntryManager {
+
+	private static final long serialVersionUID = -2543219584306315829L;
+
+	private static final Field NO_DN_FIELD;
+
+	static {
+		try {
+			NO_DN_FIELD = InstrumentedLdapEntryManager.class.getDeclaredField("NO_DN_FIELD");
+		} catch (NoSuchFieldException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private final transient LdapMetricService ldapMetricService;
+
+	private final transient ConcurrentMap<Class<?>, Field> dnFields = new ConcurrentHashMap<Class<?>, Field>();
+
+	public InstrumentedLdapEntryManager(OperationsFacade ldapOperationService, LdapMetricService ldapMetricService) {
+		super(ldapOperationService);
+		this.ldapMetricService = ldapMetricService;
+	}
+
+	@Override
+	public void persist(Object entry) {
+		long startTime = ldapMetricService.operationStarted();
+		boolean success = false;
+		try {
+			super.persist(entry);
+			success = true;
+		} finally {
+			operationFinished(startTime, "persist", entry, success);
+		}
+	}
+
+	@Override
+	public <T> T merge(T entry) {
+		long startTime = ldapMetricService.operationStarted();
+		boolean success = false;
+		try {
+			T result = super.merge(entry);
+			success = true;
+
+			return result;
+		} finally {
+			operationFinished(startTime, "merge", entry, success);
+		}
+	}
+
+	@Override
+	public void remove(Object entry) {
+		long startTime = ldapMetricService.operationStarted();
+		boolean success = false;
+		try {
+			super.remove(entry);
+			success = true;
+		} finally {
+			operationFinished(startTime, "remove", entry, success);
+		}
+	}
+
+	@Override
+	public void removeWithSubtree(String dn) {
+		long startTime = ldapMetricService.operationStarted();
+		boolean success = false;
+		try {
+			super.removeWithSubtree(dn);
+			success = true;
+		} finally {
+			ldapMetricService.operationFinished(startTime, "remove-subtree", null, dn, null, -1, success);
+		}
+	}
+
+	@Override
+	public boolean contains(Object entry) {
+		long startTime = ldapMetricService.operationStarted();
+		boolean success = false;
+		try {
+			boolean result = super.contains(entry);
+			success = true;
+
+			return result;
+		} finally {
+			operationFinished(startTime, "contains", entry, success);
+		}
+	}
+
+	@Override
+	public <T> boolean contains(Class<T> entryClass, String primaryKey) {
+		long startTime = ldapMetricService.operationStarted();
+		boolean success = false;
+		try {
+			boolean result = super.contains(entryClass, primaryKey);
+			success = true;
+
+			return result;
+		} finally {
+			ldapMetricService.operationFinished(startTime, "contains", entryClass, primaryKey, null, -1, success);
+		}
+	}
+
+	@Override
+	public <T> T find(Class<T> entryClass, Object primaryKey) {
+		long startTime = ldapMetricService.operationStarted();
+		boolean success = false;
+		try {
+			T result = super.find(entryClass, primaryKey);
+			success = true;
+
+			return result;
+		} finally {
+			ldapMetricService.operationFinished(startTime, "find", entryClass, String.valueOf(primaryKey), null, -1, success);
+		}
+	}
+
+	@Override
+	public <T> T find(Class<T> entryClass, Object primaryKey, String[] ldapReturnAttributes) {
+		long startTime = ldapMetricService.operationStarted();
+		boolean success = false;
+		try {
+			T result = super.find(entryClass, primaryKey, ldapReturnAttributes);
+			success = true;
+
+			return result;
+		} finally {
+			ldapMetricService.operationFinished(startTime, "find", entryClass, String.valueOf(primaryKey), null, -1, success);
+		}
+	}
+
+	@Override
+	public <T> List<T> findEntries(String baseDN, Class<T> entryClass, Filter filter, SearchScope scope, String[] ldapReturnAttributes,
+			BatchOperation<T> batchOperation, int startIndex, int searchLimit, int sizeLimit) {
+		long startTime = ldapMetricService.operationStarted();
+		List<T> result = null;
+		try {
+			result = super.findEntries(baseDN, entryClass, filter, scope, ldapReturnAttributes, batchOperation, startIndex, searchLimit, sizeLimit);
+
+			return result;
+		} finally {
+			ldapMetricService.operationFinished(startTime, "search", entryClass, baseDN, filter,
+					(result == null) ? -1 : result.size(), result != null);
+		}
+	}
+
+	@Override
+	public boolean authenticate(String bindDn, String password) {
+		long startTime = ldapMetricService.operationStarted();
+		boolean success = false;
+		try {
+			boolean result = super.authenticate(bindDn, password);
+			success = true;
+
+			return result;
+		} finally {
+			ldapMetricService.operationFinished(startTime, "bind", null, bindDn, null, -1, success);
+		}
+	}
+
+	private void operationFinished(long startTime, String operation, Object entry, boolean success) {
+		if (startTime == LdapMetricService.NOT_STARTED) {
+			return;
+		}
+
+		Class<?> entryClass = (entry == null) ? null : entry.getClass();
+		ldapMetricService.operationFinished(startTime, operation, entryClass, getDn(entry), null, -1, success);
+	}
+
+	private String getDn(Object entry) {
+		if (entry == null) {
+			return null;
+		}
+
+		Field dnField = dnFields.get(entry.getClass());
+		if (dnField == null) {
+			dnField = findDnField(entry.getClass());
+			dnFields.putIfAbsent(entry.getClass(), dnField);
+		}
+
+		if (dnField == NO_DN_FIELD) {
+			return null;
+		}
+
+		try {
+			Object dn = dnField.get(entry);
+			return (dn == null) ? null : dn.toString();
+		} catch (IllegalAccessException ex) {
+			return null;
+		}
+	}
+
+	private Field findDnField(Class<?> entryClass) {
+		for (Class<?> currentClass = entryClass; currentClass != null; currentClass = currentClass.getSuperclass()) {
+			for (Field field : currentClass.getDeclaredFields()) {
+				if (field.isAnnotationPresent(LdapDN.class)) {
+					field.setAccessible(true);
+					return field;
+				}
+			}
+		}
+
+		return NO_DN_FIELD;
+	}
+
+}
@@ -16,6 +16,9 @@ import org.xdi.oxauth.model.common.IdType;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.model.util.Pair;
 
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+
 /**
  * Provides operations with clients.
  *
@@ -25,6 +28,11 @@ import org.xdi.oxauth.model.util.Pair;
 @Named
 public class InumService {
 
+    /**
+     * Number of add attempts with new inum if entry with generated inum already exists
+     */
+    public static final int MAX_PERSIST_ATTEMPTS = 3;
+
     @Inject
     private Logger log;
 
@@ -50,6 +58,10 @@ public class InumService {
         return generateClientInum();
     }
 
+    /**
+     * Generated DN is not checked in LDAP, caller should generate new DN and retry add
+     * if {@link #isEntryAlreadyExists(Throwable)} is true for add error
+     */
     public Pair<String, String> generateNewDN(String baseDn) {
         final String inum = generateInum();
         final StringBuilder dnSb = new StringBuilder("inum=");
@@ -59,4 +71,17 @@ public class InumService {
         return new Pair<String, String>(inum, dn);
     }
 
+    /**
+     * Generated inums are not checked in LDAP before add, this checks if add failed because of duplicate entry
+     */
+    public static boolean isEntryAlreadyExists(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if ((cause instanceof LDAPException) && ResultCode.ENTRY_ALREADY_EXISTS.equals(((LDAPException) cause).getResultCode())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Metric registry for metrics exported in Prometheus text format. Metric names can carry labels added
+ * with {@link #labeled(String, String...)}. Timers and histograms keep sum of recorded values, so they
+ * can be exported as summaries with _sum and _count samples
+ */
+public class LabeledMetricRegistry extends MetricRegistry {
+
+	public static final char LABELS_START = '{';
+	public static final char LABELS_END = '}';
+
+	/**
+	 * Appends labels to metric name, e.g. endpoint.responses{endpoint="Token.requestAccessToken",status="200"}.
+	 * Labels are passed as name and value pairs, names should be valid Prometheus label names
+	 */
+	public static String labeled(String name, String... labels) {
+		if ((labels.length == 0) || (labels.length % 2 != 0)) {
+			throw new IllegalArgumentException("Labels should be passed as name and value pairs");
+		}
+
+		StringBuilder builder = new StringBuilder(name).append(LABELS_START);
+		for (int i = 0; i < labels.length; i += 2) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append(labels[i]).append("=\"");
+			appendEscaped(builder, labels[i + 1]);
+			builder.append('"');
+		}
+
+		return builder.append(LABELS_END).toString();
+	}
+
+	@Override
+	public Timer timer(String name) {
+		Metric metric = getMetrics().get(name);
+		if (metric instanceof Timer) {
+			return (Timer) metric;
+		}
+
+		return getOrAdd(name, new SummingTimer(), Timer.class);
+	}
+
+	@Override
+	public Histogram histogram(String name) {
+		Metric metric = getMetrics().get(name);
+		if (metric instanceof Histogram) {
+			return (Histogram) metric;
+		}
+
+		return getOrAdd(name, new SummingHistogram(), Histogram.class);
+	}
+
+	private <T extends Metric> T getOrAdd(String name, T metric, Class<T> metricClass) {
+		try {
+			return register(name, metric);
+		} catch (IllegalArgumentException ex) {
+			// Metric was added by another thread
+			Metric existingMetric = getMetrics().get(name);
+			if (metricClass.isInstance(existingMetric)) {
+				return metricClass.cast(existingMetric);
+			}
+
+			throw ex;
+		}
+	}
+
+	private static void appendEscaped(StringBuilder builder, String value) {
+		if (value == null) {
+			return;
+		}
+
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '\\') {
+				builder.append("\\\\");
+			} else if (ch == '"') {
+				builder.append("\\\"");
+			} else if (ch == '\n') {
+				builder.append("\\n");
+			} else {
+				builder.append(ch);
+			}
+		}
+	}
+
+	/**
+	 * Timer which keeps sum of recorded durations
+	 */
+	public static class SummingTimer extends Timer {
+
+		private final AtomicLong sum = new AtomicLong();
+
+		@Override
+		public void update(long duration, TimeUnit unit) {
+			super.update(duration, unit);
+			if (duration >= 0) {
+				sum.addAndGet(unit.toNanos(duration));
+			}
+		}
+
+		@Override
+		public <T> T time(Callable<T> event) throws Exception {
+			// Timer.time(Callable) records duration without calling update(long, TimeUnit)
+			Context context = time();
+			try {
+				return event.call();
+			} finally {
+				context.stop();
+			}
+		}
+
+		/**
+		 * @return sum of recorded durations in nanoseconds
+		 */
+		public long getSum() {
+			return sum.get();
+		}
+
+	}
+
+	/**
+	 * Histogram which keeps sum of recorded values
+	 */
+	public static class SummingHistogram extends Histogram {
+
+		private final AtomicLong sum = new AtomicLong();
+
+		public SummingHistogram() {
+			super(new ExponentiallyDecayingReservoir());
+		}
+
+		@Override
+		public void update(long value) {
+			super.update(value);
+			sum.addAndGet(value);
+		}
+
+		public long getSum() {
+			return sum.get();
+		}
+
+	}
+
+}
@@ -0,0 +1,322 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xdi.oxauth.model.config.BaseDnConfiguration;
+import org.xdi.oxauth.model.config.ConfigurationFactory;
+import org.xdi.oxauth.model.config.StaticConfiguration;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+
+import com.codahale.metrics.MetricRegistry;
+import com.unboundid.ldap.sdk.Filter;
+
+/**
+ * Collects LDAP operation latency per operation, entry class and base DN branch. Branch is name of
+ * base DN from {@link BaseDnConfiguration} with nearest organizational unit below it, e.g. clients.token.
+ * Operations which take more than ldapSlowOperationThreshold are logged into separate slow operation logger
+ */
+@ApplicationScoped
+@Named
+public class LdapMetricService {
+
+	public static final long NOT_STARTED = Long.MIN_VALUE;
+	private static final long NESTED = Long.MIN_VALUE + 1;
+
+	private static final String METRIC_PREFIX = "ldap";
+	private static final String UNKNOWN_BRANCH = "unknown";
+	private static final String OTHER_BRANCH = "other";
+	private static final String OU_PREFIX = "ou=";
+
+	private static final Logger slowOperationLog = LoggerFactory.getLogger(LdapMetricService.class.getName() + ".slow");
+
+	@Inject
+	private Logger log;
+
+	@Inject
+	private ConfigurationFactory configurationFactory;
+
+	private MetricRegistry metricRegistry;
+
+	private final ThreadLocal<int[]> depth = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+
+	private volatile BranchIndex branchIndex;
+
+	@PostConstruct
+	public void init() {
+		this.metricRegistry = new LabeledMetricRegistry();
+	}
+
+	public MetricRegistry getMetricRegistry() {
+		return metricRegistry;
+	}
+
+	/**
+	 * Configuration is loaded from LDAP by the same entry manager so it can be not available yet
+	 */
+	public boolean isEnabled() {
+		AppConfiguration appConfiguration = configurationFactory.getAppConfiguration();
+
+		return (appConfiguration != null) && !Boolean.FALSE.equals(appConfiguration.getLdapMetricsEnabled());
+	}
+
+	/**
+	 * @return operation start time which should be passed to {@link #operationFinished}. Operations called
+	 * from another instrumented operation are not recorded
+	 */
+	public long operationStarted() {
+		if (!isEnabled()) {
+			return NOT_STARTED;
+		}
+
+		int[] currentDepth = depth.get();
+		if (currentDepth[0]++ > 0) {
+			return NESTED;
+		}
+
+		return System.nanoTime();
+	}
+
+	public void operationFinished(long startTime, String operation, Class<?> entryClass, String dn, Filter filter,
+			int entriesCount, boolean success) {
+		if (startTime == NOT_STARTED) {
+			return;
+		}
+
+		depth.get()[0]--;
+		if (startTime == NESTED) {
+			return;
+		}
+
+		long duration = System.nanoTime() - startTime;
+		String entryClassName = (entryClass == null) ? UNKNOWN_BRANCH : entryClass.getSimpleName();
+		String branch = getBranch(dn);
+
+		String name = MetricRegistry.name(METRIC_PREFIX, operation, entryClassName, branch);
+		metricRegistry.timer(name).update(duration, TimeUnit.NANOSECONDS);
+		if (entriesCount >= 0) {
+			metricRegistry.histogram(MetricRegistry.name(name, "entries")).update(entriesCount);
+		}
+		if (!success) {
+			metricRegistry.meter(MetricRegistry.name(name, "errors")).mark();
+		}
+
+		boolean unindexedCandidate = (filter != null) && isUnindexedCandidate(filter);
+		if (unindexedCandidate) {
+			metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "unindexed-candidates")).mark();
+		}
+
+		logSlowOperation(operation, entryClassName, dn, filter, entriesCount, duration, unindexedCandidate);
+	}
+
+	private void logSlowOperation(String operation, String entryClassName, String dn, Filter filter, int entriesCount,
+			long durationNanos, boolean unindexedCandidate) {
+		AppConfiguration appConfiguration = configurationFactory.getAppConfiguration();
+		Integer threshold = appConfiguration.getLdapSlowOperationThreshold();
+		if ((threshold == null) || (threshold <= 0)) {
+			return;
+		}
+
+		long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+		if (durationMillis < threshold) {
+			return;
+		}
+
+		metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "slow")).mark();
+		slowOperationLog.warn("LDAP {} of {} in '{}' with filter '{}' returned {} entries in {} ms{}", operation, entryClassName, dn,
+				filter, entriesCount, durationMillis, unindexedCandidate ? ", filter may be unindexed" : "");
+	}
+
+	/**
+	 * Filters which can't use equality index of server
+	 */
+	private boolean isUnindexedCandidate(Filter filter) {
+		switch (filter.getFilterType()) {
+		case Filter.FILTER_TYPE_PRESENCE:
+			return !"objectClass".equalsIgnoreCase(filter.getAttributeName());
+		case Filter.FILTER_TYPE_SUBSTRING:
+			return filter.getSubInitialString() == null;
+		case Filter.FILTER_TYPE_NOT:
+			return true;
+		case Filter.FILTER_TYPE_AND:
+			for (Filter component : filter.getComponents()) {
+				if (!isUnindexedCandidate(component)) {
+					return false;
+				}
+			}
+			return true;
+		case Filter.FILTER_TYPE_OR:
+			for (Filter component : filter.getComponents()) {
+				if (isUnindexedCandidate(component)) {
+					return true;
+				}
+			}
+			return false;
+		default:
+			return false;
+		}
+	}
+
+	public String getBranch(String dn) {
+		if (dn == null) {
+			return UNKNOWN_BRANCH;
+		}
+
+		BranchIndex index = getBranchIndex();
+		if (index == null) {
+			return UNKNOWN_BRANCH;
+		}
+
+		String lowerDn = dn.toLowerCase(Locale.ROOT);
+		for (Branch branch : index.getBranches()) {
+			if (lowerDn.equals(branch.getDn())) {
+				return branch.getName();
+			}
+
+			if (lowerDn.endsWith(branch.getDn()) && (lowerDn.length() > branch.getDn().length())
+					&& (lowerDn.charAt(lowerDn.length() - branch.getDn().length() - 1) == ',')) {
+				String subBranch = getNearestOrganizationalUnit(lowerDn.substring(0, lowerDn.length() - branch.getDn().length() - 1));
+				if (subBranch == null) {
+					return branch.getName();
+				}
+
+				return branch.getName() + "." + subBranch;
+			}
+		}
+
+		return OTHER_BRANCH;
+	}
+
+	private String getNearestOrganizationalUnit(String rdns) {
+		int start = rdns.lastIndexOf("," + OU_PREFIX);
+		if (start >= 0) {
+			start++;
+		} else if (rdns.startsWith(OU_PREFIX)) {
+			start = 0;
+		} else {
+			return null;
+		}
+
+		int end = rdns.indexOf(',', start);
+		if (end == -1) {
+			end = rdns.length();
+		}
+
+		return rdns.substring(start + OU_PREFIX.length(), end);
+	}
+
+	private BranchIndex getBranchIndex() {
+		StaticConfiguration staticConfiguration = configurationFactory.getStaticConfiguration();
+		if ((staticConfiguration == null) || (staticConfiguration.getBaseDn() == null)) {
+			return null;
+		}
+
+		BaseDnConfiguration baseDn = staticConfiguration.getBaseDn();
+		BranchIndex index = this.branchIndex;
+		if ((index == null) || (index.getBaseDn() != baseDn)) {
+			index = new BranchIndex(baseDn);
+			log.debug("Built LDAP metric branches: {}", index.getBranches());
+			this.branchIndex = index;
+		}
+
+		return index;
+	}
+
+	private static class BranchIndex {
+
+		private final BaseDnConfiguration baseDn;
+		private final List<Branch> branches;
+
+		public BranchIndex(BaseDnConfiguration baseDn) {
+			this.baseDn = baseDn;
+
+			List<Branch> branches = new ArrayList<Branch>();
+			addBranch(branches, "appliance", baseDn.getAppliance());
+			addBranch(branches, "people", baseDn.getPeople());
+			addBranch(branches, "groups", baseDn.getGroups());
+			addBranch(branches, "clients", baseDn.getClients());
+			addBranch(branches, "scopes", baseDn.getScopes());
+			addBranch(branches, "attributes", baseDn.getAttributes());
+			addBranch(branches, "scripts", baseDn.getScripts());
+			addBranch(branches, "sessions", baseDn.getSessionId());
+			addBranch(branches, "uma", baseDn.getUmaBase());
+			addBranch(branches, "uma-policy", baseDn.getUmaPolicy());
+			addBranch(branches, "u2f", baseDn.getU2fBase());
+			addBranch(branches, "metric", baseDn.getMetric());
+			addBranch(branches, "sector-identifiers", baseDn.getSectorIdentifiers());
+
+			// Most specific base DN should match first
+			Collections.sort(branches, new Comparator<Branch>() {
+				@Override
+				public int compare(Branch branch1, Branch branch2) {
+					return branch2.getDn().length() - branch1.getDn().length();
+				}
+			});
+
+			this.branches = Collections.unmodifiableList(branches);
+		}
+
+		private void addBranch(List<Branch> branches, String name, String dn) {
+			if (dn != null) {
+				branches.add(new Branch(name, dn.toLowerCase(Locale.ROOT)));
+			}
+		}
+
+		public BaseDnConfiguration getBaseDn() {
+			return baseDn;
+		}
+
+		public List<Branch> getBranches() {
+			return branches;
+		}
+
+	}
+
+	private static class Branch {
+
+		private final String name;
+		private final String dn;
+
+		public Branch(String name, String dn) {
+			this.name = name;
+			this.dn = dn;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDn() {
+			return dn;
+		}
+
+		@Override
+		public String toString() {
+			return name + ": " + dn;
+		}
+
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.config.ConfigurationChanges;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.ldap.PairwiseIdentifier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Bounded local cache of persistent pairwise identifiers keyed by user inum and sector identifier.
+ * Concurrent requests for the same key wait for one loader, so only one entry is created for new pair
+ */
+@ApplicationScoped
+@Named
+public class PairwiseIdentifierCache {
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    private volatile Cache<String, PairwiseIdentifier> pairwiseIdentifiers;
+
+    private volatile Cache<String, Boolean> branches;
+
+    private int cacheSize;
+
+    private int cacheLifetime;
+
+    @PostConstruct
+    public void init() {
+        createCaches(appConfiguration);
+    }
+
+    public void updateConfiguration(@Observes ConfigurationChanges changes) {
+        if (!changes.isAppConfigurationChanged("pairwiseIdentifierCacheSize", "pairwiseIdentifierCacheLifetime")) {
+            return;
+        }
+
+        AppConfiguration appConfiguration = changes.getAppConfiguration();
+        if ((cacheSize != appConfiguration.getPairwiseIdentifierCacheSize())
+                || (cacheLifetime != appConfiguration.getPairwiseIdentifierCacheLifetime())) {
+            createCaches(appConfiguration);
+        }
+    }
+
+    private synchronized void createCaches(AppConfiguration appConfiguration) {
+        this.cacheSize = appConfiguration.getPairwiseIdentifierCacheSize();
+        this.cacheLifetime = appConfiguration.getPairwiseIdentifierCacheLifetime();
+
+        this.pairwiseIdentifiers = CacheBuilder.newBuilder().maximumSize(cacheSize)
+                .expireAfterWrite(cacheLifetime, TimeUnit.SECONDS).build();
+        this.branches = CacheBuilder.newBuilder().maximumSize(cacheSize)
+                .expireAfterWrite(cacheLifetime, TimeUnit.SECONDS).build();
+
+        log.debug("Pairwise identifier cache size: '{}', lifetime: '{}'", cacheSize, cacheLifetime);
+    }
+
+    /**
+     * Returns cached pairwise identifier or loads it. Loader should not return null
+     */
+    public PairwiseIdentifier get(String userInum, String sectorIdentifier, Callable<PairwiseIdentifier> loader) throws Exception {
+        try {
+            return pairwiseIdentifiers.get(getKey(userInum, sectorIdentifier), loader);
+        } catch (ExecutionException ex) {
+            throw unwrap(ex);
+        } catch (UncheckedExecutionException ex) {
+            throw unwrap(ex);
+        }
+    }
+
+    public void remove(String userInum, String sectorIdentifier) {
+        pairwiseIdentifiers.invalidate(getKey(userInum, sectorIdentifier));
+    }
+
+    public boolean containsBranch(String userInum) {
+        return branches.getIfPresent(userInum) != null;
+    }
+
+    public void putBranch(String userInum) {
+        branches.put(userInum, Boolean.TRUE);
+    }
+
+    public void clear() {
+        pairwiseIdentifiers.invalidateAll();
+        branches.invalidateAll();
+    }
+
+    private String getKey(String userInum, String sectorIdentifier) {
+        return userInum + "|" + sectorIdentifier;
+    }
+
+    private Exception unwrap(Exception ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+
+        return ex;
+    }
+
+}
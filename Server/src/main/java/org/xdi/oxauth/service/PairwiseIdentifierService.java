@@ -2,6 +2,8 @@ package org.xdi.oxauth.service;
 
 import java.net.URI;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -38,6 +40,9 @@ public class PairwiseIdentifierService {
     @Inject
     private AppConfiguration appConfiguration;
 
+    @Inject
+    private PairwiseIdentifierCache pairwiseIdentifierCache;
+
     public void addBranch(final String userInum) {
         SimpleBranch branch = new SimpleBranch();
         branch.setOrganizationalUnitName("pairwiseIdentifiers");
@@ -51,10 +56,42 @@ public class PairwiseIdentifierService {
     }
 
     public void prepareBranch(final String userInum) {
+        if (pairwiseIdentifierCache.containsBranch(userInum)) {
+            return;
+        }
+
         // Create pairwise identifier branch if needed
         if (!containsBranch(userInum)) {
             addBranch(userInum);
         }
+        pairwiseIdentifierCache.putBranch(userInum);
+    }
+
+    /**
+     * Returns pairwise identifier for user and sector identifier. Persistent identifiers are cached
+     * and new one is created if there is no identifier yet
+     */
+    public PairwiseIdentifier findOrCreatePairwiseIdentifier(final String userInum, final String sectorIdentifierUri) throws Exception {
+        PairwiseIdType pairwiseIdType = PairwiseIdType.fromString(appConfiguration.getPairwiseIdType());
+        if (PairwiseIdType.PERSISTENT != pairwiseIdType) {
+            return findPairWiseIdentifier(userInum, sectorIdentifierUri);
+        }
+
+        String sectorIdentifier = URI.create(sectorIdentifierUri).getHost();
+        return pairwiseIdentifierCache.get(userInum, sectorIdentifier, new Callable<PairwiseIdentifier>() {
+            @Override
+            public PairwiseIdentifier call() throws Exception {
+                PairwiseIdentifier pairwiseIdentifier = findPairWiseIdentifier(userInum, sectorIdentifierUri);
+                if (pairwiseIdentifier == null) {
+                    pairwiseIdentifier = new PairwiseIdentifier(sectorIdentifierUri);
+                    pairwiseIdentifier.setId(UUID.randomUUID().toString());
+                    pairwiseIdentifier.setDn(getDnForPairwiseIdentifier(pairwiseIdentifier.getId(), userInum));
+                    addPairwiseIdentifier(userInum, pairwiseIdentifier);
+                }
+
+                return pairwiseIdentifier;
+            }
+        });
     }
 
     public PairwiseIdentifier findPairWiseIdentifier(String userInum, String sectorIdentifierUri) throws Exception {
@@ -83,7 +120,7 @@ public class PairwiseIdentifierService {
             String salt = appConfiguration.getPairwiseCalculationSalt();
 
             String calculatedSub = SubjectIdentifierGenerator.generatePairwiseSubjectIdentifier(
-                    sectorIdentifierUri, userInum, key, salt, appConfiguration);
+                    sectorIdentifierUri, userInum, key, salt);
 
             PairwiseIdentifier pairwiseIdentifier = new PairwiseIdentifier(sectorIdentifierUri);
             pairwiseIdentifier.setId(calculatedSub);
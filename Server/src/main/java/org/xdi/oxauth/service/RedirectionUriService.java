@@ -10,8 +10,6 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.jettison.json.JSONArray;
-import org.jboss.resteasy.client.ClientRequest;
-import org.jboss.resteasy.client.ClientResponse;
 import org.slf4j.Logger;
 import org.xdi.oxauth.client.QueryStringDecoder;
 import org.xdi.oxauth.model.common.SessionState;
@@ -19,11 +17,12 @@ import org.xdi.oxauth.model.error.ErrorResponseFactory;
 import org.xdi.oxauth.model.registration.Client;
 import org.xdi.oxauth.model.session.EndSessionErrorResponseType;
 import org.xdi.oxauth.model.util.Util;
+import org.xdi.oxauth.service.net.OutboundHttpResponse;
+import org.xdi.oxauth.service.net.OutboundHttpService;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.ws.rs.HttpMethod;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -45,6 +44,9 @@ public class RedirectionUriService {
     @Inject
     private ErrorResponseFactory errorResponseFactory;
 
+    @Inject
+    private OutboundHttpService outboundHttpService;
+
     public String validateRedirectionUri(String clientIdentifier, String redirectionUri) {
         try {
             Client client = clientService.getClient(clientIdentifier);
@@ -54,14 +56,10 @@ public class RedirectionUriService {
                 String[] redirectUris = client.getRedirectUris();
 
                 if (StringUtils.isNotBlank(sectorIdentifierUri)) {
-                    ClientRequest clientRequest = new ClientRequest(sectorIdentifierUri);
-                    clientRequest.setHttpMethod(HttpMethod.GET);
-
-                    ClientResponse<String> clientResponse = clientRequest.get(String.class);
-                    int status = clientResponse.getStatus();
+                    OutboundHttpResponse sectorIdentifierResponse = outboundHttpService.executeGet(sectorIdentifierUri);
 
-                    if (status == 200) {
-                        String entity = clientResponse.getEntity(String.class);
+                    if (sectorIdentifierResponse.isOk()) {
+                        String entity = sectorIdentifierResponse.getContentAsString();
                         JSONArray sectorIdentifierJsonArray = new JSONArray(entity);
                         redirectUris = new String[sectorIdentifierJsonArray.length()];
                         for (int i = 0; i < sectorIdentifierJsonArray.length(); i++) {
@@ -56,6 +56,20 @@ public class ScopeService {
                 Filter.createPresenceFilter("inum"));
     }
 
+    /**
+     * returns a list of all scopes with specified attributes only
+     *
+     * @return list of scopes
+     */
+    public List<org.xdi.oxauth.model.common.Scope> getAllScopesList(String[] returnAttributes) {
+        String scopesBaseDN = staticConfiguration.getBaseDn().getScopes();
+
+        return ldapEntryManager.findEntries(scopesBaseDN,
+                org.xdi.oxauth.model.common.Scope.class,
+                returnAttributes,
+                Filter.createPresenceFilter("inum"));
+    }
+
     public List<String> getDefaultScopesDn() {
         List<String> defaultScopes = new ArrayList<String>();
 
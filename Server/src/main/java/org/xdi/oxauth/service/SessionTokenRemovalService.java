@@ -0,0 +1,254 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.ldap.TokenLdap;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Removes tokens of ended sessions in background thread. Session DNs queued by end session requests are
+ * processed in batches, tokens of whole batch are found with one search. If queue is full tokens are
+ * removed in request thread. If batch search fails or some token is not removed sessions are processed
+ * one by one, session with failed search or token removal is queued again up to MAX_ATTEMPTS times. On shutdown queued sessions are processed during SHUTDOWN_TIMEOUT
+ */
+@ApplicationScoped
+@Named
+public class SessionTokenRemovalService {
+
+	private static final String METRIC_PREFIX = "session_token_removal";
+
+	private static final int QUEUE_CAPACITY = 10000;
+	private static final int BATCH_SIZE = 50;
+	private static final int MAX_ATTEMPTS = 3;
+	private static final long RETRY_DELAY = 1000; // milliseconds
+	private static final long POLL_TIMEOUT = 1000; // milliseconds
+	private static final long SHUTDOWN_TIMEOUT = 30; // seconds
+
+	@Inject
+	private Logger log;
+
+	@Inject
+	private GrantService grantService;
+
+	private MetricRegistry metricRegistry;
+
+	private BlockingQueue<PendingSession> sessions;
+
+	private ExecutorService executor;
+
+	private volatile boolean stopped;
+
+	@PostConstruct
+	public void init() {
+		this.metricRegistry = new LabeledMetricRegistry();
+		this.sessions = new LinkedBlockingQueue<PendingSession>(QUEUE_CAPACITY);
+
+		metricRegistry.register(MetricRegistry.name(METRIC_PREFIX, "pending"), new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return sessions.size();
+			}
+		});
+
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "oxauth-session-token-removal");
+				thread.setDaemon(true);
+
+				return thread;
+			}
+		});
+		this.executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				processQueue();
+			}
+		});
+	}
+
+	@PreDestroy
+	public void destroy() {
+		// New sessions are processed in request thread, queued sessions are processed before worker stops
+		this.stopped = true;
+		executor.shutdown();
+
+		try {
+			if (executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+				return;
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		executor.shutdownNow();
+		log.warn("Tokens of {} ended sessions were not removed in {} seconds, they will be removed by cleaner after expiration",
+				sessions.size(), SHUTDOWN_TIMEOUT);
+	}
+
+	public MetricRegistry getMetricRegistry() {
+		return metricRegistry;
+	}
+
+	/**
+	 * Schedules removal of all tokens issued in session
+	 */
+	public void removeAllTokensBySession(String sessionDn) {
+		if (!stopped && sessions.offer(new PendingSession(sessionDn))) {
+			return;
+		}
+
+		metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "rejected")).mark();
+		log.debug("Session token removal queue is full or stopped, removing tokens of session '{}' in request thread", sessionDn);
+		grantService.removeAllTokensBySession(sessionDn);
+	}
+
+	private void processQueue() {
+		final List<PendingSession> batch = new ArrayList<PendingSession>(BATCH_SIZE);
+		while (true) {
+			try {
+				PendingSession pendingSession = sessions.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+				if (pendingSession == null) {
+					if (stopped) {
+						return;
+					}
+					continue;
+				}
+
+				batch.add(pendingSession);
+				sessions.drainTo(batch, BATCH_SIZE - 1);
+
+				if (!removeTokens(batch) && !stopped) {
+					Thread.sleep(RETRY_DELAY);
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return false if tokens of some session were not removed
+	 */
+	private boolean removeTokens(List<PendingSession> batch) {
+		List<String> sessionDns = new ArrayList<String>(batch.size());
+		for (PendingSession pendingSession : batch) {
+			sessionDns.add(pendingSession.sessionDn);
+		}
+
+		Timer.Context timerContext = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "batch")).time();
+		try {
+			List<TokenLdap> tokens = grantService.getGrantsBySessionDns(sessionDns);
+			int failed = grantService.removeAndCountFailures(tokens);
+
+			metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "tokens")).mark(tokens.size() - failed);
+			if (failed > 0) {
+				// It's not known which sessions own failed tokens, remaining tokens are found again per session
+				metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "errors")).mark();
+				log.warn("Failed to remove {} of {} tokens of {} ended sessions, removing them one by one", failed, tokens.size(), batch.size());
+
+				return removeTokensBySession(batch);
+			}
+			log.trace("Removed {} tokens of {} ended sessions", tokens.size(), batch.size());
+		} catch (Exception ex) {
+			metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "errors")).mark();
+			log.warn("Failed to remove tokens of {} ended sessions, removing them one by one", batch.size(), ex);
+
+			return removeTokensBySession(batch);
+		} finally {
+			timerContext.stop();
+		}
+
+		for (PendingSession pendingSession : batch) {
+			markRemoved(pendingSession);
+		}
+
+		return true;
+	}
+
+	private boolean removeTokensBySession(List<PendingSession> batch) {
+		boolean result = true;
+		for (PendingSession pendingSession : batch) {
+			try {
+				List<TokenLdap> tokens = grantService.getGrantsBySessionDns(Collections.singletonList(pendingSession.sessionDn));
+				int failed = grantService.removeAndCountFailures(tokens);
+
+				metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "tokens")).mark(tokens.size() - failed);
+				if (failed > 0) {
+					throw new IllegalStateException("Failed to remove " + failed + " of " + tokens.size() + " tokens");
+				}
+				markRemoved(pendingSession);
+			} catch (Exception ex) {
+				retry(pendingSession, ex);
+				result = false;
+			}
+		}
+
+		return result;
+	}
+
+	private void retry(PendingSession pendingSession, Exception ex) {
+		if (pendingSession.attempt < MAX_ATTEMPTS) {
+			PendingSession nextAttempt = new PendingSession(pendingSession.sessionDn, pendingSession.queuedAt, pendingSession.attempt + 1);
+			if (sessions.offer(nextAttempt)) {
+				metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "retries")).mark();
+				log.debug("Failed to remove tokens of ended session '{}', attempt {} of {}", pendingSession.sessionDn, pendingSession.attempt, MAX_ATTEMPTS);
+				return;
+			}
+		}
+
+		metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "dropped")).mark();
+		log.error("Failed to remove tokens of ended session '{}', they will be removed by cleaner after expiration", pendingSession.sessionDn, ex);
+	}
+
+	private void markRemoved(PendingSession pendingSession) {
+		metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "sessions")).mark();
+		metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "delay")).update(System.nanoTime() - pendingSession.queuedAt, TimeUnit.NANOSECONDS);
+	}
+
+	private static class PendingSession {
+
+		private final String sessionDn;
+		private final long queuedAt;
+		private final int attempt;
+
+		public PendingSession(String sessionDn) {
+			this(sessionDn, System.nanoTime(), 1);
+		}
+
+		public PendingSession(String sessionDn, long queuedAt, int attempt) {
+			this.sessionDn = sessionDn;
+			this.queuedAt = queuedAt;
+			this.attempt = attempt;
+		}
+
+	}
+
+}
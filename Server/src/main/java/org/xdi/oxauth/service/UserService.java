@@ -8,6 +8,7 @@ package org.xdi.oxauth.service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -17,6 +18,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.slf4j.Logger;
 import org.xdi.ldap.model.CustomAttribute;
 import org.xdi.ldap.model.GluuStatus;
@@ -97,6 +99,29 @@ public class UserService {
 		}
 	}
 
+	/**
+	 * Finds users with several user ids with one search
+	 *
+	 * @return found users, users which don't exist are skipped
+	 */
+	public List<User> getUsers(Collection<String> userIds, String... returnAttributes) {
+		List<Filter> filters = new ArrayList<Filter>(userIds.size());
+		for (String userId : userIds) {
+			if (StringHelper.isNotEmpty(userId)) {
+				filters.add(Filter.createEqualityFilter("uid", userId));
+			}
+		}
+
+		if (filters.isEmpty()) {
+			return new ArrayList<User>();
+		}
+
+		log.debug("Getting users information from LDAP: userIds = {}", userIds);
+		Filter filter = filters.size() == 1 ? filters.get(0) : Filter.createORFilter(filters);
+
+		return ldapEntryManager.findEntries(staticConfiguration.getBaseDn().getPeople(), User.class, returnAttributes, filter);
+	}
+
 	public String getUserInum(User user) {
 		if (user == null) {
 			return null;
@@ -138,13 +163,13 @@ public class UserService {
 
     	User user = new User();
         user.setDn("inum=" + inum + "," + peopleBaseDN);
-    	user.setCustomAttributes(Arrays.asList(
+    	user.setCustomAttributes(new ArrayList<CustomAttribute>(Arrays.asList(
     			new CustomAttribute("inum", inum),
     			new CustomAttribute("gluuStatus", GluuStatus.ACTIVE.getValue()),
-				new CustomAttribute("displayName", "User " + uid + " added via oxAuth custom plugin")));
+				new CustomAttribute("displayName", "User " + uid + " added via oxAuth custom plugin"))));
     	user.setUserId(uid); 
     	
-		ldapEntryManager.persist(user);
+		persistWithNewInumOnConflict(user, peopleBaseDN);
 		
 		return getUser(uid);
 	}
@@ -159,11 +184,30 @@ public class UserService {
         
         GluuStatus status = active ? GluuStatus.ACTIVE : GluuStatus.REGISTER;
         user.setAttribute("gluuStatus",  status.getValue());
-		ldapEntryManager.persist(user);
+		persistWithNewInumOnConflict(user, peopleBaseDN);
 		
 		return getUserByDn(user.getDn());
 	}
 
+	private void persistWithNewInumOnConflict(User user, String peopleBaseDN) {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				ldapEntryManager.persist(user);
+				return;
+			} catch (EntryPersistenceException ex) {
+				if ((attempt >= InumService.MAX_PERSIST_ATTEMPTS) || !InumService.isEntryAlreadyExists(ex)) {
+					throw ex;
+				}
+
+				String inum = inumService.generatePeopleInum();
+				log.warn("User with DN '{}' already exists, retry with inum '{}'", user.getDn(), inum);
+
+				user.setDn("inum=" + inum + "," + peopleBaseDN);
+				user.setAttribute("inum", inum);
+			}
+		}
+	}
+
 
     public User getUserByAttribute(String attributeName, String attributeValue) {
         log.debug("Getting user information from LDAP: attributeName = '{}', attributeValue = '{}'", attributeName, attributeValue);
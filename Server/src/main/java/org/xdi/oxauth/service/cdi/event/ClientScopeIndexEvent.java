@@ -0,0 +1,4 @@
+package org.xdi.oxauth.service.cdi.event;
+
+public class ClientScopeIndexEvent {
+}
@@ -7,9 +7,11 @@
 package org.xdi.oxauth.service.external;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.ejb.DependsOn;
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.servlet.http.HttpServletRequest;
 
@@ -32,16 +34,24 @@ public class ExternalApplicationSessionService extends ExternalScriptService {
 
 	private static final long serialVersionUID = 2316361273036208685L;
 
+	@Inject
+	private ExternalScriptExecutor externalScriptExecutor;
+
 	public ExternalApplicationSessionService() {
 		super(CustomScriptType.APPLICATION_SESSION);
 	}
 
-	public boolean executeExternalEndSessionMethod(CustomScriptConfiguration customScriptConfiguration, HttpServletRequest httpRequest, SessionState sessionState) {
+	public boolean executeExternalEndSessionMethod(final CustomScriptConfiguration customScriptConfiguration, final HttpServletRequest httpRequest, final SessionState sessionState) {
 		try {
 			log.debug("Executing python 'endSession' method");
-			ApplicationSessionType applicationSessionType = (ApplicationSessionType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return applicationSessionType.endSession(httpRequest, sessionState, configurationAttributes);
+			final ApplicationSessionType applicationSessionType = (ApplicationSessionType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "endSession", new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return applicationSessionType.endSession(httpRequest, sessionState, configurationAttributes);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
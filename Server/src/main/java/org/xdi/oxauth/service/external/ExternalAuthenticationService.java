@@ -30,6 +30,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 /**
  * Provides factory methods needed to create external authenticator
@@ -47,6 +48,9 @@ public class ExternalAuthenticationService extends ExternalScriptService {
     @Inject
     private InternalDefaultPersonAuthenticationType internalDefaultPersonAuthenticationType;
 
+    @Inject
+    private ExternalScriptExecutor externalScriptExecutor;
+
 	private static final long serialVersionUID = 7339887464253044927L;
 
 	private Map<AuthenticationScriptUsageType, List<CustomScriptConfiguration>> customScriptConfigurationsMapByUsageType;
@@ -118,12 +122,17 @@ public class ExternalAuthenticationService extends ExternalScriptService {
 		return newDefaultCustomScriptConfigurationsMap;
 	}
 
-	private boolean executeExternalIsValidAuthenticationMethod(AuthenticationScriptUsageType usageType, CustomScriptConfiguration customScriptConfiguration) {
+	private boolean executeExternalIsValidAuthenticationMethod(final AuthenticationScriptUsageType usageType, final CustomScriptConfiguration customScriptConfiguration) {
 		try {
 			log.debug("Executing python 'isValidAuthenticationMethod' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalAuthenticator.isValidAuthenticationMethod(usageType, configurationAttributes);
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "isValidAuthenticationMethod", new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return externalAuthenticator.isValidAuthenticationMethod(usageType, configurationAttributes);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -131,12 +140,17 @@ public class ExternalAuthenticationService extends ExternalScriptService {
 		return false;
 	}
 
-	private String executeExternalGetAlternativeAuthenticationMethod(AuthenticationScriptUsageType usageType, CustomScriptConfiguration customScriptConfiguration) {
+	private String executeExternalGetAlternativeAuthenticationMethod(final AuthenticationScriptUsageType usageType, final CustomScriptConfiguration customScriptConfiguration) {
 		try {
 			log.debug("Executing python 'getAlternativeAuthenticationMethod' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalAuthenticator.getAlternativeAuthenticationMethod(usageType, configurationAttributes);
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "getAlternativeAuthenticationMethod", new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return externalAuthenticator.getAlternativeAuthenticationMethod(usageType, configurationAttributes);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -144,12 +158,17 @@ public class ExternalAuthenticationService extends ExternalScriptService {
 		return null;
 	}
 
-	public int executeExternalGetCountAuthenticationSteps(CustomScriptConfiguration customScriptConfiguration) {
+	public int executeExternalGetCountAuthenticationSteps(final CustomScriptConfiguration customScriptConfiguration) {
 		try {
 			log.debug("Executing python 'getCountAuthenticationSteps' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalAuthenticator.getCountAuthenticationSteps(configurationAttributes);
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "getCountAuthenticationSteps", new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return externalAuthenticator.getCountAuthenticationSteps(configurationAttributes);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -157,12 +176,17 @@ public class ExternalAuthenticationService extends ExternalScriptService {
 		return -1;
 	}
 
-	public boolean executeExternalAuthenticate(CustomScriptConfiguration customScriptConfiguration, Map<String, String[]> requestParameters, int step) {
+	public boolean executeExternalAuthenticate(final CustomScriptConfiguration customScriptConfiguration, final Map<String, String[]> requestParameters, final int step) {
 		try {
 			log.debug("Executing python 'authenticate' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalAuthenticator.authenticate(configurationAttributes, requestParameters, step);
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "authenticate", new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return externalAuthenticator.authenticate(configurationAttributes, requestParameters, step);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -170,12 +194,17 @@ public class ExternalAuthenticationService extends ExternalScriptService {
 		return false;
 	}
 
-	public int getNextStep(CustomScriptConfiguration customScriptConfiguration, Map<String, String[]> requestParameters, int step) {
+	public int getNextStep(final CustomScriptConfiguration customScriptConfiguration, final Map<String, String[]> requestParameters, final int step) {
 		try {
 			log.debug("Executing python 'getNextStep' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalAuthenticator.getNextStep(configurationAttributes, requestParameters, step);
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "getNextStep", new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return externalAuthenticator.getNextStep(configurationAttributes, requestParameters, step);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -183,36 +212,51 @@ public class ExternalAuthenticationService extends ExternalScriptService {
 		return -1;
 	}
 
-	public boolean executeExternalLogout(CustomScriptConfiguration customScriptConfiguration, Map<String, String[]> requestParameters) {
+	public boolean executeExternalLogout(final CustomScriptConfiguration customScriptConfiguration, final Map<String, String[]> requestParameters) {
 		try {
 			log.debug("Executing python 'logout' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalAuthenticator.logout(configurationAttributes, requestParameters);
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "logout", new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return externalAuthenticator.logout(configurationAttributes, requestParameters);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
 		return false;
 	}
 
-	public String getLogoutExternalUrl(CustomScriptConfiguration customScriptConfiguration, Map<String, String[]> requestParameters) {
+	public String getLogoutExternalUrl(final CustomScriptConfiguration customScriptConfiguration, final Map<String, String[]> requestParameters) {
 		try {
 			log.debug("Executing python 'getLogouExternalUrl' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalAuthenticator.getLogoutExternalUrl(configurationAttributes, requestParameters);
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "getLogoutExternalUrl", new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return externalAuthenticator.getLogoutExternalUrl(configurationAttributes, requestParameters);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
 		return null;
 	}
 
-	public boolean executeExternalPrepareForStep(CustomScriptConfiguration customScriptConfiguration, Map<String, String[]> requestParameters, int step) {
+	public boolean executeExternalPrepareForStep(final CustomScriptConfiguration customScriptConfiguration, final Map<String, String[]> requestParameters, final int step) {
 		try {
 			log.debug("Executing python 'prepareForStep' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalAuthenticator.prepareForStep(configurationAttributes, requestParameters, step);
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "prepareForStep", new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return externalAuthenticator.prepareForStep(configurationAttributes, requestParameters, step);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -220,12 +264,17 @@ public class ExternalAuthenticationService extends ExternalScriptService {
 		return false;
 	}
 
-	public List<String> executeExternalGetExtraParametersForStep(CustomScriptConfiguration customScriptConfiguration, int step) {
+	public List<String> executeExternalGetExtraParametersForStep(final CustomScriptConfiguration customScriptConfiguration, final int step) {
 		try {
 			log.debug("Executing python 'getExtraParametersForStep' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalAuthenticator.getExtraParametersForStep(configurationAttributes, step);
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "getExtraParametersForStep", new Callable<List<String>>() {
+				@Override
+				public List<String> call() throws Exception {
+					return externalAuthenticator.getExtraParametersForStep(configurationAttributes, step);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -233,12 +282,17 @@ public class ExternalAuthenticationService extends ExternalScriptService {
 		return null;
 	}
 
-	public String executeExternalGetPageForStep(CustomScriptConfiguration customScriptConfiguration, int step) {
+	public String executeExternalGetPageForStep(final CustomScriptConfiguration customScriptConfiguration, final int step) {
 		try {
 			log.debug("Executing python 'getPageForStep' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalAuthenticator.getPageForStep(configurationAttributes, step);
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.execute(customScriptConfiguration, "getPageForStep", new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return externalAuthenticator.getPageForStep(configurationAttributes, step);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -246,11 +300,16 @@ public class ExternalAuthenticationService extends ExternalScriptService {
 		return null;
 	}
 
-	public int executeExternalGetApiVersion(CustomScriptConfiguration customScriptConfiguration) {
+	public int executeExternalGetApiVersion(final CustomScriptConfiguration customScriptConfiguration) {
 		try {
 			log.debug("Executing python 'getApiVersion' authenticator method");
-			PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
-			return externalAuthenticator.getApiVersion();
+			final PersonAuthenticationType externalAuthenticator = (PersonAuthenticationType) customScriptConfiguration.getExternalType();
+			return externalScriptExecutor.execute(customScriptConfiguration, "getApiVersion", new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return externalAuthenticator.getApiVersion();
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -7,9 +7,11 @@
 package org.xdi.oxauth.service.external;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.ejb.DependsOn;
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xdi.model.SimpleCustomProperty;
@@ -32,16 +34,24 @@ public class ExternalDynamicClientRegistrationService extends ExternalScriptServ
 
 	private static final long serialVersionUID = 1416361273036208685L;
 
+	@Inject
+	private ExternalScriptExecutor externalScriptExecutor;
+
 	public ExternalDynamicClientRegistrationService() {
 		super(CustomScriptType.CLIENT_REGISTRATION);
 	}
 
-	public boolean executeExternalUpdateClientMethod(CustomScriptConfiguration customScriptConfiguration, RegisterRequest registerRequest, Client client) {
+	public boolean executeExternalUpdateClientMethod(final CustomScriptConfiguration customScriptConfiguration, final RegisterRequest registerRequest, final Client client) {
 		try {
 			log.debug("Executing python 'updateClient' method");
-			ClientRegistrationType externalClientRegistrationType = (ClientRegistrationType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalClientRegistrationType.updateClient(registerRequest, client, configurationAttributes);
+			final ClientRegistrationType externalClientRegistrationType = (ClientRegistrationType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.executeWithTimeout(customScriptConfiguration, "updateClient", new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return externalClientRegistrationType.updateClient(registerRequest, client, configurationAttributes);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -9,9 +9,11 @@ package org.xdi.oxauth.service.external;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.ejb.DependsOn;
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xdi.model.SimpleCustomProperty;
@@ -35,16 +37,24 @@ public class ExternalDynamicScopeService extends ExternalScriptService {
 
 	private static final long serialVersionUID = 1416361273036208685L;
 
+	@Inject
+	private ExternalScriptExecutor externalScriptExecutor;
+
 	public ExternalDynamicScopeService() {
 		super(CustomScriptType.DYNAMIC_SCOPE);
 	}
 
-	public boolean executeExternalUpdateMethod(CustomScriptConfiguration customScriptConfiguration, DynamicScopeExternalContext dynamicScopeContext) {
+	public boolean executeExternalUpdateMethod(final CustomScriptConfiguration customScriptConfiguration, final DynamicScopeExternalContext dynamicScopeContext) {
 		try {
 			log.debug("Executing python 'update' method");
-			DynamicScopeType dynamicScopeType = (DynamicScopeType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return dynamicScopeType.update(dynamicScopeContext, configurationAttributes);
+			final DynamicScopeType dynamicScopeType = (DynamicScopeType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.executeWithTimeout(customScriptConfiguration, "update", new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return dynamicScopeType.update(dynamicScopeContext, configurationAttributes);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -7,9 +7,11 @@
 package org.xdi.oxauth.service.external;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.ejb.DependsOn;
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.xdi.model.SimpleCustomProperty;
@@ -30,16 +32,24 @@ public class ExternalIdGeneratorService extends ExternalScriptService {
 
 	private static final long serialVersionUID = 1727751544454591273L;
 
+	@Inject
+	private ExternalScriptExecutor externalScriptExecutor;
+
 	public ExternalIdGeneratorService() {
 		super(CustomScriptType.ID_GENERATOR);
 	}
 
-	public String executeExternalGenerateIdMethod(CustomScriptConfiguration customScriptConfiguration, String appId, String idType, String idPrefix) {
+	public String executeExternalGenerateIdMethod(final CustomScriptConfiguration customScriptConfiguration, final String appId, final String idType, final String idPrefix) {
 		try {
 			log.debug("Executing python 'generateId' method");
-			IdGeneratorType externalType = (IdGeneratorType) customScriptConfiguration.getExternalType();
-			Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
-			return externalType.generateId(appId, idType, idPrefix, configurationAttributes);
+			final IdGeneratorType externalType = (IdGeneratorType) customScriptConfiguration.getExternalType();
+			final Map<String, SimpleCustomProperty> configurationAttributes = customScriptConfiguration.getConfigurationAttributes();
+			return externalScriptExecutor.executeWithTimeout(customScriptConfiguration, "generateId", new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return externalType.generateId(appId, idType, idPrefix, configurationAttributes);
+				}
+			});
 		} catch (Exception ex) {
 			log.error(ex.getMessage(), ex);
 		}
@@ -0,0 +1,190 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.external;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xdi.model.custom.script.conf.CustomScriptConfiguration;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.service.LabeledMetricRegistry;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Executes custom script methods and collects per script and method latency, error, slow call and timeout metrics.
+ * Calls which take more than customScriptSlowCallThreshold are counted and logged into separate slow call logger
+ *
+ * Methods which depend on request thread state (authentication, UMA RPT policy and claims gathering scripts)
+ * should be executed in caller thread with {@link #execute(CustomScriptConfiguration, String, Callable)}.
+ * Methods which work only with passed arguments are executed with
+ * {@link #executeWithTimeout(CustomScriptConfiguration, String, Callable)} on bounded script executor
+ * and fail after customScriptTimeout milliseconds
+ */
+@ApplicationScoped
+@Named
+public class ExternalScriptExecutor {
+
+	private static final String METRIC_PREFIX = "script";
+
+	private static final Logger slowCallLog = LoggerFactory.getLogger(ExternalScriptExecutor.class.getName() + ".slow");
+
+	@Inject
+	private Logger log;
+
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	private MetricRegistry metricRegistry;
+
+	private ThreadPoolExecutor executor;
+
+	@PostConstruct
+	public void init() {
+		this.metricRegistry = new LabeledMetricRegistry();
+
+		int threads = appConfiguration.getCustomScriptExecutorThreads();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(threads * 10), new ScriptThreadFactory());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	public MetricRegistry getMetricRegistry() {
+		return metricRegistry;
+	}
+
+	/**
+	 * Executes script method in current thread
+	 */
+	public <T> T execute(CustomScriptConfiguration script, String method, Callable<T> call) throws Exception {
+		String scriptName = getScriptName(script);
+
+		Timer.Context timerContext = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, scriptName, method)).time();
+		boolean success = false;
+		try {
+			T result = call.call();
+			success = true;
+
+			return result;
+		} finally {
+			long duration = timerContext.stop();
+			if (!success) {
+				metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, scriptName, method, "errors")).mark();
+			}
+			logSlowCall(scriptName, method, duration);
+		}
+	}
+
+	/**
+	 * Executes script method in script executor and waits customScriptTimeout milliseconds for result.
+	 * After timeout script thread is interrupted and call fails with {@link TimeoutException}, result of
+	 * script which finishes later is discarded. Call fails with {@link RejectedExecutionException} if all
+	 * script threads are busy and executor queue is full
+	 */
+	public <T> T executeWithTimeout(final CustomScriptConfiguration script, final String method, final Callable<T> call) throws Exception {
+		int timeout = appConfiguration.getCustomScriptTimeout();
+		if (timeout <= 0) {
+			return execute(script, method, call);
+		}
+
+		String scriptName = getScriptName(script);
+
+		Future<T> future;
+		try {
+			future = executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					return execute(script, method, call);
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, scriptName, method, "rejected")).mark();
+			log.error("Script '{}' method '{}' was rejected, script executor queue is full", scriptName, method);
+			throw ex;
+		}
+
+		try {
+			return future.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException ex) {
+			future.cancel(true);
+			metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, scriptName, method, "timeouts")).mark();
+			log.error("Script '{}' method '{}' didn't finish in {} ms", scriptName, method, timeout);
+			throw ex;
+		} catch (InterruptedException ex) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw ex;
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw ex;
+		}
+	}
+
+	private void logSlowCall(String scriptName, String method, long durationNanos) {
+		int threshold = appConfiguration.getCustomScriptSlowCallThreshold();
+		if (threshold <= 0) {
+			return;
+		}
+
+		long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+		if (durationMillis >= threshold) {
+			metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, scriptName, method, "slow-calls")).mark();
+			slowCallLog.warn("Script '{}' method '{}' took {} ms", scriptName, method, durationMillis);
+		}
+	}
+
+	private String getScriptName(CustomScriptConfiguration script) {
+		if ((script == null) || (script.getName() == null)) {
+			return "unknown";
+		}
+
+		return script.getName();
+	}
+
+	private static class ScriptThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "oxauth-script-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+
+	}
+
+}
@@ -6,6 +6,7 @@
 
 package org.xdi.oxauth.service.fido.u2f;
 
+import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -25,6 +26,7 @@ import org.xdi.oxauth.exception.fido.u2f.DeviceCompromisedException;
 import org.xdi.oxauth.exception.fido.u2f.InvalidKeyHandleDeviceException;
 import org.xdi.oxauth.exception.fido.u2f.NoEligableDevicesException;
 import org.xdi.oxauth.model.config.StaticConfiguration;
+import org.xdi.oxauth.model.exception.SignatureException;
 import org.xdi.oxauth.model.fido.u2f.AuthenticateRequestMessageLdap;
 import org.xdi.oxauth.model.fido.u2f.DeviceRegistration;
 import org.xdi.oxauth.model.fido.u2f.DeviceRegistrationResult;
@@ -38,8 +40,6 @@ import org.xdi.oxauth.model.util.Base64Util;
 import org.xdi.oxauth.service.UserService;
 import org.xdi.util.StringHelper;
 
-import com.unboundid.ldap.sdk.Filter;
-
 /**
  * Provides operations with U2F authentication request
  *
@@ -151,14 +151,17 @@ public class AuthenticationService extends RequestService {
 		clientDataValidationService.checkContent(clientData, RawAuthenticationService.SUPPORTED_AUTHENTICATE_TYPES, request.getChallenge(), facets);
 
 		RawAuthenticateResponse rawAuthenticateResponse = rawAuthenticationService.parseRawAuthenticateResponse(response.getSignatureData());
-		rawAuthenticationService.checkSignature(request.getAppId(), clientData, rawAuthenticateResponse,
-				Base64Util.base64urldecode(usedDeviceRegistration.getDeviceRegistrationConfiguration().getPublicKey()));
+		PublicKey publicKey;
+		try {
+			publicKey = deviceRegistrationService.getPublicKey(usedDeviceRegistration);
+		} catch (SignatureException ex) {
+			throw new BadInputException("Failed to decode device public key", ex);
+		}
+		rawAuthenticationService.checkSignature(request.getAppId(), clientData, rawAuthenticateResponse, publicKey);
 		rawAuthenticateResponse.checkUserPresence();
-		usedDeviceRegistration.checkAndUpdateCounter(rawAuthenticateResponse.getCounter());
-
-		usedDeviceRegistration.setLastAccessTime(new Date());
 
-		deviceRegistrationService.updateDeviceRegistration(userInum, usedDeviceRegistration);
+		// Counter is stored only if LDAP entry still has counter and status of cached device registration
+		usedDeviceRegistration = deviceRegistrationService.checkAndUpdateDeviceCounter(usedDeviceRegistration, rawAuthenticateResponse.getCounter());
 
 		DeviceRegistrationResult.Status status = DeviceRegistrationResult.Status.APPROVED; 
 
@@ -192,7 +195,7 @@ public class AuthenticationService extends RequestService {
 		AuthenticateRequestMessageLdap authenticateRequestMessageLdap = new AuthenticateRequestMessageLdap(getDnForAuthenticateRequestMessage(authenticateRequestMessageId),
 				authenticateRequestMessageId, now, sessionState, userInum, requestMessage);
 
-		ldapEntryManager.persist(authenticateRequestMessageLdap);
+		storeRequestMessage(authenticateRequestMessageLdap);
 	}
 
 	public AuthenticateRequestMessage getAuthenticationRequestMessage(String oxId) {
@@ -207,16 +210,14 @@ public class AuthenticationService extends RequestService {
 	}
 
 	public AuthenticateRequestMessageLdap getAuthenticationRequestMessageByRequestId(String requestId) {
-		String baseDn = getDnForAuthenticateRequestMessage(null);
-		Filter requestIdFilter = Filter.createEqualityFilter("oxRequestId", requestId);
-
-		List<AuthenticateRequestMessageLdap> authenticateRequestMessagesLdap = ldapEntryManager.findEntries(baseDn, AuthenticateRequestMessageLdap.class,
-				requestIdFilter);
-		if ((authenticateRequestMessagesLdap == null) || authenticateRequestMessagesLdap.isEmpty()) {
-			return null;
-		}
+		return findRequestMessageByRequestId(AuthenticateRequestMessageLdap.class, getDnForAuthenticateRequestMessage(null), requestId);
+	}
 
-		return authenticateRequestMessagesLdap.get(0);
+	/**
+	 * Returns stored authentication request and removes it from store
+	 */
+	public AuthenticateRequestMessageLdap consumeAuthenticationRequestMessage(String requestId) {
+		return consumeRequestMessage(AuthenticateRequestMessageLdap.class, getDnForAuthenticateRequestMessage(null), requestId);
 	}
 
 	public void removeAuthenticationRequestMessage(AuthenticateRequestMessageLdap authenticateRequestMessageLdap) {
@@ -0,0 +1,105 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.fido.u2f;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.xdi.oxauth.crypto.signature.SHA256withECDSASignatureVerification;
+import org.xdi.oxauth.model.exception.SignatureException;
+import org.xdi.oxauth.model.fido.u2f.DeviceRegistration;
+import org.xdi.oxauth.model.util.Base64Util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Keeps user U2F device registrations per application and decoded device public keys.
+ * Device lists are keyed by user devices base DN and should be invalidated on every device change.
+ * Cached device counters and statuses can be stale, counter update on authentication asserts them against LDAP entry
+ */
+@ApplicationScoped
+@Named
+public class DeviceRegistrationCache {
+
+	private static final int DEVICES_LIFETIME = 5; // minutes
+	private static final int PUBLIC_KEYS_LIFETIME = 60; // minutes
+	private static final int MAX_SIZE = 10000;
+
+	@Inject @Named(value = "sha256withECDSASignatureVerification")
+	private SHA256withECDSASignatureVerification signatureVerification;
+
+	private final Cache<String, ConcurrentMap<String, List<DeviceRegistration>>> devices = CacheBuilder.newBuilder().maximumSize(MAX_SIZE)
+			.expireAfterWrite(DEVICES_LIFETIME, TimeUnit.MINUTES).build();
+
+	private final Cache<String, PublicKey> publicKeys = CacheBuilder.newBuilder().maximumSize(MAX_SIZE)
+			.expireAfterAccess(PUBLIC_KEYS_LIFETIME, TimeUnit.MINUTES).build();
+
+	/**
+	 * @return copy of cached device registrations list or null if there is no entry
+	 */
+	public List<DeviceRegistration> getDeviceRegistrations(String baseDn, String appId) {
+		ConcurrentMap<String, List<DeviceRegistration>> userDevices = devices.getIfPresent(getKey(baseDn));
+		if (userDevices == null) {
+			return null;
+		}
+
+		List<DeviceRegistration> deviceRegistrations = userDevices.get(String.valueOf(appId));
+		if (deviceRegistrations == null) {
+			return null;
+		}
+
+		return new ArrayList<DeviceRegistration>(deviceRegistrations);
+	}
+
+	public void putDeviceRegistrations(String baseDn, String appId, List<DeviceRegistration> deviceRegistrations) {
+		ConcurrentMap<String, List<DeviceRegistration>> userDevices = devices.getIfPresent(getKey(baseDn));
+		if (userDevices == null) {
+			userDevices = new ConcurrentHashMap<String, List<DeviceRegistration>>();
+			devices.put(getKey(baseDn), userDevices);
+		}
+
+		userDevices.put(String.valueOf(appId), new ArrayList<DeviceRegistration>(deviceRegistrations));
+	}
+
+	public void invalidate(String baseDn) {
+		devices.invalidate(getKey(baseDn));
+	}
+
+	public void invalidateAll() {
+		devices.invalidateAll();
+	}
+
+	/**
+	 * Returns decoded device public key. Keys are cached by encoded value so there is no need to invalidate them
+	 */
+	public PublicKey getPublicKey(DeviceRegistration deviceRegistration) throws SignatureException {
+		String encodedPublicKey = deviceRegistration.getDeviceRegistrationConfiguration().getPublicKey();
+
+		PublicKey publicKey = publicKeys.getIfPresent(encodedPublicKey);
+		if (publicKey == null) {
+			publicKey = signatureVerification.decodePublicKey(Base64Util.base64urldecode(encodedPublicKey));
+			publicKeys.put(encodedPublicKey, publicKey);
+		}
+
+		return publicKey;
+	}
+
+	private String getKey(String baseDn) {
+		return baseDn.toLowerCase(Locale.ROOT);
+	}
+
+}
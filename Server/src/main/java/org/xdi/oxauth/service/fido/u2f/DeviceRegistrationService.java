@@ -6,6 +6,7 @@
 
 package org.xdi.oxauth.service.fido.u2f;
 
+import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -16,10 +17,13 @@ import javax.inject.Named;
 
 import org.gluu.site.ldap.persistence.BatchOperation;
 import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.slf4j.Logger;
+import org.xdi.oxauth.exception.fido.u2f.DeviceCompromisedException;
 import org.xdi.ldap.model.SearchScope;
 import org.xdi.ldap.model.SimpleBranch;
 import org.xdi.oxauth.model.config.StaticConfiguration;
+import org.xdi.oxauth.model.exception.SignatureException;
 import org.xdi.oxauth.model.fido.u2f.DeviceRegistration;
 import org.xdi.oxauth.model.fido.u2f.DeviceRegistrationStatus;
 import org.xdi.oxauth.model.util.Base64Util;
@@ -28,6 +32,12 @@ import org.xdi.oxauth.service.UserService;
 import org.xdi.util.StringHelper;
 
 import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+import com.unboundid.ldap.sdk.ModifyRequest;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.controls.AssertionRequestControl;
 
 /**
  * Provides operations with user U2F devices
@@ -50,6 +60,9 @@ public class DeviceRegistrationService {
 	@Inject
 	private StaticConfiguration staticConfiguration;
 
+	@Inject
+	private DeviceRegistrationCache deviceRegistrationCache;
+
 	public void addBranch(final String userInum) {
 		SimpleBranch branch = new SimpleBranch();
 		branch.setOrganizationalUnitName("fido");
@@ -78,12 +91,27 @@ public class DeviceRegistrationService {
 	}
 
 	public List<DeviceRegistration> findUserDeviceRegistrations(String userInum, String appId, String ... returnAttributes) {
+		String baseDnForU2fDevices = getBaseDnForU2fUserDevices(userInum);
+
+		// Cache only complete entries
+		boolean useCache = (returnAttributes == null) || (returnAttributes.length == 0);
+		if (useCache) {
+			List<DeviceRegistration> deviceRegistrations = deviceRegistrationCache.getDeviceRegistrations(baseDnForU2fDevices, appId);
+			if (deviceRegistrations != null) {
+				return deviceRegistrations;
+			}
+		}
+
 		prepareBranch(userInum);
 
-		String baseDnForU2fDevices = getBaseDnForU2fUserDevices(userInum);
 		Filter appIdFilter = Filter.createEqualityFilter("oxApplication", appId);
 
-		return ldapEntryManager.findEntries(baseDnForU2fDevices, DeviceRegistration.class, returnAttributes, appIdFilter);
+		List<DeviceRegistration> deviceRegistrations = ldapEntryManager.findEntries(baseDnForU2fDevices, DeviceRegistration.class, returnAttributes, appIdFilter);
+		if (useCache) {
+			deviceRegistrationCache.putDeviceRegistrations(baseDnForU2fDevices, appId, deviceRegistrations);
+		}
+
+		return deviceRegistrations;
 	}
 
 	public List<DeviceRegistration> findDeviceRegistrationsByKeyHandle(String appId, String keyHandle, String ... returnAttributes) {
@@ -115,6 +143,7 @@ public class DeviceRegistrationService {
 		prepareBranch(userInum);
 
 		ldapEntryManager.persist(deviceRegistration);
+		deviceRegistrationCache.invalidate(getBaseDnForU2fUserDevices(userInum));
 	}
 
 	public boolean attachUserDeviceRegistration(String userInum, String oneStepDeviceId) {
@@ -146,16 +175,76 @@ public class DeviceRegistrationService {
 		prepareBranch(userInum);
 
 		ldapEntryManager.merge(deviceRegistration);
+		deviceRegistrationCache.invalidate(getBaseDnForU2fUserDevices(userInum));
+	}
+
+	/**
+	 * Checks device status and signature counter and stores new counter and last access time with single LDAP modify.
+	 * Device registration can come from cache, so modify asserts that LDAP entry still has checked counter and
+	 * is not compromised. If entry was changed by another request or node, cached registrations are invalidated
+	 * and authentication fails
+	 *
+	 * @return device registration with updated counter
+	 */
+	public DeviceRegistration checkAndUpdateDeviceCounter(DeviceRegistration deviceRegistration, long counter) throws DeviceCompromisedException {
+		// Cached device registration object is shared between concurrent requests
+		synchronized (deviceRegistration) {
+			if (deviceRegistration.isCompromised()) {
+				throw new DeviceCompromisedException(deviceRegistration, "The device is marked as possibly compromised, and cannot be authenticated");
+			}
+
+			long checkedCounter = deviceRegistration.getCounter();
+			deviceRegistration.checkAndUpdateCounter(counter);
+			deviceRegistration.setLastAccessTime(new Date());
+
+			Filter assertionFilter = Filter.createANDFilter(Filter.createEqualityFilter("oxCounter", String.valueOf(checkedCounter)),
+					Filter.createNOTFilter(Filter.createEqualityFilter("oxStatus", DeviceRegistrationStatus.COMPROMISED.getValue())));
+			ModifyRequest modifyRequest = new ModifyRequest(deviceRegistration.getDn(),
+					new Modification(ModificationType.REPLACE, "oxCounter", String.valueOf(deviceRegistration.getCounter())),
+					new Modification(ModificationType.REPLACE, "oxLastAccessTime", ldapEntryManager.encodeGeneralizedTime(deviceRegistration.getLastAccessTime())));
+			modifyRequest.addControl(new AssertionRequestControl(assertionFilter));
+
+			try {
+				ldapEntryManager.getLdapOperationService().getConnectionPool().modify(modifyRequest);
+			} catch (LDAPException ex) {
+				invalidateUserDeviceRegistrations(deviceRegistration);
+				if (ResultCode.ASSERTION_FAILED.equals(ex.getResultCode())) {
+					throw new EntryPersistenceException(String.format("Device '%s' counter or status was changed concurrently", deviceRegistration.getDn()), ex);
+				}
+
+				throw new EntryPersistenceException(String.format("Failed to update counter of device '%s'", deviceRegistration.getDn()), ex);
+			}
+		}
+
+		return deviceRegistration;
 	}
 
 	public void disableUserDeviceRegistration(DeviceRegistration deviceRegistration) {
 		deviceRegistration.setStatus(DeviceRegistrationStatus.COMPROMISED);
 
 		ldapEntryManager.merge(deviceRegistration);
+		invalidateUserDeviceRegistrations(deviceRegistration);
 	}
 
 	public void removeUserDeviceRegistration(DeviceRegistration deviceRegistration) {
 		ldapEntryManager.remove(deviceRegistration);
+		invalidateUserDeviceRegistrations(deviceRegistration);
+	}
+
+	public PublicKey getPublicKey(DeviceRegistration deviceRegistration) throws SignatureException {
+		return deviceRegistrationCache.getPublicKey(deviceRegistration);
+	}
+
+	private void invalidateUserDeviceRegistrations(DeviceRegistration deviceRegistration) {
+		// Device DN is "oxId=...,<user devices base DN>"
+		String deviceDn = deviceRegistration.getDn();
+		int index = (deviceDn == null) ? -1 : deviceDn.indexOf(',');
+		if (index == -1) {
+			deviceRegistrationCache.invalidateAll();
+			return;
+		}
+
+		deviceRegistrationCache.invalidate(deviceDn.substring(index + 1));
 	}
 
 	public List<DeviceRegistration> getExpiredDeviceRegistrations(BatchOperation<DeviceRegistration> batchOperation, Date expirationDate) {
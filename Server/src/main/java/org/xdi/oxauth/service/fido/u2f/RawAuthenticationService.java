@@ -7,6 +7,7 @@
 package org.xdi.oxauth.service.fido.u2f;
 
 import java.io.IOException;
+import java.security.PublicKey;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -56,12 +57,20 @@ public class RawAuthenticationService {
 	}
 
 	public void checkSignature(String appId, ClientData clientData, RawAuthenticateResponse rawAuthenticateResponse, byte[] publicKey) throws BadInputException {
+		try {
+			checkSignature(appId, clientData, rawAuthenticateResponse, signatureVerification.decodePublicKey(publicKey));
+		} catch (SignatureException ex) {
+			throw new BadInputException("Failed to checkSignature", ex);
+		}
+	}
+
+	public void checkSignature(String appId, ClientData clientData, RawAuthenticateResponse rawAuthenticateResponse, PublicKey publicKey) throws BadInputException {
 		String rawClientData = clientData.getRawClientData();
 
 		byte[] signedBytes = packBytesToSign(signatureVerification.hash(appId), rawAuthenticateResponse.getUserPresence(),
 				rawAuthenticateResponse.getCounter(), signatureVerification.hash(rawClientData));
 		try {
-			signatureVerification.checkSignature(signatureVerification.decodePublicKey(publicKey), signedBytes, rawAuthenticateResponse.getSignature());
+			signatureVerification.checkSignature(publicKey, signedBytes, rawAuthenticateResponse.getSignature());
 		} catch (SignatureException ex) {
 			throw new BadInputException("Failed to checkSignature", ex);
 		}
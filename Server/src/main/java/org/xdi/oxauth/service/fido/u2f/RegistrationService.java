@@ -41,8 +41,6 @@ import org.xdi.oxauth.service.UserService;
 import org.xdi.oxauth.util.ServerUtil;
 import org.xdi.util.StringHelper;
 
-import com.unboundid.ldap.sdk.Filter;
-
 /**
  * Provides operations with U2F registration requests
  *
@@ -191,7 +189,7 @@ public class RegistrationService extends RequestService {
 		RequestMessageLdap registerRequestMessageLdap = new RegisterRequestMessageLdap(getDnForRegisterRequestMessage(registerRequestMessageId),
 				registerRequestMessageId, now, sessionState, userInum, requestMessage);
 
-		ldapEntryManager.persist(registerRequestMessageLdap);
+		storeRequestMessage(registerRequestMessageLdap);
 	}
 
 	public RegisterRequestMessage getRegisterRequestMessage(String oxId) {
@@ -206,16 +204,14 @@ public class RegistrationService extends RequestService {
 	}
 
 	public RegisterRequestMessageLdap getRegisterRequestMessageByRequestId(String requestId) {
-		String baseDn = getDnForRegisterRequestMessage(null);
-		Filter requestIdFilter = Filter.createEqualityFilter("oxRequestId", requestId);
-
-		List<RegisterRequestMessageLdap> registerRequestMessagesLdap = ldapEntryManager.findEntries(baseDn, RegisterRequestMessageLdap.class,
-				requestIdFilter);
-		if ((registerRequestMessagesLdap == null) || registerRequestMessagesLdap.isEmpty()) {
-			return null;
-		}
+		return findRequestMessageByRequestId(RegisterRequestMessageLdap.class, getDnForRegisterRequestMessage(null), requestId);
+	}
 
-		return registerRequestMessagesLdap.get(0);
+	/**
+	 * Returns stored registration request and removes it from store
+	 */
+	public RegisterRequestMessageLdap consumeRegisterRequestMessage(String requestId) {
+		return consumeRequestMessage(RegisterRequestMessageLdap.class, getDnForRegisterRequestMessage(null), requestId);
 	}
 
 	public void removeRegisterRequestMessage(RequestMessageLdap registerRequestMessageLdap) {
@@ -8,6 +8,7 @@ package org.xdi.oxauth.service.fido.u2f;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -15,16 +16,25 @@ import javax.inject.Named;
 
 import org.gluu.site.ldap.persistence.BatchOperation;
 import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.slf4j.Logger;
 import org.xdi.ldap.model.SearchScope;
 import org.xdi.oxauth.model.config.StaticConfiguration;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.model.fido.u2f.RequestMessageLdap;
 import org.xdi.oxauth.service.CleanerTimer;
+import org.xdi.service.CacheService;
+import org.xdi.service.cache.CacheConfiguration;
+import org.xdi.service.cache.CacheProviderType;
 
+import com.google.common.util.concurrent.Striped;
 import com.unboundid.ldap.sdk.Filter;
 
 /**
- * Provides generic operations with U2F requests
+ * Provides generic operations with U2F requests. Requests are short lived, they are kept in in-memory
+ * cache with u2fRequestLifetime expiration. LDAP is used if u2fRequestsInLdap is enabled or if cache is
+ * shared between nodes (memcached, redis): cache has no atomic remove, so only LDAP can guarantee that
+ * request is consumed once in cluster
  *
  * @author Yuriy Movchan Date: 05/19/2015
  */
@@ -32,6 +42,14 @@ import com.unboundid.ldap.sdk.Filter;
 @Named("u2fRequestService")
 public class RequestService {
 
+	private static final String CACHE_KEY_PREFIX = "u2f_request_";
+
+	/**
+	 * Serializes get and remove of the same request in this instance to reject replayed responses.
+	 * It's enough for in-memory cache only, because it's not shared with other instances
+	 */
+	private static final Striped<Lock> REQUEST_LOCKS = Striped.lazyWeakLock(64);
+
 	@Inject
 	private Logger log;
 
@@ -41,6 +59,84 @@ public class RequestService {
 	@Inject
 	private StaticConfiguration staticConfiguration;
 
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	@Inject
+	private CacheService cacheService;
+
+	@Inject
+	private CacheConfiguration cacheConfiguration;
+
+	public boolean isRequestsInLdap() {
+		return Boolean.TRUE.equals(appConfiguration.getU2fRequestsInLdap())
+				|| (cacheConfiguration.getCacheProviderType() != CacheProviderType.IN_MEMORY);
+	}
+
+	protected void storeRequestMessage(RequestMessageLdap requestMessageLdap) {
+		if (isRequestsInLdap()) {
+			ldapEntryManager.persist(requestMessageLdap);
+			return;
+		}
+
+		String key = getCacheKey(requestMessageLdap.getClass(), requestMessageLdap.getRequestId());
+		cacheService.put(Integer.toString(appConfiguration.getU2fRequestLifetime()), key, requestMessageLdap); // first parameter is expiration instead of region for memcached
+	}
+
+	/**
+	 * Returns request message and removes it. Each request message can be returned only once
+	 */
+	protected <T extends RequestMessageLdap> T consumeRequestMessage(Class<T> entryClass, String baseDn, String requestId) {
+		if (isRequestsInLdap()) {
+			T requestMessageLdap = findRequestMessageByRequestId(entryClass, baseDn, requestId);
+			if (requestMessageLdap == null) {
+				return null;
+			}
+
+			// Only one of concurrent consumers removes entry, others fail
+			try {
+				removeRequestMessage(requestMessageLdap);
+			} catch (EntryPersistenceException ex) {
+				log.debug("U2F request '{}' was consumed already", requestId, ex);
+				return null;
+			}
+
+			return requestMessageLdap;
+		}
+
+		String key = getCacheKey(entryClass, requestId);
+
+		Lock lock = REQUEST_LOCKS.get(key);
+		lock.lock();
+		try {
+			Object cachedRequestMessage = cacheService.get(null, key);
+			if (cachedRequestMessage == null) {
+				return null;
+			}
+			cacheService.remove(null, key);
+
+			if (!entryClass.isInstance(cachedRequestMessage)) {
+				log.error("Unexpected U2F request type in cache: '{}'", cachedRequestMessage.getClass());
+				return null;
+			}
+
+			return entryClass.cast(cachedRequestMessage);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	protected <T extends RequestMessageLdap> T findRequestMessageByRequestId(Class<T> entryClass, String baseDn, String requestId) {
+		Filter requestIdFilter = Filter.createEqualityFilter("oxRequestId", requestId);
+
+		List<T> requestMessagesLdap = ldapEntryManager.findEntries(baseDn, entryClass, requestIdFilter);
+		if ((requestMessagesLdap == null) || requestMessagesLdap.isEmpty()) {
+			return null;
+		}
+
+		return requestMessagesLdap.get(0);
+	}
+
 	public List<RequestMessageLdap> getExpiredRequestMessages(BatchOperation<RequestMessageLdap> batchOperation, Date expirationDate) {
 		final String u2fBaseDn = staticConfiguration.getBaseDn().getU2fBase(); // ou=u2f,o=@!1111,o=gluu
 		Filter expirationFilter = Filter.createLessOrEqualFilter("creationDate", ldapEntryManager.encodeGeneralizedTime(expirationDate));
@@ -54,4 +150,8 @@ public class RequestService {
 		ldapEntryManager.remove(requestMessageLdap);
 	}
 
+	private String getCacheKey(Class<?> entryClass, String requestId) {
+		return CACHE_KEY_PREFIX + entryClass.getSimpleName() + "_" + requestId;
+	}
+
 }
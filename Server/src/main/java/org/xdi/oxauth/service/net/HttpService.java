@@ -17,6 +17,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -43,10 +44,13 @@ import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
 import org.apache.http.util.EntityUtils;
 import org.jboss.resteasy.util.HttpResponseCodes;
 import org.slf4j.Logger;
 import org.xdi.net.SslDefaultHttpClient;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
 import org.xdi.oxauth.model.net.HttpServiceResponse;
 import org.xdi.util.StringHelper;
 import org.xdi.util.Util;
@@ -64,14 +68,49 @@ public class HttpService implements Serializable {
 	@Inject
 	private Logger log;
 
+	@Inject
+	private AppConfiguration appConfiguration;
+
 	private Base64 base64;
+
+	private HttpClient trustAllHttpClient;
+
+	private HttpClient defaultTrustStoreHttpClient;
+
+	private ClientConnectionManager sslDefaultConnectionManager;
 	
 	@PostConstruct
 	public void init() {
 		this.base64 = new Base64();
 	}
 
-	public HttpClient getHttpsClientTrustAll() {
+	@PreDestroy
+	public void destroy() {
+		if (trustAllHttpClient != null) {
+			trustAllHttpClient.getConnectionManager().shutdown();
+		}
+
+		if (defaultTrustStoreHttpClient != null) {
+			defaultTrustStoreHttpClient.getConnectionManager().shutdown();
+		}
+
+		if (sslDefaultConnectionManager != null) {
+			sslDefaultConnectionManager.shutdown();
+		}
+	}
+
+	/**
+	 * @return shared pooled client, it's created on first call
+	 */
+	public synchronized HttpClient getHttpsClientTrustAll() {
+		if (trustAllHttpClient == null) {
+			trustAllHttpClient = createHttpsClientTrustAll();
+		}
+
+		return trustAllHttpClient;
+	}
+
+	private HttpClient createHttpsClientTrustAll() {
 	    try {
 	        SSLSocketFactory sf = new SSLSocketFactory(new TrustStrategy(){
 	            @Override
@@ -85,8 +124,7 @@ public class HttpService implements Serializable {
 	        SchemeRegistry registry = new SchemeRegistry();
 	        registry.register(new Scheme("http", 80, psf));
 	        registry.register(new Scheme("https", 443, sf));
-	        ClientConnectionManager ccm = new PoolingClientConnectionManager(registry);
-	        return new DefaultHttpClient(ccm);
+	        return createPooledHttpClient(registry);
 	    } catch (Exception ex) {
 	    	log.error("Failed to create TrustAll https client", ex);
 	        return new DefaultHttpClient();
@@ -94,7 +132,15 @@ public class HttpService implements Serializable {
 	}
 
 	@Deprecated
-	public HttpClient getHttpsClientDefaulTrustStore() {
+	public synchronized HttpClient getHttpsClientDefaulTrustStore() {
+		if (defaultTrustStoreHttpClient == null) {
+			defaultTrustStoreHttpClient = createHttpsClientDefaulTrustStore();
+		}
+
+		return defaultTrustStoreHttpClient;
+	}
+
+	private HttpClient createHttpsClientDefaulTrustStore() {
 	    try {
 	        PlainSocketFactory psf = PlainSocketFactory.getSocketFactory();
 
@@ -105,21 +151,55 @@ public class HttpService implements Serializable {
 	        registry.register(new Scheme("http", 80, psf));
 	        registry.register(new Scheme("https", 443, ssf));
 
-	        ClientConnectionManager ccm = new PoolingClientConnectionManager(registry);
-
-	        return new DefaultHttpClient(ccm);
+	        return createPooledHttpClient(registry);
 	    } catch (Exception ex) {
 	    	log.error("Failed to create https client", ex);
 	        return new DefaultHttpClient();
 	    }
 	}
 
-	public HttpClient getHttpsClient() {
-		HttpClient httpClient = new SslDefaultHttpClient();
+	private HttpClient createPooledHttpClient(SchemeRegistry registry) {
+		return createPooledHttpClient(createPooledConnectionManager(registry));
+	}
+
+	private ClientConnectionManager createPooledConnectionManager(SchemeRegistry registry) {
+		PoolingClientConnectionManager ccm = new PoolingClientConnectionManager(registry);
+		ccm.setMaxTotal(appConfiguration.getHttpClientMaxConnections());
+		ccm.setDefaultMaxPerRoute(appConfiguration.getHttpClientMaxConnectionsPerRoute());
+
+		return ccm;
+	}
+
+	private HttpClient createPooledHttpClient(ClientConnectionManager ccm) {
+		DefaultHttpClient httpClient = new DefaultHttpClient(ccm);
+
+		HttpParams params = httpClient.getParams();
+		HttpConnectionParams.setConnectionTimeout(params, appConfiguration.getHttpClientConnectTimeout());
+		HttpConnectionParams.setSoTimeout(params, appConfiguration.getHttpClientReadTimeout());
 
 		return httpClient;
 	}
 
+	/**
+	 * @return client with default trust store. Clients share connection pool, but each one has own
+	 *         parameters, so caller can change them. Response should be consumed to release connection
+	 */
+	public HttpClient getHttpsClient() {
+		return createPooledHttpClient(getSslDefaultConnectionManager());
+	}
+
+	private synchronized ClientConnectionManager getSslDefaultConnectionManager() {
+		if (sslDefaultConnectionManager == null) {
+			SchemeRegistry registry = new SchemeRegistry();
+			registry.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
+			registry.register(new Scheme("https", 443, SSLSocketFactory.getSocketFactory()));
+
+			sslDefaultConnectionManager = createPooledConnectionManager(registry);
+		}
+
+		return sslDefaultConnectionManager;
+	}
+
 	public HttpClient getHttpsClient(String trustStoreType, String trustStorePath, String trustStorePassword) {
 		HttpClient httpClient = new SslDefaultHttpClient(trustStoreType, trustStorePath, trustStorePassword);
 
@@ -213,7 +293,13 @@ public class HttpService implements Serializable {
 	}
 
 	public byte[] getResponseContent(HttpResponse httpResponse) throws IOException {
-        if ((httpResponse == null) || (httpResponse.getStatusLine().getStatusCode() != HttpResponseCodes.SC_OK)) {
+        if (httpResponse == null) {
+        	return null;
+        }
+
+        if (httpResponse.getStatusLine().getStatusCode() != HttpResponseCodes.SC_OK) {
+        	// Release pooled connection
+        	EntityUtils.consume(httpResponse.getEntity());
         	return null;
         }
 
@@ -232,7 +318,7 @@ public class HttpService implements Serializable {
 	}
 
 	public void consume(HttpResponse httpResponse) throws IOException {
-        if ((httpResponse == null) || (httpResponse.getStatusLine().getStatusCode() != HttpResponseCodes.SC_OK)) {
+        if (httpResponse == null) {
         	return;
         }
 
@@ -0,0 +1,55 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.net;
+
+import java.nio.charset.Charset;
+
+import org.apache.http.HttpStatus;
+import org.xdi.util.Util;
+
+/**
+ * Fully read response of outbound HTTP request
+ */
+public class OutboundHttpResponse {
+
+	private final int status;
+	private final String contentType;
+	private final Charset charset;
+	private final byte[] content;
+
+	public OutboundHttpResponse(int status, String contentType, Charset charset, byte[] content) {
+		this.status = status;
+		this.contentType = contentType;
+		this.charset = charset;
+		this.content = content;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public boolean isOk() {
+		return status == HttpStatus.SC_OK;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public byte[] getContent() {
+		return content;
+	}
+
+	public String getContentAsString() {
+		if (content == null) {
+			return null;
+		}
+
+		return new String(content, (charset == null) ? Charset.forName(Util.UTF8) : charset);
+	}
+
+}
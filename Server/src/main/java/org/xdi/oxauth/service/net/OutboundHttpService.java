@@ -0,0 +1,369 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.net;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.slf4j.Logger;
+import org.xdi.oxauth.model.config.ConfigurationChanges;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.service.LabeledMetricRegistry;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Shared outbound HTTP client. It uses one connection pool with per host limits, applies
+ * connect/read/pool wait timeouts, limits response size and collects per host metrics
+ */
+@ApplicationScoped
+@Named
+public class OutboundHttpService implements Serializable {
+
+	private static final long serialVersionUID = -4871209436512974721L;
+
+	private static final String METRIC_PREFIX = "outbound.http";
+
+	private static final String OTHER_HOSTS = "other";
+
+	@Inject
+	private Logger log;
+
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	private MetricRegistry metricRegistry;
+
+	private MeteredConnectionManager connectionManager;
+
+	private CloseableHttpClient httpClient;
+
+	private volatile RequestConfig requestConfig;
+
+	private volatile long maxResponseSize;
+
+	private ConcurrentMap<String, Boolean> metricHosts;
+
+	@PostConstruct
+	public void init() {
+		this.metricRegistry = new LabeledMetricRegistry();
+		this.metricHosts = new ConcurrentHashMap<String, Boolean>();
+		this.connectionManager = new MeteredConnectionManager();
+
+		applyConfiguration(appConfiguration);
+
+		this.httpClient = HttpClients.custom().setConnectionManager(connectionManager).setDefaultRequestConfig(requestConfig)
+				.evictExpiredConnections().evictIdleConnections(60, TimeUnit.SECONDS).build();
+	}
+
+	@PreDestroy
+	public void destroy() {
+		IOUtils.closeQuietly(httpClient);
+	}
+
+	public void updateConfiguration(@Observes ConfigurationChanges changes) {
+		if (changes.isAppConfigurationChanged("httpClientMaxConnections", "httpClientMaxConnectionsPerRoute", "httpClientConnectTimeout",
+				"httpClientReadTimeout", "httpClientConnectionRequestTimeout", "httpClientMaxResponseSize")) {
+			applyConfiguration(changes.getAppConfiguration());
+		}
+	}
+
+	private void applyConfiguration(AppConfiguration appConfiguration) {
+		connectionManager.setMaxTotal(appConfiguration.getHttpClientMaxConnections());
+		connectionManager.setDefaultMaxPerRoute(appConfiguration.getHttpClientMaxConnectionsPerRoute());
+
+		this.requestConfig = RequestConfig.custom().setConnectTimeout(appConfiguration.getHttpClientConnectTimeout())
+				.setSocketTimeout(appConfiguration.getHttpClientReadTimeout())
+				.setConnectionRequestTimeout(appConfiguration.getHttpClientConnectionRequestTimeout()).build();
+		this.maxResponseSize = appConfiguration.getHttpClientMaxResponseSize();
+
+		log.debug("Outbound HTTP client configuration: maxConnections: '{}', maxConnectionsPerRoute: '{}', requestConfig: '{}', maxResponseSize: '{}'",
+				appConfiguration.getHttpClientMaxConnections(), appConfiguration.getHttpClientMaxConnectionsPerRoute(), requestConfig, maxResponseSize);
+	}
+
+	/**
+	 * @return shared pooled HTTP client, callers should release connection by consuming or closing response
+	 */
+	public CloseableHttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	public MetricRegistry getMetricRegistry() {
+		return metricRegistry;
+	}
+
+	public OutboundHttpResponse executeGet(String uri) throws IOException {
+		return executeGet(uri, null, maxResponseSize);
+	}
+
+	public OutboundHttpResponse executeGet(String uri, Map<String, String> headers, long maxResponseSize) throws IOException {
+		HttpGet httpGet = new HttpGet(uri);
+		addHeaders(httpGet, headers);
+
+		return execute(httpGet, maxResponseSize, new BytesResponseReader());
+	}
+
+	public OutboundHttpResponse executePost(String uri, byte[] data, ContentType contentType, Map<String, String> headers) throws IOException {
+		return executePost(uri, data, contentType, headers, maxResponseSize);
+	}
+
+	public OutboundHttpResponse executePost(String uri, byte[] data, ContentType contentType, Map<String, String> headers, long maxResponseSize) throws IOException {
+		HttpPost httpPost = new HttpPost(uri);
+		addHeaders(httpPost, headers);
+		httpPost.setEntity(new ByteArrayEntity(data, contentType));
+
+		return execute(httpPost, maxResponseSize, new BytesResponseReader());
+	}
+
+	/**
+	 * Executes request and passes size limited response stream to reader. Connection is released after reader finishes
+	 */
+	public <T> T execute(final HttpRequestBase request, final long maxResponseSize, final OutboundResponseReader<T> reader) throws IOException {
+		String host = getMetricHost(request.getURI());
+		Timer.Context timerContext = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, host, "requests")).time();
+		try {
+			if (request.getConfig() == null) {
+				request.setConfig(requestConfig);
+			}
+
+			return httpClient.execute(request, new ResponseHandler<T>() {
+				@Override
+				public T handleResponse(HttpResponse response) throws ClientProtocolException, IOException {
+					HttpEntity entity = response.getEntity();
+					InputStream content = (entity == null) ? null : new SizeLimitedInputStream(entity.getContent(), maxResponseSize, request);
+					try {
+						return reader.read(response, content);
+					} finally {
+						IOUtils.closeQuietly(content);
+					}
+				}
+			});
+		} catch (IOException ex) {
+			getErrorsMeter(host).mark();
+			log.debug("Failed to execute outbound request to '{}'", request.getURI(), ex);
+			throw ex;
+		} catch (RuntimeException ex) {
+			getErrorsMeter(host).mark();
+			throw ex;
+		} finally {
+			timerContext.stop();
+		}
+	}
+
+	/**
+	 * Loads JSON web keys from client jwks_uri
+	 */
+	public JSONObject getJSONWebKeys(String jwksUri) {
+		try {
+			OutboundHttpResponse response = executeGet(jwksUri);
+			log.debug("Status: {}", response.getStatus());
+
+			if (response.isOk()) {
+				return new JSONObject(response.getContentAsString());
+			}
+		} catch (IOException ex) {
+			log.error("Failed to load JWKS from '{}'", jwksUri, ex);
+		} catch (JSONException ex) {
+			log.error("Failed to parse JWKS from '{}'", jwksUri, ex);
+		}
+
+		return null;
+	}
+
+	private void addHeaders(HttpRequestBase request, Map<String, String> headers) {
+		if (headers == null) {
+			return;
+		}
+
+		for (Entry<String, String> headerEntry : headers.entrySet()) {
+			request.setHeader(headerEntry.getKey(), headerEntry.getValue());
+		}
+	}
+
+	private Meter getErrorsMeter(String host) {
+		return metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, host, "errors"));
+	}
+
+	private String getMetricHost(URI uri) {
+		String host = uri.getHost();
+		if (host == null) {
+			return "unknown";
+		}
+
+		return getMetricHost(host);
+	}
+
+	/**
+	 * Hosts come from client metadata and requests, so number of per host metrics is limited
+	 */
+	private String getMetricHost(String host) {
+		host = host.toLowerCase();
+		if (metricHosts.containsKey(host)) {
+			return host;
+		}
+
+		Integer maxHosts = appConfiguration.getHttpClientMetricsMaxHosts();
+		if ((maxHosts == null) || (metricHosts.size() >= maxHosts)) {
+			return OTHER_HOSTS;
+		}
+
+		metricHosts.putIfAbsent(host, Boolean.TRUE);
+
+		return host;
+	}
+
+	private class BytesResponseReader implements OutboundResponseReader<OutboundHttpResponse> {
+
+		@Override
+		public OutboundHttpResponse read(HttpResponse response, InputStream content) throws IOException {
+			String mimeType = null;
+			Charset charset = null;
+
+			byte[] bytes = null;
+			if (content != null) {
+				ContentType contentType = ContentType.get(response.getEntity());
+				if (contentType != null) {
+					mimeType = contentType.getMimeType();
+					charset = contentType.getCharset();
+				}
+
+				bytes = IOUtils.toByteArray(content);
+			}
+
+			return new OutboundHttpResponse(response.getStatusLine().getStatusCode(), mimeType, charset, bytes);
+		}
+
+	}
+
+	/**
+	 * Connection manager which records time spent waiting for pooled connection
+	 */
+	private class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+
+		@Override
+		public ConnectionRequest requestConnection(final HttpRoute route, final Object state) {
+			final ConnectionRequest connectionRequest = super.requestConnection(route, state);
+
+			return new ConnectionRequest() {
+				@Override
+				public boolean cancel() {
+					return connectionRequest.cancel();
+				}
+
+				@Override
+				public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+						throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+					String host = route.getTargetHost().getHostName();
+					Timer.Context timerContext = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, getMetricHost(host), "pool-wait")).time();
+					try {
+						return connectionRequest.get(timeout, timeUnit);
+					} catch (ConnectionPoolTimeoutException ex) {
+						log.warn("Timeout waiting for outbound connection to '{}', pool stats: {}", host, getStats(route));
+						throw ex;
+					} finally {
+						timerContext.stop();
+					}
+				}
+			};
+		}
+
+	}
+
+	/**
+	 * Input stream which fails when response is bigger than allowed. Request is aborted on failure, so connection is
+	 * discarded instead of reading rest of oversized response to return it to pool
+	 */
+	private static class SizeLimitedInputStream extends FilterInputStream {
+
+		private final long maxSize;
+		private final HttpRequestBase request;
+		private long count;
+
+		public SizeLimitedInputStream(InputStream in, long maxSize, HttpRequestBase request) {
+			super(in);
+			this.maxSize = maxSize;
+			this.request = request;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if (result >= 0) {
+				checkSize(1);
+			}
+
+			return result;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int result = super.read(buffer, offset, length);
+			if (result > 0) {
+				checkSize(result);
+			}
+
+			return result;
+		}
+
+		@Override
+		public long skip(long count) throws IOException {
+			long result = super.skip(count);
+			checkSize(result);
+
+			return result;
+		}
+
+		private void checkSize(long read) throws IOException {
+			count += read;
+			if ((maxSize > 0) && (count > maxSize)) {
+				request.abort();
+				throw new IOException("Response size exceeds limit " + maxSize + " bytes");
+			}
+		}
+
+	}
+
+}
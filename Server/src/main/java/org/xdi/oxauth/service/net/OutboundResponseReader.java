@@ -0,0 +1,25 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.service.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.HttpResponse;
+
+/**
+ * Reads outbound HTTP response in streaming mode
+ */
+public interface OutboundResponseReader<T> {
+
+	/**
+	 * @param content
+	 *            size limited response content, null if response has no entity
+	 */
+	public abstract T read(HttpResponse response, InputStream content) throws IOException;
+
+}
@@ -0,0 +1,84 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.servlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.inject.Inject;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.service.AuthenticationFilterService;
+import org.xdi.oxauth.service.ClientFilterService;
+import org.xdi.oxauth.service.EndpointMetricService;
+import org.xdi.oxauth.service.LdapMetricService;
+import org.xdi.oxauth.service.SessionTokenRemovalService;
+import org.xdi.oxauth.service.external.ExternalScriptExecutor;
+import org.xdi.oxauth.service.net.OutboundHttpService;
+
+/**
+ * Exports in-memory metrics in Prometheus text format
+ */
+@WebServlet(urlPatterns = "/metrics")
+public class Metrics extends HttpServlet {
+
+	private static final long serialVersionUID = 4350731873453413752L;
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	@Inject
+	private EndpointMetricService endpointMetricService;
+
+	@Inject
+	private LdapMetricService ldapMetricService;
+
+	@Inject
+	private OutboundHttpService outboundHttpService;
+
+	@Inject
+	private ExternalScriptExecutor externalScriptExecutor;
+
+	@Inject
+	private AuthenticationFilterService authenticationFilterService;
+
+	@Inject
+	private ClientFilterService clientFilterService;
+
+	@Inject
+	private SessionTokenRemovalService sessionTokenRemovalService;
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		if (!Boolean.TRUE.equals(appConfiguration.getMetricsEndpointEnabled())) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		response.setContentType(CONTENT_TYPE);
+		response.setHeader("Cache-Control", "no-store");
+
+		PrintWriter out = response.getWriter();
+		PrometheusMetricWriter metricWriter = new PrometheusMetricWriter(out);
+		metricWriter.write("", endpointMetricService.getMetricRegistry());
+		metricWriter.write("", ldapMetricService.getMetricRegistry());
+		metricWriter.write("", outboundHttpService.getMetricRegistry());
+		metricWriter.write("", externalScriptExecutor.getMetricRegistry());
+		metricWriter.write("authentication_filter_", authenticationFilterService.getMetricRegistry());
+		metricWriter.write("client_authentication_filter_", clientFilterService.getMetricRegistry());
+		metricWriter.write("", sessionTokenRemovalService.getMetricRegistry());
+		out.flush();
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.servlet;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.xdi.oxauth.service.LabeledMetricRegistry;
+import org.xdi.oxauth.service.LabeledMetricRegistry.SummingHistogram;
+import org.xdi.oxauth.service.LabeledMetricRegistry.SummingTimer;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * Writes metric registries in Prometheus text format. Timers and histograms are written as summaries,
+ * meters as counters, counters and numeric gauges as gauges. Labels added to metric names with
+ * {@link LabeledMetricRegistry#labeled(String, String...)} are written as sample labels
+ */
+public class PrometheusMetricWriter {
+
+	private static final String NAME_PREFIX = "oxauth_";
+	private static final Pattern INVALID_NAME_CHARS = Pattern.compile("[^a-zA-Z0-9_]");
+	private static final double NANOSECONDS_IN_SECOND = 1e9;
+
+	private final PrintWriter out;
+
+	// Metrics with same name and different labels are sorted together, type is written once for them
+	private String lastFamily;
+
+	public PrometheusMetricWriter(PrintWriter out) {
+		this.out = out;
+	}
+
+	public void write(String prefix, MetricRegistry metricRegistry) {
+		for (Map.Entry<String, Timer> entry : metricRegistry.getTimers().entrySet()) {
+			MetricName name = new MetricName(prefix, entry.getKey(), "_seconds");
+			Timer timer = entry.getValue();
+			Snapshot snapshot = timer.getSnapshot();
+
+			writeType(name, "summary");
+			writeQuantile(name, "0.5", snapshot.getMedian() / NANOSECONDS_IN_SECOND);
+			writeQuantile(name, "0.95", snapshot.get95thPercentile() / NANOSECONDS_IN_SECOND);
+			writeQuantile(name, "0.99", snapshot.get99thPercentile() / NANOSECONDS_IN_SECOND);
+			writeQuantile(name, "0.999", snapshot.get999thPercentile() / NANOSECONDS_IN_SECOND);
+			if (timer instanceof SummingTimer) {
+				writeSample(name, "_sum", null, Double.toString(((SummingTimer) timer).getSum() / NANOSECONDS_IN_SECOND));
+			}
+			writeSample(name, "_count", null, Long.toString(timer.getCount()));
+		}
+
+		for (Map.Entry<String, Histogram> entry : metricRegistry.getHistograms().entrySet()) {
+			MetricName name = new MetricName(prefix, entry.getKey(), "");
+			Histogram histogram = entry.getValue();
+			Snapshot snapshot = histogram.getSnapshot();
+
+			writeType(name, "summary");
+			writeQuantile(name, "0.5", snapshot.getMedian());
+			writeQuantile(name, "0.99", snapshot.get99thPercentile());
+			if (histogram instanceof SummingHistogram) {
+				writeSample(name, "_sum", null, Long.toString(((SummingHistogram) histogram).getSum()));
+			}
+			writeSample(name, "_count", null, Long.toString(histogram.getCount()));
+		}
+
+		for (Map.Entry<String, Meter> entry : metricRegistry.getMeters().entrySet()) {
+			MetricName name = new MetricName(prefix, entry.getKey(), "_total");
+
+			writeType(name, "counter");
+			writeSample(name, "", null, Long.toString(entry.getValue().getCount()));
+		}
+
+		for (Map.Entry<String, Counter> entry : metricRegistry.getCounters().entrySet()) {
+			MetricName name = new MetricName(prefix, entry.getKey(), "");
+
+			writeType(name, "gauge");
+			writeSample(name, "", null, Long.toString(entry.getValue().getCount()));
+		}
+
+		for (Map.Entry<String, Gauge> entry : metricRegistry.getGauges().entrySet()) {
+			Object value = entry.getValue().getValue();
+			if (!(value instanceof Number)) {
+				continue;
+			}
+			MetricName name = new MetricName(prefix, entry.getKey(), "");
+
+			writeType(name, "gauge");
+			writeSample(name, "", null, value.toString());
+		}
+	}
+
+	private void writeType(MetricName name, String type) {
+		if (name.family.equals(lastFamily)) {
+			return;
+		}
+
+		out.append("# TYPE ").append(name.family).append(' ').append(type).append('\n');
+		lastFamily = name.family;
+	}
+
+	private void writeQuantile(MetricName name, String quantile, double value) {
+		writeSample(name, "", "quantile=\"" + quantile + "\"", Double.toString(value));
+	}
+
+	private void writeSample(MetricName name, String suffix, String extraLabel, String value) {
+		out.append(name.family).append(suffix);
+
+		if ((name.labels != null) || (extraLabel != null)) {
+			out.append('{');
+			if (name.labels != null) {
+				out.append(name.labels);
+			}
+			if (extraLabel != null) {
+				if (name.labels != null) {
+					out.append(',');
+				}
+				out.append(extraLabel);
+			}
+			out.append('}');
+		}
+
+		out.append(' ').append(value).append('\n');
+	}
+
+	/**
+	 * Prometheus metric family name and labels of registry metric
+	 */
+	private static class MetricName {
+
+		private final String family;
+		private final String labels;
+
+		public MetricName(String prefix, String registryName, String suffix) {
+			String name = registryName;
+			String labels = null;
+
+			int labelsIndex = registryName.indexOf(LabeledMetricRegistry.LABELS_START);
+			if ((labelsIndex != -1) && (registryName.charAt(registryName.length() - 1) == LabeledMetricRegistry.LABELS_END)) {
+				name = registryName.substring(0, labelsIndex);
+				labels = registryName.substring(labelsIndex + 1, registryName.length() - 1);
+			}
+
+			this.family = INVALID_NAME_CHARS.matcher(NAME_PREFIX + prefix + name).replaceAll("_") + suffix;
+			this.labels = labels;
+		}
+
+	}
+
+}
@@ -6,6 +6,8 @@
 
 package org.xdi.oxauth.session.ws.rs;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -25,9 +27,9 @@ import org.xdi.oxauth.model.session.EndSessionErrorResponseType;
 import org.xdi.oxauth.model.session.EndSessionParamsValidator;
 import org.xdi.oxauth.model.util.Util;
 import org.xdi.oxauth.service.ClientService;
-import org.xdi.oxauth.service.GrantService;
 import org.xdi.oxauth.service.RedirectionUriService;
 import org.xdi.oxauth.service.SessionStateService;
+import org.xdi.oxauth.service.SessionTokenRemovalService;
 import org.xdi.oxauth.service.external.ExternalApplicationSessionService;
 import org.xdi.oxauth.util.ServerUtil;
 import org.xdi.util.Pair;
@@ -40,6 +42,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -51,6 +55,13 @@ import java.util.Set;
 @Path("/")
 public class EndSessionRestWebServiceImpl implements EndSessionRestWebService {
 
+    /**
+     * Front channel logout URIs prepared for client. Key is client instance from client cache, so new
+     * value is prepared when client is reloaded
+     */
+    private static final Cache<Client, String[]> FRONT_CHANNEL_LOGOUT_URIS = CacheBuilder.newBuilder()
+            .weakKeys().maximumSize(10000).build();
+
     @Inject
     private Logger log;
 
@@ -73,7 +84,7 @@ public class EndSessionRestWebServiceImpl implements EndSessionRestWebService {
     private ClientService clientService;
 
     @Inject
-    private GrantService grantService;
+    private SessionTokenRemovalService sessionTokenRemovalService;
 
     @Inject
     private Identity identity;
@@ -155,7 +166,7 @@ public class EndSessionRestWebServiceImpl implements EndSessionRestWebService {
         }
 
         if (ldapSessionState != null) {
-            grantService.removeAllTokensBySession(ldapSessionState.getDn());
+            sessionTokenRemovalService.removeAllTokensBySession(ldapSessionState.getDn());
         }
 
         if (identity != null) {
@@ -184,28 +195,45 @@ public class EndSessionRestWebServiceImpl implements EndSessionRestWebService {
         }
 
         for (Client client : clientsByDns) {
-            String[] logoutUris = client.getFrontChannelLogoutUri();
-
-            if (logoutUris == null) {
-                continue;
+            for (String logoutUri : getFrontChannelLogoutUris(client)) {
+                if (client.getFrontChannelLogoutSessionRequired() != null && client.getFrontChannelLogoutSessionRequired()) {
+                    result.add(logoutUri + sessionState.getId());
+                } else {
+                    result.add(logoutUri);
+                }
             }
+        }
+        return result;
+    }
+
+    /**
+     * Returns non empty logout URIs of client, if session is required URIs end with sid parameter name
+     */
+    private String[] getFrontChannelLogoutUris(Client client) {
+        String[] logoutUris = FRONT_CHANNEL_LOGOUT_URIS.getIfPresent(client);
+        if (logoutUris != null) {
+            return logoutUris;
+        }
 
-            for (String logoutUri : logoutUris) {
+        final boolean sessionRequired = client.getFrontChannelLogoutSessionRequired() != null && client.getFrontChannelLogoutSessionRequired();
+        final List<String> result = new ArrayList<String>();
+        if (client.getFrontChannelLogoutUri() != null) {
+            for (String logoutUri : client.getFrontChannelLogoutUri()) {
                 if (Util.isNullOrEmpty(logoutUri)) {
                     continue; // skip client if logout_uri is blank
                 }
 
-                if (client.getFrontChannelLogoutSessionRequired() != null && client.getFrontChannelLogoutSessionRequired()) {
-                    if (logoutUri.contains("?")) {
-                        logoutUri = logoutUri + "&sid=" + sessionState.getId();
-                    } else {
-                        logoutUri = logoutUri + "?sid=" + sessionState.getId();
-                    }
+                if (sessionRequired) {
+                    logoutUri = logoutUri + (logoutUri.contains("?") ? "&sid=" : "?sid=");
                 }
                 result.add(logoutUri);
             }
         }
-        return result;
+
+        logoutUris = result.toArray(new String[result.size()]);
+        FRONT_CHANNEL_LOGOUT_URIS.put(client, logoutUris);
+
+        return logoutUris;
     }
 
     private SessionState removeSessionState(String sessionState, HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
@@ -237,14 +265,10 @@ public class EndSessionRestWebServiceImpl implements EndSessionRestWebService {
     }
 
     private String constructPage(Set<String> logoutUris, String postLogoutUrl, String state) {
-        String iframes = "";
-        for (String logoutUri : logoutUris) {
-            iframes = iframes + String.format("<iframe height=\"0\" width=\"0\" src=\"%s\"></iframe>", logoutUri);
-        }
-
-        String html = "<!DOCTYPE html>" +
-                "<html>" +
-                "<head>";
+        final StringBuilder html = new StringBuilder(256 + logoutUris.size() * 128);
+        html.append("<!DOCTYPE html>").
+                append("<html>").
+                append("<head>");
 
         if (!Util.isNullOrEmpty(postLogoutUrl)) {
 
@@ -256,21 +280,23 @@ public class EndSessionRestWebServiceImpl implements EndSessionRestWebService {
                 }
             }
 
-            html += "<script>" +
-                    "window.onload=function() {" +
-                    "window.location='" + postLogoutUrl + "'" +
-                    "}" +
-                    "</script>";
+            html.append("<script>").
+                    append("window.onload=function() {").
+                    append("window.location='").append(postLogoutUrl).append("'").
+                    append("}").
+                    append("</script>");
         }
 
-        html += "<title>Gluu Generated logout page</title>" +
-                "</head>" +
-                "<body>" +
-                "Logout requests sent.<br/>" +
-                iframes +
-                "</body>" +
-                "</html>";
-        return html;
+        html.append("<title>Gluu Generated logout page</title>").
+                append("</head>").
+                append("<body>").
+                append("Logout requests sent.<br/>");
+        for (String logoutUri : logoutUris) {
+            html.append("<iframe height=\"0\" width=\"0\" src=\"").append(logoutUri).append("\"></iframe>");
+        }
+        html.append("</body>").
+                append("</html>");
+        return html.toString();
     }
 
     private void auditLogging(HttpServletRequest request, Pair<SessionState, AuthorizationGrant> pair){
@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.xdi.model.custom.script.CustomScriptType;
 import org.xdi.model.custom.script.conf.CustomScriptConfiguration;
 import org.xdi.model.custom.script.type.uma.UmaClaimsGatheringType;
+import org.xdi.oxauth.service.external.ExternalScriptExecutor;
 import org.xdi.oxauth.uma.authorization.UmaGatherContext;
 import org.xdi.service.LookupService;
 import org.xdi.service.custom.script.CustomScriptManager;
@@ -15,6 +16,7 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * @author yuriyz on 06/18/2017.
@@ -30,6 +32,8 @@ public class ExternalUmaClaimsGatheringService extends ExternalScriptService {
     private LookupService lookupService;
     @Inject
     private CustomScriptManager scriptManager;
+    @Inject
+    private ExternalScriptExecutor externalScriptExecutor;
 
     protected Map<String, CustomScriptConfiguration> scriptInumMap;
 
@@ -98,10 +102,15 @@ public class ExternalUmaClaimsGatheringService extends ExternalScriptService {
         return ExternalUmaRptPolicyService.HOTSWAP_UMA_SCRIPT ? (UmaClaimsGatheringType) ExternalUmaRptPolicyService.hotswap(scriptManager, script, false) : (UmaClaimsGatheringType) script.getExternalType();
     }
 
-    public boolean gather(CustomScriptConfiguration script, int step, UmaGatherContext context) {
+    public boolean gather(final CustomScriptConfiguration script, final int step, final UmaGatherContext context) {
         try {
             log.debug("Executing python 'gather' method, script: " + script.getName());
-            boolean result = gatherScript(script).gather(step, context);
+            boolean result = externalScriptExecutor.execute(script, "gather", new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return gatherScript(script).gather(step, context);
+                }
+            });
             log.debug("python 'gather' result: " + result);
             return result;
         } catch (Exception ex) {
@@ -110,10 +119,15 @@ public class ExternalUmaClaimsGatheringService extends ExternalScriptService {
         }
     }
 
-    public int getNextStep(CustomScriptConfiguration script, int step, UmaGatherContext context) {
+    public int getNextStep(final CustomScriptConfiguration script, final int step, final UmaGatherContext context) {
         try {
             log.debug("Executing python 'getNextStep' method, script: " + script.getName());
-            int result = gatherScript(script).getNextStep(step, context);
+            int result = externalScriptExecutor.execute(script, "getNextStep", new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return gatherScript(script).getNextStep(step, context);
+                }
+            });
             log.debug("python 'getNextStep' result: " + result);
             return result;
         } catch (Exception ex) {
@@ -122,10 +136,15 @@ public class ExternalUmaClaimsGatheringService extends ExternalScriptService {
         }
     }
 
-    public boolean prepareForStep(CustomScriptConfiguration script, int step, UmaGatherContext context) {
+    public boolean prepareForStep(final CustomScriptConfiguration script, final int step, final UmaGatherContext context) {
         try {
             log.debug("Executing python 'prepareForStep' method, script: " + script.getName());
-            boolean result = gatherScript(script).prepareForStep(step, context);
+            boolean result = externalScriptExecutor.execute(script, "prepareForStep", new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return gatherScript(script).prepareForStep(step, context);
+                }
+            });
             log.debug("python 'prepareForStep' result: " + result);
             return result;
         } catch (Exception ex) {
@@ -134,10 +153,15 @@ public class ExternalUmaClaimsGatheringService extends ExternalScriptService {
         }
     }
 
-    public int getStepsCount(CustomScriptConfiguration script, UmaGatherContext context) {
+    public int getStepsCount(final CustomScriptConfiguration script, final UmaGatherContext context) {
         try {
             log.debug("Executing python 'getStepsCount' method, script: " + script.getName());
-            int result = gatherScript(script).getStepsCount(context);
+            int result = externalScriptExecutor.execute(script, "getStepsCount", new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return gatherScript(script).getStepsCount(context);
+                }
+            });
             log.debug("python 'getStepsCount' result: " + result);
             return result;
         } catch (Exception ex) {
@@ -146,10 +170,15 @@ public class ExternalUmaClaimsGatheringService extends ExternalScriptService {
         }
     }
 
-    public String getPageForStep(CustomScriptConfiguration script, int step, UmaGatherContext context) {
+    public String getPageForStep(final CustomScriptConfiguration script, final int step, final UmaGatherContext context) {
         try {
             log.debug("Executing python 'getPageForStep' method, script: " + script.getName());
-            String result = gatherScript(script).getPageForStep(step, context);
+            String result = externalScriptExecutor.execute(script, "getPageForStep", new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return gatherScript(script).getPageForStep(step, context);
+                }
+            });
             log.debug("python 'getPageForStep' result: " + result);
             return result;
         } catch (Exception ex) {
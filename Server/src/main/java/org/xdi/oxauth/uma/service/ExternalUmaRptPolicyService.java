@@ -12,6 +12,7 @@ import org.xdi.model.custom.script.CustomScriptType;
 import org.xdi.model.custom.script.conf.CustomScriptConfiguration;
 import org.xdi.model.custom.script.type.uma.UmaRptPolicyType;
 import org.xdi.model.uma.ClaimDefinition;
+import org.xdi.oxauth.service.external.ExternalScriptExecutor;
 import org.xdi.oxauth.uma.authorization.UmaAuthorizationContext;
 import org.xdi.service.LookupService;
 import org.xdi.service.custom.script.CustomScriptManager;
@@ -27,6 +28,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Provides factory methods needed to create external UMA authorization policies extension
@@ -49,6 +51,8 @@ public class ExternalUmaRptPolicyService extends ExternalScriptService {
 	private LookupService lookupService;
 	@Inject
 	private CustomScriptManager scriptManager;
+	@Inject
+	private ExternalScriptExecutor externalScriptExecutor;
 
 	protected Map<String, CustomScriptConfiguration> scriptInumMap;
 
@@ -90,10 +94,15 @@ public class ExternalUmaRptPolicyService extends ExternalScriptService {
 				(UmaRptPolicyType) script.getExternalType();
 	}
 
-	public boolean authorize(CustomScriptConfiguration script, UmaAuthorizationContext context) {
+	public boolean authorize(final CustomScriptConfiguration script, final UmaAuthorizationContext context) {
 		try {
 			log.debug("Executing python 'authorize' method, script: " + script.getName());
-			boolean result = policyScript(script).authorize(context);
+			boolean result = externalScriptExecutor.execute(script, "authorize", new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return policyScript(script).authorize(context);
+				}
+			});
 			log.debug("python 'authorize' result: " + result);
 			return result;
 		} catch (Exception ex) {
@@ -102,10 +111,15 @@ public class ExternalUmaRptPolicyService extends ExternalScriptService {
 		}
 	}
 
-	public List<ClaimDefinition> getRequiredClaims(CustomScriptConfiguration script, UmaAuthorizationContext context) {
+	public List<ClaimDefinition> getRequiredClaims(final CustomScriptConfiguration script, final UmaAuthorizationContext context) {
 		try {
 			log.debug("Executing python 'getRequiredClaims' method, script: " + script.getName());
-			List<ClaimDefinition> result = policyScript(script).getRequiredClaims(context);
+			List<ClaimDefinition> result = externalScriptExecutor.execute(script, "getRequiredClaims", new Callable<List<ClaimDefinition>>() {
+				@Override
+				public List<ClaimDefinition> call() throws Exception {
+					return policyScript(script).getRequiredClaims(context);
+				}
+			});
 			log.debug("python 'getRequiredClaims' result: " + result);
 			return result;
 		} catch (Exception ex) {
@@ -114,10 +128,15 @@ public class ExternalUmaRptPolicyService extends ExternalScriptService {
 		}
 	}
 
-	public String getClaimsGatheringScriptName(CustomScriptConfiguration script, UmaAuthorizationContext context) {
+	public String getClaimsGatheringScriptName(final CustomScriptConfiguration script, final UmaAuthorizationContext context) {
 		try {
 			log.debug("Executing python 'getClaimsGatheringScriptName' method, script: " + script.getName());
-			String result = policyScript(script).getClaimsGatheringScriptName(context);
+			String result = externalScriptExecutor.execute(script, "getClaimsGatheringScriptName", new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return policyScript(script).getClaimsGatheringScriptName(context);
+				}
+			});
 			log.debug("python 'getClaimsGatheringScriptName' result: " + result);
 			return result;
 		} catch (Exception ex) {
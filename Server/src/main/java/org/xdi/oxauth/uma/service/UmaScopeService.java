@@ -10,6 +10,7 @@ import com.unboundid.ldap.sdk.Filter;
 import com.unboundid.ldap.sdk.LDAPException;
 import org.apache.commons.lang.StringUtils;
 import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.gluu.site.ldap.persistence.exception.EntryPersistenceException;
 import org.slf4j.Logger;
 import org.xdi.oxauth.model.config.StaticConfiguration;
 import org.xdi.oxauth.model.configuration.AppConfiguration;
@@ -170,11 +171,13 @@ public class UmaScopeService {
             newScope.setInum(inum);
             newScope.setDisplayName(scopeId);
             newScope.setId(scopeId);
+            newScope.setDn(String.format("inum=%s,%s", inum, baseDn()));
 
-            final boolean persisted = persist(newScope);
-            if (persisted) {
+            try {
+                persistWithNewInumOnConflict(newScope);
                 return newScope;
-            } else {
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
                 log.error("Failed to persist scope, id:{}" + scopeId);
             }
         }
@@ -183,6 +186,25 @@ public class UmaScopeService {
 
     }
 
+    private void persistWithNewInumOnConflict(UmaScopeDescription scope) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ldapEntryManager.persist(scope);
+                return;
+            } catch (EntryPersistenceException e) {
+                if ((attempt >= InumService.MAX_PERSIST_ATTEMPTS) || !InumService.isEntryAlreadyExists(e)) {
+                    throw e;
+                }
+
+                String inum = inumService.generateInum();
+                log.warn("Scope with inum '{}' already exists, retry with inum '{}'", scope.getInum(), inum);
+
+                scope.setInum(inum);
+                scope.setDn(String.format("inum=%s,%s", inum, baseDn()));
+            }
+        }
+    }
+
     public String getScopeEndpoint() {
         return appConfiguration.getBaseEndpoint() + UmaMetadataWS.UMA_SCOPES_SUFFIX;
     }
@@ -138,13 +138,12 @@ public class U2fAuthenticationWS {
 			AuthenticateResponse authenticateResponse = ServerUtil.jsonMapperWithWrapRoot().readValue(authenticateResponseString, AuthenticateResponse.class);
 
 			String requestId = authenticateResponse.getRequestId();
-			AuthenticateRequestMessageLdap authenticateRequestMessageLdap = u2fAuthenticationService.getAuthenticationRequestMessageByRequestId(requestId);
+			AuthenticateRequestMessageLdap authenticateRequestMessageLdap = u2fAuthenticationService.consumeAuthenticationRequestMessage(requestId);
 			if (authenticateRequestMessageLdap == null) {
 				throw new WebApplicationException(Response.status(Response.Status.FORBIDDEN)
 						.entity(errorResponseFactory.getJsonErrorResponse(U2fErrorResponseType.SESSION_EXPIRED)).build());
 			}
 			sessionState = authenticateRequestMessageLdap.getSessionState();
-			u2fAuthenticationService.removeAuthenticationRequestMessage(authenticateRequestMessageLdap);
 
 			AuthenticateRequestMessage authenticateRequestMessage = authenticateRequestMessageLdap.getAuthenticateRequestMessage();
 
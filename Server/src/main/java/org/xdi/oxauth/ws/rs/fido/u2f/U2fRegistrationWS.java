@@ -164,12 +164,11 @@ public class U2fRegistrationWS {
 			RegisterResponse registerResponse = ServerUtil.jsonMapperWithWrapRoot().readValue(registerResponseString, RegisterResponse.class);
 
 			String requestId = registerResponse.getRequestId();
-			RegisterRequestMessageLdap registerRequestMessageLdap = u2fRegistrationService.getRegisterRequestMessageByRequestId(requestId);
+			RegisterRequestMessageLdap registerRequestMessageLdap = u2fRegistrationService.consumeRegisterRequestMessage(requestId);
 			if (registerRequestMessageLdap == null) {
 				throw new WebApplicationException(Response.status(Response.Status.FORBIDDEN)
 						.entity(errorResponseFactory.getJsonErrorResponse(U2fErrorResponseType.SESSION_EXPIRED)).build());
 			}
-			u2fRegistrationService.removeRegisterRequestMessage(registerRequestMessageLdap);
 
 			String foundUserInum = registerRequestMessageLdap.getUserInum();
 
@@ -0,0 +1,160 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.authorize.JwtAuthorizationRequest;
+import org.xdi.oxauth.model.authorize.ScopeChecker;
+import org.xdi.oxauth.model.common.SessionIdState;
+import org.xdi.oxauth.model.common.SessionState;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.crypto.signature.SignatureAlgorithm;
+import org.xdi.oxauth.model.jws.HMACSigner;
+import org.xdi.oxauth.model.jwt.Jwt;
+import org.xdi.oxauth.model.jwt.JwtClaims;
+import org.xdi.oxauth.model.jwt.JwtType;
+import org.xdi.oxauth.model.registration.Client;
+import org.xdi.oxauth.model.token.ClientAssertion;
+import org.xdi.oxauth.model.token.ClientAssertionType;
+import org.xdi.oxauth.service.ClientService;
+import org.xdi.oxauth.service.SessionStateService;
+
+/**
+ * Measures authorization and token endpoint request processing steps: scopes policy check, session
+ * generation, request object parsing and client assertion validation. Run with -Dbenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationRequestBenchmark {
+
+	@Param({"false", "true"})
+	public boolean persistSession;
+
+	private AppConfiguration appConfiguration;
+	private ScopeChecker scopeChecker;
+	private SessionStateService sessionStateService;
+
+	private Client client;
+	private String userDn;
+	private Map<String, String> sessionAttributes;
+
+	private String requestObject;
+	private String clientAssertion;
+
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkEnvironment environment = BenchmarkEnvironment.instance();
+		appConfiguration = environment.getAppConfiguration();
+		scopeChecker = environment.bean(ScopeChecker.class);
+		sessionStateService = environment.bean(SessionStateService.class);
+
+		client = environment.bean(ClientService.class).getClient(BenchmarkEnvironment.CLIENT_ID);
+		userDn = environment.getUserDn();
+
+		sessionAttributes = new HashMap<String, String>();
+		sessionAttributes.put("client_id", BenchmarkEnvironment.CLIENT_ID);
+		sessionAttributes.put("redirect_uri", BenchmarkEnvironment.REDIRECT_URI);
+		sessionAttributes.put("response_type", "code");
+		sessionAttributes.put("scope", "openid profile");
+
+		HMACSigner signer = new HMACSigner(SignatureAlgorithm.HS256, BenchmarkEnvironment.CLIENT_SECRET);
+		requestObject = signer.sign(createRequestObject()).toString();
+		clientAssertion = signer.sign(createClientAssertion()).toString();
+	}
+
+	@Benchmark
+	public Set<String> checkScopesPolicy() {
+		return scopeChecker.checkScopesPolicy(client, "openid profile");
+	}
+
+	@Benchmark
+	public SessionState generateSessionState() {
+		return sessionStateService.generateUnauthenticatedSessionState(userDn, new Date(), SessionIdState.UNAUTHENTICATED,
+				sessionAttributes, persistSession);
+	}
+
+	@Benchmark
+	public JwtAuthorizationRequest parseRequestObject() throws Exception {
+		return new JwtAuthorizationRequest(appConfiguration, requestObject, client);
+	}
+
+	@Benchmark
+	public ClientAssertion validateClientAssertion() throws Exception {
+		return new ClientAssertion(appConfiguration, BenchmarkEnvironment.CLIENT_ID, ClientAssertionType.JWT_BEARER, clientAssertion);
+	}
+
+	private Jwt createRequestObject() {
+		Jwt jwt = new Jwt();
+		jwt.getHeader().setType(JwtType.JWT);
+		jwt.getHeader().setAlgorithm(SignatureAlgorithm.HS256);
+
+		JwtClaims claims = jwt.getClaims();
+		claims.setIssuer(BenchmarkEnvironment.CLIENT_ID);
+		claims.setAudience(appConfiguration.getIssuer());
+		claims.setClaim("response_type", "code");
+		claims.setClaim("client_id", BenchmarkEnvironment.CLIENT_ID);
+		claims.setClaim("redirect_uri", BenchmarkEnvironment.REDIRECT_URI);
+		claims.setClaim("scope", "openid profile");
+		claims.setClaim("state", UUID.randomUUID().toString());
+		claims.setClaim("nonce", UUID.randomUUID().toString());
+
+		return jwt;
+	}
+
+	/**
+	 * Benchmark measures validation only so assertion is issued with long lifetime
+	 */
+	private Jwt createClientAssertion() {
+		Date now = new Date();
+
+		Jwt jwt = new Jwt();
+		jwt.getHeader().setType(JwtType.JWT);
+		jwt.getHeader().setAlgorithm(SignatureAlgorithm.HS256);
+
+		JwtClaims claims = jwt.getClaims();
+		claims.setIssuer(BenchmarkEnvironment.CLIENT_ID);
+		claims.setSubjectIdentifier(BenchmarkEnvironment.CLIENT_ID);
+		claims.setAudience(appConfiguration.getTokenEndpoint());
+		claims.setJwtId(UUID.randomUUID());
+		claims.setIssuedAt(now);
+		claims.setExpirationTime(new Date(now.getTime() + TimeUnit.HOURS.toMillis(1)));
+
+		return jwt;
+	}
+
+	@Test
+	public void runBenchmark() throws Exception {
+		Options options = new OptionsBuilder().include(AuthorizationRequestBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+
+}
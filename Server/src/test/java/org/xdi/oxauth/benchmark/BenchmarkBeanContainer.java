@@ -0,0 +1,283 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.SessionScoped;
+import javax.enterprise.inject.Instance;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.CDI;
+import javax.enterprise.inject.spi.CDIProvider;
+import javax.enterprise.util.TypeLiteral;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Minimal bean container for benchmarks. Server beans are created on demand and their @Inject fields
+ * are resolved by type: registered instances first, then oxAuth classes. Other dependencies which
+ * need application server (JSF, JMS, scripts) are left null. Beans with normal scope are created once.
+ *
+ * Container is registered as current CDI so CdiUtil lookups in model classes resolve the same beans
+ */
+public class BenchmarkBeanContainer {
+
+	private static final Logger log = LoggerFactory.getLogger(BenchmarkBeanContainer.class);
+
+	private static final String OXAUTH_PACKAGE = "org.xdi.oxauth.";
+
+	private final Map<Class<?>, Object> beans = new ConcurrentHashMap<Class<?>, Object>();
+
+	public <T> void register(Class<T> beanClass, T bean) {
+		beans.put(beanClass, bean);
+	}
+
+	public void registerAsCurrentCdi() {
+		final BenchmarkCdi cdi = new BenchmarkCdi();
+		CDI.setCDIProvider(new CDIProvider() {
+			@Override
+			public CDI<Object> getCDI() {
+				return cdi;
+			}
+		});
+	}
+
+	public synchronized <T> T bean(Class<T> beanClass) {
+		Object bean = beans.get(beanClass);
+		if (bean != null) {
+			return beanClass.cast(bean);
+		}
+
+		for (Object registeredBean : beans.values()) {
+			if (beanClass.isInstance(registeredBean)) {
+				return beanClass.cast(registeredBean);
+			}
+		}
+
+		return create(beanClass);
+	}
+
+	private <T> T create(Class<T> beanClass) {
+		if (beanClass.isInterface() || Modifier.isAbstract(beanClass.getModifiers())) {
+			throw new IllegalArgumentException("Can't create bean of abstract type " + beanClass.getName());
+		}
+
+		T bean;
+		try {
+			bean = beanClass.newInstance();
+		} catch (InstantiationException ex) {
+			throw new IllegalStateException("Failed to create bean " + beanClass.getName(), ex);
+		} catch (IllegalAccessException ex) {
+			throw new IllegalStateException("Failed to create bean " + beanClass.getName(), ex);
+		}
+
+		// Register before injection to allow circular dependencies
+		if (isShared(beanClass)) {
+			beans.put(beanClass, bean);
+		}
+
+		inject(bean);
+		postConstruct(bean);
+
+		return bean;
+	}
+
+	private void inject(Object bean) {
+		for (Class<?> currentClass = bean.getClass(); currentClass != Object.class; currentClass = currentClass.getSuperclass()) {
+			for (Field field : currentClass.getDeclaredFields()) {
+				if (!field.isAnnotationPresent(Inject.class)) {
+					continue;
+				}
+
+				Object value = resolve(currentClass, field);
+				if (value == null) {
+					log.debug("Leaving unresolved dependency {}.{}", currentClass.getSimpleName(), field.getName());
+					continue;
+				}
+
+				field.setAccessible(true);
+				try {
+					field.set(bean, value);
+				} catch (IllegalAccessException ex) {
+					throw new IllegalStateException("Failed to inject " + currentClass.getName() + "." + field.getName(), ex);
+				}
+			}
+		}
+	}
+
+	private Object resolve(Class<?> declaringClass, Field field) {
+		Class<?> type = field.getType();
+		if (Logger.class.equals(type)) {
+			return LoggerFactory.getLogger(declaringClass);
+		}
+
+		if (Instance.class.equals(type)) {
+			Type genericType = field.getGenericType();
+			if (genericType instanceof ParameterizedType) {
+				Type argument = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+				if (argument instanceof Class) {
+					return new BeanInstance<Object>((Class<Object>) argument);
+				}
+			}
+
+			return null;
+		}
+
+		if (beans.containsKey(type)) {
+			return beans.get(type);
+		}
+
+		if (type.getName().startsWith(OXAUTH_PACKAGE) && !type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+			return bean(type);
+		}
+
+		return null;
+	}
+
+	private void postConstruct(Object bean) {
+		for (Class<?> currentClass = bean.getClass(); currentClass != Object.class; currentClass = currentClass.getSuperclass()) {
+			if (!currentClass.getName().startsWith(OXAUTH_PACKAGE)) {
+				continue;
+			}
+
+			for (Method method : currentClass.getDeclaredMethods()) {
+				if (method.isAnnotationPresent(PostConstruct.class) && (method.getParameterTypes().length == 0)) {
+					method.setAccessible(true);
+					try {
+						method.invoke(bean);
+					} catch (IllegalAccessException ex) {
+						throw new IllegalStateException("Failed to initialize bean " + currentClass.getName(), ex);
+					} catch (InvocationTargetException ex) {
+						throw new IllegalStateException("Failed to initialize bean " + currentClass.getName(), ex.getCause());
+					}
+				}
+			}
+		}
+	}
+
+	private boolean isShared(Class<?> beanClass) {
+		return beanClass.isAnnotationPresent(ApplicationScoped.class) || beanClass.isAnnotationPresent(Singleton.class)
+				|| beanClass.isAnnotationPresent(javax.ejb.Stateless.class) || beanClass.isAnnotationPresent(javax.ejb.Singleton.class)
+				|| beanClass.isAnnotationPresent(RequestScoped.class) || beanClass.isAnnotationPresent(SessionScoped.class);
+	}
+
+	private class BeanInstance<T> implements Instance<T> {
+
+		private final Class<T> beanClass;
+
+		public BeanInstance(Class<T> beanClass) {
+			this.beanClass = beanClass;
+		}
+
+		@Override
+		public T get() {
+			return bean(beanClass);
+		}
+
+		@Override
+		public Instance<T> select(Annotation... qualifiers) {
+			return this;
+		}
+
+		@Override
+		public <U extends T> Instance<U> select(Class<U> subtype, Annotation... qualifiers) {
+			return new BeanInstance<U>(subtype);
+		}
+
+		@Override
+		public <U extends T> Instance<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isUnsatisfied() {
+			return false;
+		}
+
+		@Override
+		public boolean isAmbiguous() {
+			return false;
+		}
+
+		@Override
+		public void destroy(T instance) {
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return Collections.singletonList(get()).iterator();
+		}
+
+	}
+
+	private class BenchmarkCdi extends CDI<Object> {
+
+		private final BeanInstance<Object> instance = new BeanInstance<Object>(Object.class);
+
+		@Override
+		public BeanManager getBeanManager() {
+			return null;
+		}
+
+		@Override
+		public Object get() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instance<Object> select(Annotation... qualifiers) {
+			return instance;
+		}
+
+		@Override
+		public <U> Instance<U> select(Class<U> subtype, Annotation... qualifiers) {
+			return new BeanInstance<U>(subtype);
+		}
+
+		@Override
+		public <U> Instance<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isUnsatisfied() {
+			return false;
+		}
+
+		@Override
+		public boolean isAmbiguous() {
+			return false;
+		}
+
+		@Override
+		public void destroy(Object instance) {
+		}
+
+		@Override
+		public Iterator<Object> iterator() {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
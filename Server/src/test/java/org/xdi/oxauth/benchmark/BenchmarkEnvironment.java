@@ -0,0 +1,394 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.gluu.site.ldap.OperationsFacade;
+import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.xdi.oxauth.model.common.GrantType;
+import org.xdi.oxauth.model.common.ResponseType;
+import org.xdi.oxauth.model.common.Scope;
+import org.xdi.oxauth.model.common.User;
+import org.xdi.oxauth.model.config.BaseDnConfiguration;
+import org.xdi.oxauth.model.config.ConfigurationFactory;
+import org.xdi.oxauth.model.config.StaticConfiguration;
+import org.xdi.oxauth.model.config.WebKeysConfiguration;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.model.ldap.TokenLdap;
+import org.xdi.oxauth.model.ldap.TokenType;
+import org.xdi.oxauth.model.registration.Client;
+import org.xdi.oxauth.service.ClientService;
+import org.xdi.oxauth.service.GrantService;
+import org.xdi.oxauth.util.ServerUtil;
+import org.xdi.service.CacheService;
+import org.xdi.service.ldap.LdapConnectionService;
+import org.xdi.util.security.StringEncrypter;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.RDN;
+import com.unboundid.ldif.LDIFException;
+
+/**
+ * Server beans wired against UnboundID in-memory directory and configuration from target/conf. Besides
+ * benchmark client, user and authorization code, directory is seeded with standard scopes and with
+ * benchmark.seed.clients clients, benchmark.seed.users users and benchmark.seed.tokensPerClient tokens
+ * per client, so searches run against directory of representative size. Schema checking is disabled
+ * because oxAuth LDAP schema is not part of this project
+ */
+public final class BenchmarkEnvironment {
+
+	public static final String CLIENT_ID = "@!1111!0008!BE4C.0001";
+	public static final String CLIENT_SECRET = "b5a5c4d4-3e0a-4a4e-9e42-6a8b0a6e0b31";
+	public static final String REDIRECT_URI = "https://rp.example.com/callback";
+	public static final String USER_INUM = "@!1111!0000!BE4C.0001";
+	public static final String USER_ID = "benchmark";
+	public static final String AUTHORIZATION_CODE = "8f7a6c5e-3d2b-4a19-8e7f-6d5c4b3a2918";
+
+	public static final int SEED_CLIENTS = Integer.getInteger("benchmark.seed.clients", 1000);
+	public static final int SEED_USERS = Integer.getInteger("benchmark.seed.users", 10000);
+	public static final int SEED_TOKENS_PER_CLIENT = Integer.getInteger("benchmark.seed.tokensPerClient", 10);
+
+	private static final List<String> SCOPES = Arrays.asList("openid", "profile", "email", "address", "phone", "clientinfo",
+			"uma_protection", "offline_access");
+
+	private static final TokenType[] SEED_TOKEN_TYPES = { TokenType.AUTHORIZATION_CODE, TokenType.ACCESS_TOKEN, TokenType.REFRESH_TOKEN };
+
+	private static final String BASE_DN = "o=gluu";
+	private static final String BIND_DN = "cn=directory manager";
+	private static final String BIND_PASSWORD = "secret";
+
+	private static final String[] INDEXED_ATTRIBUTES = { "inum", "uid", "displayName", "oxAuthTokenCode", "oxAuthGrantId",
+			"oxAuthAuthorizationCode", "oxAuthSessionDn", "oxAuthClientId" };
+
+	private static BenchmarkEnvironment instance;
+
+	private final InMemoryDirectoryServer directoryServer;
+	private final BenchmarkBeanContainer container;
+	private final LdapEntryManager ldapEntryManager;
+	private final AppConfiguration appConfiguration;
+	private final StaticConfiguration staticConfiguration;
+
+	private BenchmarkEnvironment() throws Exception {
+		String confDir = System.getProperty("server.base", "target") + File.separator + "conf" + File.separator;
+		ObjectMapper mapper = ServerUtil.createJsonMapper();
+		this.appConfiguration = mapper.readValue(new File(confDir + "oxauth-config.json"), AppConfiguration.class);
+		this.staticConfiguration = mapper.readValue(new File(confDir + "oxauth-static-conf.json"), StaticConfiguration.class);
+		WebKeysConfiguration webKeysConfiguration = mapper.readValue(new File(confDir + "oxauth-web-keys.json"), WebKeysConfiguration.class);
+		String salt = loadSalt(confDir + "salt");
+
+		this.directoryServer = startDirectoryServer();
+		prepareBranches(staticConfiguration.getBaseDn());
+
+		Properties connectionProperties = new Properties();
+		connectionProperties.put("servers", "localhost:" + directoryServer.getListenPort());
+		connectionProperties.put("bindDN", BIND_DN);
+		connectionProperties.put("bindPassword", BIND_PASSWORD);
+		connectionProperties.put("useSSL", "false");
+		connectionProperties.put("maxconnections", "8");
+		LdapConnectionService connectionService = new LdapConnectionService(connectionProperties);
+		this.ldapEntryManager = new LdapEntryManager(new OperationsFacade(connectionService, connectionService));
+
+		this.container = new BenchmarkBeanContainer();
+		container.register(AppConfiguration.class, appConfiguration);
+		container.register(StaticConfiguration.class, staticConfiguration);
+		container.register(WebKeysConfiguration.class, webKeysConfiguration);
+		container.register(ConfigurationFactory.class, new BenchmarkConfigurationFactory(appConfiguration, staticConfiguration, webKeysConfiguration, salt));
+		container.register(LdapEntryManager.class, ldapEntryManager);
+		container.register(StringEncrypter.class, StringEncrypter.instance(salt));
+		container.register(CacheService.class, new InMemoryCacheService());
+		container.registerAsCurrentCdi();
+
+		seed();
+	}
+
+	public static synchronized BenchmarkEnvironment instance() throws Exception {
+		if (instance == null) {
+			instance = new BenchmarkEnvironment();
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					instance.directoryServer.shutDown(true);
+				}
+			});
+		}
+
+		return instance;
+	}
+
+	public <T> T bean(Class<T> beanClass) {
+		return container.bean(beanClass);
+	}
+
+	public AppConfiguration getAppConfiguration() {
+		return appConfiguration;
+	}
+
+	public StaticConfiguration getStaticConfiguration() {
+		return staticConfiguration;
+	}
+
+	/**
+	 * Removes all entries from cache which is used instead of memcached
+	 */
+	public void clearCache() {
+		((InMemoryCacheService) bean(CacheService.class)).clear();
+	}
+
+	public String getUserDn() {
+		return getUserDn(USER_INUM);
+	}
+
+	public static String seededClientId(int index) {
+		return String.format("@!1111!0008!BE4C.%04X", 0x1000 + index);
+	}
+
+	/**
+	 * @return code of one of SEED_CLIENTS * SEED_TOKENS_PER_CLIENT seeded authorization codes, access and refresh tokens
+	 */
+	public static String seededTokenCode(int index) {
+		return String.format("be4c0000-0000-4000-8000-%012d", index);
+	}
+
+	public TokenLdap newAuthorizationCode(String code) {
+		return newToken(code, CLIENT_ID, USER_ID, TokenType.AUTHORIZATION_CODE);
+	}
+
+	private TokenLdap newToken(String code, String clientId, String userId, TokenType tokenType) {
+		Date now = new Date();
+		Calendar expiration = Calendar.getInstance();
+		expiration.add(Calendar.SECOND, appConfiguration.getAuthorizationCodeLifetime());
+
+		String grantId = GrantService.generateGrantId();
+		String id = UUID.randomUUID().toString();
+
+		TokenLdap token = new TokenLdap();
+		token.setId(id);
+		token.setDn(bean(GrantService.class).buildDn(id, grantId, clientId));
+		token.setGrantId(grantId);
+		token.setClientId(clientId);
+		token.setUserId(userId);
+		token.setTokenCode(code);
+		token.setTokenTypeEnum(tokenType);
+		token.setGrantType(GrantType.AUTHORIZATION_CODE.getValue());
+		token.setScope("openid profile");
+		token.setNonce(UUID.randomUUID().toString());
+		token.setCreationDate(now);
+		token.setAuthenticationTime(now);
+		token.setExpirationDate(expiration.getTime());
+
+		return token;
+	}
+
+	private InMemoryDirectoryServer startDirectoryServer() throws LDAPException, LDIFException {
+		InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(BASE_DN);
+		config.addAdditionalBindCredentials(BIND_DN, BIND_PASSWORD);
+		config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", 0));
+		config.setSchema(null);
+		config.setEqualityIndexAttributes(INDEXED_ATTRIBUTES);
+
+		InMemoryDirectoryServer server = new InMemoryDirectoryServer(config);
+		server.add("dn: " + BASE_DN, "objectClass: top", "objectClass: organization", "o: gluu");
+		server.startListening();
+
+		return server;
+	}
+
+	private void prepareBranches(BaseDnConfiguration baseDn) throws LDAPException, LDIFException {
+		List<String> branches = Arrays.asList(baseDn.getAppliance(), baseDn.getPeople(), baseDn.getGroups(), baseDn.getClients(),
+				baseDn.getScopes(), baseDn.getAttributes(), baseDn.getScripts(), baseDn.getSessionId(), baseDn.getUmaBase(),
+				baseDn.getUmaPolicy(), baseDn.getU2fBase(), baseDn.getMetric(), baseDn.getSectorIdentifiers());
+		for (String branch : branches) {
+			if (branch != null) {
+				prepareBranch(new DN(branch));
+			}
+		}
+	}
+
+	private void prepareBranch(DN dn) throws LDAPException, LDIFException {
+		if ((dn == null) || dn.isNullDN() || (directoryServer.getEntry(dn.toString()) != null)) {
+			return;
+		}
+
+		prepareBranch(dn.getParent());
+
+		RDN rdn = dn.getRDN();
+		String attributeName = rdn.getAttributeNames()[0];
+		String attributeValue = rdn.getAttributeValues()[0];
+		String objectClass = "o".equalsIgnoreCase(attributeName) ? "organization" : "organizationalUnit";
+
+		directoryServer.add("dn: " + dn.toString(), "objectClass: top", "objectClass: " + objectClass, attributeName + ": " + attributeValue);
+	}
+
+	private void seed() throws Exception {
+		List<String> scopeDns = new ArrayList<String>();
+		for (String scopeName : SCOPES) {
+			Scope scope = new Scope();
+			scope.setInum("@!1111!0009!BE4C." + scopeName);
+			scope.setDn("inum=" + scope.getInum() + "," + staticConfiguration.getBaseDn().getScopes());
+			scope.setDisplayName(scopeName);
+			scope.setDefaultScope("true");
+			ldapEntryManager.persist(scope);
+
+			scopeDns.add(scope.getDn());
+		}
+
+		ClientService clientService = bean(ClientService.class);
+		clientService.persist(newClient(CLIENT_ID, "Benchmark client", scopeDns.subList(0, 2)));
+		for (int i = 0; i < SEED_CLIENTS; i++) {
+			clientService.persist(newClient(seededClientId(i), "Benchmark client " + i, scopeDns));
+		}
+
+		ldapEntryManager.persist(newUser(USER_INUM, USER_ID));
+		for (int i = 0; i < SEED_USERS; i++) {
+			ldapEntryManager.persist(newUser(String.format("@!1111!0000!BE4C.%04X", 0x1000 + i), USER_ID + i));
+		}
+
+		GrantService grantService = bean(GrantService.class);
+		grantService.persist(newAuthorizationCode(AUTHORIZATION_CODE));
+		for (int i = 0; i < SEED_CLIENTS * SEED_TOKENS_PER_CLIENT; i++) {
+			String userId = USER_ID + (i % Math.max(SEED_USERS, 1));
+			TokenType tokenType = SEED_TOKEN_TYPES[i % SEED_TOKEN_TYPES.length];
+			grantService.persist(newToken(seededTokenCode(i), seededClientId(i / SEED_TOKENS_PER_CLIENT), userId, tokenType));
+		}
+	}
+
+	private Client newClient(String clientId, String clientName, List<String> scopeDns) {
+		ClientService clientService = bean(ClientService.class);
+
+		Client client = new Client();
+		client.setClientId(clientId);
+		client.setDn(clientService.buildClientDn(clientId));
+		client.setClientName(clientName);
+		client.setClientSecret(clientService.encryptSecret(CLIENT_SECRET));
+		client.setClientIdIssuedAt(new Date());
+		client.setRedirectUris(new String[] { REDIRECT_URI });
+		client.setResponseTypes(new ResponseType[] { ResponseType.CODE, ResponseType.ID_TOKEN });
+		client.setGrantTypes(new GrantType[] { GrantType.AUTHORIZATION_CODE, GrantType.IMPLICIT });
+		client.setScopes(scopeDns.toArray(new String[scopeDns.size()]));
+		client.setTokenEndpointAuthMethod("client_secret_jwt");
+		client.setIdTokenSignedResponseAlg("RS256");
+		client.setSubjectType("public");
+		client.setJwks("{\"keys\":[]}");
+
+		return client;
+	}
+
+	private User newUser(String inum, String userId) {
+		User user = new User();
+		user.setDn(getUserDn(inum));
+		user.setUserId(userId);
+		user.setAttribute("inum", inum);
+		user.setAttribute("givenName", "Bench");
+		user.setAttribute("sn", "Mark");
+		user.setAttribute("mail", userId + "@example.com");
+
+		return user;
+	}
+
+	private String getUserDn(String inum) {
+		return "inum=" + inum + "," + staticConfiguration.getBaseDn().getPeople();
+	}
+
+	private static String loadSalt(String saltFilePath) throws IOException {
+		Properties properties = new Properties();
+		InputStream is = new FileInputStream(saltFilePath);
+		try {
+			properties.load(is);
+		} finally {
+			is.close();
+		}
+
+		return properties.getProperty("encodeSalt");
+	}
+
+	/**
+	 * Provides already loaded configuration instead of loading it from LDAP
+	 */
+	private static class BenchmarkConfigurationFactory extends ConfigurationFactory {
+
+		private final AppConfiguration appConfiguration;
+		private final StaticConfiguration staticConfiguration;
+		private final WebKeysConfiguration webKeysConfiguration;
+		private final String salt;
+
+		public BenchmarkConfigurationFactory(AppConfiguration appConfiguration, StaticConfiguration staticConfiguration,
+				WebKeysConfiguration webKeysConfiguration, String salt) {
+			this.appConfiguration = appConfiguration;
+			this.staticConfiguration = staticConfiguration;
+			this.webKeysConfiguration = webKeysConfiguration;
+			this.salt = salt;
+		}
+
+		@Override
+		public AppConfiguration getAppConfiguration() {
+			return appConfiguration;
+		}
+
+		@Override
+		public StaticConfiguration getStaticConfiguration() {
+			return staticConfiguration;
+		}
+
+		@Override
+		public WebKeysConfiguration getWebKeysConfiguration() {
+			return webKeysConfiguration;
+		}
+
+		@Override
+		public String getCryptoConfigurationSalt() {
+			return salt;
+		}
+
+	}
+
+	/**
+	 * Local map instead of memcached. Region is ignored because oxAuth passes expiration in it
+	 */
+	private static class InMemoryCacheService extends CacheService {
+
+		private final Map<String, Object> entries = new ConcurrentHashMap<String, Object>();
+
+		@Override
+		public Object get(String region, String key) {
+			return entries.get(key);
+		}
+
+		@Override
+		public void put(String region, String key, Object object) {
+			entries.put(key, object);
+		}
+
+		@Override
+		public void remove(String region, String key) {
+			entries.remove(key);
+		}
+
+		public void clear() {
+			entries.clear();
+		}
+
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.registration.Client;
+import org.xdi.oxauth.service.ClientService;
+
+/**
+ * Compares loading of several clients which are not in cache one by one with bulk loading by one
+ * search. Run with -Dbenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientServiceBenchmark {
+
+	@Param({ "1", "10", "100" })
+	private int clients;
+
+	private BenchmarkEnvironment environment;
+	private ClientService clientService;
+	private LdapEntryManager ldapEntryManager;
+
+	private List<String> clientDns;
+
+	@Setup
+	public void setup() throws Exception {
+		environment = BenchmarkEnvironment.instance();
+		clientService = environment.bean(ClientService.class);
+		ldapEntryManager = environment.bean(LdapEntryManager.class);
+
+		clientDns = new ArrayList<String>(clients);
+		for (int i = 0; i < clients; i++) {
+			String clientId = BenchmarkEnvironment.seededClientId(i);
+			String dn = clientService.buildClientDn(clientId);
+			// Clients are seeded by environment unless benchmark.seed.clients is less than clients parameter
+			if (clientService.getClientByDn(dn) == null) {
+				Client client = new Client();
+				client.setClientId(clientId);
+				client.setDn(dn);
+				client.setClientName("Benchmark client " + i);
+				client.setClientIdIssuedAt(new Date());
+				client.setRedirectUris(new String[] { BenchmarkEnvironment.REDIRECT_URI });
+				clientService.persist(client);
+			}
+			clientDns.add(dn);
+		}
+	}
+
+	@Benchmark
+	public List<Client> oneByOne() {
+		environment.clearCache();
+
+		List<Client> result = new ArrayList<Client>(clientDns.size());
+		for (String dn : clientDns) {
+			result.add(ldapEntryManager.find(Client.class, dn));
+		}
+
+		return result;
+	}
+
+	@Benchmark
+	public List<Client> bulk() {
+		environment.clearCache();
+
+		return clientService.getClientsByDnList(clientDns, false);
+	}
+
+	@Benchmark
+	public List<Client> bulkCached() {
+		return clientService.getClientsByDnList(clientDns, false);
+	}
+
+	@Test
+	public void runBenchmark() throws Exception {
+		Options options = new OptionsBuilder().include(ClientServiceBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+
+}
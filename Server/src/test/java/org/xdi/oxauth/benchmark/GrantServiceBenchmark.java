@@ -0,0 +1,90 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.common.AuthorizationGrant;
+import org.xdi.oxauth.model.common.AuthorizationGrantList;
+import org.xdi.oxauth.model.ldap.TokenLdap;
+import org.xdi.oxauth.service.GrantService;
+
+/**
+ * Measures persisting and loading of token entries and building of grant from loaded entry. Tokens are
+ * loaded by random code among tokens seeded by BenchmarkEnvironment. Run with -Dbenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrantServiceBenchmark {
+
+	private BenchmarkEnvironment environment;
+	private GrantService grantService;
+	private AuthorizationGrantList authorizationGrantList;
+
+	private TokenLdap tokenLdap;
+	private Random random;
+
+	@Setup
+	public void setup() throws Exception {
+		environment = BenchmarkEnvironment.instance();
+		grantService = environment.bean(GrantService.class);
+		authorizationGrantList = environment.bean(AuthorizationGrantList.class);
+
+		tokenLdap = grantService.getGrantsByCode(BenchmarkEnvironment.AUTHORIZATION_CODE);
+		random = new Random(42);
+	}
+
+	@Benchmark
+	public TokenLdap persist() {
+		TokenLdap token = environment.newAuthorizationCode(UUID.randomUUID().toString());
+		grantService.persist(token);
+
+		return token;
+	}
+
+	@Benchmark
+	public TokenLdap loadByCode() {
+		int seededTokens = BenchmarkEnvironment.SEED_CLIENTS * BenchmarkEnvironment.SEED_TOKENS_PER_CLIENT;
+		if (seededTokens == 0) {
+			return grantService.getGrantsByCode(BenchmarkEnvironment.AUTHORIZATION_CODE);
+		}
+
+		return grantService.getGrantsByCode(BenchmarkEnvironment.seededTokenCode(random.nextInt(seededTokens)));
+	}
+
+	@Benchmark
+	public AuthorizationGrant asGrant() {
+		return authorizationGrantList.asGrant(tokenLdap);
+	}
+
+	@Test
+	public void runBenchmark() throws Exception {
+		Options options = new OptionsBuilder().include(GrantServiceBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.common.AuthorizationGrant;
+import org.xdi.oxauth.model.common.AuthorizationGrantList;
+import org.xdi.oxauth.model.token.IdTokenFactory;
+import org.xdi.oxauth.model.token.JsonWebResponse;
+import org.xdi.oxauth.service.GrantService;
+
+/**
+ * Measures id_token creation with claims from user entry signed by server key or client secret. Run with -Dbenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdTokenFactoryBenchmark {
+
+	@Param({"RS256", "HS256"})
+	public String signatureAlgorithm;
+
+	private IdTokenFactory idTokenFactory;
+	private AuthorizationGrant grant;
+	private Set<String> scopes;
+
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkEnvironment environment = BenchmarkEnvironment.instance();
+		idTokenFactory = environment.bean(IdTokenFactory.class);
+
+		GrantService grantService = environment.bean(GrantService.class);
+		grant = environment.bean(AuthorizationGrantList.class).asGrant(grantService.getGrantsByCode(BenchmarkEnvironment.AUTHORIZATION_CODE));
+		grant.getClient().setIdTokenSignedResponseAlg(signatureAlgorithm);
+
+		scopes = new HashSet<String>(Arrays.asList("openid", "profile"));
+	}
+
+	@Benchmark
+	public String createJwr() throws Exception {
+		JsonWebResponse jwr = idTokenFactory.createJwr(grant, UUID.randomUUID().toString(), null, null, scopes, true);
+
+		return jwr.toString();
+	}
+
+	@Test
+	public void runBenchmark() throws Exception {
+		Options options = new OptionsBuilder().include(IdTokenFactoryBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.idgen.ws.rs.InumGenerator;
+import org.xdi.oxauth.model.common.IdType;
+import org.xdi.util.INumGenerator;
+
+/**
+ * Compares client inum generation by node id and counter with previous random inum followed by
+ * existence search in clients branch. Run with -Dbenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class InumGeneratorBenchmark {
+
+	private static final String ORGANIZATION_INUM = "@!1111";
+
+	private InumGenerator inumGenerator;
+
+	@Setup
+	public void setup() throws Exception {
+		inumGenerator = BenchmarkEnvironment.instance().bean(InumGenerator.class);
+	}
+
+	@Benchmark
+	public String sequence() {
+		return inumGenerator.generateId(IdType.CLIENTS, ORGANIZATION_INUM);
+	}
+
+	@Benchmark
+	public boolean randomWithSearch() {
+		String inum = ORGANIZATION_INUM + InumGenerator.SEPARATOR + IdType.CLIENTS.getInum() + InumGenerator.SEPARATOR
+				+ INumGenerator.generate(4);
+
+		return inumGenerator.contains(inum, IdType.CLIENTS);
+	}
+
+	@Test
+	public void runBenchmark() throws Exception {
+		Options options = new OptionsBuilder().include(InumGeneratorBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.gluu.site.ldap.persistence.LdapEntryManager;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.BaseComponentTest;
+import org.xdi.oxauth.model.common.User;
+import org.xdi.oxauth.model.configuration.AuthenticationFilter;
+import org.xdi.oxauth.service.BaseAuthFilterService;
+import org.xdi.oxauth.service.BaseAuthFilterService.AuthenticationFilterWithParameters;
+import org.xdi.oxauth.service.UserService;
+
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.LDAPException;
+
+public class AuthenticationFilterTest extends BaseComponentTest {
+
+	@Inject
+	private LdapEntryManager ldapEntryManager;
+
+	@Inject
+	private UserService userService;
+
+	@Test
+	public void prepareFilters() {
+		TestAuthFilterService filterService = new TestAuthFilterService(0);
+		List<AuthenticationFilterWithParameters> filters = filterService.prepareAuthenticationFilterWithParameters(Arrays.asList(
+				filter("(&(mail={0})(employeeNumber={1}))", null), filter("uid={0}", Boolean.TRUE)));
+
+		// Bind filter without password attribute is skipped
+		assertEquals(filters.size(), 1);
+
+		AuthenticationFilterWithParameters filter = filters.get(0);
+		assertEquals(filter.getVariableNames(), Arrays.asList("mail", "employeenumber"));
+		assertEquals(filter.getMetricName(), "filter.0");
+		assertNotNull(filter.getCompiledFilter());
+	}
+
+	@Test
+	public void buildEqualityFilter() throws LDAPException {
+		AuthenticationFilterWithParameters filter = prepare(new TestAuthFilterService(0), "(&(mail={0})(employeeNumber={1}))");
+
+		Map<String, String> attributeValues = new HashMap<String, String>();
+		attributeValues.put("mail", "user@example.com");
+		attributeValues.put("employeenumber", "1234");
+
+		assertEquals(BaseAuthFilterService.buildLdapFilter(filter, attributeValues),
+				Filter.create("(&(mail=user@example.com)(employeeNumber=1234))"));
+	}
+
+	@Parameters(value = "userId")
+	@Test
+	public void loadEntryDN(String userId) {
+		TestAuthFilterService filterService = new TestAuthFilterService(0);
+		AuthenticationFilterWithParameters filter = prepare(filterService, "uid={0}");
+
+		assertEquals(filterService.loadEntryDN(ldapEntryManager, filter, attributes("uid", userId)), getUserDn(userId));
+		assertNull(filterService.loadEntryDN(ldapEntryManager, filter, attributes("uid", userId + "_not_exists")));
+	}
+
+	@Parameters(value = "userId")
+	@Test
+	public void loadEntryDNWithEscapedValues(String userId) {
+		TestAuthFilterService filterService = new TestAuthFilterService(0);
+		AuthenticationFilterWithParameters filter = prepare(filterService, "uid={0}");
+
+		// Values are compared literally, they can't add filter components or wildcards
+		assertNull(filterService.loadEntryDN(ldapEntryManager, filter, attributes("uid", "*")));
+		assertNull(filterService.loadEntryDN(ldapEntryManager, filter, attributes("uid", "*)(uid=" + userId)));
+		assertNull(filterService.loadEntryDN(ldapEntryManager, filter, attributes("uid", userId + ")(|(uid=*")));
+	}
+
+	@Parameters(value = { "userId", "userInum" })
+	@Test
+	public void loadEntryDNWithSubstringFilter(String userId, String userInum) {
+		TestAuthFilterService filterService = new TestAuthFilterService(0);
+		AuthenticationFilterWithParameters filter = prepare(filterService, "(&(uid=*{0}*)(inum={1}))");
+
+		Map<String, String> attributeValues = attributes("uid", userId.substring(1));
+		attributeValues.put("inum", userInum);
+		assertEquals(filterService.loadEntryDN(ldapEntryManager, filter, attributeValues), getUserDn(userId));
+
+		// Empty value would turn substring filter into presence filter which matches user
+		attributeValues.put("uid", "");
+		assertNull(filterService.loadEntryDN(ldapEntryManager, filter, attributeValues));
+	}
+
+	@Parameters(value = "userId")
+	@Test
+	public void loadEntryDNFromCache(String userId) {
+		TestAuthFilterService filterService = new TestAuthFilterService(30);
+		AuthenticationFilterWithParameters filter = filterService.getFilterWithParameters().get(0);
+
+		String userDn = getUserDn(userId);
+		assertEquals(filterService.loadEntryDN(ldapEntryManager, filter, attributes("uid", userId)), userDn);
+		assertEquals(filterService.loadEntryDN(ldapEntryManager, filter, attributes("uid", userId)), userDn);
+
+		assertEquals(filterService.getMetricRegistry().timer("filter.0.searches").getCount(), 1);
+		assertEquals(filterService.getMetricRegistry().meter("filter.0.cache-hits").getCount(), 1);
+	}
+
+	private String getUserDn(String userId) {
+		User user = userService.getUser(userId, "inum");
+		assertNotNull(user);
+
+		return user.getDn();
+	}
+
+	private AuthenticationFilterWithParameters prepare(TestAuthFilterService filterService, String template) {
+		List<AuthenticationFilterWithParameters> filters = filterService.prepareAuthenticationFilterWithParameters(Arrays.asList(filter(template, null)));
+		assertEquals(filters.size(), 1);
+
+		return filters.get(0);
+	}
+
+	private AuthenticationFilter filter(String template, Boolean bind) {
+		AuthenticationFilter authenticationFilter = new AuthenticationFilter();
+		authenticationFilter.setFilter(template);
+		authenticationFilter.setBaseDn(userService.getDnForUser(null));
+		authenticationFilter.setBind(bind);
+
+		return authenticationFilter;
+	}
+
+	private static Map<String, String> attributes(String name, String value) {
+		Map<String, String> attributeValues = new HashMap<String, String>();
+		attributeValues.put(name, value);
+
+		return attributeValues;
+	}
+
+	private class TestAuthFilterService extends BaseAuthFilterService {
+
+		public TestAuthFilterService(int cacheLifetime) {
+			this.log = LoggerFactory.getLogger(AuthenticationFilterTest.class);
+			init(Arrays.asList(filter("uid={0}", null)), true, true, cacheLifetime);
+		}
+
+		@Override
+		public String processAuthenticationFilter(AuthenticationFilterWithParameters p_allowed, Map<?, ?> p_attributeValues) {
+			return loadEntryDN(ldapEntryManager, p_allowed, normalizeAttributeMap(p_attributeValues));
+		}
+
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.model.config.ConfigurationChanges;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+
+public class ConfigurationChangesTest {
+
+	private static final String CONFIGURATION = "{\"issuer\":\"https://localhost\",\"idTokenLifetime\":3600,"
+			+ "\"corsConfigurationFilters\":[{\"filterName\":\"CorsFilter\",\"corsAllowedOrigins\":\"*\"}],"
+			+ "\"authenticationFilters\":[{\"filter\":\"uid={0}\",\"bind\":true}]}";
+
+	@Test
+	public void unchangedConfiguration() throws IOException {
+		Assert.assertEquals(ConfigurationChanges.getChangedKeys(readTree(CONFIGURATION), readTree(CONFIGURATION)),
+				Collections.emptySet());
+	}
+
+	@Test
+	public void addedRemovedAndChangedKeys() throws IOException {
+		String newConfiguration = "{\"issuer\":\"https://example.com\","
+				+ "\"corsConfigurationFilters\":[{\"filterName\":\"CorsFilter\",\"corsAllowedOrigins\":\"*\"}],"
+				+ "\"authenticationFilters\":[{\"filter\":\"uid={0}\",\"bind\":true}],"
+				+ "\"pairwiseIdentifierCacheSize\":1000}";
+
+		Assert.assertEquals(ConfigurationChanges.getChangedKeys(readTree(CONFIGURATION), readTree(newConfiguration)),
+				set("issuer", "idTokenLifetime", "pairwiseIdentifierCacheSize"));
+	}
+
+	@Test
+	public void changedNestedKeys() throws IOException {
+		// Nested value changed, added and removed, changes are reported by top level property
+		String newConfiguration = "{\"issuer\":\"https://localhost\",\"idTokenLifetime\":3600,"
+				+ "\"corsConfigurationFilters\":[{\"filterName\":\"CorsFilter\",\"corsAllowedOrigins\":\"https://rp.example.com\"}],"
+				+ "\"authenticationFilters\":[{\"filter\":\"uid={0}\",\"bind\":true,\"baseDn\":\"ou=people,o=gluu\"}]}";
+		Assert.assertEquals(ConfigurationChanges.getChangedKeys(readTree(CONFIGURATION), readTree(newConfiguration)),
+				set("corsConfigurationFilters", "authenticationFilters"));
+
+		String removedNestedKey = "{\"issuer\":\"https://localhost\",\"idTokenLifetime\":3600,"
+				+ "\"corsConfigurationFilters\":[{\"filterName\":\"CorsFilter\",\"corsAllowedOrigins\":\"*\"}],"
+				+ "\"authenticationFilters\":[{\"filter\":\"uid={0}\"}]}";
+		Assert.assertEquals(ConfigurationChanges.getChangedKeys(readTree(CONFIGURATION), readTree(removedNestedKey)),
+				set("authenticationFilters"));
+	}
+
+	@Test
+	public void reportChangedKeys() throws IOException {
+		Set<String> changedKeys = ConfigurationChanges.getChangedKeys(readTree("{\"idTokenLifetime\":3600}"),
+				readTree("{\"idTokenLifetime\":7200}"));
+		ConfigurationChanges changes = new ConfigurationChanges(false, new AppConfiguration(), changedKeys, false, false, false);
+
+		Assert.assertTrue(changes.isAppConfigurationChanged());
+		Assert.assertTrue(changes.isAppConfigurationChanged("issuer", "idTokenLifetime"));
+		Assert.assertFalse(changes.isAppConfigurationChanged("issuer"));
+		Assert.assertFalse(changes.isStaticConfigurationChanged());
+
+		// Everything is reported as changed after first load
+		ConfigurationChanges initial = new ConfigurationChanges(true, new AppConfiguration(), Collections.<String>emptySet(), false, false, false);
+		Assert.assertTrue(initial.isAppConfigurationChanged("issuer"));
+		Assert.assertTrue(initial.isWebKeysChanged());
+	}
+
+	private static JsonNode readTree(String json) throws IOException {
+		return new ObjectMapper().readTree(json);
+	}
+
+	private static Set<String> set(String... values) {
+		return new HashSet<String>(Arrays.asList(values));
+	}
+
+}
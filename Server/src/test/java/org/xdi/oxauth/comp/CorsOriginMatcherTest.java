@@ -0,0 +1,74 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+import org.xdi.oxauth.filter.CorsOriginMatcher;
+
+public class CorsOriginMatcherTest {
+
+	@Test
+	public void exactOrigins() {
+		CorsOriginMatcher matcher = new CorsOriginMatcher("https://rp.example.com, http://localhost:8080");
+
+		assertFalse(matcher.isAnyOriginAllowed());
+		assertTrue(matcher.isAllowed("https://rp.example.com"));
+		assertTrue(matcher.isAllowed("HTTPS://RP.EXAMPLE.COM:443"));
+		assertTrue(matcher.isAllowed("http://localhost:8080"));
+
+		assertFalse(matcher.isAllowed("http://rp.example.com"));
+		assertFalse(matcher.isAllowed("https://rp.example.com:8443"));
+		assertFalse(matcher.isAllowed("https://rp.example.com.evil.com"));
+		assertFalse(matcher.isAllowed("http://localhost"));
+	}
+
+	@Test
+	public void wildcardOrigins() {
+		CorsOriginMatcher matcher = new CorsOriginMatcher("https://*.example.com,http://*.test.org:8080");
+
+		assertTrue(matcher.isAllowed("https://rp.example.com"));
+		assertTrue(matcher.isAllowed("https://a.b.example.com"));
+		assertTrue(matcher.isAllowed("http://rp.test.org:8080"));
+
+		// Wildcard requires subdomain and doesn't match by suffix of label
+		assertFalse(matcher.isAllowed("https://example.com"));
+		assertFalse(matcher.isAllowed("https://evilexample.com"));
+		assertFalse(matcher.isAllowed("https://rp.example.com.evil.com"));
+
+		// Scheme and port should match
+		assertFalse(matcher.isAllowed("http://rp.example.com"));
+		assertFalse(matcher.isAllowed("https://rp.example.com:8443"));
+		assertFalse(matcher.isAllowed("http://rp.test.org"));
+	}
+
+	@Test
+	public void anyOrigin() {
+		CorsOriginMatcher matcher = new CorsOriginMatcher("https://rp.example.com,*");
+
+		assertTrue(matcher.isAnyOriginAllowed());
+		assertTrue(matcher.isAllowed("https://any.origin.org"));
+	}
+
+	@Test
+	public void noOrigins() {
+		assertFalse(new CorsOriginMatcher(null).isAllowed("https://rp.example.com"));
+		assertFalse(new CorsOriginMatcher(" , ").isAllowed("https://rp.example.com"));
+		assertFalse(new CorsOriginMatcher("https://*.example.com").isAllowed("null"));
+	}
+
+	@Test
+	public void normalize() {
+		assertEquals(CorsOriginMatcher.normalize(" HTTPS://RP.Example.com:443/ "), "https://rp.example.com");
+		assertEquals(CorsOriginMatcher.normalize("http://rp.example.com:80"), "http://rp.example.com");
+		assertEquals(CorsOriginMatcher.normalize("http://rp.example.com:443"), "http://rp.example.com:443");
+	}
+
+}
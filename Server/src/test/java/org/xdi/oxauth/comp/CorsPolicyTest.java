@@ -0,0 +1,111 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+
+import org.testng.annotations.Test;
+import org.xdi.oxauth.filter.CorsFilterConfig;
+import org.xdi.oxauth.filter.CorsPolicy;
+
+public class CorsPolicyTest {
+
+	@Test
+	public void defaultPolicy() {
+		CorsPolicy policy = new CorsPolicy(new TestFilterConfig());
+
+		assertTrue(policy.isAnyOriginAllowed());
+		assertTrue(policy.isSupportsCredentials());
+		assertFalse(policy.isAllowClientOrigins());
+		assertEquals(policy.getAllowedHttpMethodsValue(), "GET,POST,HEAD,OPTIONS");
+		assertEquals(policy.getPreflightMaxAge(), 1800);
+	}
+
+	@Test
+	public void configuredPolicy() {
+		CorsPolicy policy = new CorsPolicy(new TestFilterConfig()
+				.set(CorsFilterConfig.PARAM_CORS_ALLOWED_ORIGINS, "https://rp.example.com")
+				.set(CorsFilterConfig.PARAM_CORS_ALLOWED_METHODS, " GET , POST ")
+				.set(CorsFilterConfig.PARAM_CORS_ALLOWED_HEADERS, "Content-Type, Authorization")
+				.set(CorsFilterConfig.PARAM_CORS_EXPOSED_HEADERS, "X-Request-Id")
+				.set(CorsFilterConfig.PARAM_CORS_PREFLIGHT_MAXAGE, "invalid")
+				.set(CorsFilterConfig.PARAM_CORS_ALLOW_CLIENT_ORIGINS, "true"));
+
+		assertFalse(policy.isAnyOriginAllowed());
+		assertTrue(policy.isOriginAllowed("https://rp.example.com"));
+		assertFalse(policy.isOriginAllowed("https://evil.com"));
+		assertTrue(policy.isMethodAllowed("POST"));
+		assertFalse(policy.isMethodAllowed("DELETE"));
+		assertEquals(policy.getAllowedHttpMethodsValue(), "GET,POST");
+		assertEquals(policy.getAllowedHttpHeadersValue(), "Content-Type,Authorization");
+		assertEquals(policy.getExposedHeadersValue(), "X-Request-Id");
+		assertEquals(policy.getPreflightMaxAge(), -1);
+		assertTrue(policy.isAllowClientOrigins());
+	}
+
+	@Test
+	public void preflightCheck() {
+		CorsPolicy policy = new CorsPolicy(new TestFilterConfig()
+				.set(CorsFilterConfig.PARAM_CORS_ALLOWED_ORIGINS, "https://*.example.com")
+				.set(CorsFilterConfig.PARAM_CORS_ALLOWED_METHODS, "GET,POST")
+				.set(CorsFilterConfig.PARAM_CORS_ALLOWED_HEADERS, "Content-Type,Authorization"));
+
+		CorsPolicy.PreflightCheck check = policy.checkPreflight("https://rp.example.com", "POST", "content-type, AUTHORIZATION");
+		assertTrue(check.isOriginAllowed());
+		assertTrue(check.isRequestAllowed());
+
+		// Origin is checked separately from method and headers, client origins can be allowed later
+		check = policy.checkPreflight("https://rp.other.com", "POST", null);
+		assertFalse(check.isOriginAllowed());
+		assertTrue(check.isRequestAllowed());
+
+		assertFalse(policy.checkPreflight("https://rp.example.com", "DELETE", null).isRequestAllowed());
+		assertFalse(policy.checkPreflight("https://rp.example.com", "POST", "Content-Type,X-Custom").isRequestAllowed());
+	}
+
+	private static class TestFilterConfig implements FilterConfig {
+
+		private final Map<String, String> parameters = new HashMap<String, String>();
+
+		public TestFilterConfig set(String name, String value) {
+			parameters.put(name, value);
+			return this;
+		}
+
+		@Override
+		public String getFilterName() {
+			return "CorsFilter";
+		}
+
+		@Override
+		public ServletContext getServletContext() {
+			return null;
+		}
+
+		@Override
+		public String getInitParameter(String name) {
+			return parameters.get(name);
+		}
+
+		@Override
+		public Enumeration<String> getInitParameterNames() {
+			return Collections.enumeration(parameters.keySet());
+		}
+
+	}
+
+}
@@ -0,0 +1,221 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.fail;
+import static org.xdi.oxauth.service.LabeledMetricRegistry.labeled;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.testng.annotations.Test;
+import org.xdi.oxauth.BaseComponentTest;
+import org.xdi.oxauth.filter.EndpointMetricFilter;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.service.EndpointMetricService;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class EndpointMetricFilterTest extends BaseComponentTest {
+
+	@Inject
+	private EndpointMetricFilter endpointMetricFilter;
+
+	@Inject
+	private EndpointMetricService endpointMetricService;
+
+	@Inject
+	private AppConfiguration appConfiguration;
+
+	@Test
+	public void recordMatchedEndpoint() throws Exception {
+		TestRequest request = new TestRequest("GET", "https://localhost/oxauth/restv1/test");
+		TestResponse response = new TestResponse();
+
+		endpointMetricFilter.doFilter(request.proxy(), response.proxy(), new EndpointChain("EndpointMetricFilterTest.matched", 201));
+
+		assertEquals(getResponsesCount("EndpointMetricFilterTest.matched", 201), 1);
+	}
+
+	@Test
+	public void recordTokenRequestGrantType() throws Exception {
+		MetricRegistry metricRegistry = endpointMetricService.getMetricRegistry();
+		String grantMetricName = labeled(EndpointMetricService.GRANT_REQUESTS_METRIC, "grant_type", "password");
+		long count = metricRegistry.timer(grantMetricName).getCount();
+
+		TestRequest request = new TestRequest("POST", appConfiguration.getTokenEndpoint());
+		request.parameters.put("grant_type", "password");
+		TestResponse response = new TestResponse();
+
+		endpointMetricFilter.doFilter(request.proxy(), response.proxy(), new EndpointChain("EndpointMetricFilterTest.token", 200));
+
+		assertEquals(metricRegistry.timer(grantMetricName).getCount(), count + 1);
+	}
+
+	@Test
+	public void recordFailedRequest() throws Exception {
+		MetricRegistry metricRegistry = endpointMetricService.getMetricRegistry();
+		long inFlight = metricRegistry.counter(EndpointMetricService.IN_FLIGHT_METRIC).getCount();
+
+		TestRequest request = new TestRequest("GET", "https://localhost/oxauth/restv1/test");
+		TestResponse response = new TestResponse();
+
+		try {
+			endpointMetricFilter.doFilter(request.proxy(), response.proxy(), new EndpointChain("EndpointMetricFilterTest.failed", 500) {
+				@Override
+				public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) throws IOException, ServletException {
+					super.doFilter(servletRequest, servletResponse);
+					throw new ServletException("Test failure");
+				}
+			});
+			fail("Filter should rethrow chain exception");
+		} catch (ServletException ex) {
+			// Expected
+		}
+
+		assertEquals(getResponsesCount("EndpointMetricFilterTest.failed", 500), 1);
+		assertEquals(metricRegistry.counter(EndpointMetricService.IN_FLIGHT_METRIC).getCount(), inFlight);
+	}
+
+	@Test
+	public void recordAsyncRequestOnComplete() throws Exception {
+		TestRequest request = new TestRequest("GET", "https://localhost/oxauth/restv1/test");
+		request.asyncStarted = true;
+		TestResponse response = new TestResponse();
+
+		endpointMetricFilter.doFilter(request.proxy(), response.proxy(), new EndpointChain("EndpointMetricFilterTest.async", 200));
+
+		// Async request is recorded when it completes
+		assertEquals(getResponsesCount("EndpointMetricFilterTest.async", 200), 0);
+		assertNotNull(request.asyncListener);
+
+		request.asyncListener.onComplete(null);
+		assertEquals(getResponsesCount("EndpointMetricFilterTest.async", 200), 1);
+	}
+
+	private long getResponsesCount(String endpoint, int status) {
+		return endpointMetricService.getMetricRegistry()
+				.meter(labeled(EndpointMetricService.RESPONSES_METRIC, "endpoint", endpoint, "status", Integer.toString(status))).getCount();
+	}
+
+	/**
+	 * Sets endpoint name like EndpointMetricRequestFilter and response status like resource method
+	 */
+	private static class EndpointChain implements FilterChain {
+
+		private final String endpoint;
+		private final int status;
+
+		public EndpointChain(String endpoint, int status) {
+			this.endpoint = endpoint;
+			this.status = status;
+		}
+
+		@Override
+		public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse) throws IOException, ServletException {
+			servletRequest.setAttribute(EndpointMetricFilter.ENDPOINT_ATTRIBUTE, endpoint);
+			((HttpServletResponse) servletResponse).setStatus(status);
+		}
+
+	}
+
+	private static class TestRequest implements InvocationHandler {
+
+		private final String method;
+		private final String url;
+		private final Map<String, Object> attributes = new HashMap<String, Object>();
+		private final Map<String, String> parameters = new HashMap<String, String>();
+
+		private boolean asyncStarted;
+		private AsyncListener asyncListener;
+
+		public TestRequest(String method, String url) {
+			this.method = method;
+			this.url = url;
+		}
+
+		public HttpServletRequest proxy() {
+			return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { HttpServletRequest.class }, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("getMethod".equals(name)) {
+				return this.method;
+			} else if ("getRequestURL".equals(name)) {
+				return new StringBuffer(url);
+			} else if ("getRequestURI".equals(name)) {
+				return url.substring(url.indexOf('/', url.indexOf("//") + 2));
+			} else if ("getServletPath".equals(name)) {
+				return "";
+			} else if ("getParameter".equals(name)) {
+				return parameters.get(args[0]);
+			} else if ("getAttribute".equals(name)) {
+				return attributes.get(args[0]);
+			} else if ("setAttribute".equals(name)) {
+				attributes.put((String) args[0], args[1]);
+				return null;
+			} else if ("isAsyncStarted".equals(name)) {
+				return asyncStarted;
+			} else if ("getAsyncContext".equals(name)) {
+				return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { AsyncContext.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("addListener".equals(method.getName())) {
+							asyncListener = (AsyncListener) args[0];
+						}
+						return null;
+					}
+				});
+			}
+
+			throw new UnsupportedOperationException(name);
+		}
+
+	}
+
+	private static class TestResponse implements InvocationHandler {
+
+		private int status = HttpServletResponse.SC_OK;
+
+		public HttpServletResponse proxy() {
+			return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { HttpServletResponse.class }, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("setStatus".equals(name)) {
+				status = (Integer) args[0];
+				return null;
+			} else if ("getStatus".equals(name)) {
+				return status;
+			}
+
+			throw new UnsupportedOperationException(name);
+		}
+
+	}
+
+}
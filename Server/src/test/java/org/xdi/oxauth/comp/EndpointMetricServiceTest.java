@@ -0,0 +1,106 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.xdi.oxauth.service.LabeledMetricRegistry.labeled;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.testng.annotations.Test;
+import org.xdi.oxauth.BaseComponentTest;
+import org.xdi.oxauth.service.EndpointMetricService;
+import org.xdi.oxauth.service.LabeledMetricRegistry;
+import org.xdi.oxauth.servlet.PrometheusMetricWriter;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class EndpointMetricServiceTest extends BaseComponentTest {
+
+	@Inject
+	private EndpointMetricService endpointMetricService;
+
+	@Test
+	public void recordEndpointLatencyAndStatus() {
+		String endpoint = "EndpointMetricServiceTest.recordEndpointLatencyAndStatus";
+		MetricRegistry metricRegistry = endpointMetricService.getMetricRegistry();
+		long inFlight = metricRegistry.counter(EndpointMetricService.IN_FLIGHT_METRIC).getCount();
+
+		endpointMetricService.requestFinished(endpoint, 200, null, null, endpointMetricService.requestStarted());
+		endpointMetricService.requestFinished(endpoint, 200, null, null, endpointMetricService.requestStarted());
+		endpointMetricService.requestFinished(endpoint, 400, null, null, endpointMetricService.requestStarted());
+
+		assertEquals(metricRegistry.timer(labeled(EndpointMetricService.REQUESTS_METRIC, "endpoint", endpoint)).getCount(), 3);
+		assertEquals(metricRegistry.meter(labeled(EndpointMetricService.RESPONSES_METRIC, "endpoint", endpoint, "status", "200")).getCount(), 2);
+		assertEquals(metricRegistry.meter(labeled(EndpointMetricService.RESPONSES_METRIC, "endpoint", endpoint, "status", "400")).getCount(), 1);
+		assertEquals(metricRegistry.counter(EndpointMetricService.IN_FLIGHT_METRIC).getCount(), inFlight);
+	}
+
+	@Test
+	public void recordUnmatchedEndpoint() {
+		MetricRegistry metricRegistry = endpointMetricService.getMetricRegistry();
+		String metricName = labeled(EndpointMetricService.RESPONSES_METRIC, "endpoint", EndpointMetricService.UNMATCHED_ENDPOINT, "status", "404");
+		long count = metricRegistry.meter(metricName).getCount();
+
+		endpointMetricService.requestFinished(null, 404, null, null, endpointMetricService.requestStarted());
+
+		assertEquals(metricRegistry.meter(metricName).getCount(), count + 1);
+	}
+
+	@Test
+	public void recordKnownGrantTypesOnly() {
+		MetricRegistry metricRegistry = endpointMetricService.getMetricRegistry();
+		String grantMetricName = labeled(EndpointMetricService.GRANT_REQUESTS_METRIC, "grant_type", "client_credentials");
+		long count = metricRegistry.timer(grantMetricName).getCount();
+
+		endpointMetricService.requestFinished("EndpointMetricServiceTest.grant", 200, "client_credentials", null, endpointMetricService.requestStarted());
+		endpointMetricService.requestFinished("EndpointMetricServiceTest.grant", 400, "not_a_grant_type", null, endpointMetricService.requestStarted());
+
+		assertEquals(metricRegistry.timer(grantMetricName).getCount(), count + 1);
+		assertFalse(metricRegistry.getTimers().containsKey(labeled(EndpointMetricService.GRANT_REQUESTS_METRIC, "grant_type", "not_a_grant_type")));
+	}
+
+	@Test
+	public void recordClient() {
+		String clientId = "@!EndpointMetricServiceTest!0008!0001";
+		MetricRegistry metricRegistry = endpointMetricService.getMetricRegistry();
+
+		endpointMetricService.requestFinished("EndpointMetricServiceTest.client", 200, null, clientId, endpointMetricService.requestStarted());
+
+		assertEquals(metricRegistry.timer(labeled(EndpointMetricService.CLIENT_REQUESTS_METRIC, "client_id", clientId)).getCount(), 1);
+	}
+
+	@Test
+	public void exportLabeledMetrics() {
+		LabeledMetricRegistry metricRegistry = new LabeledMetricRegistry();
+		metricRegistry.timer(labeled(EndpointMetricService.REQUESTS_METRIC, "endpoint", "Token.requestAccessToken")).update(2, TimeUnit.SECONDS);
+		metricRegistry.timer(labeled(EndpointMetricService.REQUESTS_METRIC, "endpoint", "Token.requestAccessToken")).update(1, TimeUnit.SECONDS);
+		metricRegistry.timer(labeled(EndpointMetricService.REQUESTS_METRIC, "endpoint", "UserInfo.requestUserInfoGet")).update(1, TimeUnit.SECONDS);
+		metricRegistry.meter(labeled(EndpointMetricService.RESPONSES_METRIC, "endpoint", "Token.requestAccessToken", "status", "200")).mark();
+		metricRegistry.meter(labeled(EndpointMetricService.RESPONSES_METRIC, "endpoint", "a\"b\\c", "status", "500")).mark();
+
+		StringWriter output = new StringWriter();
+		new PrometheusMetricWriter(new PrintWriter(output)).write("", metricRegistry);
+		String metrics = output.toString();
+
+		// Type is written once for all labeled metrics with same name
+		assertEquals(metrics.split("# TYPE oxauth_endpoint_requests_seconds summary\n", -1).length, 2);
+		assertTrue(metrics.contains("oxauth_endpoint_requests_seconds{endpoint=\"Token.requestAccessToken\",quantile=\"0.5\"} "));
+		assertTrue(metrics.contains("oxauth_endpoint_requests_seconds_sum{endpoint=\"Token.requestAccessToken\"} 3.0\n"));
+		assertTrue(metrics.contains("oxauth_endpoint_requests_seconds_count{endpoint=\"Token.requestAccessToken\"} 2\n"));
+		assertTrue(metrics.contains("oxauth_endpoint_requests_seconds_count{endpoint=\"UserInfo.requestUserInfoGet\"} 1\n"));
+		assertTrue(metrics.contains("oxauth_endpoint_responses_total{endpoint=\"Token.requestAccessToken\",status=\"200\"} 1\n"));
+		assertTrue(metrics.contains("oxauth_endpoint_responses_total{endpoint=\"a\\\"b\\\\c\",status=\"500\"} 1\n"));
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.idgen.ws.rs.InumSequence;
+import org.xdi.oxauth.service.InumService;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchScope;
+
+/**
+ * Adds entries with inums generated concurrently by several nodes into in-memory directory
+ */
+public class InumSequenceTest {
+
+	private static final String CLIENTS_DN = "ou=clients,o=@!1111,o=gluu";
+
+	private static final int NODES = 3;
+	private static final int THREADS_PER_NODE = 4;
+	private static final int INUMS_PER_THREAD = 1000;
+
+	private InMemoryDirectoryServer directoryServer;
+
+	@BeforeClass
+	public void startDirectoryServer() throws Exception {
+		InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig("o=gluu");
+		config.setSchema(null);
+
+		directoryServer = new InMemoryDirectoryServer(config);
+		directoryServer.add("dn: o=gluu", "objectClass: top", "objectClass: organization", "o: gluu");
+		directoryServer.add("dn: o=@!1111,o=gluu", "objectClass: top", "objectClass: organization", "o: @!1111");
+		directoryServer.add("dn: " + CLIENTS_DN, "objectClass: top", "objectClass: organizationalUnit", "ou: clients");
+	}
+
+	@AfterClass
+	public void shutdownDirectoryServer() {
+		if (directoryServer != null) {
+			directoryServer.shutDown(true);
+		}
+	}
+
+	@Test
+	public void inumsAreOrderedInNode() {
+		InumSequence sequence = new InumSequence(1);
+
+		String previous = sequence.next();
+		Assert.assertTrue(previous.matches("0001(\\.[0-9A-F]{4}){5}"), previous);
+
+		for (int i = 0; i < 10000; i++) {
+			String inum = sequence.next();
+			Assert.assertTrue(inum.compareTo(previous) > 0, inum + " should be greater than " + previous);
+			previous = inum;
+		}
+	}
+
+	@Test
+	public void inumsHaveRandomPart() {
+		InumSequence sequence = new InumSequence(1);
+
+		// Random part is not derived from counter, so consecutive inums don't differ only in last digits
+		Set<String> randomParts = new HashSet<String>();
+		for (int i = 0; i < 100; i++) {
+			randomParts.add(sequence.next().substring(19));
+		}
+		Assert.assertTrue(randomParts.size() > 90, "Random parts: " + randomParts.size());
+	}
+
+	@Test
+	public void concurrentInumsDontCollide() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(NODES * THREADS_PER_NODE);
+		try {
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int node = 0; node < NODES; node++) {
+				final InumSequence sequence = new InumSequence(node);
+				for (int thread = 0; thread < THREADS_PER_NODE; thread++) {
+					results.add(executor.submit(new Callable<Integer>() {
+						@Override
+						public Integer call() throws Exception {
+							int conflicts = 0;
+							for (int i = 0; i < INUMS_PER_THREAD; i++) {
+								String inum = "@!1111!0008!" + sequence.next();
+								try {
+									addClient(inum);
+								} catch (LDAPException ex) {
+									if (!InumService.isEntryAlreadyExists(ex)) {
+										throw ex;
+									}
+									conflicts++;
+								}
+							}
+
+							return conflicts;
+						}
+					}));
+				}
+			}
+
+			for (Future<Integer> result : results) {
+				Assert.assertEquals(result.get().intValue(), 0, "Inum conflicts");
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		int entries = directoryServer.search(CLIENTS_DN, SearchScope.ONE, "(objectClass=*)").getEntryCount();
+		Assert.assertEquals(entries, NODES * THREADS_PER_NODE * INUMS_PER_THREAD);
+	}
+
+	@Test(dependsOnMethods = "concurrentInumsDontCollide")
+	public void duplicateIsRejectedOnAdd() throws Exception {
+		String inum = "@!1111!0008!" + new InumSequence(InumSequence.MAX_NODE_ID).next();
+		addClient(inum);
+
+		try {
+			addClient(inum);
+			Assert.fail("Duplicate entry was added");
+		} catch (LDAPException ex) {
+			Assert.assertEquals(ex.getResultCode(), ResultCode.ENTRY_ALREADY_EXISTS);
+			Assert.assertTrue(InumService.isEntryAlreadyExists(new RuntimeException("Failed to persist entry", ex)));
+		}
+	}
+
+	private void addClient(String inum) throws Exception {
+		directoryServer.add("dn: inum=" + inum + "," + CLIENTS_DN, "objectClass: top", "objectClass: oxAuthClient", "inum: " + inum);
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.comp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.CertificateList;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.cert.validation.StreamingCRLParser;
+import org.xdi.oxauth.cert.validation.model.CRLIndex;
+import org.xdi.oxauth.cert.validation.model.CRLIndex.RevokedCertificate;
+import org.xdi.oxauth.model.util.SecurityProviderUtility;
+
+public class StreamingCRLParserTest {
+
+	private KeyPair keyPair;
+
+	@BeforeClass
+	public void init() throws Exception {
+		SecurityProviderUtility.installBCProvider(true);
+
+		KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+		keyPairGenerator.initialize(2048);
+		keyPair = keyPairGenerator.generateKeyPair();
+	}
+
+	@Test
+	public void parseCrl() throws Exception {
+		Date thisUpdate = new Date(System.currentTimeMillis() / 1000 * 1000);
+		Date nextUpdate = new Date(thisUpdate.getTime() + 60 * 60 * 1000);
+
+		X509v2CRLBuilder crlBuilder = new X509v2CRLBuilder(new X500Name("CN=Test CA"), thisUpdate);
+		crlBuilder.setNextUpdate(nextUpdate);
+		crlBuilder.addExtension(Extension.cRLNumber, false, new ASN1Integer(10));
+
+		Random random = new Random(1);
+		List<BigInteger> serialNumbers = new ArrayList<BigInteger>();
+		for (int i = 0; i < 1000; i++) {
+			BigInteger serialNumber = new BigInteger((i % 2 == 0) ? 40 : 159, random);
+			serialNumbers.add(serialNumber);
+			crlBuilder.addCRLEntry(serialNumber, new Date(thisUpdate.getTime() - i * 1000L), CRLReason.keyCompromise);
+		}
+
+		byte[] crl = crlBuilder.build(new JcaContentSignerBuilder("SHA256withRSA").setProvider("BC").build(keyPair.getPrivate())).getEncoded();
+		CRLIndex crlIndex = new StreamingCRLParser().parse(new ByteArrayInputStream(crl), keyPair.getPublic());
+
+		assertEquals(crlIndex.getSize(), 1000);
+		assertEquals(crlIndex.getThisUpdate(), thisUpdate);
+		assertEquals(crlIndex.getNextUpdate(), nextUpdate);
+		assertEquals(crlIndex.getCrlNumber(), BigInteger.valueOf(10));
+		assertFalse(crlIndex.isDelta());
+
+		for (int i = 0; i < serialNumbers.size(); i++) {
+			RevokedCertificate revokedCertificate = crlIndex.getRevokedCertificate(serialNumbers.get(i));
+			assertNotNull(revokedCertificate);
+			assertEquals(revokedCertificate.getRevocationDate(), new Date(thisUpdate.getTime() - i * 1000L));
+			assertEquals(revokedCertificate.getReason(), CRLReason.keyCompromise);
+		}
+
+		assertNull(crlIndex.getRevokedCertificate(BigInteger.valueOf(12345)));
+	}
+
+	@Test
+	public void parseDeltaCrl() throws Exception {
+		X509v2CRLBuilder crlBuilder = new X509v2CRLBuilder(new X500Name("CN=Test CA"), new Date());
+		crlBuilder.addExtension(Extension.cRLNumber, false, new ASN1Integer(11));
+		crlBuilder.addExtension(Extension.deltaCRLIndicator, true, new ASN1Integer(10));
+		crlBuilder.addCRLEntry(BigInteger.ONE, new Date(), CRLReason.removeFromCRL);
+
+		byte[] crl = crlBuilder.build(new JcaContentSignerBuilder("SHA256withRSA").setProvider("BC").build(keyPair.getPrivate())).getEncoded();
+		CRLIndex crlIndex = new StreamingCRLParser().parse(new ByteArrayInputStream(crl), keyPair.getPublic());
+
+		assertTrue(crlIndex.isDelta());
+		assertEquals(crlIndex.getBaseCrlNumber(), BigInteger.valueOf(10));
+		assertTrue(crlIndex.getRevokedCertificate(BigInteger.ONE).isRemoveFromCrl());
+	}
+
+	@Test(expectedExceptions = SignatureException.class)
+	public void rejectInvalidSignature() throws Exception {
+		X509v2CRLBuilder crlBuilder = new X509v2CRLBuilder(new X500Name("CN=Test CA"), new Date());
+		crlBuilder.addCRLEntry(BigInteger.TEN, new Date(), CRLReason.keyCompromise);
+
+		byte[] crl = crlBuilder.build(new JcaContentSignerBuilder("SHA256withRSA").setProvider("BC").build(keyPair.getPrivate())).getEncoded();
+		crl[crl.length - 1] ^= 1;
+
+		new StreamingCRLParser().parse(new ByteArrayInputStream(crl), keyPair.getPublic());
+	}
+
+	@Test
+	public void parseRsaPssCrl() throws Exception {
+		X509v2CRLBuilder crlBuilder = new X509v2CRLBuilder(new X500Name("CN=Test CA"), new Date());
+		crlBuilder.addCRLEntry(BigInteger.TEN, new Date(), CRLReason.keyCompromise);
+
+		byte[] crl = crlBuilder.build(new JcaContentSignerBuilder("SHA256withRSAandMGF1").setProvider("BC").build(keyPair.getPrivate())).getEncoded();
+		CRLIndex crlIndex = new StreamingCRLParser().parse(new ByteArrayInputStream(crl), keyPair.getPublic());
+
+		assertNotNull(crlIndex.getRevokedCertificate(BigInteger.TEN));
+	}
+
+	@Test(expectedExceptions = SignatureException.class)
+	public void rejectSignatureAlgorithmMismatch() throws Exception {
+		X509v2CRLBuilder crlBuilder = new X509v2CRLBuilder(new X500Name("CN=Test CA"), new Date());
+		crlBuilder.addCRLEntry(BigInteger.TEN, new Date(), CRLReason.keyCompromise);
+
+		CertificateList certificateList = crlBuilder.build(new JcaContentSignerBuilder("SHA256withRSA").setProvider("BC").build(keyPair.getPrivate()))
+				.toASN1Structure();
+
+		ASN1EncodableVector vector = new ASN1EncodableVector();
+		vector.add(certificateList.getTBSCertList());
+		vector.add(new AlgorithmIdentifier(PKCSObjectIdentifiers.sha512WithRSAEncryption, DERNull.INSTANCE));
+		vector.add(certificateList.getSignature());
+		byte[] crl = new DERSequence(vector).getEncoded();
+
+		new StreamingCRLParser().parse(new ByteArrayInputStream(crl), keyPair.getPublic());
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.load;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator. Requests are started by schedule at target rate and don't wait for previous
+ * responses, so slow server increases measured latency instead of decreasing request rate
+ */
+public class LoadGenerator {
+
+	private final int targetRate;
+	private final int maxInFlight;
+
+	public LoadGenerator(int targetRate, int maxInFlight) {
+		if (targetRate <= 0) {
+			throw new IllegalArgumentException("Target rate should be positive");
+		}
+
+		this.targetRate = targetRate;
+		this.maxInFlight = maxInFlight;
+	}
+
+	public LoadResult run(LoadScenario scenario, int warmupSeconds, int durationSeconds) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(maxInFlight);
+		try {
+			if (warmupSeconds > 0) {
+				run(executor, scenario, warmupSeconds);
+			}
+
+			return run(executor, scenario, durationSeconds);
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+
+	private LoadResult run(ExecutorService executor, final LoadScenario scenario, int durationSeconds) throws InterruptedException {
+		final LoadResult result = new LoadResult(scenario.getName(), targetRate);
+		final Semaphore inFlight = new Semaphore(maxInFlight);
+
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / targetRate;
+		long requestsCount = (long) targetRate * durationSeconds;
+		long startTime = System.nanoTime();
+
+		for (long i = 0; i < requestsCount; i++) {
+			final long intendedStartTime = startTime + i * intervalNanos;
+			long delay = intendedStartTime - System.nanoTime();
+			if (delay > 0) {
+				LockSupport.parkNanos(delay);
+			}
+
+			if (!inFlight.tryAcquire()) {
+				result.recordDropped();
+				continue;
+			}
+
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						int status = scenario.execute();
+						long latency = System.nanoTime() - intendedStartTime;
+						if ((status >= 200) && (status < 300)) {
+							result.recordSuccess(latency);
+						} else {
+							result.recordStatus(status, latency);
+						}
+					} catch (Exception ex) {
+						result.recordException(ex, System.nanoTime() - intendedStartTime);
+					} finally {
+						inFlight.release();
+					}
+				}
+			});
+		}
+
+		// Wait for requests in progress
+		inFlight.acquire(maxInFlight);
+		inFlight.release(maxInFlight);
+
+		result.setDurationNanos(System.nanoTime() - startTime);
+
+		return result;
+	}
+
+}
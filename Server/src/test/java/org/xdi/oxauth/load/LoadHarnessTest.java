@@ -0,0 +1,103 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.load;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+import org.xdi.oxauth.BaseTest;
+import org.xdi.oxauth.util.ServerUtil;
+
+/**
+ * Drives load scenarios against embedded server and writes latency percentiles, throughput and errors
+ * as JSON report. Run with -Dload, scenarios and rate can be changed with system properties:
+ * load.scenarios, load.rate, load.duration, load.warmup, load.maxInFlight, load.timeout, load.report, load.label.
+ * Scenarios introspection_single_n and introspection_batch compare N single introspection calls with one batch
+ * call, N is set by load.introspectionBatchSize
+ */
+public class LoadHarnessTest extends BaseTest {
+
+	private static final String DEFAULT_SCENARIOS = LoadScenarios.CLIENT_CREDENTIALS + "," + LoadScenarios.CODE_FLOW + ","
+			+ LoadScenarios.REFRESH_TOKEN + "," + LoadScenarios.USER_INFO + "," + LoadScenarios.INTROSPECTION + ","
+			+ LoadScenarios.INTROSPECTION_SINGLE_N + "," + LoadScenarios.INTROSPECTION_BATCH + "," + LoadScenarios.UMA_RPT;
+
+	@ArquillianResource
+	private URI url;
+
+	@Parameters({ "authorizePath", "tokenPath", "userInfoPath", "introspectionPath", "umaRegisterResourcePath",
+			"umaPermissionPath", "userId", "userSecret", "clientId", "clientSecret", "redirectUri" })
+	@Test
+	public void runLoad(String authorizePath, String tokenPath, String userInfoPath, String introspectionPath,
+			String umaRegisterResourcePath, String umaPermissionPath, String userId, String userSecret, String clientId,
+			String clientSecret, String redirectUri) throws Exception {
+		showTitle("runLoad");
+
+		Map<String, String> parameters = new HashMap<String, String>();
+		parameters.put("authorizePath", authorizePath);
+		parameters.put("tokenPath", tokenPath);
+		parameters.put("userInfoPath", userInfoPath);
+		parameters.put("introspectionPath", introspectionPath);
+		parameters.put("umaRegisterResourcePath", umaRegisterResourcePath);
+		parameters.put("umaPermissionPath", umaPermissionPath);
+		parameters.put("userId", userId);
+		parameters.put("userSecret", userSecret);
+		parameters.put("clientId", clientId);
+		parameters.put("clientSecret", clientSecret);
+		parameters.put("redirectUri", redirectUri);
+
+		int rate = Integer.getInteger("load.rate", 50);
+		int durationSeconds = Integer.getInteger("load.duration", 60);
+		int warmupSeconds = Integer.getInteger("load.warmup", 10);
+		int maxInFlight = Integer.getInteger("load.maxInFlight", 64);
+		int timeoutMillis = Integer.getInteger("load.timeout", 10000);
+		String[] scenarioNames = System.getProperty("load.scenarios", DEFAULT_SCENARIOS).split("\\s*,\\s*");
+
+		List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
+		LoadHttpClient httpClient = new LoadHttpClient(url.toString(), maxInFlight, timeoutMillis);
+		try {
+			LoadScenarios scenarios = new LoadScenarios(httpClient, parameters);
+			LoadGenerator generator = new LoadGenerator(rate, maxInFlight);
+
+			for (String scenarioName : scenarioNames) {
+				LoadScenario scenario = scenarios.create(scenarioName);
+				scenario.prepare();
+
+				output("Running load scenario '" + scenarioName + "' at " + rate + " requests/s for " + durationSeconds + " s");
+				LoadResult result = generator.run(scenario, warmupSeconds, durationSeconds);
+				results.add(result.toMap());
+			}
+		} finally {
+			httpClient.close();
+		}
+
+		Map<String, Object> report = new LinkedHashMap<String, Object>();
+		report.put("label", System.getProperty("load.label", ""));
+		report.put("date", new Date());
+		report.put("targetRate", rate);
+		report.put("warmupSeconds", warmupSeconds);
+		report.put("maxInFlight", maxInFlight);
+		report.put("results", results);
+
+		String json = ServerUtil.asPrettyJson(report);
+		File reportFile = new File(System.getProperty("load.report", "target/load-report.json"));
+		FileUtils.writeStringToFile(reportFile, json, "UTF-8");
+
+		output(json);
+		output("Load report: " + reportFile.getAbsolutePath());
+	}
+
+}
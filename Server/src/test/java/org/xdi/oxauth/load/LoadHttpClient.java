@@ -0,0 +1,140 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.load;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Pooled HTTP client shared by all scenario requests. Redirects are not followed to allow check
+ * authorization response
+ */
+public class LoadHttpClient implements Closeable {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final String baseUrl;
+	private final CloseableHttpClient httpClient;
+
+	public LoadHttpClient(String baseUrl, int maxConnections, int timeoutMillis) {
+		this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnections);
+
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(timeoutMillis).setSocketTimeout(timeoutMillis)
+				.setConnectionRequestTimeout(timeoutMillis).setRedirectsEnabled(false).build();
+
+		this.httpClient = HttpClients.custom().setConnectionManager(connectionManager).setDefaultRequestConfig(requestConfig)
+				.disableRedirectHandling().build();
+	}
+
+	public LoadResponse get(String path, String authorization) throws IOException {
+		HttpGet request = new HttpGet(baseUrl + path);
+
+		return execute(request, authorization);
+	}
+
+	public LoadResponse postForm(String path, String authorization, String... parameters) throws IOException {
+		List<NameValuePair> form = new ArrayList<NameValuePair>(parameters.length / 2);
+		for (int i = 0; i < parameters.length; i += 2) {
+			form.add(new BasicNameValuePair(parameters[i], parameters[i + 1]));
+		}
+
+		HttpPost request = new HttpPost(baseUrl + path);
+		request.setEntity(new UrlEncodedFormEntity(form, UTF8));
+
+		return execute(request, authorization);
+	}
+
+	public LoadResponse postJson(String path, String authorization, String json) throws IOException {
+		HttpPost request = new HttpPost(baseUrl + path);
+		request.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+
+		return execute(request, authorization);
+	}
+
+	public static String basic(String username, String password) {
+		return "Basic " + Base64.encodeBase64String((username + ":" + password).getBytes(UTF8));
+	}
+
+	public static String bearer(String accessToken) {
+		return "Bearer " + accessToken;
+	}
+
+	private LoadResponse execute(HttpRequestBase request, String authorization) throws IOException {
+		request.setHeader(HttpHeaders.ACCEPT, "application/json");
+		if (authorization != null) {
+			request.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+		}
+
+		CloseableHttpResponse response = httpClient.execute(request);
+		try {
+			return new LoadResponse(response);
+		} finally {
+			response.close();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		httpClient.close();
+	}
+
+	public static class LoadResponse {
+
+		private final int status;
+		private final String location;
+		private final String entity;
+
+		public LoadResponse(HttpResponse response) throws IOException {
+			this.status = response.getStatusLine().getStatusCode();
+			this.location = response.containsHeader(HttpHeaders.LOCATION) ? response.getFirstHeader(HttpHeaders.LOCATION).getValue() : null;
+			this.entity = (response.getEntity() == null) ? null : EntityUtils.toString(response.getEntity(), UTF8);
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public boolean isSuccess() {
+			return (status >= 200) && (status < 300);
+		}
+
+		public String getLocation() {
+			return location;
+		}
+
+		public String getEntity() {
+			return entity;
+		}
+
+	}
+
+}
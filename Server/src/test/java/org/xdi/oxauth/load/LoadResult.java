@@ -0,0 +1,129 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency histogram, throughput and errors of one scenario run. Latency is measured from intended
+ * start time of request so delays caused by saturated server are not hidden
+ */
+public class LoadResult {
+
+	private static final long MAX_TRACKABLE_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+	private final String scenario;
+	private final int targetRate;
+
+	private final Histogram latency = new ConcurrentHistogram(MAX_TRACKABLE_LATENCY_MICROS, 3);
+	private final AtomicLong successful = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<String, AtomicLong>();
+
+	private long durationNanos;
+
+	public LoadResult(String scenario, int targetRate) {
+		this.scenario = scenario;
+		this.targetRate = targetRate;
+	}
+
+	public void recordSuccess(long latencyNanos) {
+		recordLatency(latencyNanos);
+		successful.incrementAndGet();
+	}
+
+	public void recordStatus(int status, long latencyNanos) {
+		recordLatency(latencyNanos);
+		recordError("status." + status);
+	}
+
+	public void recordException(Throwable ex, long latencyNanos) {
+		recordLatency(latencyNanos);
+		recordError(ex.getClass().getSimpleName());
+	}
+
+	/**
+	 * Request was not sent because limit of requests in progress was reached
+	 */
+	public void recordDropped() {
+		dropped.incrementAndGet();
+	}
+
+	public void setDurationNanos(long durationNanos) {
+		this.durationNanos = durationNanos;
+	}
+
+	private void recordLatency(long latencyNanos) {
+		long latencyMicros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_TRACKABLE_LATENCY_MICROS);
+		latency.recordValue(Math.max(latencyMicros, 0));
+	}
+
+	private void recordError(String key) {
+		AtomicLong counter = errors.get(key);
+		if (counter == null) {
+			AtomicLong newCounter = new AtomicLong();
+			counter = errors.putIfAbsent(key, newCounter);
+			if (counter == null) {
+				counter = newCounter;
+			}
+		}
+		counter.incrementAndGet();
+	}
+
+	public Map<String, Object> toMap() {
+		long requests = latency.getTotalCount();
+		double durationSeconds = durationNanos / 1e9;
+
+		Map<String, Object> latencyMicros = new LinkedHashMap<String, Object>();
+		latencyMicros.put("min", latency.getMinValue());
+		latencyMicros.put("mean", Math.round(latency.getMean()));
+		latencyMicros.put("p50", latency.getValueAtPercentile(50));
+		latencyMicros.put("p90", latency.getValueAtPercentile(90));
+		latencyMicros.put("p99", latency.getValueAtPercentile(99));
+		latencyMicros.put("p99.9", latency.getValueAtPercentile(99.9));
+		latencyMicros.put("p99.99", latency.getValueAtPercentile(99.99));
+		latencyMicros.put("max", latency.getMaxValue());
+
+		Map<String, Long> errorCounts = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : errors.entrySet()) {
+			errorCounts.put(entry.getKey(), entry.getValue().get());
+		}
+
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("scenario", scenario);
+		result.put("targetRate", targetRate);
+		result.put("durationSeconds", durationSeconds);
+		result.put("requests", requests);
+		result.put("successful", successful.get());
+		result.put("failed", requests - successful.get());
+		result.put("dropped", dropped.get());
+		result.put("throughput", (durationSeconds > 0) ? requests / durationSeconds : 0);
+		result.put("successfulThroughput", (durationSeconds > 0) ? successful.get() / durationSeconds : 0);
+		result.put("latencyMicros", latencyMicros);
+		result.put("errors", errorCounts);
+
+		return result;
+	}
+
+	public String getScenario() {
+		return scenario;
+	}
+
+	public long getSuccessful() {
+		return successful.get();
+	}
+
+}
@@ -0,0 +1,27 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.load;
+
+/**
+ * Sequence of requests which is executed by {@link LoadGenerator} at target rate
+ */
+public interface LoadScenario {
+
+	String getName();
+
+	/**
+	 * Obtains tokens and registers resources needed to execute scenario. Called once before warm up
+	 */
+	void prepare() throws Exception;
+
+	/**
+	 * @return status of last response if all requests succeeded, otherwise status of first unexpected response.
+	 * Only 2xx statuses are counted as successful
+	 */
+	int execute() throws Exception;
+
+}
@@ -0,0 +1,361 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.load;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.xdi.oxauth.load.LoadHttpClient.LoadResponse;
+import org.xdi.oxauth.model.common.GrantType;
+import org.xdi.oxauth.util.QueryStringDecoder;
+
+/**
+ * Creates load scenarios for flows which are used by relying parties most frequently
+ */
+public class LoadScenarios {
+
+	public static final String CODE_FLOW = "code_flow";
+	public static final String CLIENT_CREDENTIALS = "client_credentials";
+	public static final String REFRESH_TOKEN = "refresh_token";
+	public static final String USER_INFO = "userinfo";
+	public static final String INTROSPECTION = "introspection";
+	public static final String INTROSPECTION_SINGLE_N = "introspection_single_n";
+	public static final String INTROSPECTION_BATCH = "introspection_batch";
+	public static final String UMA_RPT = "uma_rpt";
+
+	private static final String UMA_SCOPE = "read";
+
+	private static final int INTROSPECTION_BATCH_SIZE = Integer.getInteger("load.introspectionBatchSize", 20);
+
+	private final LoadHttpClient httpClient;
+	private final Map<String, String> parameters;
+
+	private final String clientAuthorization;
+
+	public LoadScenarios(LoadHttpClient httpClient, Map<String, String> parameters) {
+		this.httpClient = httpClient;
+		this.parameters = parameters;
+		this.clientAuthorization = LoadHttpClient.basic(parameter("clientId"), parameter("clientSecret"));
+	}
+
+	public LoadScenario create(String name) {
+		if (CODE_FLOW.equals(name)) {
+			return new CodeFlowScenario();
+		} else if (CLIENT_CREDENTIALS.equals(name)) {
+			return new ClientCredentialsScenario();
+		} else if (REFRESH_TOKEN.equals(name)) {
+			return new RefreshTokenScenario();
+		} else if (USER_INFO.equals(name)) {
+			return new UserInfoScenario();
+		} else if (INTROSPECTION.equals(name)) {
+			return new IntrospectionScenario();
+		} else if (INTROSPECTION_SINGLE_N.equals(name)) {
+			return new IntrospectionSingleScenario();
+		} else if (INTROSPECTION_BATCH.equals(name)) {
+			return new IntrospectionBatchScenario();
+		} else if (UMA_RPT.equals(name)) {
+			return new UmaRptScenario();
+		}
+
+		throw new IllegalArgumentException("Unknown load scenario: " + name);
+	}
+
+	private String parameter(String name) {
+		String value = parameters.get(name);
+		if (value == null) {
+			throw new IllegalArgumentException("Load test parameter is not defined: " + name);
+		}
+
+		return value;
+	}
+
+	private LoadResponse requestToken(String... parameters) throws Exception {
+		return httpClient.postForm(parameter("tokenPath"), clientAuthorization, parameters);
+	}
+
+	private JSONObject requestTokenOrFail(String... parameters) throws Exception {
+		LoadResponse response = requestToken(parameters);
+		if (!response.isSuccess()) {
+			throw new IllegalStateException("Failed to obtain token, status: " + response.getStatus() + ", response: " + response.getEntity());
+		}
+
+		return new JSONObject(response.getEntity());
+	}
+
+	private JSONObject requestPasswordGrant(String scope) throws Exception {
+		return requestTokenOrFail("grant_type", GrantType.RESOURCE_OWNER_PASSWORD_CREDENTIALS.getValue(),
+				"username", parameter("userId"), "password", parameter("userSecret"), "scope", scope);
+	}
+
+	private String requestPat() throws Exception {
+		return requestTokenOrFail("grant_type", GrantType.CLIENT_CREDENTIALS.getValue(), "scope", "uma_protection").getString("access_token");
+	}
+
+	private String[] requestAccessTokens(int count) throws Exception {
+		String[] accessTokens = new String[count];
+		for (int i = 0; i < count; i++) {
+			accessTokens[i] = requestTokenOrFail("grant_type", GrantType.CLIENT_CREDENTIALS.getValue()).getString("access_token");
+		}
+
+		return accessTokens;
+	}
+
+	private static String encode(String value) throws Exception {
+		return URLEncoder.encode(value, "UTF-8");
+	}
+
+	/**
+	 * Authorization request with user credentials in Basic header and prompt=none followed by code exchange
+	 */
+	private class CodeFlowScenario implements LoadScenario {
+
+		private final String userAuthorization = LoadHttpClient.basic(parameter("userId"), parameter("userSecret"));
+		private String authorizeQuery;
+
+		@Override
+		public String getName() {
+			return CODE_FLOW;
+		}
+
+		@Override
+		public void prepare() throws Exception {
+			authorizeQuery = "?response_type=code&scope=" + encode("openid profile email") + "&client_id=" + encode(parameter("clientId"))
+					+ "&redirect_uri=" + encode(parameter("redirectUri")) + "&prompt=none";
+		}
+
+		@Override
+		public int execute() throws Exception {
+			String state = UUID.randomUUID().toString();
+			LoadResponse authorizeResponse = httpClient.get(parameter("authorizePath") + authorizeQuery + "&state=" + state + "&nonce=" + state,
+					userAuthorization);
+			if ((authorizeResponse.getStatus() != 302) || (authorizeResponse.getLocation() == null)) {
+				return authorizeResponse.getStatus();
+			}
+
+			String query = new URI(authorizeResponse.getLocation()).getQuery();
+			String code = (query == null) ? null : QueryStringDecoder.decode(query).get("code");
+			if (code == null) {
+				// Error redirect
+				return authorizeResponse.getStatus();
+			}
+
+			return requestToken("grant_type", GrantType.AUTHORIZATION_CODE.getValue(), "code", code,
+					"redirect_uri", parameter("redirectUri")).getStatus();
+		}
+
+	}
+
+	private class ClientCredentialsScenario implements LoadScenario {
+
+		@Override
+		public String getName() {
+			return CLIENT_CREDENTIALS;
+		}
+
+		@Override
+		public void prepare() throws Exception {
+		}
+
+		@Override
+		public int execute() throws Exception {
+			return requestToken("grant_type", GrantType.CLIENT_CREDENTIALS.getValue()).getStatus();
+		}
+
+	}
+
+	/**
+	 * Refresh tokens are rotated so every execution takes token from pool and returns new one
+	 */
+	private class RefreshTokenScenario implements LoadScenario {
+
+		private final ConcurrentLinkedQueue<String> refreshTokens = new ConcurrentLinkedQueue<String>();
+
+		@Override
+		public String getName() {
+			return REFRESH_TOKEN;
+		}
+
+		@Override
+		public void prepare() throws Exception {
+			refreshTokens.add(requestPasswordGrant("openid").getString("refresh_token"));
+		}
+
+		@Override
+		public int execute() throws Exception {
+			String refreshToken = refreshTokens.poll();
+			if (refreshToken == null) {
+				refreshToken = requestPasswordGrant("openid").getString("refresh_token");
+			}
+
+			LoadResponse response = requestToken("grant_type", GrantType.REFRESH_TOKEN.getValue(), "refresh_token", refreshToken);
+			if (response.isSuccess()) {
+				refreshTokens.add(new JSONObject(response.getEntity()).getString("refresh_token"));
+			}
+
+			return response.getStatus();
+		}
+
+	}
+
+	private class UserInfoScenario implements LoadScenario {
+
+		private String authorization;
+
+		@Override
+		public String getName() {
+			return USER_INFO;
+		}
+
+		@Override
+		public void prepare() throws Exception {
+			authorization = LoadHttpClient.bearer(requestPasswordGrant("openid profile email").getString("access_token"));
+		}
+
+		@Override
+		public int execute() throws Exception {
+			return httpClient.get(parameter("userInfoPath"), authorization).getStatus();
+		}
+
+	}
+
+	private class IntrospectionScenario implements LoadScenario {
+
+		private String authorization;
+		private String accessToken;
+
+		@Override
+		public String getName() {
+			return INTROSPECTION;
+		}
+
+		@Override
+		public void prepare() throws Exception {
+			authorization = LoadHttpClient.bearer(requestPat());
+			accessToken = requestTokenOrFail("grant_type", GrantType.CLIENT_CREDENTIALS.getValue()).getString("access_token");
+		}
+
+		@Override
+		public int execute() throws Exception {
+			return httpClient.postForm(parameter("introspectionPath"), authorization, "token", accessToken).getStatus();
+		}
+
+	}
+
+	/**
+	 * Introspects batch of tokens with one call to single token endpoint per token. Baseline of
+	 * {@link IntrospectionBatchScenario}
+	 */
+	private class IntrospectionSingleScenario implements LoadScenario {
+
+		private String authorization;
+		private String[] accessTokens;
+
+		@Override
+		public String getName() {
+			return INTROSPECTION_SINGLE_N;
+		}
+
+		@Override
+		public void prepare() throws Exception {
+			authorization = LoadHttpClient.bearer(requestPat());
+			accessTokens = requestAccessTokens(INTROSPECTION_BATCH_SIZE);
+		}
+
+		@Override
+		public int execute() throws Exception {
+			int status = 0;
+			for (String accessToken : accessTokens) {
+				LoadResponse response = httpClient.postForm(parameter("introspectionPath"), authorization, "token", accessToken);
+				if (!response.isSuccess()) {
+					return response.getStatus();
+				}
+				status = response.getStatus();
+			}
+
+			return status;
+		}
+
+	}
+
+	/**
+	 * Introspects the same number of tokens as {@link IntrospectionSingleScenario} with one call to batch endpoint
+	 */
+	private class IntrospectionBatchScenario implements LoadScenario {
+
+		private String authorization;
+		private String[] form;
+
+		@Override
+		public String getName() {
+			return INTROSPECTION_BATCH;
+		}
+
+		@Override
+		public void prepare() throws Exception {
+			authorization = LoadHttpClient.bearer(requestPat());
+
+			String[] accessTokens = requestAccessTokens(INTROSPECTION_BATCH_SIZE);
+			form = new String[accessTokens.length * 2];
+			for (int i = 0; i < accessTokens.length; i++) {
+				form[2 * i] = "token";
+				form[2 * i + 1] = accessTokens[i];
+			}
+		}
+
+		@Override
+		public int execute() throws Exception {
+			return httpClient.postForm(parameter("introspectionPath") + "/batch", authorization, form).getStatus();
+		}
+
+	}
+
+	/**
+	 * Permission ticket registration by resource server followed by RPT request with this ticket
+	 */
+	private class UmaRptScenario implements LoadScenario {
+
+		private String authorization;
+		private String permissionRequest;
+
+		@Override
+		public String getName() {
+			return UMA_RPT;
+		}
+
+		@Override
+		public void prepare() throws Exception {
+			authorization = LoadHttpClient.bearer(requestPat());
+
+			LoadResponse response = httpClient.postJson(parameter("umaRegisterResourcePath"), authorization,
+					"{\"name\":\"Load test resource\",\"resource_scopes\":[\"" + UMA_SCOPE + "\"]}");
+			if (!response.isSuccess()) {
+				throw new IllegalStateException("Failed to register resource, status: " + response.getStatus() + ", response: " + response.getEntity());
+			}
+
+			String resourceId = new JSONObject(response.getEntity()).getString("_id");
+			permissionRequest = "[{\"resource_id\":\"" + resourceId + "\",\"resource_scopes\":[\"" + UMA_SCOPE + "\"]}]";
+		}
+
+		@Override
+		public int execute() throws Exception {
+			LoadResponse permissionResponse = httpClient.postJson(parameter("umaPermissionPath"), authorization, permissionRequest);
+			if (!permissionResponse.isSuccess()) {
+				return permissionResponse.getStatus();
+			}
+
+			String ticket = new JSONObject(permissionResponse.getEntity()).getString("ticket");
+
+			return requestToken("grant_type", GrantType.OXAUTH_UMA_TICKET.getValue(), "ticket", ticket).getStatus();
+		}
+
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * oxAuth is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2014, Gluu
+ */
+
+package org.xdi.oxauth.load;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.xdi.oxauth.model.configuration.AppConfiguration;
+import org.xdi.oxauth.util.ServerUtil;
+import org.xdi.util.security.StringEncrypter;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+import com.unboundid.ldap.sdk.RDN;
+
+/**
+ * Starts in-memory LDAP server on address from oxauth-ldap.properties before embedded server is deployed.
+ * Directory contains oxAuth configuration from conf folder and test data from load/load-test-data.ldif.
+ * Schema checking is disabled because oxAuth LDAP schema is not part of this project.
+ *
+ * Set -Dload.ldap.embedded=false to run load tests against server configured in test profile
+ */
+public class LoadTestDirectory implements ISuiteListener {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final String TEST_DATA_LDIF = "load/load-test-data.ldif";
+
+	private InMemoryDirectoryServer directoryServer;
+
+	@Override
+	public void onStart(ISuite suite) {
+		if ("false".equals(System.getProperty("load.ldap.embedded"))) {
+			return;
+		}
+
+		try {
+			this.directoryServer = start();
+		} catch (Exception ex) {
+			throw new IllegalStateException("Failed to start in-memory LDAP server", ex);
+		}
+	}
+
+	@Override
+	public void onFinish(ISuite suite) {
+		if (directoryServer != null) {
+			directoryServer.shutDown(true);
+		}
+	}
+
+	private InMemoryDirectoryServer start() throws Exception {
+		String baseDir = System.getProperty("server.base", "target");
+		String confDir = baseDir + File.separator + "conf" + File.separator;
+
+		Properties ldapProperties = loadProperties(confDir + "oxauth-ldap.properties");
+		Properties saltProperties = loadProperties(confDir + "salt");
+		Properties testProperties = loadProperties(baseDir + File.separator + "test-classes" + File.separator + "testng.properties");
+
+		StringEncrypter stringEncrypter = StringEncrypter.instance(saltProperties.getProperty("encodeSalt"));
+		String bindDn = ldapProperties.getProperty("bindDN");
+		String bindPassword = stringEncrypter.decrypt(ldapProperties.getProperty("bindPassword"));
+		String server = ldapProperties.getProperty("servers").split(",")[0].trim();
+		int port = Integer.parseInt(server.substring(server.lastIndexOf(':') + 1));
+
+		InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig("o=gluu");
+		config.addAdditionalBindCredentials(bindDn, bindPassword);
+		config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", port));
+		config.setSchema(null);
+		config.setEqualityIndexAttributes("inum", "uid", "displayName", "oxId", "oxAuthTokenCode", "oxAuthGrantId",
+				"oxAuthAuthorizationCode", "oxAuthSessionDn", "oxTicket");
+
+		InMemoryDirectoryServer server = new InMemoryDirectoryServer(config);
+		server.add("dn: o=gluu", "objectClass: top", "objectClass: organization", "o: gluu");
+		server.importFromLDIF(false, baseDir + File.separator + "test-classes" + File.separator + TEST_DATA_LDIF);
+
+		addConfiguration(server, confDir, ldapProperties.getProperty("oxauth_ConfigurationEntryDN"));
+
+		String clientDn = String.format("inum=%s,ou=clients,o=%s,o=gluu", testProperties.getProperty("clientId"),
+				getOrganization(ldapProperties.getProperty("oxauth_ConfigurationEntryDN")));
+		server.modify(clientDn, new Modification(ModificationType.REPLACE, "oxAuthClientSecret",
+				stringEncrypter.encrypt(testProperties.getProperty("clientSecret"))));
+
+		server.startListening();
+
+		return server;
+	}
+
+	private void addConfiguration(InMemoryDirectoryServer server, String confDir, String configurationDn) throws Exception {
+		String dynamicConf = readFile(confDir + "oxauth-config.json");
+		AppConfiguration appConfiguration = ServerUtil.createJsonMapper().readValue(dynamicConf, AppConfiguration.class);
+
+		addBranch(server, new DN(configurationDn).getParent());
+		server.add("dn: " + configurationDn,
+				"objectClass: top",
+				"objectClass: oxAuthConfiguration",
+				"ou: " + new DN(configurationDn).getRDN().getAttributeValues()[0],
+				"oxAuthConfDynamic: " + dynamicConf,
+				"oxAuthConfStatic: " + readFile(confDir + "oxauth-static-conf.json"),
+				"oxAuthConfErrors: " + readFile(confDir + "oxauth-errors.json"),
+				"oxAuthConfWebKeys: " + readFile(confDir + "oxauth-web-keys.json"),
+				"oxRevision: 1");
+
+		// Cache configuration is not defined so server falls back to in-memory cache
+		addBranch(server, new DN("ou=appliances,o=gluu"));
+		server.add("dn: inum=" + appConfiguration.getApplianceInum() + ",ou=appliances,o=gluu",
+				"objectClass: top",
+				"objectClass: gluuAppliance",
+				"inum: " + appConfiguration.getApplianceInum());
+	}
+
+	private void addBranch(InMemoryDirectoryServer server, DN dn) throws Exception {
+		if ((dn == null) || dn.isNullDN() || (server.getEntry(dn.toString()) != null)) {
+			return;
+		}
+
+		addBranch(server, dn.getParent());
+
+		RDN rdn = dn.getRDN();
+		server.add("dn: " + dn.toString(), "objectClass: top", "objectClass: organizationalUnit",
+				rdn.getAttributeNames()[0] + ": " + rdn.getAttributeValues()[0]);
+	}
+
+	private String getOrganization(String configurationDn) throws Exception {
+		for (RDN rdn : new DN(configurationDn).getRDNs()) {
+			if ("o".equalsIgnoreCase(rdn.getAttributeNames()[0]) && !"gluu".equalsIgnoreCase(rdn.getAttributeValues()[0])) {
+				return rdn.getAttributeValues()[0];
+			}
+		}
+
+		throw new IllegalArgumentException("Configuration entry DN doesn't contain organization: " + configurationDn);
+	}
+
+	/**
+	 * LDIF attribute values should be in single line
+	 */
+	private String readFile(String filePath) throws IOException {
+		return FileUtils.readFileToString(new File(filePath), UTF8).replaceAll("\\s*[\\r\\n]+\\s*", " ").trim();
+	}
+
+	private Properties loadProperties(String filePath) throws IOException {
+		Properties properties = new Properties();
+		InputStream is = new FileInputStream(filePath);
+		try {
+			properties.load(is);
+		} finally {
+			is.close();
+		}
+
+		return properties;
+	}
+
+}
@@ -81,4 +81,55 @@ public class IntrospectionWebServiceEmbeddedTest extends BaseTest {
 		}
 	}
 
+	@Test(dependsOnMethods = "requestTokenToIntrospect")
+	@Parameters({ "introspectionPath" })
+	public void introspectionBatch(final String introspectionPath) throws Exception {
+		Builder request = ResteasyClientBuilder.newClient().target(url.toString() + introspectionPath + "/batch").request();
+
+		request.header("Accept", "application/json");
+		request.header("Authorization", "Bearer " + authorization.getAccessToken());
+		Form form = new Form("token", tokenToIntrospect.getAccessToken());
+		form.param("token", "unknown_token");
+		form.param("token", authorization.getAccessToken());
+		Response response = request.post(Entity.form(form));
+
+		String entity = response.readEntity(String.class);
+		showResponse("introspectionBatch", response, entity);
+
+		assertEquals(response.getStatus(), 200);
+		try {
+			final IntrospectionResponse[] t = ServerUtil.createJsonMapper().readValue(entity,
+					IntrospectionResponse[].class);
+			assertEquals(t.length, 3);
+			assertTrue(t[0].isActive());
+			assertFalse(t[1].isActive());
+			assertTrue(t[2].isActive());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail();
+		}
+	}
+
+	@Test(dependsOnMethods = "requestTokenToIntrospect")
+	@Parameters({ "introspectionPath" })
+	public void introspectionBatchWithTooManyTokens(final String introspectionPath) throws Exception {
+		Builder request = ResteasyClientBuilder.newClient().target(url.toString() + introspectionPath + "/batch").request();
+
+		request.header("Accept", "application/json");
+		request.header("Authorization", "Bearer " + authorization.getAccessToken());
+
+		// One token more than default introspectionBatchMaxTokens
+		Form form = new Form();
+		for (int i = 0; i <= 100; i++) {
+			form.param("token", tokenToIntrospect.getAccessToken());
+		}
+		Response response = request.post(Entity.form(form));
+
+		String entity = response.readEntity(String.class);
+		showResponse("introspectionBatchWithTooManyTokens", response, entity);
+
+		assertEquals(response.getStatus(), 400);
+		assertTrue(entity.contains("invalid_request"));
+	}
+
 }